@@ -0,0 +1,169 @@
+/*
+ * Created on Oct 16, 2026
+ */
+package sime;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Micro-benchmarks of the network elements: the packet delivery of
+ * a {@link Link} and the packet handling of a {@link Router.OutputPort}.
+ * One operation handles a burst of packets, and the throughput is
+ * also given in packets per second (see {@link Packets}).
+ *
+ * @author agent
+ */
+public class NetworkBenchmarks {
+
+	/**
+	 * The packets handled by the operations, reported by JMH
+	 * as an additional throughput metric, per second.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Packets {
+		/** The packets handled. */
+		public long packets;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			packets = 0L;
+		}
+	}
+
+	/**
+	 * Benchmark of {@link Link.Channel#deliverArrivedPackets()}:
+	 * one operation enqueues a burst of packets on a link with zero
+	 * delays and delivers all of them to the other end.
+	 */
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	@Warmup(iterations = 3, time = 1)
+	@Measurement(iterations = 5, time = 1)
+	@Fork(2)
+	@State(Scope.Thread)
+	public static class LinkDelivery {
+		/** The number of packets per operation. */
+		@Param({"1", "64"})
+		public int burst;
+
+		Link link = null;
+		Sink source = null;
+		Packet[] packets = null;
+
+		@Setup(Level.Trial)
+		public void setUp() {
+			Simulator simulator_ = new Simulator("Tahoe", 0, 65536, Reporting.silent());
+			source = new Sink(simulator_, "source");
+			Sink destination_ = new Sink(simulator_, "destination");
+			link = new Link(simulator_, "link", source, destination_, 0L, 0L);
+			packets = new Packet[burst];
+			for (int i_ = 0; i_ < burst; i_++) {
+				packets[i_] = new Packet(destination_, new byte[1024]);
+			}
+		}
+
+		@Benchmark
+		public long deliver(Packets packets_) {
+			for (int i_ = 0; i_ < burst; i_++) {
+				link.send(source, packets[i_]);
+			}
+			link.channelN1toN2.deliverArrivedPackets();
+			packets_.packets += burst;
+			return link.getPacketsDelivered();
+		}
+	}
+
+	/**
+	 * Benchmark of {@link Router.OutputPort#handleIncomingPacket(NetworkElement, Packet)}:
+	 * one operation hands a burst of packets to an output port, whose
+	 * buffer holds only a part of the burst (so the excess packets are dropped),
+	 * and then drains the port and its outgoing link.
+	 */
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	@Warmup(iterations = 3, time = 1)
+	@Measurement(iterations = 5, time = 1)
+	@Fork(2)
+	@State(Scope.Thread)
+	public static class RouterPort {
+		/** The number of packets per operation. */
+		@Param({"8", "64"})
+		public int burst;
+
+		Router router = null;
+		Link link = null;
+		Router.OutputPort port = null;
+		Sink source = null;
+		Packet[] packets = null;
+
+		@Setup(Level.Trial)
+		public void setUp() {
+			Simulator simulator_ = new Simulator("Tahoe", 0, 65536, Reporting.silent());
+			source = new Sink(simulator_, "source");
+			Sink destination_ = new Sink(simulator_, "destination");
+			// The buffer holds a half of the burst:
+			router = new Router(simulator_, "router", burst / 2 * 1024);
+			link = new Link(simulator_, "link", router, destination_, 0L, 0L);
+			router.addForwardingTableEntry(destination_, link);
+			port = router.outputPorts.get(link);
+			packets = new Packet[burst];
+			for (int i_ = 0; i_ < burst; i_++) {
+				packets[i_] = new Packet(destination_, new byte[1024]);
+			}
+		}
+
+		@Benchmark
+		public long handle(Packets packets_) {
+			for (int i_ = 0; i_ < burst; i_++) {
+				port.handleIncomingPacket(source, packets[i_]);
+			}
+			// Complete the transmissions without waiting for the timer:
+			while (port.packetInTransmission != null) {
+				port.timerExpired(1);
+			}
+			link.channelN1toN2.deliverArrivedPackets();
+			packets_.packets += burst;
+			return router.getPacketsDropped();
+		}
+	}
+
+	/**
+	 * A network element that just absorbs the packets delivered to it.
+	 */
+	static class Sink extends NetworkElement {
+		/** The number of packets received. */
+		long received = 0L;
+
+		Sink(Simulator simulator_, String name_) {
+			super(simulator_, name_);
+		}
+
+		@Override
+		public void process(int mode_) {
+		}
+
+		@Override
+		public void send(NetworkElement source_, Packet packet_) {
+		}
+
+		@Override
+		public void handle(NetworkElement source_, Packet packet_) {
+			received++;
+		}
+	}
+}
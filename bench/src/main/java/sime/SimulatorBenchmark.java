@@ -0,0 +1,90 @@
+/*
+ * Created on Oct 16, 2026
+ */
+package sime;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sime.tcp.Sender;
+
+/**
+ * End-to-end benchmark of {@link Simulator#run(ByteBuffer, int)},
+ * or of {@link Simulator#runVirtual(long, int)} in the "virtual data" mode:
+ * one operation is a complete simulation of the given number of
+ * iterations (RTTs) with the default network configuration of
+ * {@link Simulator#main(String[])}, without any reporting.
+ * Besides the simulations per second, the throughput is also given in
+ * the simulated RTTs and the packets delivered by the links per second
+ * (see {@link Counters}).
+ *
+ * @author agent
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class SimulatorBenchmark {
+	/** The TCP sender version to simulate. */
+	@Param({"Tahoe", "NewReno", "SACK"})
+	public String senderVersion;
+
+	/** The number of iterations (RTTs) per simulation. */
+	@Param({"100", "1000"})
+	public int numIter;
+
+	/** Whether the simulations run in the "virtual data" mode. */
+	@Param({"false", "true"})
+	public boolean virtual;
+
+	/**
+	 * The units of work done by the simulations, reported by JMH
+	 * as the additional throughput metrics, per second.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Counters {
+		/** The simulated iterations (RTTs). */
+		public long rtts;
+
+		/** The packets delivered by the links. */
+		public long packets;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			rtts = 0L;
+			packets = 0L;
+		}
+	}
+
+	@Benchmark
+	public long simulate(Counters counters_) {
+		Simulator simulator_ = new Simulator(
+			senderVersion, 6*Sender.DEFAULT_MSS + 100, 65536, Reporting.silent()
+		);
+		if (virtual) {
+			simulator_.runVirtual(Simulator.TOTAL_DATA_LENGTH, numIter);
+		} else {
+			simulator_.run(ByteBuffer.allocate(Simulator.TOTAL_DATA_LENGTH), numIter);
+		}
+		counters_.rtts += numIter;
+		counters_.packets += simulator_.getPacketsDelivered();
+		return simulator_.getTotalBytesTransmitted();
+	}
+}
@@ -0,0 +1,212 @@
+/*
+ * Created on Oct 16, 2026
+ */
+package sime.tcp;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sime.Endpoint;
+import sime.Reporting;
+import sime.Simulator;
+
+/**
+ * Micro-benchmarks of the TCP modules: the RTT estimation of
+ * {@link RTOEstimator}, the reassembly of out-of-order segments
+ * in {@link Receiver}, and the sender's {@link SendBuffer}.
+ *
+ * @author agent
+ */
+public class TcpBenchmarks {
+
+	/**
+	 * Benchmark of {@link RTOEstimator#updateRTT(long, long)}:
+	 * one operation updates the estimate with one RTT sample,
+	 * taken in turn from a fixed set of random samples.
+	 */
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	@Warmup(iterations = 3, time = 1)
+	@Measurement(iterations = 5, time = 1)
+	@Fork(2)
+	@State(Scope.Thread)
+	public static class RTTUpdate {
+		RTOEstimator rtoEstimator = null;
+
+		/** Sample RTTs, in the simulation time units. */
+		long[] samples = new long[1024];
+
+		/** The index of the next sample. */
+		int next = 0;
+
+		/** The simulated current time. */
+		long now = 0L;
+
+		@Setup(Level.Trial)
+		public void setUp() {
+			rtoEstimator = new RTOEstimator(Simulator.TIME_UNITS_PER_TICK, Reporting.silent());
+			Random random_ = new Random(1L);
+			for (int i_ = 0; i_ < samples.length; i_++) {
+				// between a half and four ticks:
+				samples[i_] = Simulator.ticksToTime(0.5 + 3.5 * random_.nextDouble());
+			}
+			now = 10L * Simulator.TIME_UNITS_PER_TICK;
+		}
+
+		@Benchmark
+		public long updateRTT() {
+			now += Simulator.TIMER_RESOLUTION;
+			rtoEstimator.updateRTT(now, now - samples[next]);
+			next = (next + 1) & (samples.length - 1);
+			return rtoEstimator.getTimeoutInterval();
+		}
+	}
+
+	/**
+	 * Benchmark of {@link Receiver#checkBufferedSegments()}:
+	 * before each operation, the given number of out-of-order segments
+	 * are buffered, in a random order; the operation then lets the missing
+	 * segment arrive, so that all the buffered segments are reassembled.
+	 * The throughput is also given in the segments reassembled per second
+	 * (see {@link Segments}).</p>
+	 *
+	 * <p>Note that the buffering is done in a setup of
+	 * {@link Level#Invocation}, so it is not measured. Because the operation
+	 * is short, its score includes some overhead of JMH for each invocation;
+	 * the score for a large number of segments is more accurate.
+	 */
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	@Warmup(iterations = 3, time = 1)
+	@Measurement(iterations = 5, time = 1)
+	@Fork(2)
+	@State(Scope.Thread)
+	public static class Reassembly {
+		/** The number of out-of-order segments per operation. */
+		@Param({"1", "8", "64"})
+		public int reordered;
+
+		Receiver receiver = null;
+
+		/** The out-of-order segments, in the order of their arrival. */
+		Segment[] segments = null;
+
+		/**
+		 * The segments reassembled by the operations, reported by JMH
+		 * as an additional throughput metric, per second.
+		 */
+		@State(Scope.Thread)
+		@AuxCounters(AuxCounters.Type.OPERATIONS)
+		public static class Segments {
+			/** The segments reassembled. */
+			public long segments;
+
+			@Setup(Level.Iteration)
+			public void reset() {
+				segments = 0L;
+			}
+		}
+
+		@Setup(Level.Trial)
+		public void setUp() throws Exception {
+			Simulator simulator_ = new Simulator("Tahoe", 0, 65536, Reporting.silent());
+			Endpoint endpoint_ = new Endpoint(simulator_, "receiver", null, "Tahoe", 65536);
+			receiver = new Receiver(endpoint_, Integer.MAX_VALUE / 2);
+
+			// Segments #1 .. #reordered, shuffled; segment #0 is the missing one.
+			segments = new Segment[reordered];
+			for (int i_ = 0; i_ < reordered; i_++) {
+				segments[i_] = new Segment(
+					endpoint_, 65536, (i_ + 1) * Sender.DEFAULT_MSS, new byte[Sender.DEFAULT_MSS]
+				);
+			}
+			Random random_ = new Random(1L);
+			for (int i_ = reordered - 1; i_ > 0; i_--) {
+				int j_ = random_.nextInt(i_ + 1);
+				Segment tmp_ = segments[i_];
+				segments[i_] = segments[j_];
+				segments[j_] = tmp_;
+			}
+		}
+
+		@Setup(Level.Invocation)
+		public void bufferSegments() {
+			receiver.rcvBuffer.clear();
+			for (int i_ = 0; i_ < reordered; i_++) {
+				receiver.bufferSegment(segments[i_]);
+			}
+			receiver.lastByteRecvd = (reordered + 1) * Sender.DEFAULT_MSS - 1;
+		}
+
+		@Benchmark
+		public long reassemble(Segments segments_) {
+			// The missing segment #0 arrives:
+			receiver.nextByteExpected = Sender.DEFAULT_MSS;
+			receiver.checkBufferedSegments();
+			segments_.segments += reordered;
+			return receiver.nextByteExpected;
+		}
+	}
+
+	/**
+	 * Benchmark of {@link SendBuffer}: one operation appends the data
+	 * of one segment in small application writes of the given size,
+	 * takes a view of the segment for transmission, and releases it as acknowledged.
+	 * A window of segments is kept outstanding in the buffer.
+	 */
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	@Warmup(iterations = 3, time = 1)
+	@Measurement(iterations = 5, time = 1)
+	@Fork(2)
+	@State(Scope.Thread)
+	public static class SendBufferAppend {
+		/** The size of one application write, in bytes (a divisor of the MSS). */
+		@Param({"64", "1024"})
+		public int writeSize;
+
+		SendBuffer sendBuffer = null;
+
+		/** The data of one application write. */
+		byte[] write = null;
+
+		/** The sequence number of the next segment to read. */
+		long nextSequenceNumber = 0L;
+
+		@Setup(Level.Trial)
+		public void setUp() {
+			sendBuffer = new SendBuffer(Sender.SEND_BUFFER_BLOCK_SEGMENTS * Sender.DEFAULT_MSS, 0);
+			write = new byte[writeSize];
+			// Keep a window of 64 segments outstanding:
+			for (int i_ = 0; i_ < 64 * Sender.DEFAULT_MSS / writeSize; i_++) {
+				sendBuffer.append(write, 0, writeSize);
+			}
+		}
+
+		@Benchmark
+		public long appendSliceRelease() {
+			for (int i_ = 0; i_ < Sender.DEFAULT_MSS / writeSize; i_++) {
+				sendBuffer.append(write, 0, writeSize);
+			}
+			ByteBuffer payload_ = sendBuffer.slice(nextSequenceNumber, Sender.DEFAULT_MSS);
+			nextSequenceNumber += Sender.DEFAULT_MSS;
+			sendBuffer.release(nextSequenceNumber);
+			return sendBuffer.size() + payload_.remaining();
+		}
+	}
+}
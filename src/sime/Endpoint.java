@@ -6,12 +6,11 @@
  */
 package sime;
 
+import sime.tcp.CongestionControl;
+import sime.tcp.CongestionControlRegistry;
 import sime.tcp.Segment;
-import sime.tcp.SenderNewReno;
 import sime.tcp.Receiver;
-import sime.tcp.SenderReno;
 import sime.tcp.Sender;
-import sime.tcp.SenderTahoe;
 
 /**
  * This class implements a simple TCP endpoint that is composed
@@ -45,6 +44,29 @@ public class Endpoint extends NetworkElement {
 	/** Created in the constructor; we assume a universal TCP receiver. */
 	protected Receiver receiver = null;
 
+	/** The maximum segment size of this endpoint, in bytes: the largest
+	 * segment that it can send or receive, which it advertises in the MSS
+	 * option when a connection is established (see {@link #negotiateMSS()}). */
+	protected int mss = Sender.DEFAULT_MSS;
+
+	/** Indicates whether this endpoint sends the window scale option
+	 * when a connection is established (see {@link #negotiateWindowScale()}); ON by default. */
+	protected boolean windowScaling = true;
+
+	/** The suffix of the TCP sender version that turns ON the pacing
+	 * of the sender's segments, e.g., "Reno-paced" (see {@link Sender#setPacing(boolean)}). */
+	public static final String PACED_SUFFIX = "-paced";
+
+	/** The suffix of the TCP sender version that turns ON the Limited Transmit
+	 * on the first duplicate ACKs, e.g., "NewReno-lt" (see {@link Sender#setLimitedTransmit(boolean)}).
+	 * It may be combined with {@link #PACED_SUFFIX}, e.g., "NewReno-lt-paced". */
+	public static final String LIMITED_TRANSMIT_SUFFIX = "-lt";
+
+	/** The suffix of the TCP sender version that selects the fast recovery with
+	 * the Proportional Rate Reduction, e.g., "NewReno-prr" (see {@link Sender#setProportionalRateReduction(boolean)}).
+	 * It may be combined with the other suffixes, e.g., "NewReno-prr-lt". */
+	public static final String PRR_SUFFIX = "-prr";
+
 	/**
 	 * Constructor.
 	 * 
@@ -52,32 +74,97 @@ public class Endpoint extends NetworkElement {
 	 * @param name_ the name given to this endpoint
 	 * @param remoteTCPendpoint_ the remote endpoint that established a TCP connection
 	 * with this local endpoint, if any
-	 * @param senderType_ the TCP version of the Sender contained in this endpoint&mdash;one of: "Tahoe", "Reno", or "NewReno")
+	 * @param senderType_ the TCP version of the Sender contained in this endpoint&mdash;one of
+	 * {@link CongestionControlRegistry#getNames()}, optionally followed by {@link #PACED_SUFFIX}, {@link #LIMITED_TRANSMIT_SUFFIX} and/or {@link #PRR_SUFFIX}
 	 * @param rcvWindow_ the size of the receive window for the TCP Receiver contained in this endpoint
 	 * @throws Exception when an unknown TCP sender type parameter is passed in
 	 */
 	public Endpoint(
 		Simulator simulator_, String name_, Endpoint remoteTCPendpoint_,
 		String senderType_, int rcvWindow_
+	) throws Exception {
+		this(
+			simulator_, name_, remoteTCPendpoint_, senderType_, rcvWindow_, Sender.DEFAULT_MSS
+		);
+	}
+
+	/**
+	 * Constructor of an endpoint with the given maximum segment size.
+	 * 
+	 * @param simulator_ the runtime environment
+	 * @param name_ the name given to this endpoint
+	 * @param remoteTCPendpoint_ the remote endpoint that established a TCP connection
+	 * with this local endpoint, if any
+	 * @param senderType_ the TCP version of the Sender contained in this endpoint&mdash;one of
+	 * {@link CongestionControlRegistry#getNames()}, optionally followed by {@link #PACED_SUFFIX}, {@link #LIMITED_TRANSMIT_SUFFIX} and/or {@link #PRR_SUFFIX}
+	 * @param rcvWindow_ the size of the receive window for the TCP Receiver contained in this endpoint
+	 * @param mss_ the maximum segment size of this endpoint, in bytes
+	 * @throws Exception when an unknown TCP sender type parameter is passed in
+	 */
+	public Endpoint(
+		Simulator simulator_, String name_, Endpoint remoteTCPendpoint_,
+		String senderType_, int rcvWindow_, int mss_
 	) throws Exception {
 		super(simulator_, name_);
 		this.remoteEndpoint = remoteTCPendpoint_;
+		this.mss = mss_;
 
-		if (senderType_.matches("Tahoe")) {
-			this.sender = new SenderTahoe(this);
-		} else if (senderType_.matches("NewReno")) {
-			this.sender = new SenderNewReno(this);
-		} else if (senderType_.matches("Reno")) {
-			this.sender = new SenderReno(this);
-		} else {
+		// Strip the suffixes of the options, in any order:
+		String baseType_ = getBaseSenderType(senderType_);
+		String options_ = senderType_.substring(baseType_.length());
+		boolean paced_ = options_.contains(PACED_SUFFIX);
+		boolean limitedTransmit_ = options_.contains(LIMITED_TRANSMIT_SUFFIX);
+		boolean prr_ = options_.contains(PRR_SUFFIX);
+
+		// The sender versions are registered by their names,
+		// including the versions discovered on the class path:
+		CongestionControl congestionControl_ = CongestionControlRegistry.lookup(baseType_);
+		if (congestionControl_ == null) {
 			throw new Exception("TCPEndpoint.TCPEndpoint -- unknown TCP sender type.");
 		}
+		this.sender = congestionControl_.createSender(this);
+		if (paced_) {
+			this.sender.setPacing(true);
+		}
+		if (limitedTransmit_) {
+			this.sender.setLimitedTransmit(true);
+		}
+		if (prr_) {
+			this.sender.setProportionalRateReduction(true);
+		}
 
 		// We assume a universal TCP receiver for all endpoints,
 		// regardless of the TCP version of the sender:
 		receiver = new Receiver(this, rcvWindow_);
 	}
 
+	/**
+	 * Returns the name of the TCP sender version without the suffixes
+	 * of the options ({@link #PACED_SUFFIX}, {@link #LIMITED_TRANSMIT_SUFFIX},
+	 * and {@link #PRR_SUFFIX}), in any order, e.g., "NewReno" for "NewReno-lt-paced".
+	 * This is the name under which the version is registered
+	 * in {@link CongestionControlRegistry}.
+	 * 
+	 * @param senderType_ the TCP sender version, possibly with the option suffixes
+	 * @return the TCP sender version without the option suffixes
+	 */
+	public static String getBaseSenderType(String senderType_) {
+		String[] suffixes_ = { PACED_SUFFIX, LIMITED_TRANSMIT_SUFFIX, PRR_SUFFIX };
+		boolean stripped_ = true;
+		while (stripped_) {
+			stripped_ = false;
+			for (int i_ = 0; i_ < suffixes_.length; i_++) {
+				if (senderType_.endsWith(suffixes_[i_])) {
+					senderType_ = senderType_.substring(
+						0, senderType_.length() - suffixes_[i_].length()
+					);
+					stripped_ = true;
+				}
+			}
+		}
+		return senderType_;
+	}
+
 	/**
 	 * Configures this endpoint with the adjoining
 	 * communication link object, the attribute {@link #networkLayerProtocol}.
@@ -102,6 +189,79 @@ public class Endpoint extends NetworkElement {
 		this.remoteEndpoint = remoteTCPendpoint;
 	}
 
+	/**
+	 * Emulates the exchange of the MSS options in the SYN segments
+	 * when the TCP connection with the remote endpoint is established:
+	 * the local sender will send the segments of the smaller of
+	 * the local MSS and the MSS advertised by the remote endpoint.
+	 * Must be called on both endpoints, after the remote endpoints are set,
+	 * and before any data are sent.
+	 */
+	void negotiateMSS() {
+		sender.setMSS(Math.min(mss, remoteEndpoint.getMSS()));
+	}
+
+	/**
+	 * Emulates the exchange of the SACK-permitted options in the SYN segments
+	 * when the TCP connection with the remote endpoint is established:
+	 * the local receiver will send SACK blocks only if the remote sender
+	 * permitted them, i.e., if it can process them.
+	 * Must be called after the remote endpoints are set.
+	 */
+	void negotiateSACK() {
+		receiver.setSACKpermitted(remoteEndpoint.getSender().isSACKpermitted());
+	}
+
+	/**
+	 * Emulates the exchange of the window scale options in the SYN segments
+	 * when the TCP connection with the remote endpoint is established
+	 * (see <a href="http://tools.ietf.org/html/rfc7323" target="page">RFC 7323</a>).
+	 * The window is scaled only if both endpoints sent the option: then
+	 * the local receiver advertises its window scaled by the shift count
+	 * that it sent, and the local sender scales the windows advertised by
+	 * the remote receiver by the remote shift count. Otherwise, neither
+	 * window is scaled, and the receive window cannot exceed {@link Segment#MAX_WINDOW}.
+	 * Must be called on both endpoints, after the remote endpoints are set,
+	 * and before any data are sent.
+	 */
+	void negotiateWindowScale() {
+		int localScale_ = getWindowScale();
+		int remoteScale_ = remoteEndpoint.getWindowScale();
+		if (localScale_ < 0 || remoteScale_ < 0) {
+			localScale_ = 0;
+			remoteScale_ = 0;
+		}
+		receiver.setWindowScale(localScale_);
+		sender.setWindowScale(remoteScale_);
+	}
+
+	/**
+	 * Turns ON or OFF the window scale option of this endpoint (it is ON by default).
+	 * Must be called before the connection is established
+	 * (see {@link #negotiateWindowScale()}).
+	 * @param windowScaling_ <code>true</code> to send the window scale option, <code>false</code> otherwise
+	 */
+	public void setWindowScaling(boolean windowScaling_) {
+		this.windowScaling = windowScaling_;
+	}
+
+	/**
+	 * @return the shift count that this endpoint sends in its window scale option,
+	 * just enough for its receive window (see {@link Receiver#getRequiredWindowScale()}),
+	 * or <code>-1</code> if it does not send the option
+	 */
+	public int getWindowScale() {
+		return windowScaling ? receiver.getRequiredWindowScale() : -1;
+	}
+
+	/**
+	 * @return the maximum segment size of this endpoint, as advertised
+	 * to the remote endpoint
+	 */
+	public int getMSS() {
+		return mss;
+	}
+
 	/**
 	 * @return the local TCP sender component
 	 */
@@ -121,19 +281,21 @@ public class Endpoint extends NetworkElement {
 	 * 
 	 * @see TimedComponent
 	 */
+	@Override
 	public void timerExpired(int timerType_) {
 		/* currently does nothing */
 	}
 
 	/**
- 	 * Before calling the local {@link Sender}, this method
- 	 * calls {@link Simulator#checkExpiredTimers(TimedComponent)}
- 	 * to fire the {@link Sender#rtoTimer} if it expired.</p>
+ 	 * The simulator fires the timers of the local {@link Sender} and
+ 	 * {@link Receiver} by itself, so this method needs to be called
+ 	 * only to drive the endpoint ahead of its scheduled events.</p>
  	 * 
- 	 * <p>If the received segment contained an ACK, this method will at
- 	 * the end call {@link Simulator#checkExpiredTimers(TimedComponent)}
- 	 * to fire the {@link Receiver#delayedACKtimer} and have
- 	 * the receiver transmit any cumulative ACKs.</p>
+ 	 * <p>Before calling the local {@link Sender}, this method
+ 	 * calls {@link Simulator#checkExpiredTimers(TimedComponent)}
+ 	 * to fire the {@link Sender#rtoTimer} if it expired.
+ 	 * For the receiver, it fires the {@link Receiver#delayedACKtimer}
+ 	 * if it expired, to have the receiver transmit any cumulative ACKs.</p>
  	 * 
  	 * @param mode_ &nbsp;<em>processing mode</em>: the value <code>1</code>
  	 * requests processing of the sender component of this endpoint; &nbsp;
@@ -167,7 +329,12 @@ public class Endpoint extends NetworkElement {
  	 */
 	@Override
  	public void send(NetworkElement source_, Packet newDataPkt_) {
-		sender.send(newDataPkt_.dataPayload);
+		if (newDataPkt_.dataPayload == null && newDataPkt_.length > 0) {
+			// A packet in the "virtual data" mode, only the length matters:
+			sender.sendVirtual(newDataPkt_.length);
+		} else {
+			sender.send(newDataPkt_.dataPayload);
+		}
  	}
  
 	/**
@@ -190,10 +357,10 @@ public class Endpoint extends NetworkElement {
  		Segment segment_ = (Segment) packet_;
  		if (segment_ == null) {	// not a TCP segment ??
  			if (
- 				(Simulator.currentReportingLevel & Simulator.REPORTING_SENDERS) != 0 ||
- 				(Simulator.currentReportingLevel & Simulator.REPORTING_RECEIVERS) != 0
+ 				(reporting.level & Simulator.REPORTING_SENDERS) != 0 ||
+ 				(reporting.level & Simulator.REPORTING_RECEIVERS) != 0
  			) {
- 				System.out.print("Endpoint.handle(): unknown packet type");
+ 				reporting.out.print("Endpoint.handle(): unknown packet type");
  			}
  			return;
  		}
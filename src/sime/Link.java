@@ -7,13 +7,13 @@
  */
 package sime;
 
-import java.util.ArrayList;
-
 /**
  * A full-duplex communication link that connects two network nodes.
  * Packets that are fed on one end will come out at the other end
  * of the link, after appropriate delays.
  * The link has associated transmission and propagation times.
+ * Each direction of the link transmits one packet at a time, and the link
+ * schedules its own events for the packet arrivals.
  * 
  * @author Ivan Marsic
  * @see NetworkElement
@@ -22,15 +22,16 @@ public class Link extends NetworkElement {
 	/**
 	 * Transmission time for this communication link
 	 * (per packet, assuming all packets are of the same size!).
-	 * The time is measured in <em>ticks</em> of the simulator clock.
+	 * The time is measured in the simulation time units
+	 * (see {@link Simulator#TIME_UNITS_PER_TICK}).
 	 */
-	protected double transmissionTime = 0.0;
+	protected long transmissionTime = 0L;
 
 	/**
 	 * Propagation time for this communication link.
-	 * Measured in <em>ticks</em> of the simulator clock.
+	 * Measured in the simulation time units.
 	 */
-	protected double propagationTime = 0.0;
+	protected long propagationTime = 0L;
 
 	/**
 	 * Nodes {@link #node1} and {@link #node2} connected by this link.
@@ -39,39 +40,18 @@ public class Link extends NetworkElement {
 	protected NetworkElement node2 = null;
 
 	/**
-	 * Container for packets in transit from {@link #node1} to {@link #node2}.<BR>
-	 * We never check whether this array overflows, because we
-	 * hope there will be never more than 100 packets in flight on a link?!?
+	 * Packets in transit from {@link #node1} to {@link #node2}.
 	 */
-	protected ArrayList<Packet> packetsFromN1toN2 = new ArrayList<Packet>(100);
+	protected Channel channelN1toN2 = new Channel(1);
 
 	/**
-	 * Delay times for packets stored in the list {@link #packetsFromN1toN2},
-	 * in simulation-clock ticks. The delay for each packet is calculated
-	 * when the packet is received in {@link #send(NetworkElement, Packet)}
-	 * and the delay is decremented in {@link #process(int)} until
-	 * it reaches zero. At this time, the packet is delivered to
-	 * {@link #node2}.
+	 * Packets in transit from {@link #node2} to {@link #node1}.<BR>
+	 * Similar to {@link #channelN1toN2}.
 	 */
-	protected double[] packetDelaysN1toN2 = new double[100];
+	protected Channel channelN2toN1 = new Channel(2);
 
-	/**
-	 * Container for packets in transit from {@link #node2} to {@link #node1}.<BR>
-	 * Similar to {@link #packetsFromN1toN2}.
-	 */
-	protected ArrayList<Packet> packetsFromN2toN1 = new ArrayList<Packet>(100);
-
-	/**
-	 * Similar to {@link #packetDelaysN1toN2}.
-	 */
-	protected double[] packetDelaysN2toN1 = new double[100];
-
-	/**
-	 * Parameters that override {@link NetworkElement#lastTimeProcessCalled}
-	 * because Link has different modes of processing.
-	 */
-	protected double lastTimeProcessCalledMode1 = 0.0;
-	protected double lastTimeProcessCalledMode2 = 0.0;
+	/** The number of packets delivered so far by this link, in both directions. */
+	protected long packetsDelivered = 0L;
 
 	/**
 	 * Constructor.
@@ -81,7 +61,7 @@ public class Link extends NetworkElement {
 	 * @param node2_ the other node to be connected with this link
 	 */
 	public Link(Simulator simulator_, String name_, NetworkElement node1_, NetworkElement node2_) {
-		this(simulator_, name_, node1_, node2_, 0.0, 0.0);
+		this(simulator_, name_, node1_, node2_, 0L, 0L);
 	}
 
 	/**
@@ -90,12 +70,12 @@ public class Link extends NetworkElement {
 	 * @param name_ the name given to this link
 	 * @param node1_ one node to be connected with this link
 	 * @param node2_ the other node to be connected with this link
-	 * @param transmissionTime_ the transmission time associated with this link (measured in clock ticks)
-	 * @param propagationTime_ the propagation time associated with this link (measured in clock ticks)
+	 * @param transmissionTime_ the transmission time associated with this link (measured in simulation time units)
+	 * @param propagationTime_ the propagation time associated with this link (measured in simulation time units)
 	 */
 	public Link(
 		Simulator simulator_, String name_, NetworkElement node1_, NetworkElement node2_,
-		double transmissionTime_, double propagationTime_
+		long transmissionTime_, long propagationTime_
 	) {
 		super(simulator_, name_);
 		//TODO: check that the network elements are not links, because
@@ -108,34 +88,43 @@ public class Link extends NetworkElement {
 
 	/**
 	 * Parameter getter.
-	 * @return the transmission time (in simulator clock ticks)
+	 * @return the transmission time (in simulation time units)
 	 */
-	public double getTransmissionTime() {
+	public long getTransmissionTime() {
 		return transmissionTime;
 	}
 	/**
 	 * Parameter setter.
-	 * @param transmissionTime_ the transmission time to set (in simulator clock ticks)
+	 * @param transmissionTime_ the transmission time to set (in simulation time units)
 	 */
-	public void setTransmissionTime(double transmissionTime_) {
+	public void setTransmissionTime(long transmissionTime_) {
 		this.transmissionTime = transmissionTime_;
 	}
 
 	/**
 	 * Parameter getter.
-	 * @return the propagation time (in simulator clock ticks)
+	 * @return the propagation time (in simulation time units)
 	 */
-	public double getPropagationTime() {
+	public long getPropagationTime() {
 		return propagationTime;
 	}
 	/**
 	 * Parameter setter.
-	 * @param propagationTime_ the propagation time to set (in simulator clock ticks)
+	 * @param propagationTime_ the propagation time to set (in simulation time units)
 	 */
-	public void setPropagationTime(double propagationTime_) {
+	public void setPropagationTime(long propagationTime_) {
 		this.propagationTime = propagationTime_;
 	}
 
+	/**
+	 * Accessor for retrieving the number of packets
+	 * delivered so far by this link, in both directions.
+	 * @return the number of delivered packets
+	 */
+	public long getPacketsDelivered() {
+		return packetsDelivered;
+	}
+
 	/**
 	 * The link just accepts any new packets given to it
 	 * and enqueues the new packet behind any existing packets.
@@ -145,9 +134,9 @@ public class Link extends NetworkElement {
 	 * Parameter <code>source_</code> is used to
 	 * distinguish the nodes connected to the link's ends.</p>
 	 * 
-	 * <p>At the time when a packet is enqueued, its delay is also
-	 * calculated and stored in the corresponding array
-	 * ({@link #packetDelaysN1toN2} or {@link #packetDelaysN2toN1}).</p>
+	 * <p>At the time when a packet is enqueued, its arrival time is
+	 * calculated and, if the packet is the only one in transit
+	 * in its direction, an event is scheduled for its arrival.</p>
 	 * 
 	 * <p>Note: In the current implementation when calculating the
 	 * packet delay, we do not check the packet length.
@@ -164,19 +153,18 @@ public class Link extends NetworkElement {
 	@Override
 	public void send(NetworkElement source_, Packet packet_) {
 		// Simply enqueue the new packet behind any existing packets.
-		//TODO: should check that the arrays do not overflow!
 		if (node1.equals(source_)) { // packet from Node 1 to Node 2
-			enqueueNewPacket(packetsFromN1toN2, packetDelaysN1toN2, packet_);
+			channelN1toN2.enqueueNewPacket(packet_);
 		} else if (node2.equals(source_)) { // packet from Node 2 to Node 1
-			enqueueNewPacket(packetsFromN2toN1, packetDelaysN2toN1, packet_);
+			channelN2toN1.enqueueNewPacket(packet_);
 		} else {
-			System.out.println("Link.send() --- PANIC --- impossible packet source!?");
+			reporting.out.println("Link.send() --- PANIC --- impossible packet source!?");
 		}
 		// This reporting is for debugging purposes only:
 		if (
-			(Simulator.currentReportingLevel & Simulator.REPORTING_LINKS) != 0
+			(reporting.level & Simulator.REPORTING_LINKS) != 0
 		) {
-			System.out.println(
+			reporting.out.println(
 				"\t " + packet_.toString() +
 				" received by " + name + " from " + source_.getName()
 			);
@@ -184,7 +172,8 @@ public class Link extends NetworkElement {
 	}
 
 	/**
-	 * This method should be called to signal the passage of time.
+	 * This method is called when a packet arrival event that this
+	 * link scheduled for itself is due.
 	 * The link will deliver appropriate number of packets,
 	 * if any, at the other end (opposite from where the
 	 * packet was received).
@@ -198,27 +187,14 @@ public class Link extends NetworkElement {
 	public void process(int mode_) {
 		switch (mode_) {
 			case 0:
-				if (!packetsFromN1toN2.isEmpty()) {
-					deliverArrivedPackets(packetsFromN1toN2, packetDelaysN1toN2, node2, lastTimeProcessCalled);
-				}
-
-				if (!packetsFromN2toN1.isEmpty()) {
-					deliverArrivedPackets(packetsFromN2toN1, packetDelaysN2toN1, node1, lastTimeProcessCalled);
-				}
-				// Update the last time this method was called, for future reference
-				lastTimeProcessCalled = getSimulator().getCurrentTime();
+				channelN1toN2.deliverArrivedPackets();
+				channelN2toN1.deliverArrivedPackets();
 				break;
 			case 1:
-				if (!packetsFromN1toN2.isEmpty()) {
-					deliverArrivedPackets(packetsFromN1toN2, packetDelaysN1toN2, node2, lastTimeProcessCalledMode1);
-				}
-				lastTimeProcessCalledMode1 = getSimulator().getCurrentTime();
+				channelN1toN2.deliverArrivedPackets();
 				break;
 			case 2:
-				if (!packetsFromN2toN1.isEmpty()) {
-					deliverArrivedPackets(packetsFromN2toN1, packetDelaysN2toN1, node1, lastTimeProcessCalledMode2);
-				}
-				lastTimeProcessCalledMode2 = getSimulator().getCurrentTime();
+				channelN2toN1.deliverArrivedPackets();
 				break;
 		}
 	}
@@ -234,79 +210,149 @@ public class Link extends NetworkElement {
 	 */
 	@Override
 	public void handle(NetworkElement dummySource_, Packet dummyPacket_) {
-		System.out.println("Link.handle():  PANIC -- how did we get here ?!?!?");
+		reporting.out.println("Link.handle():  PANIC -- how did we get here ?!?!?");
 	}
 
+
+	// ----------------------------------------------------------------------
 	/**
-	 * Helper method to enqueue a new packet into one
-	 * of the lists and calculate its delay on the link.
-	 * 
-	 * @param packets_ the list of packets
-	 * @param packetDelays_ the array of delays associated with packets
-	 * @param packet_ the new packet to enqueue
+	 * Inner class for one direction of this full-duplex link.
+	 * Packets are transmitted one after another, so the packets
+	 * in transit are kept in a first-come-first-served queue
+	 * and their arrival times are sorted in an ascending order.
 	 */
-	protected void enqueueNewPacket(
-		ArrayList<Packet> packets_, double[] packetDelays_, Packet packet_
-	) {
-		int idx_ = packets_.size();
-		packets_.add(packet_);
-
-		if ((idx_ == 0) || (packetDelays_[idx_-1] < propagationTime + transmissionTime) ) {
-			// This is the head-of-the-list _OR_
-			// the packet before this last packet has already
-			// propagated somewhat through the link
-			// so this packet's delay will be as if it's the head-of-the-line;
-			// although the previous pkt might have propagated just a little,
-			// this coarse graining is a good enough approximation ...
-			packetDelays_[idx_] = propagationTime + transmissionTime;
-		} else {
-			// This case should not be possible of a physical link, but
-			// we use this object also as "link-layer protocol module" ...
-			packetDelays_[idx_] = packetDelays_[idx_-1];
+	protected class Channel {
+		/** The processing mode of the link that corresponds to this direction,
+		 * used as the type of the arrival timer. */
+		final int mode;
+
+		/** Circular buffer of packets in transit in this direction.
+		 * The buffer grows if more packets are in flight than it can hold. */
+		Packet[] packets = new Packet[100];
+
+		/**
+		 * Arrival times for packets stored in {@link #packets}
+		 * (at the same indices), in simulation time units.
+		 * The arrival time for each packet is calculated
+		 * when the packet is received in {@link Link#send(NetworkElement, Packet)}.
+		 */
+		long[] arrivalTimes = new long[100];
+
+		/** Index of the oldest packet in transit. */
+		int head = 0;
+
+		/** Number of packets currently in transit. */
+		int count = 0;
+
+		/** The time when the transmitter in this direction will
+		 * finish transmitting the last enqueued packet. */
+		long transmitterBusyUntil = 0L;
+
+		/** The timer for the arrival of the oldest packet in transit.
+		 * It is re-armed in place for every arrival. */
+		TimerSimulated arrivalTimer = null;
+
+		/**
+		 * Constructor for the inner class.
+		 * @param mode_ the processing mode of the link that corresponds to this direction
+		 */
+		Channel(int mode_) {
+			this.mode = mode_;
+			arrivalTimer = new TimerSimulated(Link.this, mode_, 0L);
 		}
-	}
 
-	/**
-	 * Helper method to deliver the packets that propagated
-	 * through the link and arrived to the other end, if any.<BR>
-	 * Note that we assume that the packets are enqueued on the
-	 * first-come-first-served basis, so their delays are
-	 * sorted in an ascending order.
-	 * 
-	 * @param packets_ the list of packets
-	 * @param packetDelays_ the array of delays associated with packets
-	 * @param node_ the node to which the arrived packets will be delivered
-	 * @param lastTimeProcessCalled_ 
-	 */
-	protected void deliverArrivedPackets(
-		ArrayList<Packet> packets_, double[] packetDelays_,
-		NetworkElement node_, double lastTimeProcessCalled_
-	) {
-		int lastRemovedIdx_ = 0;
-		int lastIdx_ = packets_.size();
-		for (int idx_ = 0; idx_ < lastIdx_; idx_++) {
-			// decrement the delay by the amount of time elapsed since the last call
-			packetDelays_[idx_] -= (getSimulator().getCurrentTime() - lastTimeProcessCalled_);
-			if (packetDelays_[idx_] <= 0.0) { // if the delay completely elapsed,
+		/**
+		 * Helper method to enqueue a new packet
+		 * and calculate its arrival time on the other end of the link.
+		 * The packet starts its transmission as soon as
+		 * the transmitter is done with the previous packets.
+		 * 
+		 * @param packet_ the new packet to enqueue
+		 */
+		void enqueueNewPacket(Packet packet_) {
+			if (count == packets.length) {
+				grow();
+			}
+			long startTime_ = Math.max(
+				getSimulator().getCurrentTime(), transmitterBusyUntil
+			);
+			transmitterBusyUntil = startTime_ + transmissionTime;
+
+			int idx_ = (head + count) % packets.length;
+			packets[idx_] = packet_;
+			arrivalTimes[idx_] = transmitterBusyUntil + propagationTime;
+			count++;
+
+			if (reporting.trace != null) {
+				reporting.trace.record(
+					TraceRecorder.ENQUEUE, getSimulator().getCurrentTime(), traceId, packet_
+				);
+			}
+
+			// If this packet is at the head of the queue, schedule its arrival:
+			if (!arrivalTimer.isRunning()) {
+				scheduleArrival();
+			}
+		}
+
+		/**
+		 * Helper method to deliver the packets that propagated
+		 * through the link and arrived to the other end, if any.<BR>
+		 * Note that the receiving node may call back {@link Link#send(NetworkElement, Packet)},
+		 * so the oldest packet is always removed before it is delivered.
+		 */
+		void deliverArrivedPackets() {
+			NetworkElement node_ = (mode == 1) ? node2 : node1;
+			while (
+				count > 0 && arrivalTimes[head] <= getSimulator().getCurrentTime()
+			) {
+				Packet packet_ = packets[head];
+				packets[head] = null;
+				head = (head + 1) % packets.length;
+				count--;
+				packetsDelivered++;
+
+				if (reporting.trace != null) {
+					reporting.trace.record(
+						TraceRecorder.DEQUEUE, getSimulator().getCurrentTime(), traceId, packet_
+					);
+				}
+
 				// deliver this packet to the receiving node
-				//TODO: There may be a problem of concurrent access to the "packets_" list,
-				// because the called component may call back send()/enqueueNewPacket()
-				// to insert new items into the same list.
-				node_.handle(this, packets_.remove(0));
-				lastRemovedIdx_++;
+				node_.handle(Link.this, packet_);
+			}
+
+			// If some packets remained in transit, schedule the next arrival:
+			if (count > 0 && !arrivalTimer.isRunning()) {
+				scheduleArrival();
+			}
+		}
+
+		/**
+		 * Helper method to start the {@link #arrivalTimer} for the oldest packet in transit.
+		 */
+		void scheduleArrival() {
+			try {
+				getSimulator().rearmTimeoutAt(arrivalTimer, arrivalTimes[head]);
+			} catch (Exception ex) {
+				ex.printStackTrace();
 			}
 		}
 
-		// If some packets remained in the list, shift their delays
-		// to match the corresponding indices
-		if (packets_.size() > 0) {
-			lastIdx_ = lastRemovedIdx_ + packets_.size();
-			int newIdx_ = 0;
-			for (int idx_ = lastRemovedIdx_; idx_ < lastIdx_; idx_++, newIdx_++) {
-				// move the old corresponding delay to a new location
-				packetDelays_[newIdx_] = packetDelays_[idx_];
-				packetDelays_[idx_] = 0.0;	// reset the old corresponding delay
+		/**
+		 * Helper method to double the capacity of the circular buffer.
+		 */
+		void grow() {
+			Packet[] packets_ = new Packet[2 * packets.length];
+			long[] arrivalTimes_ = new long[2 * packets.length];
+			for (int i_ = 0; i_ < count; i_++) {
+				int idx_ = (head + i_) % packets.length;
+				packets_[i_] = packets[idx_];
+				arrivalTimes_[i_] = arrivalTimes[idx_];
 			}
+			packets = packets_;
+			arrivalTimes = arrivalTimes_;
+			head = 0;
 		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,133 @@
+/*
+ * Created on Oct 16, 2026
+ */
+package sime;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * A streaming application source that reads a file through
+ * memory-mapped regions, for {@link sime.tcp.Sender#setSource(ReadableByteChannel)}.
+ * The file is mapped one region of {@link #REGION_SIZE} bytes at a time,
+ * as the sender pulls the data, so that a file of any size can be
+ * "transferred" without loading it up front and with only one region
+ * mapped at a time.</p>
+ *
+ * <p>A plain <code>FileChannel</code> can be used as a source as well;
+ * this class avoids the system call per read, which matters
+ * when the sender pulls the data segment by segment.</p>
+ *
+ * @author agent
+ * @see TraceRecorder
+ */
+public class MappedFileSource implements ReadableByteChannel {
+	/** The size of a mapped region of the file, in bytes: {@value}. */
+	public static final int REGION_SIZE = 64 * 1024 * 1024;
+
+	/** The source file. */
+	private RandomAccessFile file = null;
+
+	/** The channel of the source file, used to map its regions. */
+	private FileChannel channel = null;
+
+	/** The currently mapped region of the file, if any. */
+	private MappedByteBuffer region = null;
+
+	/** The file offset of the next byte to read. */
+	private long position = 0L;
+
+	/** The length of the file, in bytes. */
+	private long length = 0L;
+
+	/**
+	 * Constructor. Opens the file for reading, but maps nothing yet.
+	 *
+	 * @param fileName_ the name of the source file
+	 * @throws IOException if the file cannot be opened
+	 */
+	public MappedFileSource(String fileName_) throws IOException {
+		file = new RandomAccessFile(fileName_, "r");
+		channel = file.getChannel();
+		length = channel.size();
+	}
+
+	/**
+	 * Returns the length of the source file, in bytes.
+	 */
+	public long getLength() {
+		return length;
+	}
+
+	/**
+	 * Returns the number of bytes read so far.
+	 */
+	public long getPosition() {
+		return position;
+	}
+
+	/**
+	 * Reads the next bytes of the file into the given buffer.
+	 * If the current region is exhausted, the next region of the file is mapped.
+	 * This method is part of the java.nio.channels.ReadableByteChannel interface.
+	 *
+	 * @param destination_ the buffer into which the bytes are read
+	 * @return the number of bytes read, or <code>-1</code> at the end of the file
+	 * @throws IOException if the next region cannot be mapped
+	 */
+	@Override
+	public int read(ByteBuffer destination_) throws IOException {
+		if (channel == null) {
+			throw new ClosedChannelException();
+		}
+		if (position >= length) {
+			return -1;
+		}
+		if (region == null || !region.hasRemaining()) {
+			region = channel.map(
+				FileChannel.MapMode.READ_ONLY, position,
+				Math.min(REGION_SIZE, length - position)
+			);
+		}
+		int count_ = Math.min(destination_.remaining(), region.remaining());
+		int limit_ = region.limit();
+		region.limit(region.position() + count_);
+		destination_.put(region);	// advances the region position by "count_"
+		region.limit(limit_);
+		position += count_;
+		return count_;
+	}
+
+	/**
+	 * This method is part of the java.nio.channels.Channel interface.
+	 */
+	@Override
+	public boolean isOpen() {
+		return (channel != null);
+	}
+
+	/**
+	 * Closes the source file. The mapped region is released
+	 * when it is garbage collected.
+	 * This method is part of the java.nio.channels.Channel interface.
+	 */
+	@Override
+	public void close() {
+		if (file == null) {
+			return;
+		}
+		region = null;
+		channel = null;
+		try {
+			file.close();
+		} catch (IOException ex) {
+			ex.printStackTrace();
+		}
+		file = null;
+	}
+}
@@ -10,12 +10,14 @@ package sime;
  * The interface for simulated network elements (nodes and links).<BR>
  * Provides two universal methods: {@link #send(NetworkElement, Packet)} for downcall
  * and {@link #handle(NetworkElement, Packet)} for upcall, from components that
- * are above or below this component in the protocol stack.
+ * are above or below this component in the protocol stack.<BR>
+ * Network elements are also {@link TimedComponent}s, so they can
+ * schedule their own events on the simulator's future-event list.
  * 
  * @author Ivan Marsic
  *
  */
-public abstract class NetworkElement {
+public abstract class NetworkElement implements TimedComponent {
 	/**
 	 * Object that provides the runtime environment,
 	 * mainly stuff related to the simulation clock,
@@ -30,15 +32,24 @@ public abstract class NetworkElement {
 	String name = null;
 
 	/**
-	 * Indicates when the last time the method {@link #process(int)}
-	 * was called, so that the Link knows how much time elapsed
-	 * since the last call.
+	 * The reporting configuration of the {@link #simulator},
+	 * used for reporting/debugging purposes.
 	 */
-	protected double lastTimeProcessCalled = 0.0;
+	protected Reporting reporting = null;
+
+	/**
+	 * The identifier of this network element in the binary trace
+	 * ({@link Reporting#trace}), if the trace is recorded.
+	 */
+	protected int traceId = -1;
 
 	public NetworkElement(Simulator simulator_, String name_) {
 		this.simulator = simulator_;
 		this.name = name_;
+		this.reporting = simulator_.getReporting();
+		if (reporting.trace != null) {
+			traceId = reporting.trace.registerElement(name_);
+		}
 	}
 
 	/**
@@ -51,16 +62,38 @@ public abstract class NetworkElement {
 	}
 
 	/**
-	 * The method used by the simulator to signal the passage of time
+	 * Attribute getter.
+	 * @return the identifier of this network element in the binary trace
+	 * @see #traceId
+	 */
+	public int getTraceId() {
+		return traceId;
+	}
+
+	/**
+	 * The method used to signal the passage of time
 	 * to this network element. The element then needs to do
-	 * the work appropriate for the amount of time elapsed
-	 * since the previous call to this method ({@link #lastTimeProcessCalled}).
+	 * the work that is due at the current simulation time.
 	 * 
 	 * @param mode_ the processing mode, depends on the actual network element
-	 * @see sime.Simulator#run(java.nio.ByteBuffer, int)
+	 * @see #timerExpired(int)
 	 */
 	public abstract void process(int mode_);
 
+	/**
+	 * Callback method to call when an event (a simulated timer) that
+	 * this network element scheduled for itself expires.<BR>
+	 * By default, the timer type is passed on as the processing mode
+	 * to {@link #process(int)}.
+	 * 
+	 * @param timerType_ type of the timer set by this network element
+	 * @see TimedComponent
+	 */
+	@Override
+	public void timerExpired(int timerType_) {
+		process(timerType_);
+	}
+
 	/**
 	 * The method to send data from an upper-layer protocol.<BR>
 	 * Note that parameter <code>source_</code> is usually ignored
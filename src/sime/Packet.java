@@ -6,6 +6,8 @@
  */
 package sime;
 
+import java.nio.ByteBuffer;
+
 /**
  * Data packet class.
  * 
@@ -18,11 +20,20 @@ public class Packet implements Cloneable {
 	public NetworkElement destinationAddr = null;
 
 	/**
-	 * The data payload carried in this packet, if any.
+	 * The data payload carried in this packet, if any.<BR>
+	 * The payload is normally a read-only <em>view</em> of the sender's
+	 * buffer, rather than a copy of the data, so that no data are copied
+	 * as the packet travels through the links and the routers
+	 * to the receiver. Because a view may be shared by several packets
+	 * (e.g., by a clone of this packet), the data should be accessed
+	 * with absolute <code>get</code> methods or through
+	 * a {@link ByteBuffer#duplicate()} of the view.
 	 */
-	public byte[] dataPayload = null;
+	public ByteBuffer dataPayload = null;
 
-	/** Packet length [in bytes]. */
+	/** Packet length [in bytes].
+	 * In the "virtual data" mode, a packet has no payload but
+	 * still has a non-zero length (see {@link #Packet(NetworkElement, int)}). */
 	public int length = 0;
 
 	/** Indicates whether this packet is corrupted by an error.
@@ -31,6 +42,19 @@ public class Packet implements Cloneable {
 	 * to damage this packet, it just sets the flag to <code>true</code>.*/
 	public boolean inError = false;
 
+	/** Indicates whether the transport protocol of this packet reacts to
+	 * the congestion marks, i.e., whether the "ECN-Capable Transport" (ECT)
+	 * codepoint is set in the IP header, see
+	 * <a href="http://tools.ietf.org/html/rfc3168" target="page">RFC 3168</a>.
+	 * Only such packets may be marked by a router, instead of dropped. */
+	public boolean ecnCapable = false;
+
+	/** Indicates whether a router marked this packet with the
+	 * "Congestion Experienced" (CE) codepoint of the Explicit Congestion
+	 * Notification (ECN), because its queue was building up.
+	 * @see #ecnCapable */
+	public boolean congestionExperienced = false;
+
 	/**
 	 * Packet identifier for reporting/debugging purposes.
 	 */
@@ -39,12 +63,37 @@ public class Packet implements Cloneable {
 	/**
 	 * Constructor.
 	 * @param destinationAddr_ the destination address to which this packet is sent
+	 * @param dataPayload_ the data payload to be carried by this packet, if any;
+	 * its remaining bytes are the payload
+	 */
+	public Packet(NetworkElement destinationAddr_, ByteBuffer dataPayload_) {
+		this.destinationAddr = destinationAddr_;
+		this.dataPayload = dataPayload_;
+		this.length = (dataPayload_ != null) ? dataPayload_.remaining() : 0;
+	}
+
+	/**
+	 * Constructor. The given array is wrapped as the payload, without copying.
+	 * @param destinationAddr_ the destination address to which this packet is sent
 	 * @param dataPayload_ the data payload to be carried by this packet, if any
 	 */
 	public Packet(NetworkElement destinationAddr_, byte[] dataPayload_) {
+		this(
+			destinationAddr_,
+			(dataPayload_ != null) ? ByteBuffer.wrap(dataPayload_) : (ByteBuffer) null
+		);
+	}
+
+	/**
+	 * Constructor for a packet in the "virtual data" mode, which carries
+	 * no payload but only its length. Used for the simulations that only care
+	 * about the sequence numbers and the lengths, not the data.
+	 * @param destinationAddr_ the destination address to which this packet is sent
+	 * @param length_ the length of the (virtual) data carried by this packet
+	 */
+	public Packet(NetworkElement destinationAddr_, int length_) {
 		this.destinationAddr = destinationAddr_;
-		this.dataPayload = dataPayload_;
-		this.length = (dataPayload_ != null) ? dataPayload_.length : 0;
+		this.length = length_;
 	}
 
 	/**
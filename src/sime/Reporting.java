@@ -0,0 +1,79 @@
+/*
+ * Created on Oct 16, 2026
+ */
+package sime;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/**
+ * The reporting configuration of one {@link Simulator} instance:
+ * which activities are reported, and where the reports are printed.
+ * The simulator passes its configuration down to the network elements
+ * and the TCP modules when they are created, so that several simulators
+ * in the same program can report differently and run concurrently.</p>
+ *
+ * <p>The configuration does not change during a run. A component checks
+ * if its reporting is ON with a single test of the instance field
+ * {@link #level} before it builds the report, for example:
+ * <pre>
+ *	if ((reporting.level &amp; Simulator.REPORTING_LINKS) != 0) {
+ *		reporting.out.println(...);
+ *	}
+ * </pre>
+ * so the reporting that is turned OFF costs nothing.
+ * Similarly, the events are recorded into the binary {@link #trace}
+ * only if it is not <code>null</code>.</p>
+ *
+ * @author agent
+ * @see Simulator#REPORTING_SIMULATOR
+ */
+public class Reporting {
+	/** The reporting level(s), as a combination of the reporting
+	 * flags defined in {@link Simulator}, such as {@link Simulator#REPORTING_SENDERS}.<BR>
+	 * The minimum possible reporting is obtained by setting the zero value. */
+	public final int level;
+
+	/** The stream to which the reports are printed. */
+	public final PrintStream out;
+
+	/** The binary trace of the simulation events, or <code>null</code> if not recorded. */
+	public final TraceRecorder trace;
+
+	/**
+	 * Constructor of a configuration without the binary trace.
+	 * @param level_ the reporting level(s); a combination of the reporting flags defined in {@link Simulator}
+	 * @param out_ the stream to which the reports are printed
+	 */
+	public Reporting(int level_, PrintStream out_) {
+		this(level_, out_, null);
+	}
+
+	/**
+	 * Constructor.
+	 * @param level_ the reporting level(s); a combination of the reporting flags defined in {@link Simulator}
+	 * @param out_ the stream to which the reports are printed
+	 * @param trace_ the binary trace of the simulation events, or <code>null</code>
+	 */
+	public Reporting(int level_, PrintStream out_, TraceRecorder trace_) {
+		this.level = level_;
+		this.out = out_;
+		this.trace = trace_;
+	}
+
+	/**
+	 * Returns a configuration that reports nothing, and discards anything
+	 * printed to its stream, for the simulators run by the benchmarks and the tests.
+	 */
+	public static Reporting silent() {
+		return new Reporting(0, new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b_) {
+			}
+
+			@Override
+			public void write(byte[] b_, int off_, int len_) {
+			}
+		}));
+	}
+}
@@ -8,7 +8,6 @@
 package sime;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 
@@ -24,13 +23,10 @@ import java.util.Iterator;
  * If more packets arrive than the queue (buffer) can hold,
  * the excess packets are discarded.</p>
  * 
- * <p>The router needs help from the simulator environment to
- * know about the progression of time. The simulation clock ticking
- * is signaled by invocation of the method {@link #send(NetworkElement, Packet)}.
- * Every time this method is called, the router performs
- * the work allowed within the elapsed time.
- * Currently, this means that the router will hand over the queued
- * packets in {@link #packetBuffer} to their outgoing links ({@link #outputPorts}).</p>
+ * <p>Each output port ({@link #outputPorts}) transmits one packet at a time
+ * on its outgoing link and schedules its own event for the time when
+ * the transmission will be completed. At that time, the port
+ * takes the next packet queued in {@link #packetBuffer} for its outgoing link.</p>
  * 
  * <p>Note that this class defines an inner class for output ports
  * (see {@link sime.Router.OutputPort}).</p>
@@ -72,6 +68,33 @@ public class Router extends NetworkElement {
 	 */
 	private	ArrayList<Packet> packetBuffer = null;
 
+	/** The number of packets discarded so far because the buffer was full. */
+	private int packetsDropped = 0;
+
+	/** The marking threshold (known as <code>K</code> in DCTCP), in bytes:
+	 * an ECN-capable packet that arrives when the router memory already
+	 * holds at least this many bytes is marked with the "Congestion
+	 * Experienced" codepoint ({@link Packet#congestionExperienced}).
+	 * The value <code>-1</code> means that no packets are marked. */
+	private int markingThreshold = -1;
+
+	/** The number of packets marked so far, see {@link #markingThreshold}. */
+	private int packetsMarked = 0;
+
+	/** The largest occupancy of the router memory so far, in bytes. */
+	private int maxBufferOccupancy = 0;
+
+	/** The integral of the occupancy of the router memory over time so far,
+	 * in bytes times the simulation time units, used for computing
+	 * the average occupancy {@link #getAverageBufferOccupancy()}. */
+	private double bufferOccupancyIntegral = 0.0;
+
+	/** The time when the occupancy of the router memory last changed. */
+	private long lastOccupancyChangeTime = 0L;
+
+	/** The time when this router was created, i.e., when the statistics started. */
+	private long startTime = 0L;
+
 	/**
 	 * Constructor.
 	 * 
@@ -82,6 +105,8 @@ public class Router extends NetworkElement {
 	public Router(Simulator simulator_, String name_, int bufferSize_) {
 		super(simulator_, name_);
 		this.bufferCapacity = bufferSize_;
+		this.startTime = simulator_.getCurrentTime();
+		this.lastOccupancyChangeTime = startTime;
 
 		// The list will NOT be allowed to grow once
 		// the sum of packet lengths reaches "maxBufferSize"
@@ -99,6 +124,77 @@ public class Router extends NetworkElement {
 		return bufferCapacity;
 	}
 
+	/**
+	 * Accessor for retrieving the number of packets that
+	 * this router discarded so far because its memory was full.
+	 * 
+	 * @return the number of dropped packets
+	 */
+	public int getPacketsDropped() {
+		return packetsDropped;
+	}
+
+	/**
+	 * Sets the queue length above which the ECN-capable packets are marked
+	 * with the "Congestion Experienced" codepoint, instead of waiting until
+	 * the queue overflows and they are dropped, see
+	 * <a href="http://tools.ietf.org/html/rfc8257" target="page">RFC 8257</a> (DCTCP).
+	 * The packets that are not ECN-capable are not affected.
+	 * 
+	 * @param markingThreshold_ the marking threshold [in bytes], or <code>-1</code> to mark no packets
+	 */
+	public void setMarkingThreshold(int markingThreshold_) {
+		this.markingThreshold = markingThreshold_;
+	}
+
+	/**
+	 * Accessor for retrieving the number of packets that
+	 * this router marked so far because its queue was building up.
+	 * 
+	 * @return the number of marked packets
+	 * @see #setMarkingThreshold(int)
+	 */
+	public int getPacketsMarked() {
+		return packetsMarked;
+	}
+
+	/**
+	 * Accessor for retrieving the largest occupancy of the router memory so far,
+	 * i.e., the longest queue of packets.
+	 * 
+	 * @return the largest memory occupancy [in bytes]
+	 */
+	public int getMaxBufferOccupancy() {
+		return maxBufferOccupancy;
+	}
+
+	/**
+	 * Accessor for retrieving the time-average occupancy of the router memory
+	 * since this router was created. A short queue means a short queuing delay
+	 * for the packets passing through the router.
+	 * 
+	 * @return the average memory occupancy [in bytes]
+	 */
+	public double getAverageBufferOccupancy() {
+		long now_ = getSimulator().getCurrentTime();
+		double integral_ =
+			bufferOccupancyIntegral + (double) currentBufferOccupancy * (now_ - lastOccupancyChangeTime);
+		return (now_ > startTime) ? integral_ / (now_ - startTime) : 0.0;
+	}
+
+	/**
+	 * Helper method to change the occupancy of the router memory
+	 * and to update the occupancy statistics.
+	 * @param change_ the number of bytes added to (or, if negative, removed from) the memory
+	 */
+	private void changeBufferOccupancy(int change_) {
+		long now_ = getSimulator().getCurrentTime();
+		bufferOccupancyIntegral += (double) currentBufferOccupancy * (now_ - lastOccupancyChangeTime);
+		lastOccupancyChangeTime = now_;
+		currentBufferOccupancy += change_;
+		maxBufferOccupancy = Math.max(maxBufferOccupancy, currentBufferOccupancy);
+	}
+
 	/**
 	 * Adds another entry into the router's forwarding table.
 	 * 
@@ -109,9 +205,6 @@ public class Router extends NetworkElement {
 		// Create the output port that will be associated with the new outgoing link:
 		OutputPort outputPort_ = new OutputPort(outgoingLink_);
 
-		// Calculate the maximum mismatch ratio for the new outgoing link:
-		outputPort_.updateMaxMismatchRatios(forwardingTable.values());
-
 		// Add the new output port to the list:
 		outputPorts.put(outgoingLink_, outputPort_);
 
@@ -121,27 +214,26 @@ public class Router extends NetworkElement {
 
 	/**
  	 * When this method is called, it is a signal to the router
- 	 * to transmit packets on their corresponding outgoing links,
- 	 * if there are any packets buffered in the router memory.<BR>
- 	 * Only the caller knows when sufficient amount of time has elapsed
- 	 * and when it should call this method.
+ 	 * to start transmitting packets on their corresponding outgoing links,
+ 	 * if there are any packets buffered in the router memory
+ 	 * and the output ports are idle.<BR>
+ 	 * Normally, the output ports schedule their own transmissions,
+ 	 * so this method does not need to be called.
  	 * 
  	 * @param mode_ the processing mode, currently not used and ignored
- 	 * @see sime.Router.OutputPort#transmitPackets()
- 	 * @see sime.Simulator#run(java.nio.ByteBuffer, int)
+ 	 * @see sime.Router.OutputPort#transmitNextPacket()
 	 */
 	@Override
 	public void process(int mode_) {
-		// Send out the packets in transmission on ALL outgoing links:
+		// Start transmitting on ALL idle outgoing links:
 		Iterable<OutputPort> outputPorts_ = outputPorts.values();
 		Iterator<OutputPort> portItems_ = outputPorts_.iterator();
 		while (portItems_.hasNext()) {
 			OutputPort outgoingLink_ = portItems_.next();
-			outgoingLink_.transmitPackets();
+			if (outgoingLink_.packetInTransmission == null) {
+				outgoingLink_.transmitNextPacket();
+			}
 		}
-
-		// Update the last time this method was called, for future reference
-		lastTimeProcessCalled = getSimulator().getCurrentTime();
 	}
 
  	/**
@@ -155,7 +247,7 @@ public class Router extends NetworkElement {
  	 */
 	@Override
  	public void send(NetworkElement dummySource_, Packet dummyPacket_) {
-		System.out.println("Router.send():  PANIC -- how did we get here ?!?!?");
+		reporting.out.println("Router.send():  PANIC -- how did we get here ?!?!?");
  	}
 
 	/**
@@ -185,39 +277,23 @@ public class Router extends NetworkElement {
 	// ----------------------------------------------------------------------
 	/**
 	 * Inner class for router's output ports.
+	 * An output port is a {@link TimedComponent} that sets a timer
+	 * for the end of transmission of the packet currently in transmission.
 	 */
-	protected class OutputPort {
+	protected class OutputPort implements TimedComponent {
 		/** The outgoing link associated with this output port. */
 		Link outgoingLink = null;
 
 		/**
 		 * Holds the packet <em>currently</em> in transmission on the
 		 * outgoing link.
-		 * The packet will be handed over to its outgoing
-		 * link when signaled
+		 * The port is busy until the transmission of this packet
+		 * is completed, as signaled by {@link #transmissionTimer}.
 		 */
 		Packet packetInTransmission = null;
 
-		/**
-		 * Mismatch ratio of transmission speeds between the input and
-		 * output links of this router.
-		 * For example, a mismatch ratio of 10 means that the input
-		 * link can transmit packets ten time faster than the output link.
-		 * Because of this, the packets arriving at the router must
-		 * enter the queue and wait for their turn for transmission
-		 * on the output link.
-		 * The default assumption is no mismatch (value <code>1.0</code>),
-		 * meaning that packets simply pass through the router without buffering.
-		 */
-		double maxMismatchRatio = 1.0;
-
-		/**
-		 * Counts how many packets to receive before one can be sent
-		 * if the outgoing link is slower than incoming links.<BR>
-		 * Different increments may be associated with different incoming links.
-		 * @see #handleIncomingPacket(NetworkElement, Packet)
-		 */
-		double mismatchCount = 0.0;
+		/** The timer that signals the end of transmission of {@link #packetInTransmission}. */
+		TimerSimulated transmissionTimer = null;
 
 		/**
 		 * Constructor for the inner class.
@@ -225,6 +301,7 @@ public class Router extends NetworkElement {
 		 */
 		OutputPort(Link outgoingLink_) {
 			this.outgoingLink = outgoingLink_;
+			transmissionTimer = new TimerSimulated(this, 1, 0L);
 		}
 
 		/**
@@ -235,156 +312,113 @@ public class Router extends NetworkElement {
 		 * queued in the router's memory, if the space permits.
 		 * Otherwise, the packet will be dropped. Therefore, this
 		 * method implements the <em>drop-tail queue management policy</em>.
+		 * In addition, an ECN-capable packet is marked if the queue is longer
+		 * than the marking threshold (see {@link Router#setMarkingThreshold(int)}).
 		 * 
 		 * @param source_ &nbsp;the communication link through which the packet arrived
 		 * @param receivedPacket_ &nbsp;the packet that arrived on an incoming link
 		 */
 		void handleIncomingPacket(NetworkElement source_, Packet receivedPacket_) {
-			// Calculate the mismatch ratio:
-			double mismatchRatio_ = calculateMismatchRatio((Link) source_);
-
 			// If there is no packet currently in transmission on the outgoing link:
 			if (packetInTransmission == null) {
-				// If no mismatch, send this packet right away:
-				if (mismatchRatio_ <= 1.0) {
-					// Hand over the packet to its outgoing link:
-					outgoingLink.send(Router.this, receivedPacket_);
-				} else { // Else, its transmission has just started, so buffer the subsequent packets
-					// Put the packet that just arrived into transmission:
-					packetInTransmission = receivedPacket_;
-					// Mark one arrival towards the mismatch ratio:
-					mismatchCount = maxMismatchRatio - (maxMismatchRatio / mismatchRatio_);
-				}
+				// Put the packet that just arrived into transmission:
+				startTransmission(receivedPacket_);
 			} else {	// Try to buffer the incoming packet into router's memory:
 				// The router can buffer up to "maxBufferSize" packets,
 				// so all packets in excess of this value will be
 				// discarded.
 				if (currentBufferOccupancy + receivedPacket_.length <= bufferCapacity) {
+					if (
+						markingThreshold >= 0 && receivedPacket_.ecnCapable &&
+						currentBufferOccupancy >= markingThreshold
+					) {
+						receivedPacket_.congestionExperienced = true;
+						packetsMarked++;
+					}
 					packetBuffer.add(receivedPacket_);
-					currentBufferOccupancy += receivedPacket_.length;
-				} else if (	// This reporting is for debugging purposes only:
-				    (Simulator.currentReportingLevel & Simulator.REPORTING_ROUTERS) != 0
-				) {
-					System.out.println("\t  Router DROPS " + receivedPacket_.toString());
-				}
-
-				// Check if it's time to send one packet on the outgoing link:
-				if (mismatchCount < 1.0) {
-					// Send out the packet currently in transmission:
-					outgoingLink.send(Router.this, packetInTransmission);
-
-					// Retrieve the first packet from the router's memory that
-					// is heading out on this outgoing link:
-					Iterator<Packet> packetItems_ = packetBuffer.iterator();
-					while (packetItems_.hasNext()) {
-						Packet packet_ = packetItems_.next();
-						if (outgoingLink.equals(forwardingTable.get(packet_.destinationAddr))) {
-							// This now becomes the packet currently in transmission:
-							packetInTransmission = packet_;
-
-							packetItems_.remove();
-							// Indicate that a memory space has been vacated:
-							currentBufferOccupancy -= packet_.length;
-
-							// Break out of the loop -- we needed only the first such packet:
-							break;
-						}
+					changeBufferOccupancy(receivedPacket_.length);
+					if (reporting.trace != null) {
+						reporting.trace.record(
+							TraceRecorder.ENQUEUE, getSimulator().getCurrentTime(),
+							traceId, receivedPacket_
+						);
+					}
+				} else {
+					packetsDropped++;
+					if (reporting.trace != null) {
+						reporting.trace.record(
+							TraceRecorder.DROP, getSimulator().getCurrentTime(),
+							traceId, receivedPacket_
+						);
+					}
+					if (	// This reporting is for debugging purposes only:
+					    (reporting.level & Simulator.REPORTING_ROUTERS) != 0
+					) {
+						reporting.out.println("\t  Router DROPS " + receivedPacket_.toString());
 					}
-					// Reset the mismatch ratio for the next buffered packet:
-					mismatchCount = maxMismatchRatio;
 				}
-				// Mark one arrival towards the mismatch ratio:
-				mismatchCount = mismatchCount - (maxMismatchRatio / mismatchRatio_);
 			}
 		}
 
 		/**
-		 * Transmits packets on the outgoing link.
-		 * Should be called only when the time is right.
+		 * Callback method to call when the transmission of
+		 * the packet currently in transmission is completed.
+		 * The output port then transmits the next queued packet, if any.
 		 * 
-		 * @see sime.Router#process(int)
+		 * @param timerType_ the type of the timer that expired (ignored)
+		 * @see TimedComponent
 		 */
-		void transmitPackets() {
-			// Check if there is a packet currently in transmission:
-			if (packetInTransmission == null) {
-				return;		// there is none -- return
-			}
-
-			// How much time is available for transmitting packets
-			// queued in router's memory for this outgoing link, if any:
-			double transmitTimeBudget_ = getSimulator().getCurrentTime() - lastTimeProcessCalled;
-
-			// Send out the packet in transmission on the outgoing link:
-			outgoingLink.send(Router.this, packetInTransmission);
+		@Override
+		public void timerExpired(int timerType_) {
 			packetInTransmission = null;
+			transmitNextPacket();
+		}
 
-			// Check also whether any queued packets that are
-			// heading out on this outgoing link can also go now:
+		/**
+		 * Retrieves the first packet from the router's memory that
+		 * is heading out on this outgoing link, if any,
+		 * and puts it into transmission.
+		 */
+		void transmitNextPacket() {
 			Iterator<Packet> packetItems_ = packetBuffer.iterator();
-			while (packetItems_.hasNext() && transmitTimeBudget_ > 0.0) {
+			while (packetItems_.hasNext()) {
 				Packet packet_ = packetItems_.next();
 				if (outgoingLink.equals(forwardingTable.get(packet_.destinationAddr))) {
-					// Hand over the packet to its outgoing link:
-					outgoingLink.send(Router.this, packet_);
-
 					packetItems_.remove();
 					// Indicate that a memory space has been vacated:
-					currentBufferOccupancy -= packet_.length;
-
-					// Update the remaining transmission time budget for this link
-					transmitTimeBudget_ -= outgoingLink.getTransmissionTime();
-				}	
-			}
-		}
-
-		/**
-		 * Calculates the maximum mismatch ratio for the associated
-		 * outgoing link relative to all other (incoming) links.
-		 * @param allLinks_ the list of all other incoming links
-		 */
-		void updateMaxMismatchRatios(Collection<Link> allLinks_) {
-			Iterator<Link> linkItems_ = allLinks_.iterator();
-			while (linkItems_.hasNext()) {
-				Link incomingLink_ = linkItems_.next();
-
-				// In case our outgoing link is already in the collection, skip it:
-				if (outgoingLink.equals(incomingLink_)) continue;
-
-				OutputPort itsOutputPort_ = outputPorts.get(incomingLink_);
+					changeBufferOccupancy(-packet_.length);
+					if (reporting.trace != null) {
+						reporting.trace.record(
+							TraceRecorder.DEQUEUE, getSimulator().getCurrentTime(), traceId, packet_
+						);
+					}
 
-				// First calculate the mismatch ratio relative to this "incomingLink_":
-				double mismatchRatio_ = calculateMismatchRatio(incomingLink_);
-				// If the old mismatch ratio is smaller than the new one, replace it:
-				if (maxMismatchRatio < mismatchRatio_) {
-					maxMismatchRatio = mismatchRatio_;
-				}
+					// This now becomes the packet currently in transmission:
+					startTransmission(packet_);
 
-				// Also check for the "incomingLink_" if its max ratio changed:
-				if (itsOutputPort_.maxMismatchRatio < (1.0 / mismatchRatio_)) {
-					itsOutputPort_.maxMismatchRatio = 1.0 / mismatchRatio_;
+					// Break out of the loop -- we needed only the first such packet:
+					break;
 				}
 			}
 		}
 
 		/**
-		 * Helper method to calculate the mismatch ratio of an
-		 * incoming and the outgoing link as:<BR>
-		 * <pre> outgoingLinkTransmissionTime / incomingLinkTransmissionTime </pre>
-		 * @param incomingLink_ incoming link to compare to
-		 * @return the calculated mismatch ratio
+		 * Hands over the packet to the outgoing link and
+		 * keeps this port busy for the packet's transmission time.
+		 * @param packet_ the packet to transmit
 		 */
-		protected double calculateMismatchRatio(Link incomingLink_) {
-			double incomingLinkTransmissionTime_ = incomingLink_.getTransmissionTime();
-			double outgoingLinkTransmissionTime_ = outgoingLink.getTransmissionTime();
-			// assume no mismatch, meaning that packets simply pass through without buffering
-			double mismatchRatio_ = 1.0;
-			if (
-				incomingLinkTransmissionTime_ != 0.0 && outgoingLinkTransmissionTime_ != 0.0
-			) {
-				mismatchRatio_ =
-					outgoingLinkTransmissionTime_ / incomingLinkTransmissionTime_;
+		void startTransmission(Packet packet_) {
+			packetInTransmission = packet_;
+			outgoingLink.send(Router.this, packet_);
+
+			try {
+				getSimulator().rearmTimeoutAt(
+					transmissionTimer,
+					getSimulator().getCurrentTime() + outgoingLink.getTransmissionTime()
+				);
+			} catch (Exception ex) {
+				ex.printStackTrace();
 			}
-			return mismatchRatio_;
 		}
 	}
 }
\ No newline at end of file
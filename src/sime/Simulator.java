@@ -8,8 +8,9 @@ package sime;
 
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.HashMap;
 
+import sime.tcp.CongestionControlRegistry;
 import sime.tcp.Sender;
 
 /**
@@ -17,8 +18,13 @@ import sime.tcp.Sender;
  * control.<BR> Check also the
  * <a href="http://www.ece.rutgers.edu/~marsic/books/CN/projects/tcp/" target="_top">design
  * documentation for this simulator</a>.
- * <BR>The simulator provides the system clock ticks for time
- * progression and orchestrates the work of the network nodes.
+ * <BR>The simulator is a <em>discrete-event</em> simulator: it keeps
+ * a future-event list of {@link TimerSimulated} objects, ordered by
+ * their firing time, and advances the simulation clock directly from
+ * one event to the next. The network elements ({@link Link},
+ * {@link Router}, {@link Endpoint}) and the TCP modules schedule their
+ * own events, so the cost of a run is proportional to the number of
+ * events rather than to the number of clock ticks.
  * The simulated network consists of the network elements of sender-host,
  * router, and receiver-host, connected in a chain as follows:
  * <pre>
@@ -32,7 +38,8 @@ import sime.tcp.Sender;
  * control parameters for every iteration:
  * <ol>
  * <li> Iteration number (starting value 1), which is also the simulation
- * clock, in the units of round-trip times (RTTs)</li>
+ * clock, in the units of clock ticks (the links are configured so that
+ * one tick roughly equals one round-trip time (RTT))</li>
  * <li> Congestion window size in this iteration</li>
  * <li> Effective window size in this iteration</li>
  * <li> Flight size (the number of unacknowledged bytes) in this iteration</li>
@@ -42,7 +49,8 @@ import sime.tcp.Sender;
  * is reported.</p>
  * 
  * <p>You can turn ON or OFF different levels of reporting by modifying
- * the variable {@link #currentReportingLevel}.</p>
+ * the constant {@link #DEFAULT_REPORTING_LEVEL}, or by giving each
+ * simulator its own {@link Reporting} configuration.</p>
  * 
  * <p>Only a few parameters can be controlled in this simulator.
  * Rather than have a flexible, multifunctional network simulator
@@ -55,7 +63,7 @@ import sime.tcp.Sender;
  * 
  * @author Ivan Marsic
  */
-public class Simulator {
+public class Simulator implements TimedComponent {
 	/** Simulator's reporting flag: <br>
 	 * Reports the activities of the simulator runtime environment. */
 	public static final int REPORTING_SIMULATOR = 1 << 1;
@@ -80,23 +88,53 @@ public class Simulator {
 	 * Reports the activities of {@link sime.tcp.RTOEstimator}. */
 	public static final int REPORTING_RTO_ESTIMATE = 1 << 6;
 
-	/** This field specifies the current reporting level(s)
-	 * for this simulator.<BR>
+	/** This constant specifies the default reporting level(s)
+	 * for the simulators that are not given a {@link Reporting} configuration.<BR>
 	 * The minimum possible reporting is obtained by setting the zero value. */
-	public static int currentReportingLevel =
+	public static final int DEFAULT_REPORTING_LEVEL =
 //		0;	/* Reports only the most basic congestion parameters. */
 //		(REPORTING_SIMULATOR | REPORTING_LINKS | REPORTING_ROUTERS | REPORTING_SENDERS);
 		(REPORTING_SIMULATOR | REPORTING_LINKS | REPORTING_ROUTERS | REPORTING_SENDERS | REPORTING_RECEIVERS);
 //		(REPORTING_SIMULATOR | REPORTING_LINKS | REPORTING_ROUTERS | REPORTING_SENDERS | REPORTING_RTO_ESTIMATE);
 
+	/** The number of simulation time units per clock tick.
+	 * All simulated times are integer numbers of these units, so
+	 * the simulation clock does not drift in long runs and the times
+	 * compare exactly. If a tick is taken to last one second,
+	 * the time unit is one nanosecond.
+	 * @see #ticksToTime(double)
+	 * @see #timeToTicks(long) */
+	public static final long TIME_UNITS_PER_TICK = 1000000000L;
+
+	/** The resolution of the timer management, in simulation time units
+	 * (one thousandth of a clock tick).
+	 * Timers are grouped into slots of this duration in {@link #timers},
+	 * but they are still fired in the exact order of their time. */
+	public static final long TIMER_RESOLUTION = TIME_UNITS_PER_TICK / 1000;
+
+	/** The marking threshold of the router, in segments: {@value}.
+	 * The ECN-capable packets that arrive when the router queue holds at least
+	 * this many segments are marked (see {@link Router#setMarkingThreshold(int)}).
+	 * The other packets are not affected, so only the ECN senders, such as
+	 * {@link sime.tcp.SenderDCTCP}, see the marks. */
+	public static final int MARKING_THRESHOLD_SEGMENTS = 2;
+
 	/** Total data length to send (in bytes).
 	 * In reality, this data should be read from a file or another input stream. */
 	public static final int TOTAL_DATA_LENGTH = 1000000;
 
+	/** The reporting configuration of this simulator, passed down to
+	 * the network elements and the TCP modules. */
+	private Reporting reporting = null;
+
 	/** Two endpoints of the TCP connection that will be simulated. */
 	private Endpoint senderEndpt = null;
 	private Endpoint receiverEndpt = null;
 
+	/** The error that prevented the constructor from setting up
+	 * the endpoints, e.g., an unknown TCP sender version, or <code>null</code>. */
+	private Exception setupError = null;
+
 	/** The router that intermediated between the TCP endpoints. */
 	private Router router = null;
 
@@ -106,18 +144,36 @@ public class Simulator {
 	/** The communication link that connects {@link #receiverEndpt} to {@link #router}. */
 	private Link link2 = null;
 
-	/** Simulation iterations represent the clock ticks for the simulation.
-	 * Each iteration is a transmission round, which is one RTT cycle long.
-	 * The initial value by default equals "<tt>1.0</tt>". */
-	private double currentTime = 1.0;
-
-	/** An array of timers that the simulator has currently registered,
-	 * which are associated with {@link TimedComponent}.<BR>
-	 * To deal with concurrent events, it is recommended that
-	 * timers are fired (if expired) after the component's
-	 * functional operation is called. See the design documentation for more details.
+	/** The utilization of the sender, calculated at the end of {@link #run(ByteBuffer, int)}. */
+	private float utilization = 0.0f;
+
+	/** The simulation clock, measured in simulation time units
+	 * (see {@link #TIME_UNITS_PER_TICK}).
+	 * The clock jumps from one event time to the next, so it is
+	 * generally not an integer number of ticks.
+	 * The initial value by default equals one clock tick. */
+	private long currentTime = TIME_UNITS_PER_TICK;
+
+	/** The future-event list: timers that the simulator has currently registered,
+	 * which are associated with {@link TimedComponent}, ordered by their
+	 * firing time. Timers that fire at the same time are fired in the
+	 * order in which they were set.<BR>
+	 * The timing wheel allows setting and cancelling timers in constant time.
 	 * @see TimedComponent */
-	private	ArrayList<TimerSimulated> timers = new ArrayList<TimerSimulated>();
+	private	TimingWheel timers = new TimingWheel(TIMER_RESOLUTION, currentTime);
+
+	/** Counts the timers set so far; used to order simultaneous timers. */
+	private long timersSetCount = 0;
+
+	/** Index of the running timers by their {@link TimedComponent},
+	 * so that {@link #checkExpiredTimers(TimedComponent)} does not need
+	 * to look at the timers of other components. */
+	private HashMap<TimedComponent, ComponentTimers> timersByComponent =
+		new HashMap<TimedComponent, ComponentTimers>();
+
+	/** The timer that marks the start of every transmission round
+	 * (clock tick), for reporting purposes. */
+	private TimerSimulated roundTimer = new TimerSimulated(this, 0, 0L);
 
 	/**
 	 * Constructor of  the simple TCP congestion control simulator.
@@ -125,13 +181,52 @@ public class Simulator {
 	 * The input arguments are used to set up the router, so that it
 	 * represents the bottleneck resource.
 	 * 
-	 * @param tcpSenderVersion_ the TCP version of the sending endpoint&mdash;one of: "Tahoe", "Reno", or "NewReno")
+	 * @param tcpSenderVersion_ the TCP version of the sending endpoint&mdash;one of
+	 * {@link CongestionControlRegistry#getNames()}, possibly with the option suffixes of {@link Endpoint}
 	 * @param bufferSize_ the memory size for the {@link Router} to queue incoming packets
 	 * @param rcvWindow_ the size of the receive buffer for the {@link sime.tcp.Receiver}
 	 */
 	public Simulator(String tcpSenderVersion_, int bufferSize_, int rcvWindow_) {
+		this(
+			tcpSenderVersion_, bufferSize_, rcvWindow_,
+			new Reporting(DEFAULT_REPORTING_LEVEL, System.out)
+		);
+	}
+
+	/**
+	 * Constructor of  the simple TCP congestion control simulator
+	 * with the given reporting configuration.
+	 * 
+	 * @param tcpSenderVersion_ the TCP version of the sending endpoint&mdash;one of
+	 * {@link CongestionControlRegistry#getNames()}, possibly with the option suffixes of {@link Endpoint}
+	 * @param bufferSize_ the memory size for the {@link Router} to queue incoming packets
+	 * @param rcvWindow_ the size of the receive buffer for the {@link sime.tcp.Receiver}
+	 * @param reporting_ what to report and where to print the reports
+	 */
+	public Simulator(
+		String tcpSenderVersion_, int bufferSize_, int rcvWindow_, Reporting reporting_
+	) {
+		this(tcpSenderVersion_, bufferSize_, rcvWindow_, Sender.DEFAULT_MSS, reporting_);
+	}
+
+	/**
+	 * Constructor of  the simple TCP congestion control simulator
+	 * with the given maximum segment size of both endpoints
+	 * and the given reporting configuration.
+	 * 
+	 * @param tcpSenderVersion_ the TCP version of the sending endpoint&mdash;one of
+	 * {@link CongestionControlRegistry#getNames()}, possibly with the option suffixes of {@link Endpoint}
+	 * @param bufferSize_ the memory size for the {@link Router} to queue incoming packets
+	 * @param rcvWindow_ the size of the receive buffer for the {@link sime.tcp.Receiver}
+	 * @param mss_ the maximum segment size of the endpoints, in bytes
+	 * @param reporting_ what to report and where to print the reports
+	 */
+	public Simulator(
+		String tcpSenderVersion_, int bufferSize_, int rcvWindow_, int mss_, Reporting reporting_
+	) {
+		this.reporting = reporting_;
 		String tcpReceiverVersion_ = "Tahoe";	// irrelevant, since our receiver endpoint sends only ACKs, not data
-		System.out.println(
+		reporting.out.println(
 			"================================================================\n" +
 			"          Running TCP " + tcpSenderVersion_ + " sender  (and " +
 			tcpReceiverVersion_ + " receiver).\n"
@@ -140,7 +235,7 @@ public class Simulator {
 			senderEndpt = new Endpoint(
 				this, "sender",
 				null /* the receiver endpoint will be set shortly */,
-				tcpSenderVersion_, rcvWindow_
+				tcpSenderVersion_, rcvWindow_, mss_
 			);
 			// We assume that the receiver endpoint only receives
 			// packets sent by the sender endpoint.
@@ -148,26 +243,38 @@ public class Simulator {
 			// and have both endpoints send in both directions.
 			receiverEndpt = new Endpoint(
 				this, "receiver",
-				senderEndpt, tcpReceiverVersion_, rcvWindow_
+				senderEndpt, tcpReceiverVersion_, rcvWindow_, mss_
 			);
 			senderEndpt.setRemoteTCPendpoint(receiverEndpt); // set it now, couldn't set in constructor
+
+			// Establish the connection, i.e., exchange the MSS, SACK-permitted,
+			// and window scale options:
+			senderEndpt.negotiateMSS();
+			receiverEndpt.negotiateMSS();
+			senderEndpt.negotiateSACK();
+			receiverEndpt.negotiateSACK();
+			senderEndpt.negotiateWindowScale();
+			receiverEndpt.negotiateWindowScale();
 		} catch (Exception ex) {
-			System.out.println(ex.toString());
+			reporting.out.println(ex.toString());
+			setupError = ex;
 			return;
 		}
 		router = new Router(this, "router", bufferSize_);
+		router.setMarkingThreshold(MARKING_THRESHOLD_SEGMENTS * mss_);
 
-		// The transmission time and propagation time for this link
-		// are set by default to zero (negligible compared to clock tick).
+		// The propagation times are chosen so that a round trip
+		// (sender -> router -> receiver -> router -> sender)
+		// takes about one clock tick.
 		link1 = new Link(
 			this, "link1", senderEndpt, router,
-			0.001, /* transmission time as fraction of a clock tick */
-			0.001  /* propagation time as fraction of a clock tick */
+			ticksToTime(0.01), /* transmission time as fraction of a clock tick */
+			ticksToTime(0.25)  /* propagation time as fraction of a clock tick */
 		);
 		link2 = new Link(	// all that matters is that t_x(Link2) = 10 * t_x(Link1)
 			this, "link2", receiverEndpt, router,
-			0.01, /* transmission time as fraction of a clock tick */
-			0.001 /* propagation time as fraction of a clock tick */
+			ticksToTime(0.1),  /* transmission time as fraction of a clock tick */
+			ticksToTime(0.25)  /* propagation time as fraction of a clock tick */
 		);
 
 		// Configure the endpoints with their adjoining links:
@@ -181,35 +288,96 @@ public class Simulator {
 
 	/**
 	 * Runs the simulator for the given number of transmission rounds
-	 * (iterations), starting with the current iteration stored in
+	 * (iterations), starting with the current time stored in
 	 * the parameter {@link #currentTime}.<BR>
 	 * Reports the outcomes of the individual transmissions.
 	 * At the end, reports the overall sender utilization.</p>
 	 * 
-	 * <p><b>Note:</b> The router is invoked to relay only the packets
-	 * (and it may drop some of them).  For the sake
-	 * of simplicity, the acknowledgment segments simply
-	 * bypass the router, so they are never dropped.
+	 * <p>The main loop repeatedly removes the earliest timer from the
+	 * future-event list, advances the simulation clock to its time,
+	 * and calls back its component. The components react by sending
+	 * packets and by setting new timers. At the start of each round
+	 * the simulator itself reports the sender's congestion parameters.</p>
 	 * 
 	 * @param inputBuffer_ the input bytestream to be transported to the receiving endpoint
 	 * @param num_iter_ the number of iterations (transmission rounds) to run the simulator
+	 * @see #runVirtual(long, int)
 	 */
 	public void run(java.nio.ByteBuffer inputBuffer_, int num_iter_) {
+		run(new Packet(receiverEndpt, inputBuffer_), 0L, num_iter_);
+	}
+
+	/**
+	 * Runs the simulator in the "virtual data" mode, in which the sender
+	 * is given only the number of bytes to transport, rather than
+	 * the bytes themselves, and the segments carry only their sequence numbers
+	 * and lengths. This is sufficient for most experiments, because the
+	 * simulator never looks at the data, and it needs no memory for the data
+	 * regardless of the data length.
+	 * Otherwise, the same as {@link #run(java.nio.ByteBuffer, int)}.
+	 * 
+	 * @param dataLength_ the number of bytes to be transported to the receiving endpoint
+	 * @param num_iter_ the number of iterations (transmission rounds) to run the simulator
+	 */
+	public void runVirtual(long dataLength_, int num_iter_) {
+		run(null, dataLength_, num_iter_);
+	}
+
+	/**
+	 * Runs the simulator with a streaming application source, from which
+	 * the sender pulls the data lazily, as its window opens (see
+	 * {@link Sender#setSource(java.nio.channels.ReadableByteChannel)}).
+	 * Only about a window's worth of data is held in memory at any time,
+	 * so, e.g., a large file can be transferred without loading it up front.
+	 * Otherwise, the same as {@link #run(java.nio.ByteBuffer, int)}.
+	 * The source is not closed by the simulator.
+	 * 
+	 * @param source_ the source of the data to be transported to the receiving endpoint,
+	 * e.g., a <code>java.nio.channels.FileChannel</code> or a {@link MappedFileSource}
+	 * @param num_iter_ the number of iterations (transmission rounds) to run the simulator
+	 */
+	public void run(java.nio.channels.ReadableByteChannel source_, int num_iter_) {
+		if (senderEndpt != null) {
+			senderEndpt.getSender().setSource(source_);
+		}
+		run(null, 0L, num_iter_);
+	}
+
+	/**
+	 * Helper method to run the simulator, see {@link #run(java.nio.ByteBuffer, int)}.
+	 * @param inputPkt_ the packet holding the data to be transported, or <code>null</code>
+	 * @param virtualLength_ if there is no input packet, the number of bytes to be transported
+	 * in the "virtual data" mode, or zero if the sender pulls the data from a streaming source
+	 * @param num_iter_ the number of iterations (transmission rounds) to run the simulator
+	 */
+	private void run(Packet inputPkt_, long virtualLength_, int num_iter_) {
+		if (setupError != null) {
+			throw new IllegalStateException(
+				"The simulator could not be set up: " + setupError.getMessage(), setupError
+			);
+		}
 
 		// Print the headline for the output columns.
-		// Note that the "time" is given as the integer number of RTTs
-		// and represents the current iteration through the main loop.
-		System.out.println(
+		// Note that the "time" is given as the integer number of clock ticks
+		// and represents the current round of the simulation.
+		reporting.out.println(
 			"Time\tCongWindow\tEffctWindow\tFlightSize\tSSThresh\tRTOinterval"
 		);
-		System.out.println(
+		reporting.out.println(
 			"==================================================================================="
 		);
 
+		// The simulation ends after "num_iter_ + 1" rounds:
+		long endTime_ = currentTime + (num_iter_ + 1) * getTimeIncrement();
+
+		// Report the start of the first round right away, so it
+		// precedes anything that the sender does in this round.
+		timerExpired(0);
+
 		// The Simulator also plays the role of an Application
 		// that is using services of the TCP protocol.
-		// Here we provide the input data stream only in the first iteration
-		// and in the remaining iterations the system clocks itself
+		// Here we provide the input data stream only at the start
+		// and afterwards the system clocks itself
 		// -- based on the received ACKs, the sender will keep
 		// sending any remaining data.
 		//
@@ -217,106 +385,115 @@ public class Simulator {
 		// Rather, it sends burst-by-burst of segments, as allowed by
 		// its congestion window and other parameters,
 		// which are set based on the received ACKs.
-		Packet tmpPkt_ = new Packet(receiverEndpt, inputBuffer_.array());
-		senderEndpt.send(null, tmpPkt_);
-
-		// Iterate for the given number of transmission rounds.
-		// Note that an iteration represents a clock tick for the simulation.
-		// Each iteration is a transmission round, which is one RTT cycle long.
-		for (int iter_ = 0; iter_ <= num_iter_; iter_++) {
-			if (
-				(Simulator.currentReportingLevel & Simulator.REPORTING_SIMULATOR) != 0
-			) {
-				System.out.println(	//TODO prints incorrectly for the first iteration!
-					"Start of RTT #" + (int)currentTime +
-					" ................................................"
-				);
-			} else {
-				System.out.print(currentTime + "\t");
-			}
+		if (inputPkt_ != null) {
+			senderEndpt.send(null, inputPkt_);
+		} else if (virtualLength_ > 0L) {
+			senderEndpt.getSender().sendVirtual(virtualLength_);
+		} else {
+			senderEndpt.getSender().send(null);	// pull from the source
+		}
 
-			// Let the first link move any packets:
-			link1.process(2);
-			// Our main goal is that the sending endpoint handles acknowledgments
-			// received via the router in the previous transmission round, if any.
-
-			senderEndpt.process(1);
-
-			// Let the first link again move any packets:
-			link1.process(1);
-			// This time our main goal is that link transports any new
-			// data packets from sender to the router.
-
-			// Let the router relay any packets:
-			router.process(0);
-			// As a result, the router may have transmitted some packets
-			// to its adjoining links.
-
-			// Let the second link move any packets:
-			link2.process(2);
-			// Our main goal is that the receiver processes the received
-			// data segments and generates ACKs. The ACKs will be ready
-			// for the trip back to the sending endpoint.
-
-			receiverEndpt.process(2);
-
-			// Let the second link move any packets:
-			link2.process(1);
-			// Our main goal is to deliver the ACKs from the receiver to the router.
-
-			// Let the router relay any packets:
-			router.process(0);
-			// As a result, the router may have transmitted some packets
-			// to its adjoining links.
-
-			if (
-				(Simulator.currentReportingLevel  & Simulator.REPORTING_SIMULATOR) != 0
-			) {
-				System.out.println(
-					"End of RTT #" + (int)currentTime +
-					"   ------------------------------------------------\n"
-				);
-			}
+		// Process the events in the order of their time.
+		while (!timers.isEmpty() && timers.peek().getTime() < endTime_) {
+			TimerSimulated timer_ = timers.poll();
+			unindexTimer(timer_);
 
-			// At the end of an iteration, increment the simulation clock by one tick:
-			currentTime += 1.0;
-		} //end for() loop
+			// Advance the simulation clock to the time of this event:
+			currentTime = timer_.getTime();
+			timer_.callback.timerExpired(timer_.type);
+		}
+		currentTime = endTime_;
+
+		if (
+			(reporting.level & Simulator.REPORTING_SIMULATOR) != 0
+		) {
+			reporting.out.println(
+				"End of RTT #" + (int)timeToTicks(currentTime - getTimeIncrement()) +
+				"   ------------------------------------------------\n"
+			);
+		}
 
-		System.out.println(
+		reporting.out.println(
 			"     ====================  E N D   O F   S E S S I O N  ===================="
 		);
 		// How many bytes were transmitted:
-		int actualTotalTransmitted_ = senderEndpt.getSender().getTotalBytesTransmitted();
+		long actualTotalTransmitted_ = senderEndpt.getSender().getTotalBytesTransmitted();
 
 		// How many bytes could have been transmitted with the given
 		// bottleneck capacity, if there were no losses due to
-		// exceeding the bottleneck capacity
-		// (Note that we add one MSS for the packet that immediately
-		// goes into transmission in the router):
-		int potentialTotalTransmitted_ =
-			(router.getMaxBufferSize() + Sender.MSS) * num_iter_;
+		// exceeding the bottleneck capacity.
+		// The bottleneck is the link between the router and the receiver:
+		long potentialTotalTransmitted_ = senderEndpt.getSender().getMSS() * (
+			num_iter_ * getTimeIncrement() / link2.getTransmissionTime()
+		);
 
 		// Report the utilization of the sender:
-		float utilization_ =
+		utilization =
 			(float) actualTotalTransmitted_ / (float) potentialTotalTransmitted_;
-		System.out.println(
-			"Sender utilization: " + Math.round(utilization_*100.0f) + " %"
+		reporting.out.println(
+			"Sender utilization: " + Math.round(utilization*100.0f) + " %"
 		);
 	} //end the function run()
 
+	/**
+	 * Callback method for the simulator's own timer {@link #roundTimer},
+	 * which marks the start of a new transmission round (clock tick).
+	 * Reports the sender's congestion parameters and re-arms the timer
+	 * for the next round.
+	 * 
+	 * @param timerType_ the type of the timer that expired (ignored)
+	 * @see TimedComponent
+	 */
+	@Override
+	public void timerExpired(int timerType_) {
+		if (
+			(reporting.level & Simulator.REPORTING_SIMULATOR) != 0
+		) {
+			if (roundTimer.getTime() > 0L) {	// not the first round
+				reporting.out.println(
+					"End of RTT #" + (int)timeToTicks(currentTime - getTimeIncrement()) +
+					"   ------------------------------------------------\n"
+				);
+			}
+			reporting.out.println(
+				"Start of RTT #" + (int)timeToTicks(currentTime) +
+				" ................................................"
+			);
+		} else {
+			reporting.out.print((int)timeToTicks(currentTime) + "\t");
+		}
+		senderEndpt.getSender().reportCongestionParameters();
+
+		// Schedule the start of the next round:
+		rearmTimeoutAt(roundTimer, currentTime + getTimeIncrement());
+	}
+
 	/** The main method. Takes the number of iterations as
 	 * the input and runs the simulator. To run this program,
 	 * two arguments must be entered:
 	 * <pre>
-	 * TCP-sender-version (one of Tahoe/Reno/NewReno) AND number-of-iterations
+	 * TCP-sender-version AND number-of-iterations [trace-file]
 	 * </pre>
+	 * The sender version is one of {@link CongestionControlRegistry#getNames()},
+	 * possibly with the option suffixes of {@link Endpoint}, e.g., "Reno-paced".
+	 * If the optional trace file is given, the simulation events are
+	 * recorded into it (see {@link TraceRecorder}), and only the basic
+	 * congestion parameters are reported on the standard output.
 	 * @param argv_ Input argument(s) should contain the version of the
-	 * TCP sender (Tahoe/Reno/NewReno) and the number of iterations to run.
+	 * TCP sender and the number of iterations to run.
 	 */
 	public static void main(String[] argv_) {
 		if (argv_.length < 2) {
+			// List all the registered versions, including those discovered on the class path:
+			StringBuilder versions_ = new StringBuilder();
+			for (String name_ : CongestionControlRegistry.getNames()) {
+				if (versions_.length() > 0) {
+					versions_.append('/');
+				}
+				versions_.append(name_);
+			}
 			System.err.println(
-				"Please specify the TCP sender version (Tahoe/Reno/NewReno) and the number of iterations!"
+				"Please specify the TCP sender version (" + versions_ + ") and the number of iterations!"
 			);
 			System.exit(1);
 		}
@@ -325,44 +502,142 @@ public class Simulator {
 		// are entered as arguments on the command line, if desired so.
 
 		// Default for router buffer: _six_ plus one packet currently in transmission:
-		int bufferSize_ = 6*Sender.MSS + 100;	// plus little more for ACKs
+		int bufferSize_ = 6*Sender.DEFAULT_MSS + 100;	// plus little more for ACKs
 		int rcvWindow_ = 65536;	// default 64KBytes
 
+		// Open the binary trace, if requested.
+		Reporting reporting_ = new Reporting(DEFAULT_REPORTING_LEVEL, System.out);
+		if (argv_.length > 2) {
+			try {
+				reporting_ = new Reporting(0, System.out, new TraceRecorder(argv_[2]));
+			} catch (java.io.IOException ex) {
+				System.err.println(ex.toString());
+				System.exit(1);
+			}
+		}
+
 		// Create the simulator.
 		Simulator simulator = new Simulator(
-			argv_[0], bufferSize_ /* in number of packets */, rcvWindow_ /* in bytes */
+			argv_[0], bufferSize_ /* in number of packets */, rcvWindow_ /* in bytes */,
+			reporting_
 		);
 
 		// Extract the number of iterations (transmission rounds) to run
 		// from the command line argument.
 		Integer numIter_ = new Integer(argv_[1]);
 
-		// Create the input buffer that will be sent to the receiver.
+		// Run the simulator for the given number of transmission rounds.
+		// The simulator never looks at the data, so we send only
+		// the number of bytes, in the "virtual data" mode.
 		// In reality, the data should be read from a file or another input stream.
-		java.nio.ByteBuffer inputBuffer_ = ByteBuffer.allocate(TOTAL_DATA_LENGTH);
+		simulator.runVirtual(TOTAL_DATA_LENGTH, numIter_.intValue());
 
-		// Run the simulator for the given number of transmission rounds.
-		simulator.run(inputBuffer_, numIter_.intValue());
+		if (reporting_.trace != null) {
+			reporting_.trace.close();
+		}
+	}
+
+	/**
+	 * Returns the reporting configuration of this simulator.
+	 * @return the reporting configuration
+	 */
+	public Reporting getReporting() {
+		return reporting;
 	}
 
 	/**
 	 * Returns the current "time" since the start of the simulation.
-	 * The time is currently measured in the integer multiples of
-	 * the simulation clock "ticks".
+	 * The time is measured in the simulation time units
+	 * (see {@link #TIME_UNITS_PER_TICK}), so
+	 * it is not restricted to integer multiples of ticks.
 	 * 
-	 * @return Returns the current iteration of this simulation session.
+	 * @return Returns the time of the event currently being processed.
 	 */
-	public double getCurrentTime() {
+	public long getCurrentTime() {
 		return currentTime;
 	}
 
 	/**
 	 * Time increment ("tick") for the simulation clock. Right now
-	 * we simply assume that each round takes 1 RTT (and lasts unspecified number of seconds).
-	 * @return the time increment (in ticks) for a round of simulation.
+	 * we simply assume that each round takes about 1 RTT (and lasts unspecified number of seconds).
+	 * @return the time increment (in simulation time units) for a round of simulation.
+	 */
+	public long getTimeIncrement() {
+		return TIME_UNITS_PER_TICK;
+	}
+
+	/**
+	 * Returns the utilization of the sender in the last run of the simulator,
+	 * as a fraction of the bottleneck capacity.
+	 * @return the sender utilization (between 0 and 1)
+	 * @see #run(ByteBuffer, int)
+	 */
+	public float getUtilization() {
+		return utilization;
+	}
+
+	/**
+	 * Returns the number of bytes that the sender transmitted
+	 * and had acknowledged so far.
+	 * @return the total number of bytes transmitted
+	 */
+	public long getTotalBytesTransmitted() {
+		return senderEndpt.getSender().getTotalBytesTransmitted();
+	}
+
+	/**
+	 * Returns the number of packets that the bottleneck router dropped so far.
+	 * @return the number of dropped packets
+	 */
+	public int getPacketsDropped() {
+		return router.getPacketsDropped();
+	}
+
+	/**
+	 * Returns the number of packets that the bottleneck router marked so far
+	 * with the "Congestion Experienced" codepoint.
+	 * @return the number of marked packets
+	 */
+	public int getPacketsMarked() {
+		return router.getPacketsMarked();
+	}
+
+	/**
+	 * Returns the time-average length of the queue at the bottleneck router so far.
+	 * @return the average queue length, in bytes
+	 * @see Router#getAverageBufferOccupancy()
+	 */
+	public double getAverageQueueOccupancy() {
+		return router.getAverageBufferOccupancy();
+	}
+
+	/**
+	 * Returns the number of packets that the links delivered so far,
+	 * counting each hop of a packet separately.
+	 * @return the number of delivered packets
 	 */
-	public double getTimeIncrement() {
-		return 1.0;
+	public long getPacketsDelivered() {
+		return link1.getPacketsDelivered() + link2.getPacketsDelivered();
+	}
+
+	/**
+	 * Converts a duration given in clock ticks (possibly a fraction of a tick)
+	 * into the simulation time units, rounded to the nearest unit.
+	 * @param ticks_ the duration in clock ticks
+	 * @return the duration in simulation time units
+	 */
+	public static long ticksToTime(double ticks_) {
+		return Math.round(ticks_ * TIME_UNITS_PER_TICK);
+	}
+
+	/**
+	 * Converts a time given in the simulation time units into clock ticks,
+	 * for reporting purposes.
+	 * @param time_ the time in simulation time units
+	 * @return the time in clock ticks
+	 */
+	public static double timeToTicks(long time_) {
+		return (double) time_ / TIME_UNITS_PER_TICK;
 	}
 
 	/**
@@ -383,11 +658,14 @@ public class Simulator {
 	public TimerSimulated setTimeoutAt(TimerSimulated timer_)
 	throws NullPointerException, IllegalArgumentException {
 		TimerSimulated timerCopy_ = (TimerSimulated) timer_.clone();
-		if (!timers.add(timerCopy_)) {
+		if (timerCopy_.getTime() < currentTime) {
 			throw new IllegalArgumentException(
-				this.getClass().getName() + ".setTimeoutAt():  Attempting to add an existing timer."
+				this.getClass().getName() + ".setTimeoutAt():  Attempting to set a timer in the past."
 			);
 		}
+		timerCopy_.setOrder(timersSetCount++);
+		timers.add(timerCopy_);
+		indexTimer(timerCopy_);
 		return timerCopy_;
 	}
 
@@ -404,6 +682,52 @@ public class Simulator {
 				this.getClass().getName() + ".cancelTimeout():  Attempting to cancel a non-existing timer."
 			);
 		}
+		unindexTimer(timer_);
+	}
+
+	/**
+	 * Allows a component to (re)start its own timer object in place,
+	 * without cloning it. If the timer is already running, it is
+	 * first stopped, so this method can be used to re-arm a timer
+	 * for a new time, such as the RTO timer in {@link Sender#startRTOtimer()}.</p>
+	 * 
+	 * <p>Unlike {@link #setTimeoutAt(TimerSimulated)}, this method
+	 * allocates no objects, so components that keep re-arming
+	 * the same timer generate no garbage. The timer object itself
+	 * is the handle, see {@link TimerSimulated#isRunning()}.</p>
+	 * 
+	 * @param timer_ the timer to (re)start
+	 * @param time_ the future time when the timer should fire
+	 * @throws NullPointerException
+	 * @throws IllegalArgumentException
+	 */
+	public void rearmTimeoutAt(TimerSimulated timer_, long time_)
+	throws NullPointerException, IllegalArgumentException {
+		if (time_ < currentTime) {
+			throw new IllegalArgumentException(
+				this.getClass().getName() + ".rearmTimeoutAt():  Attempting to set a timer in the past."
+			);
+		}
+		disarmTimeout(timer_);
+		timer_.setTime(time_);
+		timer_.setOrder(timersSetCount++);
+		timers.add(timer_);
+		indexTimer(timer_);
+	}
+
+	/**
+	 * Allows a component to stop its own timer object, if it is running.
+	 * Unlike {@link #cancelTimeout(TimerSimulated)}, it is not an error
+	 * to stop a timer that is not running.
+	 * 
+	 * @param timer_ the timer to stop
+	 * @throws NullPointerException
+	 */
+	public void disarmTimeout(TimerSimulated timer_)
+	throws NullPointerException {
+		if (timers.remove(timer_)) {
+			unindexTimer(timer_);
+		}
 	}
 
 	/**
@@ -411,34 +735,92 @@ public class Simulator {
 	 * expired because the simulation clock has ticked.
 	 * If yes, it fires a timeout event by calling the callback.</p>
 	 * 
-	 * <p>Note that to deal with with synchronization between concurrent events,
-	 * the caller decides which timers will be checked when. It is just to expect
-	 * the caller to know such information. In the current implementation,
-	 * this method is called from {@link Endpoint#send(NetworkElement, Packet)}
-	 * and {@link Endpoint#handle(NetworkElement, Packet)}.</p>
+	 * <p>Normally, the timers are fired by the main loop in
+	 * {@link #run(ByteBuffer, int)} in the order of their time.
+	 * This method allows a caller to fire the expired timers of
+	 * a given component ahead of the main loop, see
+	 * {@link Endpoint#process(int)}.</p>
 	 * 
 	 * @param component_ the timed component for which to check the expired timers
 	 */
 	public void checkExpiredTimers(TimedComponent component_) {
-		// Make a copy of the list for thread-safe traversal
-		@SuppressWarnings("unchecked")
-		ArrayList<TimerSimulated> timersCopy = (ArrayList<TimerSimulated>) timers.clone();
-		ArrayList<TimerSimulated> expiredTimers = new ArrayList<TimerSimulated>();
-		// For each timer that is running,
-		// if the timer's time arrived (equals the current time),
-		// call the callback function of the associated Component.
-		Iterator<TimerSimulated> timerItems_ = timersCopy.iterator();
-		while (timerItems_.hasNext()) {
-			TimerSimulated timer_ = timerItems_.next();
-			// If the timeout occurred, call the callback method:
-			if (timer_.callback.equals(component_) && timer_.getTime() <= getCurrentTime()) {
-				timer_.callback.timerExpired(timer_.type);
-
-				// Mark the timer for removal
-				expiredTimers.add(timer_);
+		// Skip the component right away if none of its timers is due:
+		ComponentTimers componentTimers_ = timersByComponent.get(component_);
+		if (
+			componentTimers_ == null || componentTimers_.earliestTime > getCurrentTime()
+		) {
+			return;
+		}
+
+		// Fire the expired timers one by one in the order of their time.
+		// The timers set by the callbacks are left for later.
+		long timersSetBefore_ = timersSetCount;
+		while (componentTimers_.earliestTime <= getCurrentTime()) {
+			TimerSimulated expiredTimer_ = null;
+			for (int i_ = 0; i_ < componentTimers_.running.size(); i_++) {
+				TimerSimulated timer_ = componentTimers_.running.get(i_);
+				if (
+					timer_.getTime() <= getCurrentTime() && timer_.getOrder() < timersSetBefore_ &&
+					(expiredTimer_ == null || timer_.compareTo(expiredTimer_) < 0)
+				) {
+					expiredTimer_ = timer_;
+				}
+			}
+			if (expiredTimer_ == null) {
+				break;
 			}
+			// Release the expired timer since it will accomplish its mission now.
+			timers.remove(expiredTimer_);
+			unindexTimer(expiredTimer_);
+			expiredTimer_.callback.timerExpired(expiredTimer_.type);
 		}
-		// Release the expired timers since they have accomplished their mission.
-		timers.removeAll(expiredTimers);
+	}
+
+	/**
+	 * Helper method to add a running timer to {@link #timersByComponent}.
+	 * @param timer_ the timer that was just set
+	 */
+	private void indexTimer(TimerSimulated timer_) {
+		ComponentTimers componentTimers_ = timersByComponent.get(timer_.callback);
+		if (componentTimers_ == null) {
+			componentTimers_ = new ComponentTimers();
+			timersByComponent.put(timer_.callback, componentTimers_);
+		}
+		componentTimers_.running.add(timer_);
+		if (timer_.getTime() < componentTimers_.earliestTime) {
+			componentTimers_.earliestTime = timer_.getTime();
+		}
+	}
+
+	/**
+	 * Helper method to remove a fired or cancelled timer from {@link #timersByComponent}.
+	 * @param timer_ the timer that is no longer running
+	 */
+	private void unindexTimer(TimerSimulated timer_) {
+		ComponentTimers componentTimers_ = timersByComponent.get(timer_.callback);
+		componentTimers_.running.remove(timer_);
+
+		// Recompute the earliest time; a component runs only a few timers:
+		componentTimers_.earliestTime = Long.MAX_VALUE;
+		for (int i_ = 0; i_ < componentTimers_.running.size(); i_++) {
+			long time_ = componentTimers_.running.get(i_).getTime();
+			if (time_ < componentTimers_.earliestTime) {
+				componentTimers_.earliestTime = time_;
+			}
+		}
+	}
+
+
+	// ----------------------------------------------------------------------
+	/**
+	 * Inner class for the running timers of one {@link TimedComponent}.
+	 */
+	private static class ComponentTimers {
+		/** The running timers of the component. */
+		ArrayList<TimerSimulated> running = new ArrayList<TimerSimulated>(4);
+
+		/** The earliest expiration time of the {@link #running} timers,
+		 * or <code>Long.MAX_VALUE</code> if none is running. */
+		long earliestTime = Long.MAX_VALUE;
 	}
 }
@@ -0,0 +1,329 @@
+/*
+ * Created on Oct 16, 2026
+ */
+package sime;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import sime.tcp.CongestionControlRegistry;
+import sime.tcp.Sender;
+
+/**
+ * Runs a <em>parameter sweep</em>: many independent simulations
+ * over a grid of TCP sender versions, router buffer sizes,
+ * receive-window sizes, numbers of iterations, and maximum segment sizes.
+ * Every combination of the parameters is simulated by its own
+ * {@link Simulator} instance, and the simulations run in parallel
+ * on a {@link ForkJoinPool}, so a sweep uses all processor cores
+ * of a single process.</p>
+ *
+ * <p>At the end, the results of all runs (utilization, bytes transmitted,
+ * packets dropped by the router, and the average router queue) are reported in one table,
+ * in the order of the parameter grid.</p>
+ *
+ * <p>Note that the per-round reports of the individual simulations
+ * would be interleaved in parallel runs, so every simulation is given
+ * its own {@link Reporting} configuration with the minimum reporting
+ * level, which discards the reports.</p>
+ *
+ * @author agent
+ * @see Simulator
+ */
+public class SweepRunner {
+	/** The TCP sender versions to simulate (see {@link CongestionControlRegistry#getNames()}). */
+	protected String[] senderVersions = null;
+
+	/** The router buffer sizes to simulate (in bytes). */
+	protected int[] bufferSizes = null;
+
+	/** The receive-window sizes to simulate (in bytes). */
+	protected int[] rcvWindows = null;
+
+	/** The numbers of iterations (transmission rounds) to simulate. */
+	protected int[] numIterations = null;
+
+	/** The maximum segment sizes to simulate (in bytes). */
+	protected int[] mssValues = null;
+
+	/**
+	 * Constructor. The sweep runs a simulation for every combination
+	 * of the given parameter values.
+	 *
+	 * @param senderVersions_ the TCP sender versions, each one of {@link CongestionControlRegistry#getNames()}
+	 * @param bufferSizes_ the router buffer sizes (in bytes)
+	 * @param rcvWindows_ the receive-window sizes (in bytes)
+	 * @param numIterations_ the numbers of iterations to run the simulator
+	 */
+	public SweepRunner(
+		String[] senderVersions_, int[] bufferSizes_, int[] rcvWindows_, int[] numIterations_
+	) {
+		this(
+			senderVersions_, bufferSizes_, rcvWindows_, numIterations_,
+			new int[] { Sender.DEFAULT_MSS }
+		);
+	}
+
+	/**
+	 * Constructor of a sweep that also varies the maximum segment size.
+	 * All the sender versions are checked before any simulation is run,
+	 * so that a misspelled version does not spoil a long sweep.
+	 *
+	 * @param senderVersions_ the TCP sender versions, each one of {@link CongestionControlRegistry#getNames()}
+	 * @param bufferSizes_ the router buffer sizes (in bytes)
+	 * @param rcvWindows_ the receive-window sizes (in bytes)
+	 * @param numIterations_ the numbers of iterations to run the simulator
+	 * @param mssValues_ the maximum segment sizes of the endpoints (in bytes)
+	 * @throws IllegalArgumentException if a sender version is not registered
+	 */
+	public SweepRunner(
+		String[] senderVersions_, int[] bufferSizes_, int[] rcvWindows_, int[] numIterations_,
+		int[] mssValues_
+	) {
+		for (int v_ = 0; v_ < senderVersions_.length; v_++) {
+			if (CongestionControlRegistry.lookup(Endpoint.getBaseSenderType(senderVersions_[v_])) == null) {
+				throw new IllegalArgumentException(
+					"Unknown TCP sender version: " + senderVersions_[v_] +
+					" (registered versions: " + CongestionControlRegistry.getNames() + ")"
+				);
+			}
+		}
+		this.senderVersions = senderVersions_;
+		this.bufferSizes = bufferSizes_;
+		this.rcvWindows = rcvWindows_;
+		this.numIterations = numIterations_;
+		this.mssValues = mssValues_;
+	}
+
+	/**
+	 * Runs all the simulations of the parameter grid in parallel.
+	 *
+	 * @param parallelism_ the number of simulations to run at the same time
+	 * @return the results of the simulations, in the order of the parameter grid
+	 */
+	public ArrayList<Result> run(int parallelism_) {
+		// Build one task for every point of the parameter grid:
+		ArrayList<SimulationTask> tasks_ = new ArrayList<SimulationTask>();
+		for (int v_ = 0; v_ < senderVersions.length; v_++) {
+			for (int b_ = 0; b_ < bufferSizes.length; b_++) {
+				for (int w_ = 0; w_ < rcvWindows.length; w_++) {
+					for (int n_ = 0; n_ < numIterations.length; n_++) {
+						for (int m_ = 0; m_ < mssValues.length; m_++) {
+							tasks_.add(new SimulationTask(new Result(
+								senderVersions[v_], bufferSizes[b_], rcvWindows[w_],
+								numIterations[n_], mssValues[m_]
+							)));
+						}
+					}
+				}
+			}
+		}
+
+		ForkJoinPool pool_ = new ForkJoinPool(parallelism_);
+		try {
+			pool_.invoke(new SweepTask(tasks_));
+		} finally {
+			pool_.shutdown();
+		}
+
+		ArrayList<Result> results_ = new ArrayList<Result>(tasks_.size());
+		for (int i_ = 0; i_ < tasks_.size(); i_++) {
+			results_.add(tasks_.get(i_).result);
+		}
+		return results_;
+	}
+
+	/** The main method. Runs a sweep over the parameter grid
+	 * given on the command line as comma-separated lists:
+	 * <pre>
+	 * sender-versions buffer-sizes receive-windows numbers-of-iterations [parallelism [MSS-values]]
+	 * </pre>
+	 * For example: <code>Tahoe,Reno,NewReno 6100,12100 65536 100,1000</code>.
+	 * To compare the sender options, e.g., the pacing against the bursts, list the versions
+	 * also with the option suffixes of {@link Endpoint}, e.g., <code>Reno,Reno-paced</code>.
+	 * The receive windows above 64 KBytes, e.g., <code>65536,262144</code>, are advertised with
+	 * the window scale option (see {@link Endpoint#negotiateWindowScale()}).<BR>
+	 * Without arguments, all three sender versions are run with the
+	 * default parameters of {@link Simulator#main(String[])} for 100 iterations.
+	 * By default, the parallelism equals the number of available processors.
+	 *
+	 * @param argv_ Input arguments that specify the parameter grid.
+	 */
+	public static void main(String[] argv_) {
+		String[] senderVersions_ = { "Tahoe", "Reno", "NewReno" };
+		int[] bufferSizes_ = { 6*Sender.DEFAULT_MSS + 100 };
+		int[] rcvWindows_ = { 65536 };
+		int[] numIterations_ = { 100 };
+		int[] mssValues_ = { Sender.DEFAULT_MSS };
+		int parallelism_ = Runtime.getRuntime().availableProcessors();
+
+		if (argv_.length > 0 && argv_.length < 4) {
+			System.err.println(
+				"Please specify the sender versions, buffer sizes, receive windows, and numbers of iterations!"
+			);
+			System.exit(1);
+		}
+		if (argv_.length >= 4) {
+			senderVersions_ = argv_[0].split(",");
+			bufferSizes_ = parseList(argv_[1]);
+			rcvWindows_ = parseList(argv_[2]);
+			numIterations_ = parseList(argv_[3]);
+		}
+		if (argv_.length >= 5) {
+			parallelism_ = Integer.parseInt(argv_[4]);
+		}
+		if (argv_.length >= 6) {
+			mssValues_ = parseList(argv_[5]);
+		}
+
+		SweepRunner sweep_ = null;
+		try {
+			sweep_ = new SweepRunner(
+				senderVersions_, bufferSizes_, rcvWindows_, numIterations_, mssValues_
+			);
+		} catch (IllegalArgumentException ex) {
+			System.err.println(ex.getMessage());
+			System.exit(1);
+		}
+		ArrayList<Result> results_ = sweep_.run(parallelism_);
+
+		System.out.println(
+			"Sender\tBufferSize\tRcvWindow\tIterations\tMSS\tUtilization\tBytesTransmitted\tDrops\tAvgQueue"
+		);
+		System.out.println(
+			"==================================================================================="
+		);
+		for (int i_ = 0; i_ < results_.size(); i_++) {
+			System.out.println(results_.get(i_).toString());
+		}
+	}
+
+	/**
+	 * Helper method to parse a comma-separated list of integers.
+	 */
+	private static int[] parseList(String list_) {
+		String[] items_ = list_.split(",");
+		int[] values_ = new int[items_.length];
+		for (int i_ = 0; i_ < items_.length; i_++) {
+			values_[i_] = Integer.parseInt(items_[i_].trim());
+		}
+		return values_;
+	}
+
+
+	// ----------------------------------------------------------------------
+	/**
+	 * The parameters and the outcome of one simulation of the sweep.
+	 */
+	public static class Result {
+		/** The TCP sender version of this simulation. */
+		public final String senderVersion;
+
+		/** The router buffer size (in bytes) of this simulation. */
+		public final int bufferSize;
+
+		/** The receive-window size (in bytes) of this simulation. */
+		public final int rcvWindow;
+
+		/** The number of iterations of this simulation. */
+		public final int numIter;
+
+		/** The maximum segment size (in bytes) of this simulation. */
+		public final int mss;
+
+		/** The sender utilization, see {@link Simulator#getUtilization()}. */
+		public float utilization = 0.0f;
+
+		/** The bytes transmitted, see {@link Simulator#getTotalBytesTransmitted()}. */
+		public long bytesTransmitted = 0L;
+
+		/** The packets dropped by the router, see {@link Simulator#getPacketsDropped()}. */
+		public int packetsDropped = 0;
+
+		/** The average router queue (in bytes), see {@link Simulator#getAverageQueueOccupancy()}. */
+		public double averageQueue = 0.0;
+
+		/** The reason why this simulation failed, or <code>null</code> if it did not. */
+		public String failure = null;
+
+		/** Constructor of a result that is not known yet. */
+		Result(String senderVersion_, int bufferSize_, int rcvWindow_, int numIter_, int mss_) {
+			this.senderVersion = senderVersion_;
+			this.bufferSize = bufferSize_;
+			this.rcvWindow = rcvWindow_;
+			this.numIter = numIter_;
+			this.mss = mss_;
+		}
+
+		/** Returns the result as a row of the sweep table. */
+		public String toString() {
+			if (failure != null) {
+				return
+					senderVersion + "\t" + bufferSize + "\t\t" + rcvWindow + "\t\t" + numIter +
+					"\t\t" + mss + "\tFAILED: " + failure;
+			}
+			return
+				senderVersion + "\t" + bufferSize + "\t\t" + rcvWindow + "\t\t" + numIter +
+				"\t\t" + mss + "\t" + Math.round(utilization*100.0f) + " %\t\t" + bytesTransmitted +
+				"\t\t\t" + packetsDropped + "\t" + Math.round(averageQueue);
+		}
+	}
+
+	/**
+	 * Task that runs a single simulation of the sweep.
+	 */
+	private static class SimulationTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		/** The parameters of this simulation, and its outcome when done. */
+		final Result result;
+
+		SimulationTask(Result result_) {
+			this.result = result_;
+		}
+
+		@Override
+		protected void compute() {
+			// The reports of the individual simulations are discarded:
+			Simulator simulator_ = new Simulator(
+				result.senderVersion, result.bufferSize, result.rcvWindow, result.mss,
+				Reporting.silent()
+			);
+			// Only the sequence numbers and lengths matter, not the data.
+			// A failed simulation is reported in its row, rather than
+			// aborting the whole sweep and losing the other results:
+			try {
+				simulator_.runVirtual(Simulator.TOTAL_DATA_LENGTH, result.numIter);
+			} catch (RuntimeException ex) {
+				// The message alone may be null, e.g., of a NullPointerException:
+				result.failure = ex.toString();
+				return;
+			}
+
+			result.utilization = simulator_.getUtilization();
+			result.bytesTransmitted = simulator_.getTotalBytesTransmitted();
+			result.packetsDropped = simulator_.getPacketsDropped();
+			result.averageQueue = simulator_.getAverageQueueOccupancy();
+		}
+	}
+
+	/**
+	 * Task that forks all the simulations of the sweep and waits for them.
+	 */
+	private static class SweepTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		/** The simulations to run. */
+		final ArrayList<SimulationTask> tasks;
+
+		SweepTask(ArrayList<SimulationTask> tasks_) {
+			this.tasks = tasks_;
+		}
+
+		@Override
+		protected void compute() {
+			invokeAll(tasks);
+		}
+	}
+}
@@ -10,20 +10,40 @@ package sime;
  * The simulator components cannot use actual system timers
  * because the timers must run on simulated time.</p>
  * 
- * <p>The time units for the timer are the <em>simulator clock
- * ticks</em>, instead of actual time units, such as seconds.</p>
+ * <p>The time units for the timer are the integer <em>simulation
+ * time units</em> (see {@link Simulator#TIME_UNITS_PER_TICK}),
+ * instead of actual time units, such as seconds.</p>
+ * 
+ * <p>Timers also serve as the events of the simulator's future-event
+ * list, so they are ordered by their time (see {@link #compareTo(TimerSimulated)}).</p>
  * 
  * @author Ivan Marsic
  */
-public class TimerSimulated implements Cloneable {
+public class TimerSimulated implements Cloneable, Comparable<TimerSimulated> {
 	/** The callback object that will be called when this timer expires. */
 	public TimedComponent callback;
 	
 	/** Type of the timer, to help the component distinguish between multiple running timers. */
 	public int type;
 
-	/** The future time when this timer will expire. */
-	private double time;
+	/** The future time when this timer will expire, in simulation time units. */
+	private long time;
+
+	/** The order in which this timer was set in the simulator,
+	 * used to fire the timers with equal time in the first-come-first-served order. */
+	private long order;
+
+	/** The level of the {@link TimingWheel} that holds this timer,
+	 * or one of the pseudo-levels defined in {@link TimingWheel}. */
+	int wheelLevel = TimingWheel.NOT_SET;
+
+	/** The slot within {@link #wheelLevel} that holds this timer, or
+	 * its position in the heap of the timers that are due (see {@link TimingWheel#IN_READY}). */
+	int wheelSlot = 0;
+
+	/** Neighbors of this timer in the list of its {@link TimingWheel} slot. */
+	TimerSimulated prevInSlot = null;
+	TimerSimulated nextInSlot = null;
 
 	/**
 	 * <p><b>Note:</b> The constructor should check that <code>time_</code>
@@ -31,9 +51,9 @@ public class TimerSimulated implements Cloneable {
 	 * 
 	 * @param callback_ callback object to call when this timer expires
 	 * @param type_ timer type, in case the component is running multiple timers
-	 * @param time_ future time when this timer will fire
+	 * @param time_ future time when this timer will fire, in simulation time units
 	 */
-	public TimerSimulated(TimedComponent callback_, int type_, double time_) {
+	public TimerSimulated(TimedComponent callback_, int type_, long time_) {
 		callback = callback_;
 		type = type_;
 		setTime(time_); //TODO: should check that the time is in the future!
@@ -41,10 +61,15 @@ public class TimerSimulated implements Cloneable {
 
 	/**
 	 * This method is part of the java.lang.Cloneable interface.
+	 * The clone is not in any {@link TimingWheel}, even if this timer is.
 	 */
 	public Object clone() {
         try {
-            return super.clone();
+            TimerSimulated timerCopy_ = (TimerSimulated) super.clone();
+            timerCopy_.wheelLevel = TimingWheel.NOT_SET;
+            timerCopy_.prevInSlot = null;
+            timerCopy_.nextInSlot = null;
+            return timerCopy_;
         } catch(CloneNotSupportedException ex) {
         	System.out.print("TimerSimulated.clone():\t" + ex.toString());
             return null;
@@ -52,14 +77,58 @@ public class TimerSimulated implements Cloneable {
     }
 
 	/** Returns the time when this timer expires. */
-	public double getTime() {
+	public long getTime() {
 		return time;
 	}
 
 	/**
-	 * @param time the time to set
+	 * Note that the time of a running timer must not be modified;
+	 * use {@link Simulator#rearmTimeoutAt(TimerSimulated, long)} instead.
+	 * @param time the time to set, in simulation time units
 	 */
-	public void setTime(double time) {
+	public void setTime(long time) {
 		this.time = time;
 	}
+
+	/**
+	 * Returns <code>true</code> if this timer is currently set
+	 * in the simulator and has neither expired nor been cancelled.
+	 */
+	public boolean isRunning() {
+		return (wheelLevel != TimingWheel.NOT_SET);
+	}
+
+	/**
+	 * Set by the simulator when this timer is started.
+	 * @param order_ the sequence number of this timer among all timers set so far
+	 * @see Simulator#setTimeoutAt(TimerSimulated)
+	 */
+	void setOrder(long order_) {
+		this.order = order_;
+	}
+
+	/** Returns the sequence number of this timer among all timers set so far. */
+	long getOrder() {
+		return order;
+	}
+
+	/**
+	 * This method is part of the java.lang.Comparable<T> interface.
+	 * Timers are ordered by their expiration time and, if
+	 * the time is equal, by the order in which they were set.
+	 */
+	@Override
+	public int compareTo(TimerSimulated anotherTimer_) {
+		if (this.time < anotherTimer_.time) {
+			return -1;
+		} else if (this.time > anotherTimer_.time) {
+			return 1;
+		} else if (this.order < anotherTimer_.order) {
+			return -1;
+		} else if (this.order > anotherTimer_.order) {
+			return 1;
+		} else {
+			return 0;
+		}
+	}
 }
\ No newline at end of file
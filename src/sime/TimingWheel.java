@@ -0,0 +1,359 @@
+/*
+ * Created on Oct 16, 2026
+ */
+package sime;
+
+/**
+ * The simulator's future-event list, implemented as a hierarchical
+ * timing wheel, as described by G. Varghese and T. Lauck in
+ * <a href="http://www.cs.columbia.edu/~nahum/w6998/papers/sosp87-timing-wheels.pdf" target="page">Hashed
+ * and Hierarchical Timing Wheels</a>.</p>
+ *
+ * <p>The simulated time is divided into <em>slots</em> of equal
+ * duration ({@link #resolution}). The wheel has {@link #LEVELS} levels
+ * of {@link #SLOTS} slots each; a slot on level <em>l</em> spans
+ * <tt>SLOTS<sup>l</sup></tt> slots of the lowest level. A timer is
+ * kept in a doubly-linked list of the coarsest slot that does not
+ * contain the current slot, so setting and cancelling a timer takes
+ * constant time. As the current slot advances, the timers of a coarse
+ * slot are cascaded down to the finer levels. The timers that are due
+ * in the current slot are kept in a small binary heap ({@link #ready}),
+ * so the timers are still fired in the exact order of their time
+ * (see {@link TimerSimulated#compareTo(TimerSimulated)}). Each timer in
+ * the heap knows its position there, so setting, firing, or cancelling
+ * a timer that is due takes <tt>O(log r)</tt> time, where <tt>r</tt> is
+ * the number of timers due in the current slot.</p>
+ *
+ * <p>Timers too far in the future for the wheel are kept in
+ * an overflow list and re-inserted every time the top level wraps around.</p>
+ *
+ * @author agent
+ * @see Simulator#setTimeoutAt(TimerSimulated)
+ */
+class TimingWheel {
+	/** Binary exponent of the number of slots per level. */
+	static final int SLOT_BITS = 8;
+
+	/** The number of slots per level of the wheel: {@value}. */
+	static final int SLOTS = 1 << SLOT_BITS;
+
+	/** The number of levels of the wheel: {@value}. */
+	static final int LEVELS = 4;
+
+	/** Mask for the slot index within a level. */
+	static final long SLOT_MASK = SLOTS - 1;
+
+	/** Pseudo-level of the timers in the {@link #ready} heap; for them,
+	 * {@link TimerSimulated#wheelSlot} is the position in the heap. */
+	static final int IN_READY = -1;
+
+	/** Pseudo-level of the timers in the {@link #overflow} list. */
+	static final int IN_OVERFLOW = -2;
+
+	/** Pseudo-level of the timers that are not in this wheel. */
+	static final int NOT_SET = -3;
+
+	/** The duration of a slot of the lowest level, in simulation time units. */
+	final long resolution;
+
+	/** Heads of the lists of timers in each slot, indexed by level and slot. */
+	private TimerSimulated[][] slots = new TimerSimulated[LEVELS][SLOTS];
+
+	/** The number of timers on each level, used to skip the empty levels. */
+	private int[] levelCount = new int[LEVELS];
+
+	/** Head of the list of timers that are beyond the reach of the wheel. */
+	private TimerSimulated overflow = null;
+
+	/** The timers due in the {@link #currentSlot} (or earlier), as a binary heap
+	 * ordered by their time; the earliest timer is at the index zero. */
+	private TimerSimulated[] ready = new TimerSimulated[16];
+
+	/** The number of timers in the {@link #ready} heap. */
+	private int readyCount = 0;
+
+	/** The absolute index of the lowest-level slot that is current. */
+	private long currentSlot = 0;
+
+	/** The total number of timers in this wheel. */
+	private int size = 0;
+
+	/**
+	 * Constructor.
+	 * @param resolution_ the duration of a slot, in simulation time units
+	 * @param startTime_ the simulation time at which the wheel starts turning
+	 */
+	TimingWheel(long resolution_, long startTime_) {
+		this.resolution = resolution_;
+		this.currentSlot = slotOf(startTime_);
+	}
+
+	/** Returns <code>true</code> if there are no timers in this wheel. */
+	boolean isEmpty() {
+		return (size == 0);
+	}
+
+	/**
+	 * Inserts a timer into the wheel.
+	 * @param timer_ the timer to insert
+	 */
+	void add(TimerSimulated timer_) {
+		insert(timer_);
+		size++;
+	}
+
+	/**
+	 * Removes a timer from the wheel, if present.
+	 * @param timer_ the timer to remove
+	 * @return <code>true</code> if the timer was in this wheel
+	 */
+	boolean remove(TimerSimulated timer_) {
+		if (timer_.wheelLevel == NOT_SET) {
+			return false;
+		} else if (timer_.wheelLevel == IN_READY) {
+			removeReady(timer_.wheelSlot);
+		} else {
+			unlink(timer_);
+		}
+		timer_.wheelLevel = NOT_SET;
+		size--;
+		return true;
+	}
+
+	/**
+	 * Returns the earliest timer, without removing it from the wheel.
+	 * @return the earliest timer, or <code>null</code> if the wheel is empty
+	 */
+	TimerSimulated peek() {
+		while (readyCount == 0 && size > 0) {
+			advance();
+		}
+		return (readyCount == 0) ? null : ready[0];
+	}
+
+	/**
+	 * Removes and returns the earliest timer.
+	 * @return the earliest timer, or <code>null</code> if the wheel is empty
+	 */
+	TimerSimulated poll() {
+		TimerSimulated timer_ = peek();
+		if (timer_ != null) {
+			removeReady(0);
+			timer_.wheelLevel = NOT_SET;
+			size--;
+		}
+		return timer_;
+	}
+
+	/**
+	 * Helper method to convert the simulation time into
+	 * the absolute index of a lowest-level slot.
+	 * The simulation time is never negative.
+	 */
+	long slotOf(long time_) {
+		return time_ / resolution;
+	}
+
+	/**
+	 * Helper method to put a timer into the ready heap, or into
+	 * the slot of the coarsest level that does not contain the current slot.
+	 */
+	private void insert(TimerSimulated timer_) {
+		long slot_ = slotOf(timer_.getTime());
+		if (slot_ <= currentSlot) {
+			timer_.nextInSlot = null;
+			timer_.prevInSlot = null;
+			addReady(timer_);
+			return;
+		}
+		for (int level_ = 0; level_ < LEVELS; level_++) {
+			int shift_ = SLOT_BITS * (level_ + 1);
+			// The timer belongs to this level if it is within
+			// the same rotation of the next-coarser level:
+			if ((slot_ >>> shift_) == (currentSlot >>> shift_)) {
+				int index_ = (int) ((slot_ >>> (SLOT_BITS * level_)) & SLOT_MASK);
+				link(timer_, level_, index_);
+				return;
+			}
+		}
+		link(timer_, IN_OVERFLOW, 0);
+	}
+
+	/**
+	 * Helper method to advance the current slot by one and
+	 * move the timers of the new current slot to the ready heap.
+	 * Whole rotations of the empty levels are skipped.
+	 */
+	private void advance() {
+		// Skip to the end of the rotation of the empty lower levels:
+		int level_ = 0;
+		while (level_ < LEVELS && levelCount[level_] == 0) {
+			currentSlot |= (1L << (SLOT_BITS * (level_ + 1))) - 1;
+			level_++;
+		}
+		currentSlot++;
+
+		// Cascade the coarser slots whose rotation has just started,
+		// beginning with the coarsest one:
+		int topLevel_ = 0;
+		while (
+			topLevel_ < LEVELS &&
+			(currentSlot & ((1L << (SLOT_BITS * (topLevel_ + 1))) - 1)) == 0
+		) {
+			topLevel_++;
+		}
+		if (topLevel_ == LEVELS) {
+			TimerSimulated timer_ = overflow;
+			overflow = null;
+			reinsert(timer_);
+		}
+		for (level_ = Math.min(topLevel_, LEVELS - 1); level_ > 0; level_--) {
+			int index_ = (int) ((currentSlot >>> (SLOT_BITS * level_)) & SLOT_MASK);
+			TimerSimulated timer_ = slots[level_][index_];
+			slots[level_][index_] = null;
+			for (TimerSimulated t_ = timer_; t_ != null; t_ = t_.nextInSlot) {
+				levelCount[level_]--;
+			}
+			reinsert(timer_);
+		}
+
+		// Move the timers of the current slot to the ready heap:
+		int index_ = (int) (currentSlot & SLOT_MASK);
+		TimerSimulated timer_ = slots[0][index_];
+		slots[0][index_] = null;
+		while (timer_ != null) {
+			TimerSimulated next_ = timer_.nextInSlot;
+			levelCount[0]--;
+			timer_.nextInSlot = null;
+			timer_.prevInSlot = null;
+			addReady(timer_);
+			timer_ = next_;
+		}
+	}
+
+	/**
+	 * Helper method to re-insert the timers of a detached list.
+	 */
+	private void reinsert(TimerSimulated timer_) {
+		while (timer_ != null) {
+			TimerSimulated next_ = timer_.nextInSlot;
+			timer_.nextInSlot = null;
+			timer_.prevInSlot = null;
+			insert(timer_);
+			timer_ = next_;
+		}
+	}
+
+	/**
+	 * Helper method to add a timer at the head of the list of the given slot.
+	 */
+	private void link(TimerSimulated timer_, int level_, int index_) {
+		TimerSimulated head_ = (level_ == IN_OVERFLOW) ? overflow : slots[level_][index_];
+		timer_.wheelLevel = level_;
+		timer_.wheelSlot = index_;
+		timer_.prevInSlot = null;
+		timer_.nextInSlot = head_;
+		if (head_ != null) {
+			head_.prevInSlot = timer_;
+		}
+		if (level_ == IN_OVERFLOW) {
+			overflow = timer_;
+		} else {
+			slots[level_][index_] = timer_;
+			levelCount[level_]++;
+		}
+	}
+
+	/**
+	 * Helper method to remove a timer from the list of its slot.
+	 */
+	private void unlink(TimerSimulated timer_) {
+		if (timer_.prevInSlot != null) {
+			timer_.prevInSlot.nextInSlot = timer_.nextInSlot;
+		} else if (timer_.wheelLevel == IN_OVERFLOW) {
+			overflow = timer_.nextInSlot;
+		} else {
+			slots[timer_.wheelLevel][timer_.wheelSlot] = timer_.nextInSlot;
+		}
+		if (timer_.nextInSlot != null) {
+			timer_.nextInSlot.prevInSlot = timer_.prevInSlot;
+		}
+		if (timer_.wheelLevel >= 0) {
+			levelCount[timer_.wheelLevel]--;
+		}
+		timer_.nextInSlot = null;
+		timer_.prevInSlot = null;
+	}
+
+	/**
+	 * Helper method to add a timer to the {@link #ready} heap.
+	 */
+	private void addReady(TimerSimulated timer_) {
+		if (readyCount == ready.length) {
+			TimerSimulated[] ready_ = new TimerSimulated[2 * ready.length];
+			System.arraycopy(ready, 0, ready_, 0, readyCount);
+			ready = ready_;
+		}
+		timer_.wheelLevel = IN_READY;
+		siftUp(readyCount++, timer_);
+	}
+
+	/**
+	 * Helper method to remove the timer at the given position of
+	 * the {@link #ready} heap; the last timer of the heap takes its place.
+	 */
+	private void removeReady(int index_) {
+		TimerSimulated last_ = ready[--readyCount];
+		ready[readyCount] = null;
+		if (index_ < readyCount) {
+			siftDown(index_, last_);
+			if (ready[index_] == last_) {
+				siftUp(index_, last_);
+			}
+		}
+	}
+
+	/**
+	 * Helper method to place a timer at the given position of the {@link #ready}
+	 * heap, or higher, moving the later timers down.
+	 */
+	private void siftUp(int index_, TimerSimulated timer_) {
+		while (index_ > 0) {
+			int parent_ = (index_ - 1) >>> 1;
+			if (ready[parent_].compareTo(timer_) <= 0) {
+				break;
+			}
+			place(index_, ready[parent_]);
+			index_ = parent_;
+		}
+		place(index_, timer_);
+	}
+
+	/**
+	 * Helper method to place a timer at the given position of the {@link #ready}
+	 * heap, or lower, moving the earlier timers up.
+	 */
+	private void siftDown(int index_, TimerSimulated timer_) {
+		int half_ = readyCount >>> 1;
+		while (index_ < half_) {
+			int child_ = 2 * index_ + 1;
+			if (child_ + 1 < readyCount && ready[child_ + 1].compareTo(ready[child_]) < 0) {
+				child_++;
+			}
+			if (timer_.compareTo(ready[child_]) <= 0) {
+				break;
+			}
+			place(index_, ready[child_]);
+			index_ = child_;
+		}
+		place(index_, timer_);
+	}
+
+	/**
+	 * Helper method to put a timer at the given position of the {@link #ready} heap.
+	 */
+	private void place(int index_, TimerSimulated timer_) {
+		ready[index_] = timer_;
+		timer_.wheelSlot = index_;
+	}
+}
@@ -0,0 +1,153 @@
+/*
+ * Created on Oct 16, 2026
+ */
+package sime;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+
+/**
+ * Converts a binary trace file written by {@link TraceRecorder}
+ * into a table of comma-separated values (CSV), one line per event:
+ * <pre>
+ *	time,event,element,value,seqNum,ackSeqNum
+ * </pre>
+ * The time is given in the simulator clock ticks, and the elements
+ * and the events are given by their names.
+ *
+ * @author agent
+ * @see TraceRecorder
+ */
+public class TraceReader {
+	/** The names of the network elements found in the trace, indexed by their identifier. */
+	private ArrayList<String> elementNames = new ArrayList<String>();
+
+	/** The number of simulation time units per clock tick, read from the trace header. */
+	private long timeUnitsPerTick = Simulator.TIME_UNITS_PER_TICK;
+
+	/**
+	 * Converts the given trace file into CSV.
+	 *
+	 * @param fileName_ the name of the trace file
+	 * @param out_ the stream to which the CSV lines are printed
+	 * @throws IOException if the trace file cannot be read or is not a trace file
+	 */
+	public void convert(String fileName_, PrintStream out_) throws IOException {
+		RandomAccessFile file_ = new RandomAccessFile(fileName_, "r");
+		try {
+			FileChannel channel_ = file_.getChannel();
+			long length_ = channel_.size();
+			if (length_ < TraceRecorder.RECORD_SIZE) {
+				throw new IOException(fileName_ + " is not a simulator trace file");
+			}
+			out_.println("time,event,element,value,seqNum,ackSeqNum");
+
+			// Read the trace one segment at a time:
+			for (long start_ = 0L; start_ < length_; start_ += TraceRecorder.SEGMENT_SIZE) {
+				long size_ = Math.min(TraceRecorder.SEGMENT_SIZE, length_ - start_);
+				MappedByteBuffer segment_ =
+					channel_.map(FileChannel.MapMode.READ_ONLY, start_, size_);
+				if (start_ == 0L) {
+					readHeader(segment_, fileName_);
+				}
+				while (segment_.remaining() >= TraceRecorder.RECORD_SIZE) {
+					convertRecord(segment_, out_);
+				}
+			}
+		} finally {
+			file_.close();
+		}
+	}
+
+	/**
+	 * Helper method to check the header record of the trace.
+	 */
+	private void readHeader(MappedByteBuffer segment_, String fileName_) throws IOException {
+		if (
+			segment_.getLong() != TraceRecorder.MAGIC ||
+			segment_.getInt(16) != TraceRecorder.RECORD_SIZE
+		) {
+			throw new IOException(fileName_ + " is not a simulator trace file");
+		}
+		timeUnitsPerTick = segment_.getLong();
+		segment_.position(TraceRecorder.RECORD_SIZE);
+	}
+
+	/**
+	 * Helper method to convert the record at the current position into a CSV line.
+	 */
+	private void convertRecord(MappedByteBuffer segment_, PrintStream out_) {
+		int start_ = segment_.position();
+		long time_ = segment_.getLong();
+		byte event_ = segment_.get();
+		segment_.get();		// unused
+		int element_ = segment_.getShort();
+
+		if (event_ == TraceRecorder.ELEMENT) {
+			StringBuilder name_ = new StringBuilder();
+			for (int i_ = 0; i_ < TraceRecorder.MAX_NAME_LENGTH; i_++) {
+				byte char_ = segment_.get();
+				if (char_ != 0) {
+					name_.append((char) char_);
+				}
+			}
+			while (elementNames.size() <= element_) {
+				elementNames.add(null);
+			}
+			elementNames.set(element_, name_.toString());
+			segment_.position(start_ + TraceRecorder.RECORD_SIZE);
+			return;
+		}
+
+		int value_ = segment_.getInt();
+		long seqNum_ = segment_.getLong();
+		long ackSeqNum_ = segment_.getLong();
+
+		String eventName_ =
+			(event_ >= 0 && event_ < TraceRecorder.EVENT_NAMES.length) ?
+			TraceRecorder.EVENT_NAMES[event_] : Byte.toString(event_);
+		String elementName_ =
+			(element_ < elementNames.size() && elementNames.get(element_) != null) ?
+			elementNames.get(element_) : Integer.toString(element_);
+		out_.println(
+			((double) time_ / timeUnitsPerTick) + "," + eventName_ + "," + elementName_ + "," +
+			value_ + "," + seqNum_ + "," + ackSeqNum_
+		);
+	}
+
+	/** The main method. Converts a trace file into CSV. To run this program,
+	 * one or two arguments must be entered:
+	 * <pre>
+	 * trace-file [CSV-file]
+	 * </pre>
+	 * If the CSV file is not given, the table is printed to the standard output.
+	 *
+	 * @param argv_ Input argument(s) should contain the name of the trace file
+	 * and, optionally, the name of the CSV file.
+	 */
+	public static void main(String[] argv_) {
+		if (argv_.length < 1) {
+			System.err.println("Please specify the trace file (and, optionally, the CSV file)!");
+			System.exit(1);
+		}
+		try {
+			PrintStream out_ = System.out;
+			if (argv_.length > 1) {
+				out_ = new PrintStream(new FileOutputStream(argv_[1]));
+			}
+			new TraceReader().convert(argv_[0], out_);
+			out_.flush();
+			if (out_ != System.out) {
+				out_.close();
+			}
+		} catch (IOException ex) {
+			System.err.println(ex.toString());
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,249 @@
+/*
+ * Created on Oct 16, 2026
+ */
+package sime;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import sime.tcp.Segment;
+
+/**
+ * Records the simulation events into a compact binary trace file.
+ * Unlike the textual reports (see {@link Reporting#out}), the trace
+ * does not format any strings while the simulator runs, so it can
+ * be kept ON in long runs. The trace file can be converted to
+ * a text table offline, using {@link TraceReader}.</p>
+ *
+ * <p>The trace consists of fixed-size records of {@link #RECORD_SIZE} bytes:
+ * <pre>
+ *	offset  size  field
+ *	     0     8  time (in the simulation time units)
+ *	     8     1  event type ({@link #ENQUEUE}, {@link #DEQUEUE}, ...)
+ *	     9     1  (unused)
+ *	    10     2  element identifier (see {@link #registerElement(String)})
+ *	    12     4  value (e.g., packet length, timer type, congestion window)
+ *	    16     8  data sequence number (or -1)
+ *	    24     8  acknowledgment sequence number (or -1)
+ * </pre>
+ * The first record is the file header, and the names of the network
+ * elements are recorded as {@link #ELEMENT} records when they are registered.</p>
+ *
+ * <p>The records are written through a memory-mapped segment of
+ * the file ({@link #SEGMENT_SIZE} bytes). When the segment is full, the
+ * next segment of the file is mapped, so the trace can grow arbitrarily
+ * long while only one segment is mapped at a time.</p>
+ *
+ * @author agent
+ * @see Reporting#trace
+ */
+public class TraceRecorder {
+	/** The magic number that starts the trace file ("SIMETRC1"). */
+	public static final long MAGIC = 0x53494D4554524331L;
+
+	/** The size of a trace record, in bytes: {@value}. */
+	public static final int RECORD_SIZE = 32;
+
+	/** The size of a mapped segment of the trace file, in bytes: {@value}. */
+	public static final int SEGMENT_SIZE = RECORD_SIZE * 32768;
+
+	/** The maximum length of an element name, in bytes: {@value}. */
+	public static final int MAX_NAME_LENGTH = 20;
+
+	/** Trace event: a network element was registered; carries the element name. */
+	public static final byte ELEMENT = 0;
+
+	/** Trace event: a packet was enqueued (by a link or in the router memory). */
+	public static final byte ENQUEUE = 1;
+
+	/** Trace event: a packet was dequeued (delivered by a link or taken from the router memory). */
+	public static final byte DEQUEUE = 2;
+
+	/** Trace event: a packet was dropped by the router. */
+	public static final byte DROP = 3;
+
+	/** Trace event: the TCP sender transmitted a data segment. */
+	public static final byte SEND = 4;
+
+	/** Trace event: the TCP receiver received a data segment. */
+	public static final byte RECEIVE = 5;
+
+	/** Trace event: the TCP sender received an acknowledgment. */
+	public static final byte ACK = 6;
+
+	/** Trace event: a TCP sender's timer expired; the value is the timer type. */
+	public static final byte TIMEOUT = 7;
+
+	/** Trace event: the TCP sender changed its state; the value is
+	 * the congestion window, the sequence number fields carry the
+	 * slow start threshold and the new state ({@link #STATE_SLOW_START}, ...). */
+	public static final byte STATE_CHANGE = 8;
+
+	/** The state codes for {@link #STATE_CHANGE} records. */
+	public static final int STATE_SLOW_START = 1;
+	public static final int STATE_CONGESTION_AVOIDANCE = 2;
+	public static final int STATE_FAST_RECOVERY = 3;
+
+	/** The textual names of the event types, indexed by the event type. */
+	static final String[] EVENT_NAMES = {
+		"ELEMENT", "ENQUEUE", "DEQUEUE", "DROP", "SEND", "RECEIVE", "ACK", "TIMEOUT", "STATE_CHANGE"
+	};
+
+	/** The trace file. */
+	private RandomAccessFile file = null;
+
+	/** The channel of the trace file, used to map its segments. */
+	private FileChannel channel = null;
+
+	/** The currently mapped segment of the trace file. */
+	private MappedByteBuffer segment = null;
+
+	/** The file offset at which {@link #segment} starts. */
+	private long segmentStart = 0L;
+
+	/** The number of network elements registered so far. */
+	private int elementCount = 0;
+
+	/**
+	 * Constructor. Creates (or overwrites) the trace file
+	 * and writes the header record.
+	 *
+	 * @param fileName_ the name of the trace file
+	 * @throws IOException if the file cannot be created
+	 */
+	public TraceRecorder(String fileName_) throws IOException {
+		file = new RandomAccessFile(fileName_, "rw");
+		file.setLength(0L);
+		channel = file.getChannel();
+		segment = channel.map(FileChannel.MapMode.READ_WRITE, segmentStart, SEGMENT_SIZE);
+
+		// The header record:
+		segment.putLong(MAGIC);
+		segment.putLong(Simulator.TIME_UNITS_PER_TICK);
+		segment.putInt(RECORD_SIZE);
+		segment.position(RECORD_SIZE);
+	}
+
+	/**
+	 * Registers a network element and records its name,
+	 * so that its events can be identified in the trace.
+	 *
+	 * @param name_ the name of the network element
+	 * @return the identifier of the element in the trace records
+	 */
+	public int registerElement(String name_) {
+		int element_ = elementCount++;
+		byte[] name8_ = name_.getBytes(java.nio.charset.Charset.forName("US-ASCII"));
+		if (prepareRecord()) {
+			int start_ = segment.position();
+			segment.putLong(0L);
+			segment.put(ELEMENT);
+			segment.put((byte) 0);
+			segment.putShort((short) element_);
+			for (int i_ = 0; i_ < MAX_NAME_LENGTH; i_++) {
+				segment.put((i_ < name8_.length) ? name8_[i_] : (byte) 0);
+			}
+			segment.position(start_ + RECORD_SIZE);
+		}
+		return element_;
+	}
+
+	/**
+	 * Records an event.
+	 *
+	 * @param event_ the event type, such as {@link #SEND}
+	 * @param time_ the time of the event, in the simulation time units
+	 * @param element_ the identifier of the element where the event occurred
+	 * @param value_ the value associated with the event
+	 * @param seqNum_ the data sequence number associated with the event, or -1
+	 * @param ackSeqNum_ the acknowledgment sequence number associated with the event, or -1
+	 */
+	public void record(
+		byte event_, long time_, int element_, int value_, long seqNum_, long ackSeqNum_
+	) {
+		if (prepareRecord()) {
+			segment.putLong(time_);
+			segment.put(event_);
+			segment.put((byte) 0);
+			segment.putShort((short) element_);
+			segment.putInt(value_);
+			segment.putLong(seqNum_);
+			segment.putLong(ackSeqNum_);
+		}
+	}
+
+	/**
+	 * Records an event that concerns a packet. If the packet is
+	 * a TCP segment, its sequence numbers are recorded, too.
+	 * The value of the record is the packet length.
+	 *
+	 * @param event_ the event type, such as {@link #ENQUEUE}
+	 * @param time_ the time of the event, in the simulation time units
+	 * @param element_ the identifier of the element where the event occurred
+	 * @param packet_ the packet
+	 */
+	public void record(byte event_, long time_, int element_, Packet packet_) {
+		long seqNum_ = -1L;
+		long ackSeqNum_ = -1L;
+		if (packet_ instanceof Segment) {
+			Segment segment_ = (Segment) packet_;
+			if (segment_.length > 0) {
+				seqNum_ = segment_.dataSequenceNumber;
+			}
+			if (segment_.isAck) {
+				ackSeqNum_ = segment_.ackSequenceNumber;
+			}
+		}
+		record(event_, time_, element_, packet_.length, seqNum_, ackSeqNum_);
+	}
+
+	/**
+	 * Writes out the recorded events and closes the trace file.
+	 * The file is truncated to the length of the recorded events.
+	 */
+	public void close() {
+		if (channel == null) {
+			return;
+		}
+		try {
+			long length_ = segmentStart;
+			if (segment != null) {
+				length_ += segment.position();
+				segment.force();
+				segment = null;
+			}
+			channel.truncate(length_);
+			channel.close();
+			file.close();
+		} catch (Exception ex) {
+			ex.printStackTrace();
+		}
+		channel = null;
+	}
+
+	/**
+	 * Helper method to make room for the next record,
+	 * mapping the next segment of the file if the current one is full.
+	 *
+	 * @return <code>true</code> if the record can be written
+	 */
+	private boolean prepareRecord() {
+		if (segment == null) {
+			return false;	// closed or failed
+		}
+		if (segment.remaining() < RECORD_SIZE) {
+			try {
+				segment.force();
+				segmentStart += segment.position();
+				segment = channel.map(FileChannel.MapMode.READ_WRITE, segmentStart, SEGMENT_SIZE);
+			} catch (Exception ex) {
+				ex.printStackTrace();
+				segment = null;
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,58 @@
+/*
+ * Created on Oct 16, 2026
+ */
+package sime.tcp;
+
+import sime.Endpoint;
+
+/**
+ * A congestion control algorithm of the TCP sender, selected by its name
+ * (see {@link CongestionControlRegistry}).</p>
+ *
+ * <p>This is a <em>service provider interface</em>: besides the built-in
+ * algorithms (Tahoe, Reno, NewReno, etc.), more algorithms are discovered
+ * on the class path by {@link java.util.ServiceLoader}. To add an algorithm,
+ * list its class, which must have a public no-argument constructor, in the file
+ * <pre>
+ * META-INF/services/sime.tcp.CongestionControl
+ * </pre>
+ * of its JAR file (or class directory). Then the algorithm can be simulated
+ * and benchmarked under its name, like any built-in one, without modifying
+ * {@link sime.Endpoint} or {@link Sender}.</p>
+ *
+ * <p>The simplest way to write a new algorithm is to extend
+ * {@link PluggableCongestionControl}, which only makes the window and pacing
+ * decisions, while the buffer and timer mechanics, and the loss recovery,
+ * are left to the {@link Sender}. An algorithm that reacts to the losses
+ * in its own way may instead create its own subclass of {@link SenderReno}
+ * or {@link SenderNewReno}, which can override these protected methods:<BR>
+ * &bull; {@link SenderReno#getLossBeta()}, the factor by which the slow start
+ * threshold is reduced on a loss, or {@link SenderReno#calcSSThreshAfterLoss(boolean)},
+ * the new threshold itself;<BR>
+ * &bull; {@link Sender#onExpiredRTOtimer()} and {@link Sender#onThreeDuplicateACKs()},
+ * called on an RTO timeout and on {@link Sender#dupACKthreshold} dupACKs;<BR>
+ * &bull; {@link SenderReno#wireStates(SenderStateSlowStart, SenderStateCongestionAvoidance)},
+ * to use its own slow start or congestion avoidance state in the constructor.
+ *
+ * @see CongestionControlRegistry
+ * @author agent
+ */
+public interface CongestionControl {
+
+	/**
+	 * Returns the name under which this algorithm is selected,
+	 * e.g., "Reno". The names are case sensitive.
+	 * @return the name of this congestion control algorithm
+	 */
+	String getName();
+
+	/**
+	 * Creates a new TCP sender that runs this algorithm,
+	 * for a connection of the given endpoint. Every call
+	 * returns a new sender, with its own congestion parameters.
+	 *
+	 * @param localEndpoint_ The local TCP endpoint object that will contain the sender.
+	 * @return Returns the new sender.
+	 */
+	Sender createSender(Endpoint localEndpoint_);
+}
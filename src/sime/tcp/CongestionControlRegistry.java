@@ -0,0 +1,150 @@
+/*
+ * Created on Oct 16, 2026
+ */
+package sime.tcp;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.Set;
+
+import sime.Endpoint;
+
+/**
+ * The registry of the congestion control algorithms, by which
+ * an {@link sime.Endpoint} finds the TCP sender version by its name.</p>
+ *
+ * <p>The built-in algorithms, which come first in {@link #getNames()},
+ * are always registered. Other algorithms are discovered
+ * on the class path, using {@link ServiceLoader}, when the registry
+ * is first looked up (see {@link CongestionControl}), or registered
+ * explicitly using {@link #register(CongestionControl)}.
+ * A discovered algorithm does not replace a built-in one of the same name.
+ *
+ * @author agent
+ */
+public class CongestionControlRegistry {
+	/** The registered algorithms, by their names, in the order of registration. */
+	private static final LinkedHashMap<String, CongestionControl> algorithms =
+		new LinkedHashMap<String, CongestionControl>();
+
+	/** Indicates whether the algorithms on the class path were already discovered. */
+	private static boolean servicesLoaded = false;
+
+	static {
+		registerBuiltIns();
+	}
+
+	/** The registry has only static methods. */
+	private CongestionControlRegistry() {
+	}
+
+	/**
+	 * Registers a congestion control algorithm under its name,
+	 * replacing any algorithm previously registered under the same name.
+	 * @param algorithm_ the algorithm to register
+	 */
+	public static synchronized void register(CongestionControl algorithm_) {
+		algorithms.put(algorithm_.getName(), algorithm_);
+	}
+
+	/**
+	 * Finds the congestion control algorithm of the given name.
+	 * @param name_ the name of the algorithm, e.g., "Reno"
+	 * @return Returns the algorithm, or <code>null</code> if none is registered under this name.
+	 */
+	public static synchronized CongestionControl lookup(String name_) {
+		loadServices();
+		return algorithms.get(name_);
+	}
+
+	/**
+	 * Returns the names of all the registered algorithms,
+	 * starting with the built-in ones.
+	 * @return a copy of the names of the algorithms
+	 */
+	public static synchronized Set<String> getNames() {
+		loadServices();
+		return new LinkedHashSet<String>(algorithms.keySet());
+	}
+
+	/**
+	 * Helper method to discover the algorithms on the class path, once.
+	 * A provider that fails to load is reported and skipped.
+	 */
+	private static void loadServices() {
+		if (servicesLoaded) {
+			return;
+		}
+		servicesLoaded = true;
+
+		Iterator<CongestionControl> providers_ =
+			ServiceLoader.load(CongestionControl.class).iterator();
+		while (true) {
+			try {
+				if (!providers_.hasNext()) {
+					break;
+				}
+				CongestionControl algorithm_ = providers_.next();
+				if (!algorithms.containsKey(algorithm_.getName())) {
+					algorithms.put(algorithm_.getName(), algorithm_);
+				}
+			} catch (ServiceConfigurationError ex_) {
+				System.err.println("tcp.CongestionControlRegistry: " + ex_.toString());
+			}
+		}
+	}
+
+	/**
+	 * Helper method to register the built-in TCP sender versions.
+	 * NewReno is a {@link PluggableCongestionControl}; the other versions
+	 * change more than the window decisions, so each has its own sender class.
+	 */
+	private static void registerBuiltIns() {
+		register(new CongestionControl() {
+			public String getName() { return "Tahoe"; }
+			public Sender createSender(Endpoint localEndpoint_) {
+				return new SenderTahoe(localEndpoint_);
+			}
+		});
+		register(new CongestionControl() {
+			public String getName() { return "Reno"; }
+			public Sender createSender(Endpoint localEndpoint_) {
+				return new SenderReno(localEndpoint_);
+			}
+		});
+		register(new NewRenoCongestionControl());
+		register(new CongestionControl() {
+			public String getName() { return "SACK"; }
+			public Sender createSender(Endpoint localEndpoint_) {
+				return new SenderSACK(localEndpoint_);
+			}
+		});
+		register(new CongestionControl() {
+			public String getName() { return "CUBIC"; }
+			public Sender createSender(Endpoint localEndpoint_) {
+				return new SenderCubic(localEndpoint_);
+			}
+		});
+		register(new CongestionControl() {
+			public String getName() { return "BBR"; }
+			public Sender createSender(Endpoint localEndpoint_) {
+				return new SenderBBR(localEndpoint_);
+			}
+		});
+		register(new CongestionControl() {
+			public String getName() { return "DCTCP"; }
+			public Sender createSender(Endpoint localEndpoint_) {
+				return new SenderDCTCP(localEndpoint_);
+			}
+		});
+		register(new CongestionControl() {
+			public String getName() { return "Vegas"; }
+			public Sender createSender(Endpoint localEndpoint_) {
+				return new SenderVegas(localEndpoint_);
+			}
+		});
+	}
+}
@@ -0,0 +1,243 @@
+/*
+ * Created on Oct 16, 2026
+ */
+package sime.tcp;
+
+import java.util.Iterator;
+import java.util.TreeMap;
+
+/**
+ * Estimates the <em>delivery rate</em> of a connection from its acknowledgments,
+ * as described in the Internet-Draft
+ * <a href="http://tools.ietf.org/html/draft-cheng-iccrg-delivery-rate-estimation" target="page">Delivery
+ * Rate Estimation</a> (used by BBR, see {@link SenderBBR}).</p>
+ *
+ * <p>When a segment is transmitted, the estimator records how many bytes were
+ * delivered to the receiver by then, and when. When the segment is acknowledged
+ * (cumulatively, or selectively by a SACK block), the bytes delivered in
+ * between, divided by the time elapsed, give a <i>rate sample</i>.
+ * The interval is the longer of the "send" and the "ACK" intervals
+ * of the sampled data, so that the sample does not exceed the rate at which
+ * the data were sent, nor the rate at which they were acknowledged, e.g., when
+ * the ACKs are compressed. The acknowledgment also gives a sample of the RTT,
+ * unless the segment was retransmitted.</p>
+ *
+ * <p>A rate sample is <i>application-limited</i> if the sampled data were sent while the
+ * sender had no more data to send, so the sample may be lower than the capacity
+ * of the path (see {@link #onApplicationLimited(long)}).</p>
+ *
+ * <p>All times are given in the simulation time units
+ * (see {@link sime.Simulator#TIME_UNITS_PER_TICK}), and the rates in bytes per time unit.
+ *
+ * @author agent
+ */
+class DeliveryRateEstimator {
+	/** The delivery state at the time when a segment was (last) transmitted,
+	 * keyed by the sequence number of the segment. */
+	protected TreeMap<Long, SendState> sentSegments = new TreeMap<Long, SendState>();
+
+	/** The total number of bytes delivered so far. */
+	protected long delivered = 0L;
+
+	/** The time when {@link #delivered} last changed. */
+	protected long deliveredTime = 0L;
+
+	/** The sending time of the most recently acknowledged segment,
+	 * i.e., the start of the current "send" interval. */
+	protected long firstSentTime = 0L;
+
+	/** The value of {@link #delivered} after which the sender is no longer
+	 * application-limited, or zero if the sender is not application-limited. */
+	protected long appLimitedUntil = 0L;
+
+	/** The number of bytes delivered in the interval of the last rate sample. */
+	protected long sampleDelivered = 0L;
+
+	/** The length of the interval of the last rate sample,
+	 * or <code>-1</code> if the last acknowledgment gave no valid sample. */
+	protected long sampleInterval = -1L;
+
+	/** The value of {@link #delivered} when the sampled segment was transmitted. */
+	protected long samplePriorDelivered = 0L;
+
+	/** The RTT of the sampled segment, or <code>-1</code> if it was retransmitted. */
+	protected long sampleRTT = -1L;
+
+	/** Indicates whether the last rate sample is application-limited. */
+	protected boolean sampleAppLimited = false;
+
+	/** The number of bytes newly delivered by the last acknowledgment. */
+	protected long newlyDelivered = 0L;
+
+	/**
+	 * Records the delivery state when a segment is transmitted,
+	 * either a new or a retransmitted one.
+	 * @param sequenceNumber_ the sequence number of the segment's first byte
+	 * @param length_ the length of the segment, in bytes
+	 * @param retransmitted_ <code>true</code> if the segment is retransmitted
+	 * @param now_ the current time
+	 */
+	void onSend(long sequenceNumber_, int length_, boolean retransmitted_, long now_) {
+		if (sentSegments.isEmpty()) {
+			// Nothing in flight, so the intervals start now:
+			firstSentTime = now_;
+			deliveredTime = now_;
+		}
+		SendState state_ = new SendState();
+		state_.length = length_;
+		state_.delivered = delivered;
+		state_.deliveredTime = deliveredTime;
+		state_.firstSentTime = firstSentTime;
+		state_.sentTime = now_;
+		state_.retransmitted = retransmitted_;
+		state_.appLimited = (appLimitedUntil != 0L);
+		sentSegments.put(sequenceNumber_, state_);
+	}
+
+	/**
+	 * Marks the sender as application-limited: it has less data to send
+	 * than its window allows, so the rate samples of the data sent from now on
+	 * reflect the application, rather than the path.
+	 * @param inFlight_ the number of bytes currently in flight
+	 */
+	void onApplicationLimited(long inFlight_) {
+		appLimitedUntil = Math.max(delivered + inFlight_, 1L);
+	}
+
+	/**
+	 * Processes an acknowledgment: all the segments that it acknowledges,
+	 * cumulatively or selectively, are delivered, and the most recently sent
+	 * of them gives the rate sample.
+	 * @param ackSequenceNumber_ the cumulative acknowledgment
+	 * @param sackBlocks_ the SACK blocks of the acknowledgment, or <code>null</code>
+	 * @param now_ the current time
+	 * @return <code>true</code> if the acknowledgment gave a valid rate sample
+	 */
+	boolean onAck(long ackSequenceNumber_, long[] sackBlocks_, long now_) {
+		long deliveredBefore_ = delivered;
+		SendState sampled_ = null;
+
+		// The cumulatively acknowledged segments:
+		Iterator<Long> keys_ = sentSegments.headMap(ackSequenceNumber_).keySet().iterator();
+		while (keys_.hasNext()) {
+			SendState state_ = sentSegments.get(keys_.next());
+			sampled_ = deliver(state_, sampled_, now_);
+			keys_.remove();
+		}
+		// The selectively acknowledged segments:
+		if (sackBlocks_ != null) {
+			for (int i_ = 0; i_ + 1 < sackBlocks_.length; i_ += 2) {
+				keys_ = sentSegments.subMap(sackBlocks_[i_], sackBlocks_[i_ + 1]).keySet().iterator();
+				while (keys_.hasNext()) {
+					Long key_ = keys_.next();
+					SendState state_ = sentSegments.get(key_);
+					if (key_.longValue() + state_.length <= sackBlocks_[i_ + 1]) {
+						sampled_ = deliver(state_, sampled_, now_);
+						keys_.remove();
+					}
+				}
+			}
+		}
+		newlyDelivered = delivered - deliveredBefore_;
+
+		if (appLimitedUntil != 0L && delivered > appLimitedUntil) {
+			appLimitedUntil = 0L;	// the application-limited data are delivered
+		}
+		if (sampled_ == null) {
+			sampleInterval = -1L;	// nothing newly delivered
+			return false;
+		}
+
+		samplePriorDelivered = sampled_.delivered;
+		sampleDelivered = delivered - sampled_.delivered;
+		sampleAppLimited = sampled_.appLimited;
+		sampleRTT = sampled_.retransmitted ? -1L : (now_ - sampled_.sentTime);
+		// The longer of the "send" and the "ACK" intervals:
+		sampleInterval = Math.max(
+			sampled_.sentTime - sampled_.firstSentTime, deliveredTime - sampled_.deliveredTime
+		);
+		if (sampleInterval <= 0L) {
+			sampleInterval = -1L;
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Helper method to deliver one acknowledged segment.
+	 * @param state_ the delivery state of the segment
+	 * @param sampled_ the segment sampled so far by this acknowledgment, or <code>null</code>
+	 * @param now_ the current time
+	 * @return the segment to be sampled: the one sent most recently
+	 */
+	private SendState deliver(SendState state_, SendState sampled_, long now_) {
+		delivered += state_.length;
+		deliveredTime = now_;
+		if (sampled_ == null || state_.sentTime >= sampled_.sentTime) {
+			// The new send interval starts when this segment was sent:
+			firstSentTime = state_.sentTime;
+			return state_;
+		}
+		return sampled_;
+	}
+
+	/** Returns the delivery rate of the last rate sample, in bytes
+	 * per simulation time unit, or zero if there was no valid sample. */
+	double getSampleRate() {
+		return (sampleInterval > 0L) ? (double) sampleDelivered / sampleInterval : 0.0;
+	}
+
+	/** Returns the RTT of the last rate sample, or <code>-1</code> if unknown. */
+	long getSampleRTT() {
+		return sampleRTT;
+	}
+
+	/** Returns the total number of bytes delivered when the sampled segment was sent,
+	 * which tells to which round trip the sample belongs. */
+	long getSamplePriorDelivered() {
+		return samplePriorDelivered;
+	}
+
+	/** Returns <code>true</code> if the last rate sample is application-limited. */
+	boolean isSampleAppLimited() {
+		return sampleAppLimited;
+	}
+
+	/** Returns the number of bytes newly delivered by the last acknowledgment. */
+	long getNewlyDelivered() {
+		return newlyDelivered;
+	}
+
+	/** Returns the total number of bytes delivered so far. */
+	long getDelivered() {
+		return delivered;
+	}
+
+
+	// ----------------------------------------------------------------------
+	/**
+	 * The delivery state of the connection at the time when a segment was sent.
+	 */
+	static class SendState {
+		/** The length of the segment, in bytes. */
+		int length;
+
+		/** The total bytes delivered when the segment was sent. */
+		long delivered;
+
+		/** The time of the last delivery before the segment was sent. */
+		long deliveredTime;
+
+		/** The start of the send interval when the segment was sent. */
+		long firstSentTime;
+
+		/** The time when the segment was sent. */
+		long sentTime;
+
+		/** Indicates whether the segment was retransmitted. */
+		boolean retransmitted;
+
+		/** Indicates whether the sender was application-limited. */
+		boolean appLimited;
+	}
+}
@@ -0,0 +1,27 @@
+/*
+ * Created on Oct 16, 2026
+ */
+package sime.tcp;
+
+/**
+ * The built-in <b>NewReno</b> algorithm, registered as "NewReno"
+ * (see {@link CongestionControlRegistry}). NewReno makes exactly the default
+ * decisions of {@link PluggableCongestionControl}: the window grows by one MSS
+ * per RTT in the congestion avoidance, and the slow start threshold is halved
+ * on a congestion event. Its senders are therefore {@link SenderPluggable}s,
+ * which keep the NewReno loss recovery of {@link SenderNewReno}.</p>
+ *
+ * <p>Reno and Tahoe are not pluggable, because they differ from NewReno
+ * in the loss recovery rather than in the window decisions.
+ *
+ * @author agent
+ */
+public class NewRenoCongestionControl extends PluggableCongestionControl {
+
+	/**
+	 * Returns "NewReno".
+	 */
+	public String getName() {
+		return "NewReno";
+	}
+}
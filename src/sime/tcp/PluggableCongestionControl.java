@@ -0,0 +1,119 @@
+/*
+ * Created on Oct 16, 2026
+ */
+package sime.tcp;
+
+import sime.Endpoint;
+
+/**
+ * The base class for the congestion control algorithms that only
+ * make the window and pacing decisions of a TCP sender, and leave the rest
+ * to the {@link SenderPluggable}: the send buffer, the timers, the slow start
+ * and the NewReno loss recovery. The algorithm decides:<BR>
+ * &bull; how the congestion window grows in the congestion avoidance,
+ * {@link #onNewAck(long, long)};<BR>
+ * &bull; how much the window is reduced on a congestion event,
+ * {@link #onCongestionEvent(boolean)};<BR>
+ * &bull; whether and how fast the segments are paced, {@link #isPaced()}
+ * and {@link #getPacingRate(long)}.</p>
+ *
+ * <p>The default decisions are those of NewReno (see {@link NewRenoCongestionControl}), so a new algorithm
+ * overrides only those that it changes. The algorithm reads the state of
+ * the connection from its {@link #sender} (e.g., {@link Sender#getCongWindow()}).
+ * Every connection gets a new instance of the algorithm, created using
+ * the public no-argument constructor, which is also required by
+ * {@link java.util.ServiceLoader} (see {@link CongestionControl}).
+ *
+ * @author agent
+ */
+public abstract class PluggableCongestionControl implements CongestionControl {
+
+	/** The sender whose window this algorithm controls, or
+	 * <code>null</code> if this is the instance used only for creating the senders. */
+	protected Sender sender = null;
+
+	/**
+	 * Creates a new {@link SenderPluggable}, controlled by
+	 * a new instance of this algorithm.
+	 *
+	 * @param localEndpoint_ The local TCP endpoint object that will contain the sender.
+	 * @return Returns the new sender.
+	 * @throws IllegalStateException if this algorithm has no public no-argument constructor
+	 */
+	public Sender createSender(Endpoint localEndpoint_) {
+		PluggableCongestionControl algorithm_ = null;
+		try {
+			algorithm_ = getClass().getConstructor().newInstance();
+		} catch (Exception ex) {
+			throw new IllegalStateException(
+				"tcp.PluggableCongestionControl.createSender(): cannot instantiate " + getName(), ex
+			);
+		}
+		return new SenderPluggable(localEndpoint_, algorithm_);
+	}
+
+	/**
+	 * Attaches this algorithm to the sender that it controls.
+	 * Called once, when the sender is created; an algorithm that overrides
+	 * this method to initialize its parameters must call this one first.
+	 * @param sender_ the sender controlled by this algorithm
+	 */
+	protected void init(Sender sender_) {
+		this.sender = sender_;
+	}
+
+	/**
+	 * Calculates the congestion window after a "new ACK" in the
+	 * congestion avoidance state. By default, the window grows
+	 * by one MSS per RTT, like in {@link SenderStateCongestionAvoidance}.
+	 *
+	 * @param ackedBytes_ the number of bytes newly acknowledged
+	 * @param now_ the current time, in the simulation time units
+	 * @return the new congestion window size, in bytes
+	 */
+	protected int onNewAck(long ackedBytes_, long now_) {
+		int congWindow_ = sender.getCongWindow();
+		int mss_ = sender.getMSS();
+		if (ackedBytes_ >= congWindow_) {
+			return congWindow_ + mss_;
+		}
+		return congWindow_ + (int) (((long) mss_ * mss_) / congWindow_);
+	}
+
+	/**
+	 * Calculates the new slow start threshold on a congestion event:
+	 * {@link Sender#dupACKthreshold} dupACKs or an RTO timeout. By default,
+	 * the threshold is a half of the flight size, like for Reno.
+	 * After the dupACKs, the congestion window is set to the threshold
+	 * (plus the segments that left the network); after the timeout,
+	 * the sender restarts in the slow start.
+	 *
+	 * @param timeout_ <code>true</code> on an RTO timeout, <code>false</code> on the dupACKs
+	 * @return the new slow start threshold, in bytes
+	 */
+	protected int onCongestionEvent(boolean timeout_) {
+		return sender.getFlightSize() / 2;
+	}
+
+	/**
+	 * Tells whether the sender paces its segments from the start, even if
+	 * its version is not given with the suffix {@link sime.Endpoint#PACED_SUFFIX}.
+	 * @return <code>false</code>, unless overridden
+	 */
+	protected boolean isPaced() {
+		return false;
+	}
+
+	/**
+	 * Returns the pacing rate of a paced sender, updated after every ACK.
+	 * By default, the rate is set from the congestion window and the smoothed RTT
+	 * (see {@link Sender#setPacing(boolean)}).
+	 *
+	 * @param now_ the current time, in the simulation time units
+	 * @return the pacing rate, in bytes per simulation time unit,
+	 * or zero for the default pacing rate
+	 */
+	protected double getPacingRate(long now_) {
+		return 0.0;
+	}
+}
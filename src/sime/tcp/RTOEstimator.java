@@ -6,6 +6,7 @@
  */
 package sime.tcp;
 
+import sime.Reporting;
 import sime.Simulator;
 
 /**
@@ -17,8 +18,10 @@ import sime.Simulator;
  * TCP/IP Illustrated, Volume 1: The Protocols, by W. Richard Stevens
  * (<a href="http://www.pcvr.nl/tcpip/tcp_time.htm" target="page">Chapter 21</a>).</p>
  * 
- * <p>Note that the time units are the <em>simulator clock
- * ticks</em>, instead of actual time units, such as seconds.</p>
+ * <p>Note that the RTT variables are kept in integer <em>simulator clock
+ * ticks</em>, instead of actual time units, such as seconds.
+ * The times passed in and out of the estimator are given in the simulation
+ * time units (see {@link Simulator#TIME_UNITS_PER_TICK}).</p>
  * 
  * <p>The sending time of a segment is recorded as {@link Segment#timestamp}
  * in the TCP header (similar to the timestamp option in
@@ -75,10 +78,10 @@ public class RTOEstimator {
      *  it is at least 60 seconds. The page:
      *  <a href="https://support.microsoft.com/kb/170359/en-us" target="page">How to modify the TCP/IP maximum retransmission time-out</a>
      *  says that the retransmission timer should not exceed 240 seconds.<br />
-     *  We set the maximum value to 240 (in the <em>simulator clock ticks</em>),
-     *  assuming tick duration equals 1; it will be corrected in the constructor
-     *  {@link #RTOEstimator(double,double,double,double,double)}. */
-	protected double maxTimeoutInterval = 240.0;
+     *  We set the maximum value to 240 <em>simulator clock ticks</em>
+     *  (given in the simulation time units); it will be corrected in the constructor
+     *  {@link #RTOEstimator(long,double,double,double,double,Reporting)}. */
+	protected long maxTimeoutInterval = 240 * Simulator.TIME_UNITS_PER_TICK;
 
 	/** Initial value of estimated RTT (in simulator clock ticks)
 	 *  (multiplied by "alpha" {@link #alphaShift}) */
@@ -91,7 +94,7 @@ public class RTOEstimator {
 	/** Initial value of base RTO timer (in simulator clock ticks). */
 	protected double timeoutInterval_init = 6.0;
 
-	/** Simulator clock tick duration (in seconds) for all the RTT variables.
+	/** Simulator clock tick duration (in the simulation time units) for all the RTT variables.
 	 * Real TCP implementations use two timer granularities:<BR>
 	 * (i) the <em>fast timer</em>, called every 200ms, and<BR>
 	 * (ii) the <em>slow timer</em>, called every 500ms.<BR>
@@ -105,7 +108,7 @@ public class RTOEstimator {
 	 * A good discussion of TCP timers is available in
 	 * <a href="http://www.cl.cam.ac.uk/research/dtg/lce-pub/public/kjm25/CUED_F-INFENG_TR487.pdf" target="page">Tweaking TCP's Timers<a>.
 	 */
-	protected double tickDuration = 1.0;
+	protected long tickDuration = Simulator.TIME_UNITS_PER_TICK;
 
 	/** Current estimated RTT value (in simulator clock ticks)<BR>
 	 * (shifted by {@link #alphaShift}) */
@@ -114,56 +117,75 @@ public class RTOEstimator {
 	/** Current estimated RTT deviation (shifted by {@link #betaShift}) */
 	transient protected int devRTT = 0;
 
-	/** Current RTO timer value (in simulator clock ticks). */
-	transient protected double timeoutInterval = maxTimeoutInterval;
+	/** Current smoothed RTT in the simulation time units, rather than in
+	 * the clock ticks (see {@link #getSmoothedRTT()}), or zero if no RTT
+	 * was measured yet. It is not used for the RTO timer. */
+	transient protected long smoothedRTT = 0L;
+
+	/** The latest RTT sample in the simulation time units, or <code>-1</code> if
+	 * the latest acknowledged segment was retransmitted (see {@link #getLatestRTT()}). */
+	transient protected long latestRTT = -1L;
+
+	/** The smallest RTT sample so far in the simulation time units, known as
+	 * the <em>base RTT</em>, or zero if no RTT was measured yet (see {@link #getMinRTT()}). */
+	transient protected long minRTT = 0L;
+
+	/** Current RTO timer value (in the simulation time units). */
+	transient protected long timeoutInterval = maxTimeoutInterval;
 
     /** Current RTO timer backoff value (unitless number). */
 	transient protected int backoff = 1;
 
+	/** The reporting configuration of the simulator, for debugging purposes. */
+	protected Reporting reporting = null;
+
 	/** Default constructor calls the other constructor
 	 * with the initial values of the input parameters:
 	 * {@link #estimatedRTT_init}, {@link #deviationRTT_init},
 	 * {@link #timeoutInterval_init}, and {@link #maxTimeoutInterval},<BR>
-	 * all given in real time units (seconds) for user convenience.
+	 * all given in clock ticks for user convenience.
 	 * 
-	 * @param tick_ time unit for RTT variables.
+	 * @param tick_ duration of the clock tick for RTT variables, in the simulation time units.
+	 * @param reporting_ the reporting configuration of the simulator.
 	 */
-	public RTOEstimator(double tick_) {
-		this(tick_, 0, 12, 6.0, 240.0);
+	public RTOEstimator(long tick_, Reporting reporting_) {
+		this(tick_, 0, 12, 6.0, 240.0, reporting_);
 	}
 
 	/** The constructor initializes the variables for
 	 *  the retransmit timer.<BR>
 	 *  <b>Note:</b> The input parameters are given in
-	 *  real time units (seconds) for user convenience,
-	 *  and are converted in the constructor to
-	 *  the simulator clock ticks.
+	 *  clock ticks for user convenience,
+	 *  and the timeout values are converted in the constructor to
+	 *  the simulation time units.
 	 *  
-	 * @param tick_ time unit for RTT variables.
+	 * @param tick_ duration of the clock tick for RTT variables, in the simulation time units.
 	 * @param estimRTT_init_ initial value of estimated RTT.
 	 * @param deviatRTT_init_ initial value of RTT deviation.
 	 * @param baseRTT_init_ initial value of TimeoutInterval.
 	 * @param maxRTO_ the maximum value of retransmission timeout.
+	 * @param reporting_ the reporting configuration of the simulator.
 	 */
 	public RTOEstimator(
-		double tick_, double estimRTT_init_, double deviatRTT_init_,
-		double baseRTT_init_, double maxRTO_
+		long tick_, double estimRTT_init_, double deviatRTT_init_,
+		double baseRTT_init_, double maxRTO_, Reporting reporting_
 	) {
-		if (tick_ > 0.0)
-			tickDuration = tick_;	// default tickDuration is 1.0
+		this.reporting = reporting_;
+		if (tick_ > 0L)
+			tickDuration = tick_;	// default tickDuration is one clock tick
 
 		if (estimRTT_init_ >= 0.0)
-			estimatedRTT = (int)(estimRTT_init_ / tickDuration);
+			estimatedRTT = (int)estimRTT_init_;
 
 		if (deviatRTT_init_ >= 0.0)
-			devRTT = (int)(deviatRTT_init_ / tickDuration);
+			devRTT = (int)deviatRTT_init_;
 
 		if (baseRTT_init_ >= 0.0)
-			timeoutInterval = baseRTT_init_;
+			timeoutInterval = Math.round(baseRTT_init_ * tickDuration);
 
 		// see  https://support.microsoft.com/kb/170359/en-us
 		if ((maxRTO_ > 0.0) && (maxRTO_ <= 240.0))
-			maxTimeoutInterval = maxRTO_ / tickDuration;
+			maxTimeoutInterval = Math.round(maxRTO_ * tickDuration);
 
 		backoff = 1;
 	}
@@ -200,16 +222,32 @@ public class RTOEstimator {
 	 * @param timestamp_ &nbsp;the time when this acknowledged segment was originally sent. 
 	 *
 	 */
-	protected void updateRTT(double currentTime_, double timestamp_) {
+	protected void updateRTT(long currentTime_, long timestamp_) {
 		// Check if this is a retransmitted segment.
 		// For such segments, the timestamp is set to "-1"
 		// and no RTT estimation is performed.
-		if (timestamp_ < 0) return;
+		if (timestamp_ < 0) {
+			latestRTT = -1L;
+			return;
+		}
 
 		backoff = 1;	// reset the backoff for a new ACK
 
+		// The fine-grained samples, for the delay-based senders:
+		latestRTT = currentTime_ - timestamp_;
+		if (minRTT == 0L || latestRTT < minRTT) {
+			minRTT = latestRTT;
+		}
+
+		// The fine-grained smoothed RTT, with the same "alpha" weight:
+		if (smoothedRTT != 0L) {
+			smoothedRTT += (currentTime_ - timestamp_ - smoothedRTT) >> alphaShift;
+		} else {
+			smoothedRTT = currentTime_ - timestamp_;
+		}
+
 		// Most recent measured sample RTT value:
-		int sampleRTT = (int)((currentTime_ - timestamp_) / tickDuration + 0.5);
+		int sampleRTT = (int)((currentTime_ - timestamp_ + tickDuration / 2) / tickDuration);
 		// Round the RTT to integer times of the time increment
 		if (sampleRTT < 1) sampleRTT = 1;
 
@@ -241,21 +279,21 @@ public class RTOEstimator {
 		 * plus 2^stdDevMultShift times (unscaled) devRTT, i.e.:
 		 * = EstimatedRTT[new] + max{tick, 4*DeviationRTT[new]} 
 		 */
-		timeoutInterval = estimatedRTT +
-			Math.max(tickDuration, (devRTT << stdDevMultShift));
+		int timeoutTicks_ = estimatedRTT +
+			Math.max(1, (devRTT << stdDevMultShift));
 		// RFC-6298 says that, whenever RTO is computed, if it is
 		// less than 1 second, then the RTO should be rounded up to 1 second.
 		//
-		if (timeoutInterval < 1.0) timeoutInterval = 1.0;
-		timeoutInterval *= tickDuration;
+		if (timeoutTicks_ < 1) timeoutTicks_ = 1;
+		timeoutInterval = timeoutTicks_ * tickDuration;
 
 		if (
-			(Simulator.currentReportingLevel & Simulator.REPORTING_RTO_ESTIMATE) != 0
+			(reporting.level & Simulator.REPORTING_RTO_ESTIMATE) != 0
 		) {
-			System.out.println(
+			reporting.out.println(
 				"RTT UPDATE:  (sampleRTT=" + sampleRTT + ", estimatedRTT=" +
 				 estimatedRTT + ", devRTT=" + devRTT + ", timeoutInterval=" +
-				timeoutInterval + ", backoff=" + backoff +")"
+				Simulator.timeToTicks(timeoutInterval) + ", backoff=" + backoff +")"
 			);
 		}
 	}
@@ -267,22 +305,24 @@ public class RTOEstimator {
      * to provide an upper bound to this doubling operation.
 	 */
 	protected void timerBackoff() {
-		if (timeoutInterval < maxTimeoutInterval) {
+		if (getTimeoutInterval() < maxTimeoutInterval) {
 			backoff <<= 1;	// double the backoff
 			if (
-				(Simulator.currentReportingLevel & Simulator.REPORTING_RTO_ESTIMATE) != 0
+				(reporting.level & Simulator.REPORTING_RTO_ESTIMATE) != 0
 			) {
-				System.out.println("TIMEOUT: timer backoff to " + backoff + " times");
+				reporting.out.println("TIMEOUT: timer backoff to " + backoff + " times");
 			}
 		}
 	}
 
 	/**
-	 * Returns the RTO timeout value (in simulator clock ticks)<BR>
+	 * Returns the RTO timeout value (in the simulation time units)<BR>
 	 * by multiplying the base value and the current backoff value.
 	 */
-	protected double getTimeoutInterval() {
-		double rto_ = timeoutInterval * backoff;
+	protected long getTimeoutInterval() {
+		if (timeoutInterval > maxTimeoutInterval / backoff)
+			return maxTimeoutInterval;	// avoid the overflow of the product
+		long rto_ = timeoutInterval * backoff;
 		if (rto_ < tickDuration)
 			return tickDuration;
 		else if (rto_ > maxTimeoutInterval)
@@ -290,4 +330,42 @@ public class RTOEstimator {
 		else
 			return rto_;
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Returns the current estimated RTT (in the simulation time units),
+	 * or zero if no RTT was measured yet.
+	 */
+	protected long getEstimatedRTT() {
+		return estimatedRTT * tickDuration;
+	}
+
+	/**
+	 * Returns the current smoothed RTT (in the simulation time units),
+	 * or zero if no RTT was measured yet. Unlike {@link #getEstimatedRTT()},
+	 * the samples are not rounded to whole clock ticks, so this estimate
+	 * also follows the RTT changes smaller than one tick, e.g., as the router
+	 * queue builds up; it is used for pacing, see {@link Sender#setPacing(boolean)}.
+	 */
+	protected long getSmoothedRTT() {
+		return smoothedRTT;
+	}
+
+	/**
+	 * Returns the RTT sample of the latest acknowledgment (in the simulation
+	 * time units), or <code>-1</code> if the acknowledged segment was
+	 * retransmitted, so it gave no sample (Karn's algorithm).
+	 */
+	protected long getLatestRTT() {
+		return latestRTT;
+	}
+
+	/**
+	 * Returns the smallest RTT sample so far (in the simulation time units),
+	 * or zero if no RTT was measured yet. This <em>base RTT</em> is the RTT of
+	 * the path when the router queues are empty; it is used by the delay-based
+	 * senders, see {@link SenderVegas}.
+	 */
+	protected long getMinRTT() {
+		return minRTT;
+	}
+}
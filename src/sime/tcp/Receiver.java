@@ -7,12 +7,13 @@
 package sime.tcp;
 
 import java.util.ArrayList;
-import java.util.Iterator;
 
 import sime.Endpoint;
+import sime.Reporting;
 import sime.Simulator;
 import sime.TimedComponent;
 import sime.TimerSimulated;
+import sime.TraceRecorder;
 
 /**
  * This class implements a simple TCP receiver protocol module.<BR>
@@ -20,9 +21,9 @@ import sime.TimerSimulated;
  * <a href="http://tools.ietf.org/html/rfc5681" target="page">RFC 5681</a>
  * and <a href="http://www.apps.ietf.org/rfc/rfc2581.html" target="page">RFC 2581</a>
  * as closely as I could. However, some intricate details are left out.
- * In particular, because this is a simple discrete-time simulator
+ * In particular, because this is a simple simulator
  * and the clock tick granularity is very coarse (one tick equals
- * one round-trip time (RTT)), the delayed-ACKs timer is not
+ * about one round-trip time (RTT)), the delayed-ACKs timer is not
  * implemented as recommended. See more discussion related to
  * {@link #delayedACKtimer} and {@link #cumulativeACK}.
  * 
@@ -33,6 +34,9 @@ public class Receiver implements TimedComponent {
 	/** Local endpoint that contains this receiver object. */
 	Endpoint localEndpoint = null;
 
+	/** The reporting configuration of the simulator, for debugging purposes. */
+	Reporting reporting = null;
+
 	/** The timer for delayed (cumulative) acknowledgments.<BR>
 	 * Because of the way the simulator is implemented, it calls
 	 * the receiver to process the received packets one by one.
@@ -49,15 +53,6 @@ public class Receiver implements TimedComponent {
 	 * related to {@link #cumulativeACK}. */
 	protected TimerSimulated delayedACKtimer = null;
 
-	/**
-	 * Handle returned by the simulator, in case {@link #delayedACKtimer}
-	 * needs to be canceled. Recall that, if the receiver receives
-	 * an out-of-order segment, it is obliged to send a (duplicate)
-	 * ACK immediately. However, if {@link #delayedACKtimer} has
-	 * not yet expired, it must be cancelled first.
-	 */
-	protected TimerSimulated delayedACKtimerHandle = null;
-
 	/** Maximum receive window size, in bytes. This is how
 	 * much memory this receiver allocated for a temporary
 	 * storage ("buffer") for holding out-of-order segments. */
@@ -68,11 +63,12 @@ public class Receiver implements TimedComponent {
 	protected int currentRcvWindow = 0;
 
 	/** The receiver buffer to buffer the segments that arrive
-	 * out-of-sequence. Note that, ideally, this list should always be
-	 * sorted in the ascending order of sequence numbers of the
-	 * currently buffered segments. Having it sorted makes for
-	 * easier processing of gap-filling segments in
-	 * {@link #checkBufferedSegments()}. */
+	 * out-of-sequence. This list is always sorted in the ascending order
+	 * of sequence numbers of the currently buffered segments, because
+	 * each segment is inserted in its place (see {@link #bufferSegment(Segment)}).
+	 * Having it sorted makes for easier processing of gap-filling segments in
+	 * {@link #checkBufferedSegments()} and of the SACK blocks
+	 * in {@link #generateSACKblocks(Segment)}. */
 	protected ArrayList<Segment> rcvBuffer = new ArrayList<Segment>();
 
 	/** The receiver may hold a cumulative acknowledgment
@@ -103,12 +99,37 @@ public class Receiver implements TimedComponent {
 	/** The field records the last byte received in-sequence.
 	 * Recall that the bytes are numbered from zero, so the sequence
 	 * number of the first byte is zero, etc. */
-	protected int lastByteRecvd = -1;
+	protected long lastByteRecvd = -1;
 
 	/** The next byte currently expected from the sender.
 	 * Recall that the bytes are numbered from zero, so the sequence
 	 * number of the first byte is zero, etc. */
-	protected int nextByteExpected = 0;
+	protected long nextByteExpected = 0;
+
+	/** Indicates whether the remote sender permitted this receiver to send
+	 * SACK options, as negotiated when the connection is established
+	 * (see <a href="http://tools.ietf.org/html/rfc2018" target="page">RFC 2018</a>).
+	 * @see #setSACKpermitted(boolean) */
+	protected boolean sackPermitted = false;
+
+	/** The SACK blocks sent in the most recent acknowledgment, if any,
+	 * to be repeated in the next acknowledgments.
+	 * @see #generateSACKblocks(Segment) */
+	protected long[] lastSackBlocks = null;
+
+	/** The contiguous blocks of the buffered data, as pairs of left and
+	 * right edges; a scratch array reused for every acknowledgment
+	 * by {@link #generateSACKblocks(Segment)}, and enlarged as needed. */
+	protected long[] dataBlocks = new long[2 * Segment.MAX_SACK_BLOCKS];
+
+	/** Marks the blocks of {@link #dataBlocks} already chosen for
+	 * the SACK option of the current acknowledgment (a scratch array, too). */
+	protected boolean[] reportedBlocks = new boolean[Segment.MAX_SACK_BLOCKS];
+
+	/** The shift count of the window scale option that this receiver sent
+	 * when the connection was established, or zero if the window is not scaled.
+	 * @see #setWindowScale(int) */
+	protected int windowScale = 0;
 
 	/**
 	 * Constructor.
@@ -120,12 +141,13 @@ public class Receiver implements TimedComponent {
 	 */
 	public Receiver(Endpoint localTCPendpoint_, int rcvWindowSize_) {
 		this.localEndpoint = localTCPendpoint_;
+		this.reporting = localEndpoint.getSimulator().getReporting();
 		this.maxRcvWindowSize = rcvWindowSize_;
 		this.currentRcvWindow = this.maxRcvWindowSize;
 
 		// Delayed ACK timer for cumulative ACKs, created but not activated
 		delayedACKtimer = new TimerSimulated(
-			this, 2 /* type equals "2" */, 0.0
+			this, 2 /* type equals "2" */, 0L
 		);
 	}
 
@@ -134,6 +156,59 @@ public class Receiver implements TimedComponent {
 		return currentRcvWindow;
 	}
 
+	/**
+	 * Emulates the SACK-permitted option in the SYN segment of the remote
+	 * sender: if permitted, this receiver reports the out-of-order segments
+	 * that it holds in the SACK blocks of its acknowledgments.
+	 * @param sackPermitted_ whether the remote sender permitted SACK options
+	 */
+	public void setSACKpermitted(boolean sackPermitted_) {
+		this.sackPermitted = sackPermitted_;
+	}
+
+	/**
+	 * Returns the smallest shift count of the window scale option with which
+	 * this receiver can advertise its maximum receive window in
+	 * the <em>Window</em> field of the acknowledgments, which is
+	 * at most {@link Segment#MAX_WINDOW}.
+	 * @return the shift count to offer to the remote sender,
+	 * at most {@link Segment#MAX_WINDOW_SCALE}
+	 */
+	public int getRequiredWindowScale() {
+		int windowScale_ = 0;
+		while (
+			windowScale_ < Segment.MAX_WINDOW_SCALE &&
+			(maxRcvWindowSize >> windowScale_) > Segment.MAX_WINDOW
+		) {
+			windowScale_++;
+		}
+		return windowScale_;
+	}
+
+	/**
+	 * Emulates the window scale options in the SYN segments, as specified in
+	 * <a href="http://tools.ietf.org/html/rfc7323" target="page">RFC 7323</a>:
+	 * if both endpoints sent the option, this receiver advertises its window
+	 * shifted right by the shift count that it sent, so that the remote
+	 * sender may have more than 64 KBytes in flight. Otherwise,
+	 * the shift count is zero, and the advertised window cannot exceed
+	 * {@link Segment#MAX_WINDOW}, even if the receiver buffers more.
+	 * @param windowScale_ the shift count, from zero to {@link Segment#MAX_WINDOW_SCALE}
+	 */
+	public void setWindowScale(int windowScale_) {
+		this.windowScale = windowScale_;
+	}
+
+	/**
+	 * Helper method to return the current receive window as it is
+	 * advertised in the <em>Window</em> field of an acknowledgment:
+	 * scaled down by the negotiated shift count, and at most {@link Segment#MAX_WINDOW}.
+	 * @return the value of the <em>Window</em> field
+	 */
+	int getAdvertisedWindow() {
+		return Math.min(currentRcvWindow >> windowScale, Segment.MAX_WINDOW);
+	}
+
 	/**
 	 * Callback method to call when a simulated timer expires. </p>
 	 * 
@@ -146,7 +221,6 @@ public class Receiver implements TimedComponent {
 	 */
 	@Override
 	public void timerExpired(int timerType_) {
-		delayedACKtimerHandle = null;	// clear the timer handle
 		sendCumulativeAcknowledgement();
 	}
 
@@ -159,14 +233,9 @@ public class Receiver implements TimedComponent {
 	 */
 	protected void sendCumulativeAcknowledgement() {
 		// first cancel the delayed-ACK timer if it's still running
-		if (delayedACKtimerHandle != null) {
-			try {
-				localEndpoint.getSimulator().cancelTimeout(delayedACKtimerHandle);
-			} catch (Exception ex) {
-				ex.printStackTrace();
-			}
-			delayedACKtimerHandle = null;	// clear the timer handle
-		}
+		// (recall that, if the receiver receives an out-of-order segment,
+		// it is obliged to send a (duplicate) ACK immediately)
+		localEndpoint.getSimulator().disarmTimeout(delayedACKtimer);
 		if (cumulativeACK != null) {
 			// Hand the cumulative ACK down to the network layer for transmission
 			localEndpoint.getNetworkLayerProtocol().send(localEndpoint, cumulativeACK);
@@ -200,6 +269,13 @@ public class Receiver implements TimedComponent {
 			return;
 		}
 
+		if (reporting.trace != null) {
+			reporting.trace.record(
+				TraceRecorder.RECEIVE, localEndpoint.getSimulator().getCurrentTime(),
+				localEndpoint.getTraceId(), segment_
+			);
+		}
+
 		// Check if the segment arrived in-sequence.
 		// Recall that we're expecting the segment with
 		// sequence number equal "nextByteExpected"
@@ -225,6 +301,12 @@ public class Receiver implements TimedComponent {
 				checkBufferedSegments();
 			}
 
+			// The ECN-Echo flag reports every congestion mark exactly (as in DCTCP),
+			// so a pending cumulative ACK with a different flag must be sent first:
+			if (cumulativeACK != null && cumulativeACK.ecnEcho != segment_.congestionExperienced) {
+				sendCumulativeAcknowledgement();
+			}
+
 			// Acknowledge the received segment.
 			// NOTE: This is a _cumulative_ acknowledgment,
 			// in that it possibly acknowledges some segments which
@@ -233,31 +315,37 @@ public class Receiver implements TimedComponent {
 			if (cumulativeACK == null) {
 				cumulativeACK =	new Segment(
 					localEndpoint.getRemoteTCPendpoint(),
-					currentRcvWindow, nextByteExpected
+					getAdvertisedWindow(), nextByteExpected
 				);	// ACK segment with zero-length data
 				// Bounce back the timestamp of the received data segment
 				cumulativeACK.timestamp = segment_.timestamp;
+				cumulativeACK.mss = segment_.mss;
+				cumulativeACK.ecnEcho = segment_.congestionExperienced;
 
 				// Re-start the delayed-ACKs timer for the cumulative ACK
-				// using the current time tick, because we know how the
+				// using the current time, because we know how the
 				// simulator works and when it fires the expired timers.
-				// That is, the Simulator clock tick equals one RTT and
-				// it checks for expired timers at the end of an RTT period.
-				delayedACKtimer.setTime(localEndpoint.getSimulator().getCurrentTime());
+				// That is, the timer fires right after the current event,
+				// so all segments delivered in this event are acknowledged
+				// by the same cumulative ACK.
 				try {
-					delayedACKtimerHandle =
-						localEndpoint.getSimulator().setTimeoutAt(delayedACKtimer);
+					localEndpoint.getSimulator().rearmTimeoutAt(
+						delayedACKtimer, localEndpoint.getSimulator().getCurrentTime()
+					);
 				} catch (Exception ex) {
 					ex.printStackTrace();
 				}
 			} else {
 				// There is already a cumulative ACK waiting
 				// just update its parameters.
-				cumulativeACK.rcvWindow = currentRcvWindow;
+				cumulativeACK.rcvWindow = getAdvertisedWindow();
 				cumulativeACK.setAckSequenceNumber(nextByteExpected);
 				// Bounce back the timestamp of the received data segment
 				cumulativeACK.timestamp = segment_.timestamp;
 			}
+			// If some segments are still buffered (i.e., this segment filled
+			// only the first gap), the cumulative ACK must report them, too:
+			cumulativeACK.sackBlocks = generateSACKblocks(segment_);
 		} //ends IF condition: segments_[i_].seqNum == nextByteExpected
 
 		else {	
@@ -273,9 +361,9 @@ public class Receiver implements TimedComponent {
 		}
 		// Display the relevant receiver's parameters.
 		if (		// Debugging reporting:
-			(Simulator.currentReportingLevel  & Simulator.REPORTING_RECEIVERS) != 0
+			(reporting.level & Simulator.REPORTING_RECEIVERS) != 0
 		) {
-			System.out.println(
+			reporting.out.println(
 				"RECEIVER:\tlastByteRecvd="+lastByteRecvd + "\t" + "nextByteExpected="+nextByteExpected +
 				"\t" + "currentRcvWindow="+currentRcvWindow
 			);
@@ -292,17 +380,16 @@ public class Receiver implements TimedComponent {
 	 * @return Returns the acknowledgment segment for the input data segment.
 	 */
 	protected Segment handleOutOfSequenceSegment(Segment segment_) {
-		// Buffer an out-of-sequence segment.
-		// Note that we do NOT assume that currently buffered segments
-		// are ordered in the ascending order of their sequence number.
-		Segment outOfOrderSeg_ = (Segment) segment_.clone();
-		rcvBuffer.add(outOfOrderSeg_);
+		// Buffer an out-of-sequence segment. The segment is delivered
+		// to this receiver only, so it is buffered as is, without a copy
+		// (its payload is a read-only view of the sender's data).
+		bufferSegment(segment_);
 
 		// Also, we CANNOT assume that all currently buffered segments
 		// have sequence number lower than the one that just arrived.
 		lastByteRecvd = Math.max(
 			lastByteRecvd,
-			outOfOrderSeg_.dataSequenceNumber + outOfOrderSeg_.length - 1
+			segment_.dataSequenceNumber + segment_.length - 1
 		);
 
 		// Because we just buffered one segment, we may need to reduce
@@ -310,14 +397,156 @@ public class Receiver implements TimedComponent {
 		// segment's length, because this segment may be out-of-order
 		// but logically preceding another already buffered segment,
 		// so the memory for it may already be held.
-		currentRcvWindow = maxRcvWindowSize - (lastByteRecvd - nextByteExpected);
+		currentRcvWindow = maxRcvWindowSize - (int) (lastByteRecvd - nextByteExpected);
 
 		// Generate a duplicate ACK, to be transmitted immediately !!!
 		// Note that by default, the timestamp of this segment will be "-1"
-		return new Segment(
+		Segment dupACK_ = new Segment(
 			localEndpoint.getRemoteTCPendpoint(),
-			currentRcvWindow, nextByteExpected
+			getAdvertisedWindow(), nextByteExpected
+		);
+		dupACK_.mss = segment_.mss;
+		dupACK_.ecnEcho = segment_.congestionExperienced;
+		dupACK_.sackBlocks = generateSACKblocks(segment_);
+		return dupACK_;
+	}
+
+	/**
+	 * Helper method to insert an out-of-sequence segment into
+	 * the {@link #rcvBuffer}, so that the buffer remains sorted in the ascending
+	 * order of sequence numbers. A segment that arrives after the already
+	 * buffered segments (which is most often the case) is simply appended;
+	 * otherwise, its place is found by a binary search.
+	 * A duplicate of a buffered segment is placed behind it.
+	 * 
+	 * @param segment_ The out-of-sequence segment to buffer.
+	 */
+	void bufferSegment(Segment segment_) {
+		int size_ = rcvBuffer.size();
+		if (
+			size_ == 0 ||
+			rcvBuffer.get(size_ - 1).dataSequenceNumber <= segment_.dataSequenceNumber
+		) {
+			rcvBuffer.add(segment_);
+			return;
+		}
+		int low_ = 0;
+		int high_ = size_ - 1;	// the last segment is known to be behind it
+		while (low_ < high_) {
+			int middle_ = (low_ + high_) >>> 1;
+			if (rcvBuffer.get(middle_).dataSequenceNumber <= segment_.dataSequenceNumber) {
+				low_ = middle_ + 1;
+			} else {
+				high_ = middle_;
+			}
+		}
+		rcvBuffer.add(low_, segment_);
+	}
+
+	/**
+	 * Helper method to generate the SACK blocks for an acknowledgment,
+	 * as specified in <a href="http://tools.ietf.org/html/rfc2018" target="page">RFC 2018</a>,
+	 * from the out-of-order segments held in the {@link #rcvBuffer}.
+	 * The buffered segments are merged into contiguous blocks of data, and
+	 * at most {@link Segment#MAX_SACK_BLOCKS} blocks are reported as follows:
+	 * the first block is the one holding the just-received segment (if it
+	 * is buffered); it is followed by the blocks that were reported most
+	 * recently, so that each block is reported in several acknowledgments
+	 * in case some of them are lost; and any remaining room is filled
+	 * with the other blocks, in the ascending order.
+	 * 
+	 * @param segment_ The segment that is currently being acknowledged.
+	 * @return Returns the SACK blocks, as pairs of left and right edges,
+	 * or <code>null</code> if SACK is not permitted or no segments are buffered.
+	 */
+	protected long[] generateSACKblocks(Segment segment_) {
+		if (!sackPermitted || rcvBuffer.isEmpty()) {
+			lastSackBlocks = null;
+			return null;
+		}
+		// Merge the buffered segments, which are kept sorted,
+		// into the contiguous blocks of data:
+		if (dataBlocks.length < 2 * rcvBuffer.size()) {
+			dataBlocks = new long[Math.max(2 * rcvBuffer.size(), 2 * dataBlocks.length)];
+			reportedBlocks = new boolean[dataBlocks.length / 2];
+		}
+		long[] blocks_ = dataBlocks;
+		int blockCount_ = 0;
+		for (int i_ = 0; i_ < rcvBuffer.size(); i_++) {
+			Segment seg_ = rcvBuffer.get(i_);
+			long left_ = Math.max(seg_.dataSequenceNumber, nextByteExpected);
+			long right_ = seg_.dataSequenceNumber + seg_.length;
+			if (right_ <= left_) {
+				continue;	// an old duplicate, already acknowledged
+			}
+			if (blockCount_ > 0 && left_ <= blocks_[2*blockCount_ - 1]) {
+				blocks_[2*blockCount_ - 1] = Math.max(blocks_[2*blockCount_ - 1], right_);
+			} else {
+				blocks_[2*blockCount_] = left_;
+				blocks_[2*blockCount_ + 1] = right_;
+				blockCount_++;
+			}
+		}
+		if (blockCount_ == 0) {
+			lastSackBlocks = null;
+			return null;
+		}
+
+		// Choose the blocks to report, in the order of their priority.
+		// Only this array is allocated per acknowledgment, because it travels
+		// with the acknowledgment and is remembered in lastSackBlocks:
+		long[] sackBlocks_ = new long[2 * Math.min(blockCount_, Segment.MAX_SACK_BLOCKS)];
+		boolean[] reported_ = reportedBlocks;
+		java.util.Arrays.fill(reported_, 0, blockCount_, false);
+		int sackCount_ = 0;
+		// 1. The block holding the just-received segment, if it is buffered:
+		sackCount_ = addSACKblock(
+			sackBlocks_, sackCount_, blocks_, blockCount_, reported_,
+			segment_.dataSequenceNumber
 		);
+		// 2. The most recently reported blocks:
+		for (
+			int i_ = 0;
+			lastSackBlocks != null && i_ < lastSackBlocks.length && 2*sackCount_ < sackBlocks_.length;
+			i_ += 2
+		) {
+			sackCount_ = addSACKblock(
+				sackBlocks_, sackCount_, blocks_, blockCount_, reported_,
+				lastSackBlocks[i_]
+			);
+		}
+		// 3. The remaining blocks:
+		for (int i_ = 0; i_ < blockCount_ && 2*sackCount_ < sackBlocks_.length; i_++) {
+			sackCount_ = addSACKblock(
+				sackBlocks_, sackCount_, blocks_, blockCount_, reported_,
+				blocks_[2*i_]
+			);
+		}
+		lastSackBlocks = sackBlocks_;
+		return sackBlocks_;
+	}
+
+	/**
+	 * Helper method to add to the SACK blocks the block of data that
+	 * holds the given sequence number, unless that block is already reported.
+	 * @return Returns the new number of the SACK blocks.
+	 */
+	private int addSACKblock(
+		long[] sackBlocks_, int sackCount_,
+		long[] blocks_, int blockCount_, boolean[] reported_, long sequenceNumber_
+	) {
+		for (int i_ = 0; i_ < blockCount_; i_++) {
+			if (blocks_[2*i_] <= sequenceNumber_ && sequenceNumber_ < blocks_[2*i_ + 1]) {
+				if (!reported_[i_] && 2*sackCount_ < sackBlocks_.length) {
+					reported_[i_] = true;
+					sackBlocks_[2*sackCount_] = blocks_[2*i_];
+					sackBlocks_[2*sackCount_ + 1] = blocks_[2*i_ + 1];
+					sackCount_++;
+				}
+				break;
+			}
+		}
+		return sackCount_;
 	}
 
 	/**
@@ -338,23 +567,19 @@ public class Receiver implements TimedComponent {
 
 		// Check all the buffered segments, if any,
 		// to see if the just-arrived segment filled a gap.
-		// Recall that "lastBuffered" is a list that is NOT
-		// sorted in a ascending order of segments' sequence
-		// numbers.
-		// Sort the list first to avoid having inspect all
-		// list elements several times to determine if all
-		// gaps are filled.
-		// Check the method TCPSegment.compareTo() to see
-		// how the sorting is performed.
-		java.util.Collections.sort(rcvBuffer);
-
-		Iterator<Segment> bufferedItems = rcvBuffer.iterator();
-		while (bufferedItems.hasNext()) {
+		// Recall that "rcvBuffer" is a list that is kept
+		// sorted in the ascending order of segments' sequence
+		// numbers (see bufferSegment()), so the gap-filling
+		// segments are all at its beginning.
+		// They are removed from the list at once, at the end,
+		// rather than one by one.
+		int removed_ = 0;
+		while (removed_ < rcvBuffer.size()) {
 
 			// Check if the previously buffered out-of-sequence segment
 			// is presently in-sequence, so can be removed from the
 			// buffer:
-			Segment seg = bufferedItems.next();
+			Segment seg = rcvBuffer.get(removed_);
 			if (seg.dataSequenceNumber == nextByteExpected) {
 
 				// Remove the segment from the buffer:
@@ -364,15 +589,24 @@ public class Receiver implements TimedComponent {
 				// to _reclaim_ the freed buffer space, and increase the
 				// receive window size by the removed segment's length.
 				currentRcvWindow =
-					maxRcvWindowSize - (lastByteRecvd - nextByteExpected);
-
-				// Perform the segment's removal.
-				bufferedItems.remove();
+					maxRcvWindowSize - (int) (lastByteRecvd - nextByteExpected);
+
+				// Mark the segment for removal.
+				removed_++;
+			} else if (seg.dataSequenceNumber + seg.length <= nextByteExpected) {
+				// An old duplicate of the data already received in-sequence
+				// (e.g., a retransmission of a buffered segment), just discard it,
+				// otherwise it would block the segments behind it.
+				removed_++;
 			} else {
 				// Quit because the remaining buffered segments
 				// are all out-of-order.
 				break;
 			}
 		}
+		// Perform the segments' removal.
+		if (removed_ > 0) {
+			rcvBuffer.subList(0, removed_).clear();
+		}
 	}
 }
\ No newline at end of file
@@ -0,0 +1,206 @@
+/*
+ * Created on Oct 16, 2026
+ */
+package sime.tcp;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The "scoreboard" of a SACK sender, as described in
+ * <a href="http://tools.ietf.org/html/rfc6675" target="page">RFC 6675</a>:
+ * keeps track of which outstanding bytes the receiver reported
+ * as received out-of-order in the SACK blocks of its acknowledgments.<BR>
+ * The selectively acknowledged ("SACKed") bytes are kept as a set of
+ * disjoint intervals over the sequence space, each interval given by
+ * its left edge (the first SACKed byte) and its right edge (one past
+ * the last SACKed byte), sorted by the left edge. Adjacent or overlapping
+ * SACK blocks are merged into one interval, so the scoreboard holds
+ * one interval per "island" of data at the receiver, rather than one
+ * entry per segment.</p>
+ *
+ * <p>The gaps between the intervals (and between the cumulatively
+ * acknowledged data and the first interval) are the "holes" that the
+ * sender may need to retransmit.</p>
+ *
+ * @see SenderSACK
+ * @author agent
+ */
+class Scoreboard {
+	/** The SACKed intervals, as the right edge keyed by the left edge. */
+	protected TreeMap<Long, Long> intervals = new TreeMap<Long, Long>();
+
+	/** The total number of SACKed bytes in all the {@link #intervals}. */
+	protected long sackedBytes = 0L;
+
+	/**
+	 * Updates the scoreboard with the given acknowledgment: the SACKed
+	 * bytes below the cumulative acknowledgment are forgotten, since they
+	 * need no longer be tracked, and the SACK blocks (if any) are added.
+	 * @param ackSequenceNumber_ the cumulative acknowledgment, i.e.,
+	 * the sequence number of the next byte expected by the receiver
+	 * @param sackBlocks_ the SACK blocks of the acknowledgment, as pairs
+	 * of left and right edges, or <code>null</code>
+	 */
+	void update(long ackSequenceNumber_, long[] sackBlocks_) {
+		release(ackSequenceNumber_);
+		if (sackBlocks_ == null) {
+			return;
+		}
+		for (int i_ = 0; i_ + 1 < sackBlocks_.length; i_ += 2) {
+			add(
+				Math.max(sackBlocks_[i_], ackSequenceNumber_), sackBlocks_[i_ + 1]
+			);
+		}
+	}
+
+	/** Forgets all the SACKed bytes, e.g., after a retransmission timeout. */
+	void clear() {
+		intervals.clear();
+		sackedBytes = 0L;
+	}
+
+	/** Returns <code>true</code> if no bytes are currently SACKed. */
+	boolean isEmpty() {
+		return intervals.isEmpty();
+	}
+
+	/** Returns the total number of currently SACKed bytes. */
+	long getSackedBytes() {
+		return sackedBytes;
+	}
+
+	/**
+	 * Returns one past the highest SACKed byte,
+	 * or <code>-1</code> if no bytes are currently SACKed.
+	 */
+	long getHighestSacked() {
+		return intervals.isEmpty() ? -1L : intervals.lastEntry().getValue();
+	}
+
+	/**
+	 * Returns <code>true</code> if the byte with the given sequence number is SACKed.
+	 * @param sequenceNumber_ the sequence number of the byte
+	 */
+	boolean isSacked(long sequenceNumber_) {
+		Map.Entry<Long, Long> interval_ = intervals.floorEntry(sequenceNumber_);
+		return (interval_ != null && sequenceNumber_ < interval_.getValue());
+	}
+
+	/**
+	 * Returns the sequence number of the first byte that is <i>not</i>
+	 * SACKed, starting from the given sequence number.
+	 * @param sequenceNumber_ the sequence number from which to search
+	 */
+	long nextUnsacked(long sequenceNumber_) {
+		Map.Entry<Long, Long> interval_ = intervals.floorEntry(sequenceNumber_);
+		if (interval_ != null && sequenceNumber_ < interval_.getValue()) {
+			return interval_.getValue();	// the intervals are never adjacent
+		}
+		return sequenceNumber_;
+	}
+
+	/**
+	 * Returns the number of SACKed bytes in the given range of sequence numbers.
+	 * @param from_ the sequence number of the first byte of the range
+	 * @param to_ one past the sequence number of the last byte of the range
+	 */
+	long getSackedBytes(long from_, long to_) {
+		long sacked_ = 0L;
+		Iterator<Map.Entry<Long, Long>> iterator_ = intervals.entrySet().iterator();
+		while (iterator_.hasNext()) {
+			Map.Entry<Long, Long> interval_ = iterator_.next();
+			if (interval_.getKey() >= to_) {
+				break;
+			}
+			long left_ = Math.max(interval_.getKey(), from_);
+			long right_ = Math.min(interval_.getValue(), to_);
+			if (left_ < right_) {
+				sacked_ += right_ - left_;
+			}
+		}
+		return sacked_;
+	}
+
+	/**
+	 * Returns the sequence number below which all the bytes that
+	 * are not SACKed are considered lost.
+	 * Following the <code>IsLost()</code> rule of
+	 * <a href="http://tools.ietf.org/html/rfc6675" target="page">RFC 6675</a>,
+	 * a byte is lost if either <code>dupThreshold_</code> discontiguous intervals
+	 * or more than <code>(dupThreshold_ - 1) * mss_</code> bytes
+	 * above it have been SACKed.<BR>
+	 * Because a hole holds no SACKed bytes, either all or none of the bytes
+	 * of a hole are lost, and this boundary is the left edge of an interval.
+	 * @param mss_ the maximum segment size, in bytes
+	 * @param dupThreshold_ the threshold number of duplicate acknowledgments
+	 * @return the sequence number of the boundary, or <code>-1</code> if no bytes are lost
+	 */
+	long getLostBoundary(int mss_, int dupThreshold_) {
+		long sackedAbove_ = 0L;
+		int intervalsAbove_ = 0;
+		Iterator<Map.Entry<Long, Long>> iterator_ =
+			intervals.descendingMap().entrySet().iterator();
+		while (iterator_.hasNext()) {
+			Map.Entry<Long, Long> interval_ = iterator_.next();
+			sackedAbove_ += interval_.getValue() - interval_.getKey();
+			intervalsAbove_++;
+			if (
+				intervalsAbove_ >= dupThreshold_ ||
+				sackedAbove_ > (long) (dupThreshold_ - 1) * mss_
+			) {
+				return interval_.getKey();
+			}
+		}
+		return -1L;
+	}
+
+	/**
+	 * Helper method to add the given interval, merging it with
+	 * any intervals that it overlaps or adjoins.
+	 */
+	private void add(long left_, long right_) {
+		if (right_ <= left_) {
+			return;
+		}
+		// Merge with the interval that begins before the new one, if they meet:
+		Map.Entry<Long, Long> lower_ = intervals.floorEntry(left_);
+		if (lower_ != null && lower_.getValue() >= left_) {
+			if (lower_.getValue() >= right_) {
+				return;	// already SACKed
+			}
+			left_ = lower_.getKey();
+			sackedBytes -= lower_.getValue() - lower_.getKey();
+			intervals.remove(left_);
+		}
+		// Merge with the intervals that begin within the new one:
+		Map.Entry<Long, Long> higher_ = intervals.ceilingEntry(left_);
+		while (higher_ != null && higher_.getKey() <= right_) {
+			right_ = Math.max(right_, higher_.getValue());
+			sackedBytes -= higher_.getValue() - higher_.getKey();
+			intervals.remove(higher_.getKey());
+			higher_ = intervals.ceilingEntry(left_);
+		}
+		intervals.put(left_, right_);
+		sackedBytes += right_ - left_;
+	}
+
+	/**
+	 * Helper method to forget the SACKed bytes below the given sequence number.
+	 */
+	private void release(long sequenceNumber_) {
+		Map.Entry<Long, Long> first_ = intervals.firstEntry();
+		while (first_ != null && first_.getKey() < sequenceNumber_) {
+			intervals.remove(first_.getKey());
+			sackedBytes -= first_.getValue() - first_.getKey();
+			if (first_.getValue() > sequenceNumber_) {
+				// Keep the part of the interval above the cumulative ACK:
+				intervals.put(sequenceNumber_, first_.getValue());
+				sackedBytes += first_.getValue() - sequenceNumber_;
+				break;
+			}
+			first_ = intervals.firstEntry();
+		}
+	}
+}
@@ -6,6 +6,8 @@
  */
 package sime.tcp;
 
+import java.nio.ByteBuffer;
+
 import sime.NetworkElement;
 import sime.Packet;
 
@@ -21,23 +23,38 @@ public class Segment extends Packet implements Comparable<Segment> {
 
 	/** Sequence number of this segment, which is the sequence
 	 * number of the <i>first byte</i> of data carried in this
-	 * segment. */
-	public int dataSequenceNumber = 0;
+	 * segment.<BR>
+	 * The sequence numbers are 64-bit logical numbers that start at zero
+	 * and never wrap around, so they can be compared directly
+	 * even in very long transfers. */
+	public long dataSequenceNumber = 0;
 
 	/** Acknowledgment sequence number, in case this segment
 	 * also acknowledges received data. This number is valid
 	 * only if the <code>isAck</code> flag is set {@link #isAck}.
 	 */
-	public int ackSequenceNumber = 0;
+	public long ackSequenceNumber = 0;
 
 	/** A flag that informs whether or not this segment contains an ACK. */
 	public boolean isAck;
 
 	/** The size of the currently available space in the receiver's buffer
 	 * (used mostly for buffering out-of-order segments).
+	 * Like the <em>Window</em> field of an actual TCP header, it holds at most
+	 * {@link #MAX_WINDOW}; if the window scaling was negotiated, it is given
+	 * in the units of <code>2^shift</code> bytes, see {@link Receiver#setWindowScale(int)}.
 	 * @see Receiver#rcvBuffer
 	 */
 	public int rcvWindow = 0;
+
+	/** The largest value of the <em>Window</em> field of an actual
+	 * TCP header, which is 16 bits long: {@value}. */
+	public static final int MAX_WINDOW = 65535;
+
+	/** The largest shift count of the window scale option: {@value}. Thus, the largest
+	 * receive window is about 1 GByte (see
+	 * <a href="http://tools.ietf.org/html/rfc7323" target="page">RFC 7323</a>, Section 2.3). */
+	public static final int MAX_WINDOW_SCALE = 14;
 	
 	/** The sending time of a segment (similar to the timestamp option in
 	 * the <em>Options</em> field of an actual TCP header).
@@ -52,17 +69,41 @@ public class Segment extends Packet implements Comparable<Segment> {
 	 * 
 	 * <p>This field should be set to <code>-1</code> if the segment is 
 	 * a retransmitted segment, and no RTT estimation should be performed 
-	 * for retransmitted segments. */
-	public int timestamp = -1;
+	 * for retransmitted segments.</p>
+	 * 
+	 * <p>The time is given in the simulation time units
+	 * (see {@link sime.Simulator#TIME_UNITS_PER_TICK}). */
+	public long timestamp = -1;
 
-	/** Ordinal number of this segment. This is only for tracking
-	 * purposes and this field is <i>not</i> present in actual
-	 * TCP segments.<BR>
-	 * Note: The value is computed assuming that {@link #dataSequenceNumber}
-	 * starts at zero. */
-	int ordinalNum;
-	/** Similar to {@link #ordinalNum} */
-	int ordinalNumAck;
+	/** The maximum segment size (MSS) of the connection to which this segment
+	 * belongs, in bytes. In actual TCP, the MSS is negotiated by the MSS options
+	 * of the SYN segments and it is not present in the other segments;
+	 * here it is carried in every segment, but only for tracking purposes
+	 * (see {@link #toString()}). */
+	public int mss = Sender.DEFAULT_MSS;
+
+	/** The maximum number of SACK blocks in one segment: {@value}.
+	 * This is how many blocks fit in the <em>Options</em> field of an actual
+	 * TCP header next to the timestamps option (see
+	 * <a href="http://tools.ietf.org/html/rfc2018" target="page">RFC 2018</a>). */
+	public static final int MAX_SACK_BLOCKS = 3;
+
+	/** The SACK (selective acknowledgment) blocks of this acknowledgment,
+	 * if any, as defined in <a href="http://tools.ietf.org/html/rfc2018" target="page">RFC 2018</a>.
+	 * Each block reports a contiguous range of data that the receiver
+	 * holds out-of-order, by two consecutive elements of this array: the left
+	 * edge (the sequence number of the first byte of the block) and the
+	 * right edge (the sequence number immediately following the last byte).
+	 * The first block holds the most recently received segment.<BR>
+	 * The value is <code>null</code> if the segment carries no SACK option.
+	 * @see Receiver#generateSACKblocks(Segment) */
+	public long[] sackBlocks = null;
+
+	/** The "ECN-Echo" (ECE) flag of an acknowledgment, which tells the sender
+	 * that the acknowledged data segment arrived marked with
+	 * {@link sime.Packet#congestionExperienced}.
+	 * @see SenderDCTCP */
+	public boolean ecnEcho = false;
 
 	/**
 	 * Constructor for data-only segments.
@@ -70,22 +111,37 @@ public class Segment extends Packet implements Comparable<Segment> {
 	 * @param rcvWindow_  the current receive window size of the sender of this segment
 	 * @param seqNum_ the sequence number for the data payload.
 	 * @param dataPayload_ the data payload contained in this segment
+	 * (normally, a read-only view of the sender's buffer)
 	 */
 	public Segment(
-		NetworkElement destinationAddr_, int rcvWindow_, int seqNum_, byte[] dataPayload_
+		NetworkElement destinationAddr_, int rcvWindow_, long seqNum_, ByteBuffer dataPayload_
 	) {
 		this(destinationAddr_, rcvWindow_, seqNum_, dataPayload_, -1);
 	}
 
+	/**
+	 * Constructor for data-only segments. The given array is wrapped
+	 * as the payload, without copying.
+	 * 
+	 * @param rcvWindow_  the current receive window size of the sender of this segment
+	 * @param seqNum_ the sequence number for the data payload.
+	 * @param dataPayload_ the data payload contained in this segment
+	 */
+	public Segment(
+		NetworkElement destinationAddr_, int rcvWindow_, long seqNum_, byte[] dataPayload_
+	) {
+		this(destinationAddr_, rcvWindow_, seqNum_, ByteBuffer.wrap(dataPayload_), -1);
+	}
+
 	/**
 	 * Constructor for acknowledgment-only segments (zero data payload).
 	 * @param rcvWindow_ the current receive window size of the sender of this segment
 	 * @param ackSeqNum_ the acknowledgment sequence number of this segment
 	 */
 	public Segment(
-		NetworkElement destinationAddr_, int rcvWindow_, int ackSeqNum_
+		NetworkElement destinationAddr_, int rcvWindow_, long ackSeqNum_
 	) {
-		this(destinationAddr_, rcvWindow_, -1, null, ackSeqNum_);
+		this(destinationAddr_, rcvWindow_, -1, (ByteBuffer) null, ackSeqNum_);
 	}
 
 	/**
@@ -100,25 +156,33 @@ public class Segment extends Packet implements Comparable<Segment> {
 	 */
 	public Segment(
 		NetworkElement destinationAddr_, int rcvWindow_,
-		int seqNum_, byte[] dataPayload_, int ackSeqNum_
+		long seqNum_, ByteBuffer dataPayload_, long ackSeqNum_
 	) {
 		super(destinationAddr_, dataPayload_);
 		this.rcvWindow = rcvWindow_;
 		this.dataSequenceNumber = seqNum_;
 		this.ackSequenceNumber = ackSeqNum_;
 		this.isAck = (ackSeqNum_ >= 0);
+	}
 
+	/**
+	 * Helper method to compute the ordinal number of the segment that
+	 * starts with the given sequence number. This is only for tracking
+	 * purposes and this number is <i>not</i> present in actual
+	 * TCP segments.<BR>
+	 * Note: The value is computed assuming that the sequence numbers
+	 * start at zero.
+	 * @param seqNum_ the sequence number of the segment's first byte
+	 * @return the ordinal number of the segment
+	 */
+	private long ordinalNumber(long seqNum_) {
 		//TODO NOTE: This must be corrected because currently we assume that any
 		// segments smaller than 1xMSS are 1-byte persist-timer segments.
 		// However, this ignores a possibility that Nagle's algorithm is implemented!!
-		this.ordinalNum =
-				dataSequenceNumber / Sender.MSS +	// how many full MSS segments were created
-				dataSequenceNumber % Sender.MSS +	// how many 1-byte segments (for persist timer)
-				1;	// add one because this is the ordinal number
-		this.ordinalNumAck =
-				ackSequenceNumber / Sender.MSS +	// how many full MSS segments were created
-				ackSequenceNumber % Sender.MSS +	// how many 1-byte segments (for persist timer)
-				1;	// add one because this is the ordinal number
+		return
+			seqNum_ / mss +	// how many full MSS segments were created
+			seqNum_ % mss +	// how many 1-byte segments (for persist timer)
+			1;	// add one because this is the ordinal number
 	}
 
 	/**
@@ -129,12 +193,12 @@ public class Segment extends Packet implements Comparable<Segment> {
 	@Override
 	public String toString() {
 		if (isAck) {
-			identifier = "ACK # " + Integer.toString(ordinalNumAck);
+			identifier = "ACK # " + Long.toString(ordinalNumber(ackSequenceNumber));
 		}
 		// Note that an ACK can be piggybacked on a data segment.
 		if (length > 0) {
 		identifier =
-			"segment # " + Integer.toString(ordinalNum)
+			"segment # " + Long.toString(ordinalNumber(dataSequenceNumber))
 //			+ " (" + Integer.toString(length) + ")  "
 			;
 		}
@@ -168,15 +232,10 @@ public class Segment extends Packet implements Comparable<Segment> {
 	/**
 	 * Attribute setter for the acknowledgment sequence number.
 	 * Defined because {@link Receiver#handle(Segment)}
-	 * resets the ACK sequence number for cumulative ACKs,
-	 * but then we need to recompute {@link #ordinalNumAck} as well.
+	 * resets the ACK sequence number for cumulative ACKs.
 	 * @param ackSequenceNumber_ the acknowledgment sequence number to set
 	 */
-	public void setAckSequenceNumber(int ackSequenceNumber_) {
+	public void setAckSequenceNumber(long ackSequenceNumber_) {
 		this.ackSequenceNumber = ackSequenceNumber_;
-		this.ordinalNumAck =
-			ackSequenceNumber / Sender.MSS +	// how many full MSS segments were created
-			ackSequenceNumber % Sender.MSS +	// how many 1-byte segments (for persist timer)
-			1;	// add one because this is the ordinal number
 	}
 }
\ No newline at end of file
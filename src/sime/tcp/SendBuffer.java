@@ -0,0 +1,322 @@
+/*
+ * Created on Oct 16, 2026
+ */
+package sime.tcp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * The send buffer of a TCP sender: holds the bytes that the application
+ * handed to the sender and that are not yet acknowledged by the receiver.
+ * The bytes are addressed by their sequence numbers, as follows:<BR>
+ * <pre>
+ *   first sequence number         end sequence number
+ *            |                            |
+ *            v                            v
+ *            [ sent, not ACKed | not sent ]
+ * </pre>
+ * The application appends new data at the end of the buffer
+ * (see {@link #append(ByteBuffer)}); the sender takes the data
+ * for the new and for the retransmitted segments anywhere in between
+ * (see {@link #slice(long, int)}); and a cumulative acknowledgment
+ * releases the data at the beginning of the buffer (see {@link #release(long)}).</p>
+ *
+ * <p>The data are kept in fixed-size blocks, held in a circular array
+ * (a "ring") of blocks. Appending copies only the new data, and
+ * the ring of block references is grown (doubled) only when it is full.
+ * A block is filled only once and is never recycled after its data
+ * are released; instead, it is left to the garbage collector. This is
+ * what allows the segments to carry read-only <em>views</em> of the
+ * buffered data, instead of copies: a view remains valid even after
+ * the data are acknowledged, e.g., while a duplicate segment is still
+ * in transit or buffered at the receiver.</p>
+ *
+ * @author agent
+ */
+class SendBuffer {
+	/** The size of one block of data, in bytes. */
+	protected int blockSize = 0;
+
+	/** The circular array holding the references to the blocks of data. */
+	protected byte[][] blocks = null;
+
+	/** The index in {@link #blocks} of the block holding the first sequence number. */
+	protected int headBlock = 0;
+
+	/** The number of blocks currently held in {@link #blocks}. */
+	protected int blockCount = 0;
+
+	/** The offset, within the head block, of the byte with the first sequence number. */
+	protected int headOffset = 0;
+
+	/** The number of bytes currently held in the buffer. */
+	protected long size = 0L;
+
+	/** The sequence number of the oldest byte held in the buffer. */
+	protected long firstSequenceNumber = 0L;
+
+	/** Indicates whether this buffer is in the "virtual data" mode, in which
+	 * the application hands over only the numbers of bytes to send
+	 * (see {@link #appendVirtual(long)}), so no data are held. */
+	protected boolean virtual = false;
+
+	/**
+	 * Constructor.
+	 * @param blockSize_ the size of one block of data, in bytes; preferably
+	 * a multiple of the maximum segment size, so that full-sized segments are not split
+	 * across blocks
+	 * @param firstSequenceNumber_ the sequence number of the first byte to be appended
+	 */
+	SendBuffer(int blockSize_, long firstSequenceNumber_) {
+		this.blockSize = Math.max(1, blockSize_);
+		this.blocks = new byte[4][];
+		this.firstSequenceNumber = firstSequenceNumber_;
+	}
+
+	/**
+	 * Returns the sequence number of the oldest byte held in the buffer
+	 * (normally, the oldest unacknowledged byte).
+	 */
+	long getFirstSequenceNumber() {
+		return firstSequenceNumber;
+	}
+
+	/**
+	 * Returns the sequence number that the next appended byte will get,
+	 * i.e., one past the sequence number of the newest byte in the buffer.
+	 */
+	long getEndSequenceNumber() {
+		return firstSequenceNumber + size;
+	}
+
+	/** Returns the number of bytes currently held in the buffer. */
+	long size() {
+		return size;
+	}
+
+	/** Returns <code>true</code> if this buffer is in the "virtual data" mode. */
+	boolean isVirtual() {
+		return virtual;
+	}
+
+	/**
+	 * Appends the given number of "virtual" bytes, which have sequence numbers
+	 * but no data, at the end of the buffer. The first call switches this buffer
+	 * to the "virtual data" mode, in which no memory is used for the data
+	 * regardless of how many bytes are sent.
+	 * @param length_ the number of bytes to append
+	 * @throws IllegalStateException if the buffer already holds real data
+	 */
+	void appendVirtual(long length_) {
+		if (!virtual && size > 0) {
+			throw new IllegalStateException(
+				"tcp.SendBuffer.appendVirtual(): cannot mix virtual and real data"
+			);
+		}
+		virtual = true;
+		size += length_;
+	}
+
+	/**
+	 * Appends the remaining data of the given buffer at the end of this buffer.
+	 * The position of the given buffer is advanced to its limit.
+	 * @param data_ the buffer holding the new data
+	 */
+	void append(ByteBuffer data_) {
+		checkNotVirtual();
+		while (data_.hasRemaining()) {
+			int offset_ = tailOffset();
+			int length_ = Math.min(data_.remaining(), blockSize - offset_);
+			data_.get(tailBlock(), offset_, length_);
+			size += length_;
+		}
+	}
+
+	/**
+	 * Appends the given data at the end of the buffer.
+	 * @param data_ the array holding the new data
+	 * @param offset_ the offset in the array of the first byte to append
+	 * @param length_ the number of bytes to append
+	 */
+	void append(byte[] data_, int offset_, int length_) {
+		checkNotVirtual();
+		while (length_ > 0) {
+			int tailOffset_ = tailOffset();
+			int part_ = Math.min(length_, blockSize - tailOffset_);
+			System.arraycopy(data_, offset_, tailBlock(), tailOffset_, part_);
+			size += part_;
+			offset_ += part_;
+			length_ -= part_;
+		}
+	}
+
+	/**
+	 * Appends at most the given number of bytes read from the given channel
+	 * (e.g., a streaming application source) at the end of the buffer.
+	 * The bytes are read directly into the blocks of this buffer.
+	 * Fewer bytes are appended if the channel has no more bytes available.
+	 * @param source_ the channel from which the new data are read
+	 * @param maxLength_ the maximum number of bytes to append
+	 * @return the number of bytes appended, or <code>-1</code> if the channel
+	 * reached the end of stream before any bytes were appended
+	 * @throws IOException if the channel cannot be read
+	 */
+	int appendFrom(ReadableByteChannel source_, int maxLength_) throws IOException {
+		checkNotVirtual();
+		int appended_ = 0;
+		while (appended_ < maxLength_) {
+			int offset_ = tailOffset();
+			int length_ = Math.min(maxLength_ - appended_, blockSize - offset_);
+			int read_ = source_.read(ByteBuffer.wrap(tailBlock(), offset_, length_));
+			if (read_ < 0) {
+				return (appended_ > 0) ? appended_ : -1;	// end of stream
+			} else if (read_ == 0) {
+				break;	// no more bytes available now
+			}
+			size += read_;
+			appended_ += read_;
+		}
+		return appended_;
+	}
+
+	/**
+	 * Returns a read-only view of the buffered data starting at the given
+	 * sequence number, for either a new or a retransmitted segment.
+	 * No data are copied, unless the requested bytes span two blocks.
+	 * The data stay in the buffer until they are released by an acknowledgment.
+	 * @param sequenceNumber_ the sequence number of the first byte of the view
+	 * @param length_ the number of bytes in the view
+	 * @return the view, whose position is zero and whose limit is <code>length_</code>,
+	 * or <code>null</code> in the "virtual data" mode
+	 * @throws IndexOutOfBoundsException if the requested bytes are not in the buffer
+	 */
+	ByteBuffer slice(long sequenceNumber_, int length_) {
+		long from_ = checkRange(sequenceNumber_, length_) + headOffset;
+		if (virtual) {
+			return null;
+		}
+		int offset_ = (int) (from_ % blockSize);
+		if (offset_ + length_ <= blockSize) {
+			byte[] block_ = blocks[(headBlock + (int) (from_ / blockSize)) % blocks.length];
+			return ByteBuffer.wrap(block_, offset_, length_).slice().asReadOnlyBuffer();
+		}
+		// The bytes span two or more blocks, so they must be copied:
+		byte[] copy_ = new byte[length_];
+		read(sequenceNumber_, copy_, 0, length_);
+		return ByteBuffer.wrap(copy_).asReadOnlyBuffer();
+	}
+
+	/**
+	 * Copies the buffered data starting at the given sequence number.
+	 * The data stay in the buffer until they are released by an acknowledgment.
+	 * @param sequenceNumber_ the sequence number of the first byte to read
+	 * @param destination_ the array into which the data are copied
+	 * @param offset_ the offset in the destination array
+	 * @param length_ the number of bytes to read
+	 * @throws IndexOutOfBoundsException if the requested bytes are not in the buffer
+	 */
+	void read(long sequenceNumber_, byte[] destination_, int offset_, int length_) {
+		checkNotVirtual();
+		long from_ = checkRange(sequenceNumber_, length_) + headOffset;
+		while (length_ > 0) {
+			byte[] block_ = blocks[(headBlock + (int) (from_ / blockSize)) % blocks.length];
+			int blockOffset_ = (int) (from_ % blockSize);
+			int part_ = Math.min(length_, blockSize - blockOffset_);
+			System.arraycopy(block_, blockOffset_, destination_, offset_, part_);
+			from_ += part_;
+			offset_ += part_;
+			length_ -= part_;
+		}
+	}
+
+	/**
+	 * Releases the data acknowledged by a cumulative acknowledgment,
+	 * i.e., all the bytes whose sequence number is less than the given one.
+	 * Nothing is copied; the blocks whose data are all released
+	 * are dropped from the buffer.
+	 * @param ackSequenceNumber_ the sequence number of the next byte expected by the receiver
+	 */
+	void release(long ackSequenceNumber_) {
+		long released_ = Math.min(ackSequenceNumber_ - firstSequenceNumber, size);
+		if (released_ <= 0) {
+			return;	// an old acknowledgment, nothing to release
+		}
+		size -= released_;
+		firstSequenceNumber += released_;
+		if (virtual) {
+			return;	// no blocks to drop
+		}
+		long headOffset_ = headOffset + released_;
+
+		// Drop the blocks that hold only the released data. Note that the
+		// last block is kept if it has room for more data, even if it is empty.
+		for (long i_ = headOffset_ / blockSize; i_ > 0; i_--) {
+			blocks[headBlock] = null;	// the segments may still hold views of it
+			headBlock = (headBlock + 1) % blocks.length;
+			blockCount--;
+		}
+		headOffset = (int) (headOffset_ % blockSize);
+	}
+
+	/**
+	 * Helper method to check that the given bytes are in the buffer.
+	 * @return the offset of the first byte, relative to the first sequence number
+	 * @throws IndexOutOfBoundsException if the requested bytes are not in the buffer
+	 */
+	private long checkRange(long sequenceNumber_, int length_) {
+		long from_ = sequenceNumber_ - firstSequenceNumber;
+		if (from_ < 0 || length_ < 0 || from_ + length_ > size) {
+			throw new IndexOutOfBoundsException(
+				"bytes " + sequenceNumber_ + ".." + (sequenceNumber_ + length_ - 1) +
+				" are not in the send buffer [" + firstSequenceNumber + ".." +
+				(getEndSequenceNumber() - 1) + "]"
+			);
+		}
+		return from_;
+	}
+
+	/**
+	 * Helper method to check that the buffer holds real data.
+	 * @throws IllegalStateException if the buffer is in the "virtual data" mode
+	 */
+	private void checkNotVirtual() {
+		if (virtual) {
+			throw new IllegalStateException(
+				"tcp.SendBuffer: no data in the virtual data mode"
+			);
+		}
+	}
+
+	/**
+	 * Helper method to return the offset, within the last block,
+	 * at which the next appended byte will be stored.
+	 */
+	private int tailOffset() {
+		return (int) ((headOffset + size) % blockSize);
+	}
+
+	/**
+	 * Helper method to return the last block, which has room for the next
+	 * appended byte. If the last block is full, a new empty block is added
+	 * at the end of the buffer; if the ring of blocks is full, it is doubled,
+	 * and the block references are "unwrapped" to the beginning of the new ring.
+	 */
+	private byte[] tailBlock() {
+		int index_ = (int) ((headOffset + size) / blockSize);	// relative to the head block
+		if (index_ == blockCount) {
+			if (blockCount == blocks.length) {
+				byte[][] newBlocks_ = new byte[blocks.length * 2][];
+				for (int i_ = 0; i_ < blockCount; i_++) {
+					newBlocks_[i_] = blocks[(headBlock + i_) % blocks.length];
+				}
+				blocks = newBlocks_;
+				headBlock = 0;
+			}
+			blocks[(headBlock + blockCount) % blocks.length] = new byte[blockSize];
+			blockCount++;
+		}
+		return blocks[(headBlock + index_) % blocks.length];
+	}
+}
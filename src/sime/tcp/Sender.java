@@ -7,12 +7,16 @@
 
 package sime.tcp;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
 
 import sime.Endpoint;
+import sime.Reporting;
 import sime.Simulator;
 import sime.TimedComponent;
 import sime.TimerSimulated;
+import sime.TraceRecorder;
 
 /**
  * The base class for a TCP sender protocol module.<BR>
@@ -36,29 +40,56 @@ import sime.TimerSimulated;
  * @see SenderTahoe
  * @see SenderReno
  * @see SenderNewReno
+ * @see SenderSACK
+ * @see SenderBBR
  * @author Ivan Marsic
  */
 public abstract class Sender implements TimedComponent {
-	/** Maximum segment size, in bytes. Same for both sending/receiving endpoints. */
-	public static final int MSS = 1024;
+	/** The default maximum segment size, in bytes.
+	 * The actual MSS is negotiated per connection, see {@link #mss}. */
+	public static final int DEFAULT_MSS = 1024;
+
+	/** The size of one block of the send buffer {@link #bytestream},
+	 * in full-sized segments, so that the segments are views of a single block. */
+	static final int SEND_BUFFER_BLOCK_SEGMENTS = 64;
+
+	/** Maximum segment size of this connection, in bytes.
+	 * It is negotiated when the connection is established, as the smaller
+	 * of the MSS of the local endpoint and the MSS advertised by
+	 * the remote endpoint (see {@link #setMSS(int)}).
+	 * (Note the package visibility, needed for the TCPSenderState object
+	 * to access this attribute.) */
+	int mss = DEFAULT_MSS;
 
 	/** Local endpoint that contains this sender object. */
 	Endpoint localEndpoint = null;
 
+	/** The reporting configuration of the simulator, for debugging purposes. */
+	Reporting reporting = null;
+
 	/**
 	 * TCP bytestream to send to the receiver endpoint.
+	 * Holds the data from the oldest unacknowledged byte
+	 * to the last byte handed to the sender by the application.
 	 */
-	protected java.nio.ByteBuffer bytestream = null;
+	protected SendBuffer bytestream = null;
+
+	/**
+	 * Streaming application source, if any, from which the data
+	 * are pulled into the {@link #bytestream} lazily, as the window opens.
+	 * @see #setSource(ReadableByteChannel)
+	 */
+	protected ReadableByteChannel source = null;
 
  	/** Pointer to the last byte sent so far.
 	 * Recall that the bytes are numbered from zero, so the sequence
 	 * number of the first byte is zero, etc. */
- 	protected int lastByteSent = -1;
+ 	protected long lastByteSent = -1;
 
  	/** Pointer to the last byte ACKed so far.
  	 * Recall that the bytes are numbered from zero, so the sequence
 	 * number of the first byte is zero, etc. */
- 	protected int lastByteAcked = -1;
+ 	protected long lastByteAcked = -1;
 
  	/** Pointer to the last byte sent {@link #lastByteSent}
  	 * at the time when {@link #dupACKthreshold} duplicate acknowledgments
@@ -73,7 +104,7 @@ public abstract class Sender implements TimedComponent {
  	 * (Recall that a Go-Back-N protocol would
  	 * now re-transmit all outstanding data.)
  	 */
- 	protected int lastByteSentBefore3xDupAcksRecvd = -1;
+ 	protected long lastByteSentBefore3xDupAcksRecvd = -1;
 
  	/** Sender's current state. */
  	protected SenderState currentState = null;
@@ -81,7 +112,7 @@ public abstract class Sender implements TimedComponent {
  	/** Current congestion window size, in bytes.
      * (Note the package visibility, needed for the TCPSenderState object
      * to access and modify this attribute.) */
- 	int congWindow = MSS;
+ 	int congWindow = mss;
 
  	/** The Slow-Start threshold is a dynamically-set value indicating
 	 * an upper bound on the congestion window above which a
@@ -105,12 +136,12 @@ public abstract class Sender implements TimedComponent {
  	 * When all outstanding segments are acknowledged, the timer is
  	 * deactivated.  When a <i>regular</i> acknowledgment is received
  	 * <b>and</b> there are still outstanding, non-acknowledged segments,
- 	 * the timer should be <b>re-started</b>. */
+ 	 * the timer should be <b>re-started</b>.</p>
+ 	 * 
+ 	 * <p>The timer is re-armed in place, so whether it is running
+ 	 * is given by {@link TimerSimulated#isRunning()}. */
  	TimerSimulated rtoTimer = null;
 
- 	/** Handle to a running RTO timer ({@link #rtoTimer}), so it can be canceled, if needed. */
- 	protected TimerSimulated rtoTimerHandle = null;
-
  	/**
  	 * This is a TCP connection "inactivity-timeout" timer.
  	 * Both <a href="http://www.apps.ietf.org/rfc/rfc2581.html" target="page">RFC 2581</a>
@@ -125,9 +156,38 @@ public abstract class Sender implements TimedComponent {
  	 */
  	TimerSimulated idleConnectionTimer = null;
 
- 	/** Handle to a running "idle-connection" timer ({@link #idleConnectionTimer}),
- 	 * so it can be canceled, if needed. */
- 	protected TimerSimulated idleConnectionTimerHandle = null;
+ 	/** The pacing gain in the slow start: {@value}. The pacing rate is set
+ 	 * to twice the current window per RTT, so that the window can double
+ 	 * in one RTT, as in the slow start of Linux TCP. */
+ 	static final double PACING_GAIN_SLOW_START = 2.0;
+
+ 	/** The pacing gain in the congestion avoidance: {@value}. The pacing rate
+ 	 * is set slightly above the current window per RTT, so that the pacing
+ 	 * does not hold back the growth of the window. */
+ 	static final double PACING_GAIN_CONGESTION_AVOIDANCE = 1.2;
+
+ 	/** Indicates whether the sender paces its segments,
+ 	 * see {@link #setPacing(boolean)}. */
+ 	protected boolean pacing = false;
+
+ 	/** The pacing rate, in bytes per simulation time unit
+ 	 * (see {@link Simulator#TIME_UNITS_PER_TICK}), or zero if the sender
+ 	 * does not pace its segments (the default).</p>
+ 	 * 
+ 	 * <p>Without pacing, the sender transmits as many segments as its window
+ 	 * allows in one back-to-back burst, which may overflow the router buffer
+ 	 * even if the window is not larger than the path can hold.
+ 	 * A paced sender transmits one segment at a time, spaced by
+ 	 * the segment length divided by this rate (see {@link #pacingTimer}). */
+ 	protected double pacingRate = 0.0;
+
+ 	/** The earliest time when a paced sender may transmit its next segment,
+ 	 * in the simulation time units. */
+ 	protected long nextSendTime = 0L;
+
+ 	/** The pacing timer, which signals that a paced sender
+ 	 * may transmit its next segment (see {@link #pacingRate}). */
+ 	TimerSimulated pacingTimer = null;
 
  	/** The threshold number of duplicate acknowledgments after which
  	 * the TCP sender will assume that the oldest outstanding segment
@@ -144,61 +204,99 @@ public abstract class Sender implements TimedComponent {
  	 * that the oldest unacknowledged segment is lost and needs to be retransmitted. */
  	protected int dupACKcount = 0;
 
- 	/** Last advertised size of the currently available space in the receiver's buffer. */
+	/** Indicates whether the sender performs the <i>Limited Transmit</i>
+	 * of <a href="http://tools.ietf.org/html/rfc3042" target="page">RFC 3042</a>
+	 * (see {@link #setLimitedTransmit(boolean)}); OFF by default. */
+	protected boolean limitedTransmit = false;
+
+	/** The number of bytes that the sender may send beyond its congestion window
+	 * on the duplicate ACKs below the threshold, by the Limited Transmit.
+	 * It is set by the sender's state object, see {@link SenderState#handleDupACK(Segment)}. */
+	int limitedTransmitWindow = 0;
+
+ 	/** Last advertised size of the currently available space in the receiver's buffer,
+ 	 * in bytes, i.e., already scaled by {@link #windowScale}. */
  	protected int rcvWindow = 65536;	// assume default as 65536 bytes
 
+ 	/** The shift count of the window scale option that the remote receiver
+ 	 * sent when the connection was established, or zero if the window is not scaled.
+ 	 * @see #setWindowScale(int) */
+ 	protected int windowScale = 0;
+
  	/**
  	 * Base class constructor; not public.
  	 */
  	protected Sender(Endpoint localTCPendpoint_) {
 		this.localEndpoint = localTCPendpoint_;
+		this.reporting = localEndpoint.getSimulator().getReporting();
 
 		// Initialize the buffer stream; to be grown as needed
-		bytestream = ByteBuffer.allocate(MSS);
+		bytestream = new SendBuffer(SEND_BUFFER_BLOCK_SEGMENTS * mss, lastByteAcked + 1);
 
 		// start the retransmission timeout (RTO) estimation
 		rtoEstimator = new RTOEstimator(
-			localEndpoint.getSimulator().getTimeIncrement()
+			localEndpoint.getSimulator().getTimeIncrement(), reporting
 		);
 
 		// create the RTO timer but do not start it up
 		// because initially there are no outstanding segments
 		rtoTimer = new TimerSimulated(
-			this, 1 /* type equals "1" */, 0.0 /* inactive */
+			this, 1 /* type equals "1" */, 0L /* inactive */
 		);
 
 		// create the inactivity timer, to be started
 		// if the sender becomes idle
 		idleConnectionTimer = new TimerSimulated(
-			this, 2 /* type equals "2" */, 0.0 /* inactive */
+			this, 2 /* type equals "2" */, 0L /* inactive */
+		);
+
+		// create the pacing timer, to be started
+		// only if the sender paces its segments
+		pacingTimer = new TimerSimulated(
+			this, 3 /* type equals "3" */, 0L /* inactive */
 		);
  	}
  
 	/**
 	 * Callback method to call when a simulated timer expires. <BR>
-	 * Currently, TCP Sender sets two types of timers:<BR>
+	 * Currently, TCP Sender sets three types of timers:<BR>
 	 * &bull; retransmission (RTO) timer ({@link #rtoTimer}), set as type "<tt>1</tt>"<BR>
-	 * &bull; inactivity-timeout timer ({@link #idleConnectionTimer}), set as type "<tt>2</tt>"
+	 * &bull; inactivity-timeout timer ({@link #idleConnectionTimer}), set as type "<tt>2</tt>"<BR>
+	 * &bull; pacing timer ({@link #pacingTimer}), set as type "<tt>3</tt>"
 	 * </p>
 	 * 
 	 * <p>In case of an expired RTO timer, this method will ask
 	 * the current state object to handle the expired-timer event
 	 * which, in turn, will call {@link #onExpiredRTOtimer}
 	 * 
-	 * @param timerType_ the type of the timer that expired ({@link #rtoTimer} or {@link #idleConnectionTimer})
+	 * @param timerType_ the type of the timer that expired ({@link #rtoTimer}, {@link #idleConnectionTimer}, or {@link #pacingTimer})
 	 * @see TimedComponent
 	 */
 	@Override
 	public void timerExpired(int timerType_) {
+		if (timerType_ == 3) {
+			// The pacing timer is not a timeout, so it is not traced;
+			// simply send the next segment, if the window still allows:
+			send(null);
+			return;
+		}
+
+		SenderState previousState_ = currentState;
+		if (reporting.trace != null) {
+			reporting.trace.record(
+				TraceRecorder.TIMEOUT, localEndpoint.getSimulator().getCurrentTime(),
+				localEndpoint.getTraceId(), timerType_, -1L, -1L
+			);
+		}
+
 		if (timerType_ == 1) {
 			if (
-				(Simulator.currentReportingLevel  & Simulator.REPORTING_SENDERS) != 0
+				(reporting.level & Simulator.REPORTING_SENDERS) != 0
 			) {
-				System.out.println(" ***** RTO timer timeout! *****");
+				reporting.out.println(" ***** RTO timer timeout! *****");
 			}
 	
 			// If RTO timeout occurred, handle it:
-			rtoTimerHandle = null;	// clear the timer handle
 			// Send out the oldest unacknowledged segment, assuming that
 			// all TCP senders react in the same way to an RTO timeout
 	
@@ -206,19 +304,24 @@ public abstract class Sender implements TimedComponent {
 			currentState = currentState.handleRTOtimeout(
 				getOldestUnacknowledgedSegment()
 			);
+			if (pacing) {
+				updatePacingRate();
+			}
 		} else if (timerType_ == 2) {
 			if (
-				(Simulator.currentReportingLevel  & Simulator.REPORTING_SENDERS) != 0
+				(reporting.level & Simulator.REPORTING_SENDERS) != 0
 			) {
-				System.out.println(" %%%%% Idle-connection timer timeout! %%%%%");
+				reporting.out.println(" %%%%% Idle-connection timer timeout! %%%%%");
 			}
 
 			// If idle-connection timeout occurred, handle it:
-			idleConnectionTimerHandle = null;	// clear the timer handle
 			// Reset the sender to begin in the slow-start state
 			resetParametersToSlowStart();
 			currentState = currentState.slowStartState;
 		}
+		if (reporting.trace != null && currentState != previousState_) {
+			traceStateChange();
+		}
 	} //TODO: Else ????
 
 	/**
@@ -227,24 +330,23 @@ public abstract class Sender implements TimedComponent {
 	 * @see #rtoTimer
 	 */
 	void startRTOtimer() {
-		// if this timer is already running, cancel it first
-		if (rtoTimerHandle != null) {
-			cancelRTOtimer();
-		}
-
-		// Set the future time to fire the RTO timer.
-		rtoTimer.setTime(localEndpoint.getSimulator().getCurrentTime() + rtoEstimator.getTimeoutInterval());
+		// Set the future time to fire the RTO timer;
+		// if this timer is already running, it is re-armed in place.
 		try {
-			rtoTimerHandle = localEndpoint.getSimulator().setTimeoutAt(rtoTimer);
+			localEndpoint.getSimulator().rearmTimeoutAt(
+				rtoTimer,
+				localEndpoint.getSimulator().getCurrentTime() + rtoEstimator.getTimeoutInterval()
+			);
 		} catch (Exception ex) {
 			ex.printStackTrace();
 		}
 
 		if (
-			(Simulator.currentReportingLevel  & Simulator.REPORTING_SENDERS) != 0
+			(reporting.level & Simulator.REPORTING_SENDERS) != 0
 		) {
-			System.out.println(
-				"\t^^^^^^^ RTO Timer started;  will expire at the _start_ of RTT #" + (int)rtoTimer.getTime()
+			reporting.out.println(
+				"\t^^^^^^^ RTO Timer started;  will expire at time " +
+				Simulator.timeToTicks(rtoTimer.getTime())
 			);
 		}
 	}
@@ -255,14 +357,7 @@ public abstract class Sender implements TimedComponent {
 	 * more unacknowledged segments.
 	 */
 	void cancelRTOtimer() {
-		if (rtoTimerHandle != null) {
-			try {
-				localEndpoint.getSimulator().cancelTimeout(rtoTimerHandle);
-			} catch (Exception ex) {
-				ex.printStackTrace();
-			}
-			rtoTimerHandle = null;	// clear the timer handle
-		}
+		localEndpoint.getSimulator().disarmTimeout(rtoTimer);
 	}
 
 	/**
@@ -276,17 +371,38 @@ public abstract class Sender implements TimedComponent {
 		// Do nothing if this timer is already running
 		// or the sender is still not done:
 		if (
-			(idleConnectionTimerHandle != null) ||
+			idleConnectionTimer.isRunning() ||
 			(lastByteAcked < lastByteSent)
 		) {
 			return;
 		}
 
 		// Set the future time to fire the inactivity-timeout timer.
-		idleConnectionTimer.setTime(localEndpoint.getSimulator().getCurrentTime() + rtoEstimator.getTimeoutInterval());
 		try {
-			idleConnectionTimerHandle =
-				localEndpoint.getSimulator().setTimeoutAt(idleConnectionTimer);
+			localEndpoint.getSimulator().rearmTimeoutAt(
+				idleConnectionTimer,
+				localEndpoint.getSimulator().getCurrentTime() + rtoEstimator.getTimeoutInterval()
+			);
+		} catch (Exception ex) {
+			ex.printStackTrace();
+		}
+	}
+
+	/**
+	 * Helper method to start up the pacing timer countdown, so that
+	 * a paced sender resumes sending at {@link #nextSendTime}.
+	 * Does nothing if this timer is already running.
+	 * @see #pacingRate
+	 */
+	void startPacingTimer() {
+		if (pacingTimer.isRunning()) {
+			return;
+		}
+		try {
+			localEndpoint.getSimulator().rearmTimeoutAt(
+				pacingTimer,
+				Math.max(nextSendTime, localEndpoint.getSimulator().getCurrentTime())
+			);
 		} catch (Exception ex) {
 			ex.printStackTrace();
 		}
@@ -295,22 +411,236 @@ public abstract class Sender implements TimedComponent {
 	/**
 	 * Helper method, called on the expired retransmission timeout (RTO) timer
 	 * from the sender's current state object  {@link SenderState#handleRTOtimeout}.
-	 * Works slightly differently for different types of TCP senders (Tahoe, Reno, etc.).
+	 * Works slightly differently for different types of TCP senders (Tahoe, Reno, etc.).<BR>
+	 * This method is a part of the congestion control SPI (see {@link CongestionControl}),
+	 * so a sender outside this package may override it, usually calling
+	 * the inherited method of {@link SenderReno} and adjusting its own parameters.
 	 * 
 	 *  @see SenderState
 	 */
-	abstract void onExpiredRTOtimer();
+	protected abstract void onExpiredRTOtimer();
 
 	/**
 	 * Helper method, called on threshold number of duplicate ACKs.
 	 * Works differently for different types of TCP senders (Tahoe, Reno, etc.).<BR>
 	 * Note that the threshold number can be modified, see the
 	 * attribute {@link #dupACKthreshold}, but this method is named
-	 * after the commonly used value of <tt>3</tt> dupACKs.
+	 * after the commonly used value of <tt>3</tt> dupACKs.<BR>
+	 * Like {@link #onExpiredRTOtimer()}, this method is a part of the congestion
+	 * control SPI (see {@link CongestionControl}).
 	 * 
 	 *   @see SenderState
 	 */
-	abstract void onThreeDuplicateACKs();
+	protected abstract void onThreeDuplicateACKs();
+
+	/**
+	 * Returns the maximum segment size of this connection, in bytes.
+	 */
+	public int getMSS() {
+		return mss;
+	}
+
+	/**
+	 * Returns the current congestion window size, in bytes.
+	 */
+	public int getCongWindow() {
+		return congWindow;
+	}
+
+	/**
+	 * Returns the current slow start threshold, in bytes.
+	 */
+	public int getSSThresh() {
+		return SSThresh;
+	}
+
+	/**
+	 * Returns the flight size, i.e., the number of bytes
+	 * sent but not yet acknowledged.
+	 */
+	public int getFlightSize() {
+		return (int) (lastByteSent - lastByteAcked);
+	}
+
+	/**
+	 * Returns the smoothed RTT of this connection (in the simulation time
+	 * units), or zero if no RTT was measured yet (see {@link RTOEstimator#getSmoothedRTT()}).
+	 */
+	public long getSmoothedRTT() {
+		return rtoEstimator.getSmoothedRTT();
+	}
+
+	/**
+	 * Returns the smallest RTT measured on this connection (in the simulation time
+	 * units), or zero if no RTT was measured yet (see {@link RTOEstimator#getMinRTT()}).
+	 */
+	public long getMinRTT() {
+		return rtoEstimator.getMinRTT();
+	}
+
+	/**
+	 * Sets the maximum segment size negotiated for this connection,
+	 * like the MSS options of the SYN segments do (see
+	 * <a href="http://tools.ietf.org/html/rfc879" target="page">RFC 879</a>).
+	 * The congestion window is reset to one segment of the new size.
+	 * Because the segments are cut from the bytestream in the units of MSS,
+	 * this can be done only before any data are sent.
+	 * 
+	 * @param mss_ the maximum segment size, in bytes
+	 * @throws IllegalStateException if some data were already sent
+	 */
+	public void setMSS(int mss_) {
+		if (lastByteSent >= 0 || bytestream.size() > 0) {
+			throw new IllegalStateException(
+				"tcp.Sender.setMSS(): the MSS cannot change after the data were handed over"
+			);
+		}
+		this.mss = mss_;
+		this.congWindow = mss_;
+		bytestream = new SendBuffer(SEND_BUFFER_BLOCK_SEGMENTS * mss_, lastByteAcked + 1);
+	}
+
+	/**
+	 * Sets the shift count of the window scale option negotiated for
+	 * this connection, as specified in
+	 * <a href="http://tools.ietf.org/html/rfc7323" target="page">RFC 7323</a>:
+	 * the <em>Window</em> field of every acknowledgment is shifted left by
+	 * this count to obtain the receive window, in bytes. Thus, the sender may
+	 * have more than 64 KBytes in flight, e.g., on a long-fat network.
+	 * Like the option itself, this can be done only before any data are sent.
+	 * 
+	 * @param windowScale_ the shift count, from zero to {@link Segment#MAX_WINDOW_SCALE}
+	 * @throws IllegalStateException if some data were already sent
+	 */
+	public void setWindowScale(int windowScale_) {
+		if (lastByteSent >= 0) {
+			throw new IllegalStateException(
+				"tcp.Sender.setWindowScale(): the window scale cannot change after the data were sent"
+			);
+		}
+		this.windowScale = windowScale_;
+	}
+
+	/**
+	 * Turns the pacing of the segments ON or OFF (it is OFF by default).
+	 * A paced sender does not transmit its window in a back-to-back burst,
+	 * but spreads the segments over the RTT, at the rate of
+	 * <pre>
+	 * PacingRate = gain &times; CongWin / SmoothedRTT
+	 * </pre>
+	 * where the gain is {@link #PACING_GAIN_SLOW_START} in the slow start
+	 * and {@link #PACING_GAIN_CONGESTION_AVOIDANCE} otherwise, and the smoothed RTT is
+	 * given by {@link RTOEstimator#getSmoothedRTT()}. The rate is updated after
+	 * every ACK and RTO timeout, see {@link #updatePacingRate()}.
+	 * 
+	 * @param pacing_ <code>true</code> to pace the segments, <code>false</code> to send them in bursts
+	 */
+	public void setPacing(boolean pacing_) {
+		this.pacing = pacing_;
+		if (pacing_) {
+			updatePacingRate();
+		} else {
+			pacingRate = 0.0;
+			localEndpoint.getSimulator().disarmTimeout(pacingTimer);
+		}
+	}
+
+	/**
+	 * Turns the <i>Limited Transmit</i> of
+	 * <a href="http://tools.ietf.org/html/rfc3042" target="page">RFC 3042</a>
+	 * ON or OFF (it is OFF by default). With the Limited Transmit, the sender sends
+	 * one new segment on each of the first two duplicate ACKs, if the receive
+	 * window allows, even though the congestion window is full. Thus, a sender with
+	 * a small window, which has too few segments in flight for the receiver to
+	 * generate {@link #dupACKthreshold} dupACKs after a loss, still gets to
+	 * the fast retransmit, rather than waiting for the RTO timeout.
+	 * The congestion window itself is not changed.</p>
+	 * 
+	 * <p>Note that when the router buffer is already full, the segments sent
+	 * on the dupACKs may be lost as well, so the Limited Transmit
+	 * does not always help in our simulator (see {@link sime.Endpoint#LIMITED_TRANSMIT_SUFFIX}).
+	 * 
+	 * @param limitedTransmit_ <code>true</code> to perform the Limited Transmit, <code>false</code> otherwise
+	 */
+	public void setLimitedTransmit(boolean limitedTransmit_) {
+		this.limitedTransmit = limitedTransmit_;
+		if (!limitedTransmit_) {
+			limitedTransmitWindow = 0;
+		}
+	}
+
+	/**
+	 * Selects the fast recovery of this sender: with the <i>Proportional Rate
+	 * Reduction</i> of <a href="http://tools.ietf.org/html/rfc6937" target="page">RFC 6937</a>
+	 * (see {@link SenderStatePRR}), or the plain fast recovery with the window
+	 * inflation (see {@link SenderStateFastRecovery}), which is the default.
+	 * Only the senders with the plain fast recovery, i.e., Reno and its descendants
+	 * without SACK, can use the PRR.</p>
+	 *
+	 * <p>The slow start and the congestion avoidance states are rewired to
+	 * the new recovery state, so this cannot be done during a loss recovery.
+	 *
+	 * @param prr_ <code>true</code> to recover with PRR, <code>false</code> for the plain fast recovery
+	 * @throws IllegalStateException if this sender has no plain fast recovery,
+	 * or if it is in the fast recovery now
+	 */
+	public void setProportionalRateReduction(boolean prr_) {
+		SenderState slowStartState_ = currentState.slowStartState;
+		SenderState congestionAvoidanceState_ = slowStartState_.congestionAvoidanceState;
+		SenderState recoveryState_ = slowStartState_.after3xDupACKstate;
+		if (
+			!(recoveryState_ instanceof SenderStateFastRecovery) ||
+			(recoveryState_ instanceof SenderStateSACKRecovery)
+		) {
+			throw new IllegalStateException(
+				"The PRR applies only to the senders with the plain fast recovery!"
+			);
+		}
+		if (currentState == recoveryState_) {
+			throw new IllegalStateException(
+				"The fast recovery cannot be changed during a loss recovery!"
+			);
+		}
+		if (prr_ == (recoveryState_ instanceof SenderStatePRR)) {
+			return;	// already selected
+		}
+		if (prr_) {
+			recoveryState_ = new SenderStatePRR(
+				this, slowStartState_, congestionAvoidanceState_
+			);
+		} else {
+			recoveryState_ = new SenderStateFastRecovery(
+				this, slowStartState_, congestionAvoidanceState_
+			);
+		}
+		slowStartState_.after3xDupACKstate = recoveryState_;
+		congestionAvoidanceState_.after3xDupACKstate = recoveryState_;
+	}
+
+	/**
+	 * Helper method to set the pacing rate {@link #pacingRate} of a paced sender,
+	 * from the congestion window and the smoothed RTT (see {@link #setPacing(boolean)}).
+	 * Before the RTT is measured, it is assumed to be one clock tick.
+	 * A sender with another pacing policy, such as {@link SenderBBR}, overrides this method.
+	 */
+	void updatePacingRate() {
+		long rtt_ = rtoEstimator.getSmoothedRTT();
+		if (rtt_ <= 0L) {
+			rtt_ = localEndpoint.getSimulator().getTimeIncrement();
+		}
+		double gain_ = (congWindow < SSThresh) ?
+			PACING_GAIN_SLOW_START : PACING_GAIN_CONGESTION_AVOIDANCE;
+		pacingRate = gain_ * congWindow / rtt_;
+
+		// The segments sent at a lower rate, e.g., the retransmissions
+		// after a timeout, hold back the next one by at most one interval at the new rate:
+		long now_ = localEndpoint.getSimulator().getCurrentTime();
+		long latest_ = now_ + (long) Math.ceil(mss / pacingRate);
+		if (nextSendTime > latest_) {
+			nextSendTime = latest_;
+			localEndpoint.getSimulator().disarmTimeout(pacingTimer);
+		}
+	}
 
 	/**
 	 * Accessor for retrieving the statistics of the total number
@@ -320,7 +650,7 @@ public abstract class Sender implements TimedComponent {
  	 * 
 	 * @return Returns the cumulative number of bytes <i>successfully</i> transmitted thus far.
 	 */
-	public int getTotalBytesTransmitted() {
+	public long getTotalBytesTransmitted() {
 		// NOTE: This assumes that the very first byte in the entire session
 		// had the sequence number assigned as equal to _zero_ !!
 		return (lastByteAcked + 1);
@@ -332,24 +662,28 @@ public abstract class Sender implements TimedComponent {
 	 * @return Returns the oldest currently unacknowledged segment.
 	 */
 	Segment getOldestUnacknowledgedSegment() {
-		// Extract the oldest segment segment from the input bytestream
-		int currentPosition_ = bytestream.position();
-		// Shouldn't the current position be <code>lastByteSent</code> ?!?!?
-
-		// bring the buffer position backward to the "last byte acknowledged"
-		bytestream.position(currentPosition_ - (lastByteSent - lastByteAcked));
-
-		byte[] segment_ = new byte[MSS];
-		bytestream.get(segment_, 0, segment_.length);
-
-		// bring the buffer position forward to the "last byte sent"
-		bytestream.position(currentPosition_);
-
 		// The oldest unacknowledged segment will be sent from the current state object
-		return new Segment(
+		return createDataSegment(lastByteAcked + 1);
+	}
+
+	/**
+	 * Helper method to create a full-sized data segment
+	 * from the input bytestream, for either a new or a retransmitted segment.
+	 * The payload of the segment is a view of the bytestream;
+	 * the data remain buffered until they are acknowledged.
+	 * In the "virtual data" mode, the segment has no payload but
+	 * only its length.
+	 * @param seqNum_ the sequence number of the segment's first byte
+	 * @return Returns the new data segment.
+	 */
+	Segment createDataSegment(long seqNum_) {
+		Segment segment_ = new Segment(
 			localEndpoint.getRemoteTCPendpoint(),
-			localEndpoint.getLocalRcvWindow(), lastByteAcked + 1, segment_
+			localEndpoint.getLocalRcvWindow(), seqNum_, bytestream.slice(seqNum_, mss)
 		);
+		segment_.length = mss;	// also in the virtual data mode, without a payload
+		segment_.mss = mss;
+		return segment_;
 	}
 
 	/**
@@ -361,106 +695,160 @@ public abstract class Sender implements TimedComponent {
  	 * sending parameters will be set, that are used in this
  	 * <code>send()</code> method.
  	 * 
- 	 * @param newData_ The new message to send
+ 	 * @param newData_ The new message to send (its remaining bytes), or <code>null</code>
  	 */
- 	public void send(byte[] newData_) {
- 		if (newData_ == null && !bytestream.hasRemaining()) {
- 			System.out.println("tcp.Sender.send():  Input bytestream empty -- nothing left to send");
+ 	public void send(ByteBuffer newData_) {
+ 		// The number of bytes in the buffer that were not sent yet:
+ 		long unsent_ = bytestream.getEndSequenceNumber() - (lastByteSent + 1);
+ 		// Pull more data from the streaming source (if any), as the window allows
+ 		if (source != null) {
+ 			unsent_ += pullFromSource(unsent_);
+ 		}
+
+ 		if (newData_ == null && unsent_ <= 0) {
+ 			if (
+ 				(reporting.level & Simulator.REPORTING_SENDERS) != 0
+ 			) {
+ 				reporting.out.println("tcp.Sender.send():  Input bytestream empty -- nothing left to send");
+ 			}
 
  			startIdleConnectionTimer();
  			return;		// Bail out -- there is NO data to send ...
  		}				// ... so, wait until the next invocation
 
- 		// Enlarge the existing bytestream (if any) and add to it the new data
+ 		// Append the new data (if any) to the existing bytestream
  		if (newData_ != null) {
  			// Cancel the inactivity-timeout timer if it's running:
- 			if (idleConnectionTimerHandle != null) {
- 				try {
- 					localEndpoint.getSimulator().cancelTimeout(idleConnectionTimerHandle);
- 				} catch (Exception ex) {
- 					ex.printStackTrace();
- 				}
- 				idleConnectionTimerHandle = null;	// clear the timer handle
- 			}
-
- 			byte[] previousData_ = new byte[bytestream.remaining()];
- 			bytestream.get(previousData_);	// Temporarily store the previous bytestream
+ 			localEndpoint.getSimulator().disarmTimeout(idleConnectionTimer);
 
- 			// allocate new buffer space
- 			bytestream = ByteBuffer.allocate(previousData_.length + newData_.length);
- 			bytestream.put(previousData_);	// Put back the old data at the beginning
- 			bytestream.put(newData_);		// Append the new data (after the old data)
- 			bytestream.rewind();			// Rewind the buffer
+ 			unsent_ += newData_.remaining();
+ 			bytestream.append(newData_.duplicate());	// leave the application's buffer as is
  		}
 
- 		if (bytestream.remaining() < MSS) {
+ 		if (unsent_ < mss) {
  	 		// NOTE: we start up the inactivity-timeout timer
  	 		// *only* if *zero* bytes are remaining, not here!!
 
- 			System.out.println("tcp.Sender.send():  Insufficient data to send");
+ 			if (
+ 				(reporting.level & Simulator.REPORTING_SENDERS) != 0
+ 			) {
+ 				reporting.out.println("tcp.Sender.send():  Insufficient data to send");
+ 			}
  			return;		// Bail out -- there isn't enough data to send a full-size segment
  		}				// ... so, wait until the next invocation
 
-		// Calculate the sending parameters:
- 		// 1. How many segments are currently unacknowledged
-		int flightSize_ = lastByteSent - lastByteAcked;
-		// 2. How many segments can still be sent (a.k.a. "usable window")
-		int effectiveWindow_ =
-			Math.min(congWindow, rcvWindow) - flightSize_;
-		if (effectiveWindow_ < 0) {
-			effectiveWindow_ = 0;
-		}
-		// Display the relevant parameters for congestion control.
-		if (		// Debugging reporting:
-			(Simulator.currentReportingLevel  & Simulator.REPORTING_SENDERS) != 0
-		) {
-			System.out.println(
-				"SENDER:\t\tCongWin="+congWindow + "\t" + "EffectiveWin="+effectiveWindow_ +
-				"\t" + "FlightSize="+flightSize_ + "\t" + "SSThresh="+SSThresh + "\t" +
-				"RTOinterval="+rtoEstimator.getTimeoutInterval()
-			);
-		} else {	// Default reporting, always printed out:
-			System.out.println(
-				congWindow + "\t\t" + effectiveWindow_ +
-				"\t\t" + flightSize_ + "\t\t" + SSThresh + "\t\t" + rtoEstimator.getTimeoutInterval()
-			);
-		}
+		// Calculate how many bytes can still be sent (a.k.a. "usable window")
+		int effectiveWindow_ = getEffectiveWindow();
 
 		// Send only integer multiples of MSS segments,
 		// i.e., Nagle's algorithm is not employed here.
 		// See: http://en.wikipedia.org/wiki/Nagle_algorithm
 		//
 		// Of course, we also need to check if there is any data left in the bytestream to send
-		int burst_size_ = Math.min(
-			effectiveWindow_ / MSS, bytestream.remaining() / MSS
+		int burst_size_ = (int) Math.min(
+			effectiveWindow_ / mss, unsent_ / mss
 		);
 
+		// A paced sender sends only one segment at a time,
+		// and not before its pacing timer allows:
+		if (pacingRate > 0.0 && burst_size_ > 0) {
+			if (localEndpoint.getSimulator().getCurrentTime() < nextSendTime) {
+				startPacingTimer();
+				return;
+			}
+			burst_size_ = 1;
+		}
+
 		if (burst_size_ > 0) {
 			// Send the "burst_size_" worth of segments:
 			for (int seg_ = 0; seg_ < burst_size_; seg_++) {
-				// Extract one segment of data from the input bytestream
-				byte[] segPayload_ = new byte[MSS];
-				bytestream.get(segPayload_, 0, segPayload_.length);
-
-				Segment segment_ = new Segment(
-					localEndpoint.getRemoteTCPendpoint(),
-					localEndpoint.getLocalRcvWindow(), lastByteSent + 1, segPayload_
-				);
+				// Take one segment of data from the input bytestream
+				Segment segment_ = createDataSegment(lastByteSent + 1);
 				// set the sending time
-				segment_.timestamp = (int) localEndpoint.getSimulator().getCurrentTime();
+				segment_.timestamp = localEndpoint.getSimulator().getCurrentTime();
 
 				// Hand the new segment down to the network layer for transmission
-				localEndpoint.getNetworkLayerProtocol().send(localEndpoint, segment_);
-				lastByteSent += MSS;
+				transmit(segment_);
+				lastByteSent += mss;
 			}
 
 			// Start the RTO timer for the just-transmitted segments (if it's not already running).
-			if (rtoTimerHandle == null) {
+			if (!rtoTimer.isRunning()) {
 				startRTOtimer();
 			}
+
+			// A paced sender sends the next segment later, if it can:
+			if (
+				pacingRate > 0.0 &&
+				unsent_ - burst_size_ * mss >= mss && getEffectiveWindow() >= mss
+			) {
+				startPacingTimer();
+			}
 		} // else send nothing
  	}
 
+	/**
+ 	 * Attaches a streaming application source to this sender.
+ 	 * Rather than handing all the data to the sender up front,
+ 	 * the data are pulled from the source lazily, only as much as the
+ 	 * window allows to be sent (see {@link #send(ByteBuffer)}). Thus,
+ 	 * a file of any size can be "transferred" with bounded memory,
+ 	 * e.g., using a <code>java.nio.channels.FileChannel</code>
+ 	 * or a {@link sime.MappedFileSource}.<BR>
+ 	 * The source is not closed by the sender.
+ 	 * 
+ 	 * @param source_ the streaming source, or <code>null</code> to detach the current one
+ 	 */
+ 	public void setSource(ReadableByteChannel source_) {
+ 		this.source = source_;
+ 	}
+
+	/**
+	 * Helper method to pull the data from the streaming {@link #source}
+	 * into the {@link #bytestream}, so that the unsent data fill the
+	 * effective window. At least one full-sized segment is kept ready,
+	 * even if the window is currently closed, so that the sender does not
+	 * consider itself idle while the source still has data.
+	 * The source is detached when it reaches the end of stream.
+	 * 
+	 * @param unsent_ the number of bytes in the bytestream that were not sent yet
+	 * @return Returns the number of bytes pulled from the source.
+	 */
+	private int pullFromSource(long unsent_) {
+		long wanted_ = Math.max(getEffectiveWindow() / mss, 1) * mss - unsent_;
+		if (wanted_ <= 0) {
+			return 0;
+		}
+		try {
+			int pulled_ = bytestream.appendFrom(source, (int) wanted_);
+			if (pulled_ >= 0) {
+				return pulled_;
+			}
+		} catch (IOException ex_) {
+			reporting.out.println("tcp.Sender.pullFromSource(): " + ex_.toString());
+		}
+		source = null;	// end of stream, or the source failed
+		return 0;
+	}
+
+	/**
+ 	 * "Sends" the given number of bytes in the "virtual data" mode,
+ 	 * in which the application hands over only the number of bytes
+ 	 * to send, rather than the bytes themselves. The segments then
+ 	 * carry only their sequence numbers and lengths, so that
+ 	 * very long transfers can be simulated without holding their data.
+ 	 * Otherwise, the bytes are sent just like in {@link #send(ByteBuffer)}.
+ 	 * 
+ 	 * @param numBytes_ The number of new bytes to send
+ 	 */
+ 	public void sendVirtual(long numBytes_) {
+ 		// Cancel the inactivity-timeout timer if it's running:
+ 		localEndpoint.getSimulator().disarmTimeout(idleConnectionTimer);
+
+ 		bytestream.appendVirtual(numBytes_);
+ 		send(null);
+ 	}
+
 	/**
  	 * Processes ACKs received from the receiver.
  	 * Checks for duplicate ACKs and dispatches them
@@ -468,13 +856,21 @@ public abstract class Sender implements TimedComponent {
  	 * If a new ACK is received (acknowledging previously
  	 * unacknowledged data), the sender's window may have
 	 * opened to send some more segments, so this method
-	 * will call {@link #send(byte[])}.
+	 * will call {@link #send(ByteBuffer)}.
 	 *
  	 * @param ack_ An acknowledgment received from the receiver.
  	 */
  	public void handle(Segment ack_) {
-		// Update the advertised receive window size
-		rcvWindow = ack_.rcvWindow;
+		SenderState previousState_ = currentState;
+		if (reporting.trace != null) {
+			reporting.trace.record(
+				TraceRecorder.ACK, localEndpoint.getSimulator().getCurrentTime(),
+				localEndpoint.getTraceId(), ack_
+			);
+		}
+
+		// Update the advertised receive window size (scaled, RFC 7323)
+		rcvWindow = ack_.rcvWindow << windowScale;
 
 		// Is this a newly acknowledged segment (i.e., not a duplicate ACK)?
 		if (ack_.ackSequenceNumber > (lastByteAcked + 1)) {
@@ -491,11 +887,129 @@ public abstract class Sender implements TimedComponent {
 			try {
 				currentState = currentState.handleDupACK(ack_);
 			} catch (Exception ex_) {
-				System.out.println("tcp.Sender.handle(): " + ex_.toString());
+				reporting.out.println("tcp.Sender.handle(): " + ex_.toString());
 			}
 		}
+		if (reporting.trace != null && currentState != previousState_) {
+			traceStateChange();
+		}
+
+		// The window may have changed, and so may the pacing rate:
+		if (pacing) {
+			updatePacingRate();
+		}
+
+    	// As a result of the received ACK, the sender's window
+    	// may have opened to send some more segments:
+		send(null);
  	}
 
+	/**
+	 * Helper method to hand a data segment down to the network layer
+	 * for transmission. It is used for both the new and the retransmitted
+	 * segments, so that all of them are recorded in the binary trace.
+	 * If the sender paces its segments, every transmission also delays the next one
+	 * (see {@link #pacingRate}); the retransmissions are not held back, though.
+	 * @param segment_ the segment to transmit
+	 */
+	void transmit(Segment segment_) {
+		if (pacingRate > 0.0) {
+			nextSendTime = Math.max(
+				nextSendTime, localEndpoint.getSimulator().getCurrentTime()
+			) + (long) Math.ceil(segment_.length / pacingRate);
+		}
+		if (reporting.trace != null) {
+			reporting.trace.record(
+				TraceRecorder.SEND, localEndpoint.getSimulator().getCurrentTime(),
+				localEndpoint.getTraceId(), segment_
+			);
+		}
+		localEndpoint.getNetworkLayerProtocol().send(localEndpoint, segment_);
+	}
+
+	/**
+	 * Helper method to record the transition into {@link #currentState}
+	 * in the binary trace.
+	 */
+	void traceStateChange() {
+		int state_ = TraceRecorder.STATE_SLOW_START;
+		if (currentState instanceof SenderStateCongestionAvoidance) {
+			state_ = TraceRecorder.STATE_CONGESTION_AVOIDANCE;
+		} else if (currentState instanceof SenderStateFastRecovery) {
+			state_ = TraceRecorder.STATE_FAST_RECOVERY;
+		}
+		reporting.trace.record(
+			TraceRecorder.STATE_CHANGE, localEndpoint.getSimulator().getCurrentTime(),
+			localEndpoint.getTraceId(), congWindow, SSThresh, state_
+		);
+	}
+
+	/**
+	 * Helper method to calculate the effective window, that is,
+	 * how many bytes can still be sent given the current
+	 * congestion window, receive window, and flight size.
+	 * On the first duplicate ACKs, the congestion window is extended
+	 * by the Limited Transmit (see {@link #limitedTransmitWindow}).
+	 * @return the effective window size, in bytes
+	 */
+	int getEffectiveWindow() {
+		// How many bytes are currently unacknowledged
+		int flightSize_ = (int) (lastByteSent - lastByteAcked);
+		// The congestion window limits the bytes in the network,
+		// but the receive window limits all the unacknowledged bytes
+		int effectiveWindow_ = Math.min(
+			congWindow + limitedTransmitWindow - getPipe(), rcvWindow - flightSize_
+		);
+		return (effectiveWindow_ < 0) ? 0 : effectiveWindow_;
+	}
+
+	/**
+	 * Helper method to estimate how many bytes are currently in the network
+	 * (known as the "pipe"), to be compared against the congestion window.
+	 * By default, all unacknowledged bytes (the flight size) are assumed
+	 * to be in the network; a sender that knows better, such as {@link SenderSACK},
+	 * overrides this method.
+	 * @return the number of bytes currently in the network
+	 */
+	int getPipe() {
+		return (int) (lastByteSent - lastByteAcked);
+	}
+
+	/**
+	 * Tells whether this sender permits the remote receiver
+	 * to send SACK options, i.e., whether it processes the SACK blocks of
+	 * the acknowledgments (see <a href="http://tools.ietf.org/html/rfc2018" target="page">RFC 2018</a>).
+	 * @return <code>false</code>, unless overridden by a SACK sender
+	 */
+	public boolean isSACKpermitted() {
+		return false;
+	}
+
+	/**
+	 * Displays the relevant parameters for congestion control.
+	 * Called by the simulator at the start of every transmission round.
+	 * @see Simulator#timerExpired(int)
+	 */
+	public void reportCongestionParameters() {
+		int flightSize_ = (int) (lastByteSent - lastByteAcked);
+		int effectiveWindow_ = getEffectiveWindow();
+		if (		// Debugging reporting:
+			(reporting.level & Simulator.REPORTING_SENDERS) != 0
+		) {
+			reporting.out.println(
+				"SENDER:\t\tCongWin="+congWindow + "\t" + "EffectiveWin="+effectiveWindow_ +
+				"\t" + "FlightSize="+flightSize_ + "\t" + "SSThresh="+SSThresh + "\t" +
+				"RTOinterval="+Simulator.timeToTicks(rtoEstimator.getTimeoutInterval())
+			);
+		} else {	// Default reporting, always printed out:
+			reporting.out.println(
+				congWindow + "\t\t" + effectiveWindow_ +
+				"\t\t" + flightSize_ + "\t\t" + SSThresh + "\t\t" +
+				Simulator.timeToTicks(rtoEstimator.getTimeoutInterval())
+			);
+		}
+	}
+
 	/** This method provides a single place to reset
 	 * the congestion parameters when the sender needs
 	 * to transition to the slow start state from another state.</p>
@@ -505,10 +1019,11 @@ public abstract class Sender implements TimedComponent {
 	 */
 	public void resetParametersToSlowStart() {
 		// Set new congestion window = 1 x MSS (single segment)
-		congWindow = MSS;
+		congWindow = mss;
 
 		// Reset also the global counter of duplicate ACKs.
 	    dupACKcount = 0;
+	    limitedTransmitWindow = 0;
 
 		// Reset this param as well, just in case...
 		lastByteSentBefore3xDupAcksRecvd = -1;
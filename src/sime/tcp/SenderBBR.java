@@ -0,0 +1,574 @@
+/*
+ * Created on Oct 16, 2026
+ */
+package sime.tcp;
+
+import java.nio.ByteBuffer;
+
+import sime.Endpoint;
+import sime.Simulator;
+
+/**
+ * A <b>BBR</b>-like TCP sender ("Bottleneck Bandwidth and Round-trip propagation time"),
+ * as described in the Internet-Draft
+ * <a href="http://tools.ietf.org/html/draft-cardwell-iccrg-bbr-congestion-control" target="page">BBR
+ * Congestion Control</a> (version 1).<BR>
+ * Unlike the loss-based senders (Tahoe, Reno, CUBIC, ...), which keep growing
+ * their windows until the router buffer overflows, BBR builds an explicit
+ * model of the path: the bottleneck bandwidth, estimated as the maximum
+ * delivery rate over the last {@link #BW_FILTER_ROUNDS} round trips (see
+ * {@link DeliveryRateEstimator}), and the round-trip propagation time, estimated
+ * as the minimum RTT over the last {@link #MIN_RTT_WINDOW}. The sender then
+ * <i>paces</i> its segments at about the bottleneck bandwidth
+ * (see {@link Sender#pacingRate}) and caps the data in flight at about two
+ * bandwidth-delay products, so that the router queue stays short, while
+ * the bottleneck link is kept busy. The losses do not reduce the model,
+ * so a loss does not halve the sending rate.</p>
+ *
+ * <p>The sender cycles through the following modes:<BR>
+ * &bull; <i>STARTUP</i>: the sending rate doubles every round trip, until
+ * the delivery rate stops growing, i.e., the pipe is full;<BR>
+ * &bull; <i>DRAIN</i>: the sender slows down to drain the queue
+ * built up during the startup;<BR>
+ * &bull; <i>PROBE_BW</i>: the sender paces at the estimated bandwidth,
+ * but in every eight round trips it probes for more bandwidth
+ * for one round trip and drains the resulting queue in the next one
+ * (see {@link #PACING_GAIN_CYCLE});<BR>
+ * &bull; <i>PROBE_RTT</i>: if the minimum RTT was not refreshed for
+ * {@link #MIN_RTT_WINDOW}, the sender shrinks its window to
+ * {@link #MIN_WINDOW_SEGMENTS} segments for {@link #PROBE_RTT_DURATION}
+ * to drain the queue and measure the RTT anew.</p>
+ *
+ * <p>The lost segments are recovered using the SACK scoreboard, like {@link SenderSACK}.
+ * During the first round trip of the loss recovery, the sender sends only
+ * as much as is delivered ("packet conservation"), and after the recovery,
+ * the window is restored to its value before the recovery.</p>
+ *
+ * <p>Note that in our simulator, one clock tick roughly equals one RTT;
+ * like for {@link SenderCubic}, a tick is taken to last
+ * {@link SenderCubic#SECONDS_PER_TICK} seconds for the timing constants
+ * given in seconds.
+ *
+ * @see SenderStateBBR
+ * @author agent
+ */
+public class SenderBBR extends SenderSACK {
+	/** The mode in which the sender doubles its sending rate every round trip. */
+	static final int MODE_STARTUP = 0;
+
+	/** The mode in which the sender drains the queue built up in the startup. */
+	static final int MODE_DRAIN = 1;
+
+	/** The steady-state mode in which the sender cycles its pacing gain. */
+	static final int MODE_PROBE_BW = 2;
+
+	/** The mode in which the sender shrinks its window to measure the RTT. */
+	static final int MODE_PROBE_RTT = 3;
+
+	/** The pacing and window gain in the startup: 2/ln(2), the smallest gain
+	 * that doubles the delivery rate every round trip. */
+	static final double HIGH_GAIN = 2.0 / Math.log(2.0);
+
+	/** The pacing gain in the drain mode, which drains the startup queue in one round trip. */
+	static final double DRAIN_GAIN = 1.0 / HIGH_GAIN;
+
+	/** The window gain in the steady state: {@value}, so that the ACKs
+	 * that are delayed or compressed do not stall the sender. */
+	static final double CWND_GAIN = 2.0;
+
+	/** The pacing gains of the eight phases of the {@link #MODE_PROBE_BW} mode,
+	 * each lasting about one round trip. */
+	static final double[] PACING_GAIN_CYCLE = { 1.25, 0.75, 1.0, 1.0, 1.0, 1.0, 1.0, 1.0 };
+
+	/** The length of the window of the maximum bandwidth filter, in round trips: {@value}. */
+	static final int BW_FILTER_ROUNDS = 10;
+
+	/** The number of round trips without a 25% growth of the delivery rate
+	 * after which the startup decides that the pipe is full: {@value}. */
+	static final int FULL_BW_ROUNDS = 3;
+
+	/** The length of the window of the minimum RTT filter: 10 seconds,
+	 * in the simulation time units. */
+	static final long MIN_RTT_WINDOW = Simulator.ticksToTime(10.0 / SenderCubic.SECONDS_PER_TICK);
+
+	/** The time spent in the {@link #MODE_PROBE_RTT} mode: 200 milliseconds,
+	 * in the simulation time units. */
+	static final long PROBE_RTT_DURATION = Simulator.ticksToTime(0.2 / SenderCubic.SECONDS_PER_TICK);
+
+	/** The minimum congestion window, in segments: {@value}. */
+	static final int MIN_WINDOW_SEGMENTS = 4;
+
+	/** The delivery rate estimator, which provides the bandwidth and RTT samples. */
+	protected DeliveryRateEstimator rateEstimator = new DeliveryRateEstimator();
+
+	/** The current mode of the sender (one of the <code>MODE_</code> constants). */
+	protected int mode = MODE_STARTUP;
+
+	/** The current pacing gain. */
+	protected double pacingGain = HIGH_GAIN;
+
+	/** The current window gain. */
+	protected double cwndGain = HIGH_GAIN;
+
+	/** The maximum delivery rate sampled in each of the last
+	 * {@link #BW_FILTER_ROUNDS} round trips, indexed by the round trip count
+	 * modulo the filter length, in bytes per simulation time unit. */
+	protected double[] bandwidthSamples = new double[BW_FILTER_ROUNDS];
+
+	/** The round trips in which the {@link #bandwidthSamples} were taken. */
+	protected long[] bandwidthRounds = new long[BW_FILTER_ROUNDS];
+
+	/** The estimated round-trip propagation time (the minimum RTT),
+	 * or <code>-1</code> if not known yet. */
+	protected long minRTT = -1L;
+
+	/** The time when {@link #minRTT} was last refreshed. */
+	protected long minRTTstamp = 0L;
+
+	/** The count of the round trips so far. */
+	protected long roundCount = 0L;
+
+	/** The number of delivered bytes that will end the current round trip. */
+	protected long nextRoundDelivered = 0L;
+
+	/** Indicates whether the current acknowledgment started a new round trip. */
+	protected boolean roundStart = false;
+
+	/** The bytes in flight once the current acknowledgment is processed.
+	 * The model is updated before the acknowledgment advances
+	 * {@link #lastByteAcked}, so the data in flight are taken from here. */
+	protected long inFlight = 0L;
+
+	/** Indicates whether the startup found the bottleneck bandwidth. */
+	protected boolean filledPipe = false;
+
+	/** The bandwidth that the startup tries to exceed by 25%. */
+	protected double fullBandwidth = 0.0;
+
+	/** The count of the round trips without the 25% growth of the bandwidth. */
+	protected int fullBandwidthCount = 0;
+
+	/** The current phase of the {@link #PACING_GAIN_CYCLE}. */
+	protected int cycleIndex = 0;
+
+	/** The time when the current phase of the {@link #PACING_GAIN_CYCLE} started. */
+	protected long cycleStamp = 0L;
+
+	/** The time when the {@link #MODE_PROBE_RTT} mode will be done,
+	 * or zero if the window is not yet drained to the minimum. */
+	protected long probeRTTdoneStamp = 0L;
+
+	/** Indicates whether a round trip passed in the {@link #MODE_PROBE_RTT} mode. */
+	protected boolean probeRTTroundDone = false;
+
+	/** The congestion window saved before the loss recovery or
+	 * the {@link #MODE_PROBE_RTT} mode, to be restored afterwards, or zero. */
+	protected int priorCongWindow = 0;
+
+	/** Indicates whether the sender is in the first round trip of a fast
+	 * recovery, when it sends only as much as is delivered. */
+	protected boolean packetConservation = false;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param localTCPendpoint_ The local TCP endpoint
+	 * object that contains this module.
+	 */
+	public SenderBBR(Endpoint localTCPendpoint_) {
+		super(localTCPendpoint_, false);
+
+		// BBR does not use the loss-based states of the other senders:
+		// a single state object handles the ACKs, using the model
+		currentState = new SenderStateBBR(this);
+
+		// BBR always paces its segments, at the rate given by the model
+		setPacing(true);
+	}
+
+	/**
+	 * Updates the delivery rate estimate and the model of the path
+	 * with the received ACK, and sets the congestion window accordingly,
+	 * before the ACK is processed as usual (which also sets the pacing rate,
+	 * see {@link #updatePacingRate()}).
+	 *
+	 * @param ack_ An acknowledgment received from the receiver.
+	 * @see SenderSACK#handle(Segment)
+	 */
+	@Override
+	public void handle(Segment ack_) {
+		long now_ = localEndpoint.getSimulator().getCurrentTime();
+		boolean validSample_ = rateEstimator.onAck(ack_.ackSequenceNumber, ack_.sackBlocks, now_);
+		inFlight = lastByteSent - Math.max(lastByteAcked, ack_.ackSequenceNumber - 1);
+
+		updateModel(validSample_, now_);
+		updateCongWindow((int) rateEstimator.getNewlyDelivered());
+
+		super.handle(ack_);
+	}
+
+	/**
+	 * Sends as in {@link SenderSACK#send(ByteBuffer)}, and
+	 * marks the delivery rate samples as application-limited,
+	 * if the sender has less data to send than its window allows.
+	 *
+	 * @param newData_ The new message to send (its remaining bytes), or <code>null</code>
+	 */
+	@Override
+	public void send(ByteBuffer newData_) {
+		super.send(newData_);
+		long unsent_ = bytestream.getEndSequenceNumber() - (lastByteSent + 1);
+		if (source == null && unsent_ < mss && getPipe() < congWindow) {
+			rateEstimator.onApplicationLimited(lastByteSent - lastByteAcked);
+		}
+	}
+
+	/**
+	 * Records the delivery state for every transmitted segment,
+	 * before it is transmitted as in {@link Sender#transmit(Segment)}.
+	 * @param segment_ the segment to transmit
+	 */
+	@Override
+	void transmit(Segment segment_) {
+		rateEstimator.onSend(
+			segment_.dataSequenceNumber, segment_.length,
+			segment_.dataSequenceNumber <= lastByteSent,	// retransmitted?
+			localEndpoint.getSimulator().getCurrentTime()
+		);
+		super.transmit(segment_);
+	}
+
+	/**
+	 * Starts the loss recovery on {@link Sender#dupACKthreshold} dupACKs.
+	 * Unlike the loss-based senders, BBR does not reduce its model of
+	 * the path, but for the first round trip of the recovery it sends only as
+	 * much data as is delivered ("packet conservation"). The oldest outstanding
+	 * segment is retransmitted, and then the other lost segments, like
+	 * in {@link SenderSACK#onThreeDuplicateACKs()}.
+	 */
+	@Override
+	protected void onThreeDuplicateACKs() {
+		saveCongWindow();
+
+		// Mark the end of the loss recovery (known as "RecoveryPoint").
+		if (lastByteSentBefore3xDupAcksRecvd < 0)	// if not already set:
+			lastByteSentBefore3xDupAcksRecvd = lastByteSent;
+
+		congWindow = Math.max(getPipe() + (int) rateEstimator.getNewlyDelivered(), mss);
+		packetConservation = true;
+		// Start a new round trip now, to end the packet conservation after one RTT:
+		nextRoundDelivered = rateEstimator.getDelivered();
+
+		// Retransmit the oldest unacknowledged (presumably lost) segment.
+		// This is called "Fast Retransmit"
+	    Segment oldestSegment_ = getOldestUnacknowledgedSegment();
+		// The timestamp of retransmitted segments should be set to "-1"
+	    // to avoid performing RTT estimation based on retransmitted segments:
+		oldestSegment_.timestamp = -1;
+	    transmit(oldestSegment_);
+	    lastByteRetransmitted = lastByteAcked + mss;
+
+	    // Retransmit the other holes, if the window allows:
+	    retransmitLostSegments();
+	}
+
+	/**
+	 * Resets the sender's parameters when the RTO timer timed out,
+	 * like {@link SenderSACK#onExpiredRTOtimer()}: the congestion window
+	 * is reduced to one segment, and grows by the delivered bytes afterwards.
+	 * The congestion window before the timeout is restored when
+	 * the outstanding data are recovered.
+	 */
+	@Override
+	protected void onExpiredRTOtimer() {
+		saveCongWindow();
+		packetConservation = false;
+		super.onExpiredRTOtimer();
+	}
+
+	/**
+	 * Helper method to restore the congestion window saved before the loss
+	 * recovery, when the recovery is over, see {@link SenderStateBBR}.
+	 */
+	void onRecoveryEnd() {
+		packetConservation = false;
+		if (mode != MODE_PROBE_RTT) {
+			restoreCongWindow();
+		}
+	}
+
+	/**
+	 * Helper method to update the model of the path with the last rate sample:
+	 * the round trip count, the bottleneck bandwidth, the minimum RTT,
+	 * and the mode of the sender.
+	 * @param validSample_ <code>true</code> if the last ACK gave a valid rate sample
+	 * @param now_ the current time
+	 */
+	void updateModel(boolean validSample_, long now_) {
+		// Count the round trips:
+		roundStart = false;
+		if (
+			rateEstimator.getNewlyDelivered() > 0 &&
+			rateEstimator.getSamplePriorDelivered() >= nextRoundDelivered
+		) {
+			nextRoundDelivered = rateEstimator.getDelivered();
+			roundCount++;
+			roundStart = true;
+			packetConservation = false;
+		}
+
+		// The maximum bandwidth filter: the application-limited samples
+		// are used only if they increase the estimate:
+		if (validSample_) {
+			double rate_ = rateEstimator.getSampleRate();
+			if (!rateEstimator.isSampleAppLimited() || rate_ >= getBandwidth()) {
+				int slot_ = (int) (roundCount % BW_FILTER_ROUNDS);
+				if (bandwidthRounds[slot_] != roundCount) {
+					bandwidthRounds[slot_] = roundCount;
+					bandwidthSamples[slot_] = 0.0;
+				}
+				bandwidthSamples[slot_] = Math.max(bandwidthSamples[slot_], rate_);
+			}
+		}
+
+		checkFullPipe();
+		checkDrain();
+		if (mode == MODE_PROBE_BW) {
+			updateGainCycle(now_);
+		}
+		updateMinRTT(now_);
+	}
+
+	/**
+	 * Helper method to decide whether the startup has filled the pipe:
+	 * the estimated bandwidth did not grow by 25% in {@link #FULL_BW_ROUNDS} round trips.
+	 */
+	private void checkFullPipe() {
+		if (filledPipe || !roundStart || rateEstimator.isSampleAppLimited()) {
+			return;
+		}
+		if (getBandwidth() >= fullBandwidth * 1.25) {
+			fullBandwidth = getBandwidth();
+			fullBandwidthCount = 0;
+		} else if (++fullBandwidthCount >= FULL_BW_ROUNDS) {
+			filledPipe = true;
+		}
+	}
+
+	/**
+	 * Helper method to leave the startup when the pipe is full,
+	 * and to leave the drain mode when the queue is drained.
+	 */
+	private void checkDrain() {
+		if (mode == MODE_STARTUP && filledPipe) {
+			enterMode(MODE_DRAIN);
+			pacingGain = DRAIN_GAIN;
+			cwndGain = HIGH_GAIN;
+		}
+		if (mode == MODE_DRAIN && inFlight <= getTargetCongWindow(1.0)) {
+			enterProbeBandwidth();
+		}
+	}
+
+	/**
+	 * Helper method to advance the phase of the {@link #PACING_GAIN_CYCLE}
+	 * after about one minimum RTT. The probing phase lasts until the data in flight
+	 * reach the higher target, or a loss occurs; the draining phase ends early,
+	 * as soon as the data in flight drop to the estimated bandwidth-delay product.
+	 * @param now_ the current time
+	 */
+	private void updateGainCycle(long now_) {
+		boolean phaseOver_ = (minRTT >= 0 && now_ - cycleStamp > minRTT);
+		if (pacingGain > 1.0) {
+			phaseOver_ = phaseOver_ && (
+				lastByteSentBefore3xDupAcksRecvd >= 0 || inFlight >= getTargetCongWindow(pacingGain)
+			);
+		} else if (pacingGain < 1.0) {
+			phaseOver_ = phaseOver_ || inFlight <= getTargetCongWindow(1.0);
+		}
+		if (phaseOver_) {
+			cycleIndex = (cycleIndex + 1) % PACING_GAIN_CYCLE.length;
+			cycleStamp = now_;
+			pacingGain = PACING_GAIN_CYCLE[cycleIndex];
+		}
+	}
+
+	/**
+	 * Helper method to update the minimum RTT filter, and to enter and leave
+	 * the {@link #MODE_PROBE_RTT} mode if the minimum RTT was not refreshed
+	 * for {@link #MIN_RTT_WINDOW}.
+	 * @param now_ the current time
+	 */
+	private void updateMinRTT(long now_) {
+		long rtt_ = rateEstimator.getSampleRTT();
+		boolean expired_ = (minRTT >= 0 && now_ > minRTTstamp + MIN_RTT_WINDOW);
+		if (rtt_ >= 0 && (minRTT < 0 || rtt_ <= minRTT || expired_)) {
+			minRTT = rtt_;
+			minRTTstamp = now_;
+		}
+
+		if (expired_ && mode != MODE_PROBE_RTT) {
+			enterMode(MODE_PROBE_RTT);
+			pacingGain = 1.0;
+			cwndGain = 1.0;
+			saveCongWindow();
+			probeRTTdoneStamp = 0L;
+		}
+		if (mode == MODE_PROBE_RTT) {
+			if (probeRTTdoneStamp == 0L && inFlight <= MIN_WINDOW_SEGMENTS * mss) {
+				// The window is drained, so wait for the duration and one round trip:
+				probeRTTdoneStamp = now_ + PROBE_RTT_DURATION;
+				probeRTTroundDone = false;
+				nextRoundDelivered = rateEstimator.getDelivered();
+			} else if (probeRTTdoneStamp != 0L) {
+				if (roundStart) {
+					probeRTTroundDone = true;
+				}
+				if (probeRTTroundDone && now_ > probeRTTdoneStamp) {
+					minRTTstamp = now_;
+					restoreCongWindow();
+					if (filledPipe) {
+						enterProbeBandwidth();
+					} else {
+						enterMode(MODE_STARTUP);
+						pacingGain = HIGH_GAIN;
+						cwndGain = HIGH_GAIN;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Helper method to enter the {@link #MODE_PROBE_BW} mode. The gain cycle starts
+	 * with the first phase that neither probes nor drains, so that the simulations
+	 * are repeatable (in actual BBR, the phase is chosen at random).
+	 */
+	private void enterProbeBandwidth() {
+		enterMode(MODE_PROBE_BW);
+		cwndGain = CWND_GAIN;
+		cycleIndex = 2;
+		cycleStamp = localEndpoint.getSimulator().getCurrentTime();
+		pacingGain = PACING_GAIN_CYCLE[cycleIndex];
+	}
+
+	/**
+	 * Helper method to change the mode of the sender.
+	 * @param mode_ the new mode (one of the <code>MODE_</code> constants)
+	 */
+	private void enterMode(int mode_) {
+		mode = mode_;
+		if (
+			(reporting.level & Simulator.REPORTING_SENDERS) != 0
+		) {
+			final String[] names_ = { "STARTUP", "DRAIN", "PROBE_BW", "PROBE_RTT" };
+			reporting.out.println("############## BBR sender entering " + names_[mode_] + ".");
+		}
+	}
+
+	/**
+	 * Sets the pacing rate to the estimated bandwidth times the current
+	 * pacing gain, instead of using the congestion window and the smoothed RTT
+	 * like {@link Sender#updatePacingRate()}. Before the first bandwidth sample,
+	 * the rate is based on the congestion window and the minimum RTT (one tick,
+	 * if not yet known). In the startup, the rate is never reduced.
+	 */
+	@Override
+	void updatePacingRate() {
+		double rate_ = pacingGain * getBandwidth();
+		if (rate_ <= 0.0) {
+			long rtt_ = (minRTT > 0) ? minRTT : localEndpoint.getSimulator().getTimeIncrement();
+			rate_ = pacingGain * congWindow / rtt_;
+		}
+		if (filledPipe || rate_ > pacingRate) {
+			pacingRate = rate_;
+		}
+	}
+
+	/**
+	 * Helper method to set the congestion window after an ACK:
+	 * it grows by the delivered bytes, up to the target given by the model
+	 * (see {@link #getTargetCongWindow(double)}); before the pipe is filled,
+	 * it is not capped. In the first round trip of a loss recovery, the window
+	 * only covers the data in flight and the delivered data.
+	 * @param acked_ the number of bytes newly delivered by the ACK
+	 */
+	private void updateCongWindow(int acked_) {
+		int target_ = getTargetCongWindow(cwndGain);
+		if (packetConservation) {
+			congWindow = Math.max(congWindow, getPipe() + acked_);
+		} else if (filledPipe) {
+			congWindow = Math.min(congWindow + acked_, target_);
+		} else if (congWindow < target_) {
+			congWindow += acked_;
+		}
+		congWindow = Math.max(congWindow, MIN_WINDOW_SEGMENTS * mss);
+		if (mode == MODE_PROBE_RTT) {
+			congWindow = Math.min(congWindow, MIN_WINDOW_SEGMENTS * mss);
+		}
+	}
+
+	/**
+	 * Returns the congestion window given by the model: the estimated
+	 * bandwidth-delay product times the given gain, rounded up to a whole segment.
+	 * @param gain_ the gain
+	 * @return the target window, in bytes, or <code>Integer.MAX_VALUE</code>
+	 * if the model has no estimate yet
+	 */
+	int getTargetCongWindow(double gain_) {
+		double bandwidth_ = getBandwidth();
+		if (minRTT < 0 || bandwidth_ <= 0.0) {
+			return Integer.MAX_VALUE;
+		}
+		int target_ = (int) Math.ceil(gain_ * bandwidth_ * minRTT / mss) * mss;
+		return Math.max(target_, MIN_WINDOW_SEGMENTS * mss);
+	}
+
+	/**
+	 * Returns the estimated bottleneck bandwidth: the maximum delivery rate in
+	 * the last {@link #BW_FILTER_ROUNDS} round trips, in bytes per simulation time unit.
+	 */
+	double getBandwidth() {
+		double max_ = 0.0;
+		for (int i_ = 0; i_ < BW_FILTER_ROUNDS; i_++) {
+			if (roundCount - bandwidthRounds[i_] < BW_FILTER_ROUNDS) {
+				max_ = Math.max(max_, bandwidthSamples[i_]);
+			}
+		}
+		return max_;
+	}
+
+	/** Helper method to save the congestion window before it is reduced. */
+	private void saveCongWindow() {
+		if (priorCongWindow == 0 || mode != MODE_PROBE_RTT && lastByteSentBefore3xDupAcksRecvd < 0) {
+			priorCongWindow = congWindow;
+		} else {
+			priorCongWindow = Math.max(priorCongWindow, congWindow);
+		}
+	}
+
+	/** Helper method to restore the congestion window saved before it was reduced. */
+	private void restoreCongWindow() {
+		congWindow = Math.max(congWindow, priorCongWindow);
+		priorCongWindow = 0;
+	}
+
+	/**
+	 * Displays the relevant parameters for congestion control,
+	 * as {@link Sender#reportCongestionParameters()}, and also the model
+	 * of the path, if the sender's activities are reported.
+	 */
+	@Override
+	public void reportCongestionParameters() {
+		super.reportCongestionParameters();
+		if (
+			(reporting.level & Simulator.REPORTING_SENDERS) != 0
+		) {
+			reporting.out.println(
+				"\t\tBBR: BtlBw=" + (getBandwidth() * localEndpoint.getSimulator().getTimeIncrement()) +
+				" bytes/tick\tRTprop=" + ((minRTT < 0) ? -1.0 : Simulator.timeToTicks(minRTT)) +
+				"\tPacingGain=" + pacingGain + "\tCwndGain=" + cwndGain
+			);
+		}
+	}
+}
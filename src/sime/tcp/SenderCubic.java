@@ -0,0 +1,210 @@
+/*
+ * Created on Oct 16, 2026
+ */
+package sime.tcp;
+
+import sime.Endpoint;
+import sime.Simulator;
+
+/**
+ * The <b>CUBIC</b> version of the TCP sender, as specified in
+ * <a href="http://tools.ietf.org/html/rfc9438" target="page">RFC 9438</a>
+ * (the default TCP sender in Linux, Windows and macOS).<BR>
+ * In the congestion avoidance state, CUBIC grows its congestion window
+ * as a cubic function of the time elapsed since the last congestion event,
+ * rather than by one MSS per RTT (see {@link SenderStateCubicCongestionAvoidance}):
+ * the window grows fast while it is far below the window size
+ * at which the last loss occurred (<code>W_max</code>), slowly
+ * around <code>W_max</code>, and then again fast to probe for more
+ * bandwidth. Thus, the growth does not depend on the RTT, and a long-fat
+ * path is refilled much sooner than by the linear growth of Reno.</p>
+ *
+ * <p>This class also implements the two other parts of CUBIC:<BR>
+ * &bull; the <i>TCP-friendly region</i>: the sender estimates what
+ * the window of a Reno sender would be and never uses a smaller window,
+ * so that it is not slower than Reno on short or slow paths;<BR>
+ * &bull; <i>fast convergence</i>: when a loss occurs below the previous
+ * <code>W_max</code>, the available bandwidth probably decreased (e.g., a new
+ * flow started), so <code>W_max</code> is reduced further, to release
+ * the bandwidth to the new flows sooner.</p>
+ *
+ * <p>On a loss, the window is reduced by the factor {@link #BETA},
+ * and the loss recovery is the same as for {@link SenderNewReno}.<BR>
+ * Note that in our simulator, the time is measured in clock ticks, and
+ * one tick roughly equals one RTT. Because the cubic function depends on
+ * the real time, rather than on the number of RTTs, a tick is taken to last
+ * {@link #SECONDS_PER_TICK} seconds.
+ *
+ * @see SenderStateCubicCongestionAvoidance
+ * @author agent
+ */
+public class SenderCubic extends SenderNewReno {
+	/** The scaling constant of the cubic function, in segments per second<sup>3</sup>: {@value}. */
+	static final double C = 0.4;
+
+	/** The duration of one simulator clock tick, in seconds: {@value}.
+	 * One tick roughly equals one RTT, so this is the RTT of a typical wide-area path. */
+	static final double SECONDS_PER_TICK = 0.1;
+
+	/** The multiplicative window decrease factor on a loss: {@value}. */
+	static final double BETA = 0.7;
+
+	/** The additive increase of the estimated Reno window, in segments
+	 * per RTT, that gives the same average throughput as Reno
+	 * given the decrease factor {@link #BETA}: 3(1 - BETA)/(1 + BETA). */
+	static final double ALPHA = 3.0 * (1.0 - BETA) / (1.0 + BETA);
+
+	/** Indicates whether the fast convergence is performed. */
+	protected boolean fastConvergence = true;
+
+	/** The congestion window size just before the last window
+	 * reduction (<code>W_max</code>), in segments. */
+	protected double maxWindow = 0.0;
+
+	/** The window size at the "origin" (the plateau) of the cubic function
+	 * of the current congestion avoidance epoch, in segments. */
+	protected double originWindow = 0.0;
+
+	/** The time it takes the cubic function to grow from the window size at
+	 * the beginning of the epoch to {@link #originWindow} (<code>K</code>), in seconds. */
+	protected double timeToOrigin = 0.0;
+
+	/** The time when the current congestion avoidance epoch began (in the
+	 * simulation time units), or <code>-1</code> if none is in progress. */
+	protected long epochStart = -1L;
+
+	/** The estimated window size of a Reno sender over the same path
+	 * (<code>W_est</code>), in segments, for the TCP-friendly region. */
+	protected double renoWindow = 0.0;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param localTCPendpoint_ The local TCP endpoint
+	 * object that contains this module.
+	 */
+	public SenderCubic(Endpoint localTCPendpoint_) {
+		super(localTCPendpoint_, false);
+
+		// construct the objects for different states of the sender,
+		// like NewReno, but with the CUBIC congestion avoidance:
+		SenderStateSlowStart slowStartState = new SenderStateSlowStart(
+		    this, null, null /* after 3x DupACKs state */
+		);
+		wireStates(
+			slowStartState, new SenderStateCubicCongestionAvoidance(this, slowStartState)
+		);
+	}
+
+	/**
+	 * Returns the factor {@link #BETA}, by which CUBIC reduces
+	 * the slow start threshold on a congestion event, rather than by half.
+	 */
+	@Override
+	protected double getLossBeta() {
+		return BETA;
+	}
+
+	/**
+	 * Calculates the congestion window after a new ACK in
+	 * the congestion avoidance state, following the cubic window function
+	 * <pre>
+	 * W_cubic(t) = C*(t - K)^3 + W_max
+	 * </pre>
+	 * where <code>t</code> is the time elapsed since the beginning of
+	 * the current epoch. The window grows towards the value of the function
+	 * one RTT ahead, but by at most a half of the window per RTT,
+	 * and it is never smaller than the estimated Reno window.
+	 *
+	 * @param ackedBytes_ the number of bytes newly acknowledged
+	 * @return the new congestion window size, in bytes
+	 */
+	int calcCubicCongWin(long ackedBytes_) {
+		long now_ = localEndpoint.getSimulator().getCurrentTime();
+		double congWindow_ = (double) congWindow / mss;
+		if (epochStart < 0) {
+			// The beginning of a new congestion avoidance epoch:
+			epochStart = now_;
+			if (congWindow_ < maxWindow) {
+				timeToOrigin = Math.cbrt((maxWindow - congWindow_) / C);
+				originWindow = maxWindow;
+			} else {
+				timeToOrigin = 0.0;
+				originWindow = congWindow_;
+			}
+			renoWindow = congWindow_;
+		}
+
+		// The times in seconds:
+		double time_ =
+			Simulator.timeToTicks(now_ - epochStart) * SECONDS_PER_TICK - timeToOrigin;
+		double rtt_ = Simulator.timeToTicks(
+			Math.max(rtoEstimator.getEstimatedRTT(), localEndpoint.getSimulator().getTimeIncrement())
+		) * SECONDS_PER_TICK;
+		// The target is the value of the cubic function one RTT ahead,
+		// but the window grows by at most a half per RTT:
+		double target_ = originWindow + C * (time_ + rtt_) * (time_ + rtt_) * (time_ + rtt_);
+		target_ = Math.max(congWindow_, Math.min(target_, 1.5 * congWindow_));
+
+		// The Reno window grows by ALPHA segments per RTT:
+		double ackedSegments_ = (double) ackedBytes_ / mss;
+		renoWindow += ALPHA * ackedSegments_ / congWindow_;
+
+		if (originWindow + C * time_ * time_ * time_ < renoWindow) {
+			// The TCP-friendly region:
+			return Math.max(congWindow, (int) (renoWindow * mss));
+		} else {
+			// The concave or the convex region:
+			return congWindow + (int) ((target_ - congWindow_) / congWindow_ * ackedBytes_);
+		}
+	}
+
+	/**
+	 * Helper method to remember the window size <code>W_max</code>
+	 * on a congestion event (reduced further for the fast convergence),
+	 * and to end the current congestion avoidance epoch.
+	 */
+	void onCongestionEvent() {
+		double congWindow_ = (double) congWindow / mss;
+		if (fastConvergence && congWindow_ < maxWindow) {
+			maxWindow = congWindow_ * (1.0 + BETA) / 2.0;
+		} else {
+			maxWindow = congWindow_;
+		}
+		epochStart = -1L;
+	}
+
+	/**
+	 * This method resets the sender's parameters when the RTO timer timed
+	 * out, as {@link SenderReno#onExpiredRTOtimer()} does with the factor {@link #BETA}.
+	 * The congestion avoidance after the timeout starts a new
+	 * cubic function at the window size at that moment, so <code>W_max</code>
+	 * is forgotten.
+	 */
+	@Override
+	protected void onExpiredRTOtimer() {
+		super.onExpiredRTOtimer();
+		maxWindow = 0.0;
+	}
+
+	/**
+	 * This method remembers <code>W_max</code> and then performs
+	 * the <i>Fast Retransmit</i> as {@link SenderReno#onThreeDuplicateACKs()}
+	 * does with the factor {@link #BETA}.
+	 */
+	@Override
+	protected void onThreeDuplicateACKs() {
+		onCongestionEvent();
+		super.onThreeDuplicateACKs();
+	}
+
+	/**
+	 * Resets the congestion parameters for the slow start,
+	 * which also ends the current congestion avoidance epoch.
+	 */
+	@Override
+	public void resetParametersToSlowStart() {
+		super.resetParametersToSlowStart();
+		epochStart = -1L;
+	}
+}
@@ -0,0 +1,142 @@
+/*
+ * Created on Oct 16, 2026
+ */
+package sime.tcp;
+
+import sime.Endpoint;
+import sime.Simulator;
+
+/**
+ * The <b>DCTCP</b> (Data Center TCP) version of the TCP sender, as specified in
+ * <a href="http://tools.ietf.org/html/rfc8257" target="page">RFC 8257</a>.<BR>
+ * The routers mark the ECN-capable packets with the "Congestion Experienced"
+ * codepoint as soon as their queue exceeds a small threshold
+ * (see {@link sime.Router#setMarkingThreshold(int)}), and the receiver echoes
+ * every mark in its acknowledgments ({@link Segment#ecnEcho}). Rather than
+ * halving its window on any sign of congestion, the DCTCP sender estimates
+ * the <i>fraction</i> of its bytes that were marked, {@link #alpha}, once per
+ * window of data, and reduces its window in proportion:
+ * <pre>
+ * alpha = (1 - g) * alpha + g * F
+ * CongWin = CongWin * (1 - alpha/2)
+ * </pre>
+ * where <code>F</code> is the fraction of the bytes marked in the last window
+ * and <code>g</code> is {@link #G}. Thus, a slight congestion reduces
+ * the window only slightly, so the sender keeps the router queue short (about the
+ * marking threshold) while keeping the bottleneck link busy, even with
+ * shallow router buffers.</p>
+ *
+ * <p>The window is reduced at most once per window of data, and not during
+ * the loss recovery. The segment losses are handled like by {@link SenderNewReno}.
+ *
+ * @author agent
+ */
+public class SenderDCTCP extends SenderNewReno {
+	/** The weight of the new sample in the estimate of {@link #alpha}: {@value}. */
+	static final double G = 1.0 / 16.0;
+
+	/** The estimated fraction of the bytes that are marked, between 0 and 1.
+	 * It starts at 1, so that the marks before the first estimate
+	 * reduce the window like the standard ECN, by half. */
+	protected double alpha = 1.0;
+
+	/** The bytes acknowledged in the current observation window. */
+	protected long bytesAcked = 0L;
+
+	/** The bytes acknowledged with the ECN-Echo flag in the current observation window. */
+	protected long bytesMarked = 0L;
+
+	/** The sequence number of the last byte of the current observation window:
+	 * when it is acknowledged, {@link #alpha} is updated. */
+	protected long observationWindowEnd = -1L;
+
+	/** The last byte sent when the window was last reduced on
+	 * the ECN-Echo flag; the window is not reduced again until it is acknowledged. */
+	protected long lastByteSentAtReduction = -1L;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param localTCPendpoint_ The local TCP endpoint
+	 * object that contains this module.
+	 */
+	public SenderDCTCP(Endpoint localTCPendpoint_) {
+		super(localTCPendpoint_);
+	}
+
+	/**
+	 * Updates the estimate of the marked fraction {@link #alpha} with the received ACK,
+	 * and reduces the congestion window if the ACK echoes a mark, before
+	 * the ACK is processed as usual.
+	 *
+	 * @param ack_ An acknowledgment received from the receiver.
+	 * @see Sender#handle(Segment)
+	 */
+	@Override
+	public void handle(Segment ack_) {
+		// The bytes delivered by this ACK; a dupACK reports one segment:
+		long acked_ = ack_.ackSequenceNumber - (lastByteAcked + 1);
+		if (acked_ <= 0) {
+			acked_ = mss;
+		}
+		bytesAcked += acked_;
+		if (ack_.ecnEcho) {
+			bytesMarked += acked_;
+		}
+
+		if (ack_.ackSequenceNumber > observationWindowEnd) {
+			// The end of the observation window, about once per RTT:
+			double fraction_ = (bytesAcked > 0) ? (double) bytesMarked / bytesAcked : 0.0;
+			alpha = (1.0 - G) * alpha + G * fraction_;
+			bytesAcked = 0L;
+			bytesMarked = 0L;
+			observationWindowEnd = lastByteSent;
+		}
+
+		if (
+			ack_.ecnEcho && lastByteSentBefore3xDupAcksRecvd < 0 &&
+			ack_.ackSequenceNumber > lastByteSentAtReduction
+		) {
+			reduceCongWindow();
+		}
+
+		super.handle(ack_);
+	}
+
+	/**
+	 * Helper method to reduce the congestion window in proportion to
+	 * the estimated fraction of the marked bytes {@link #alpha}. The slow start
+	 * threshold is set to the new window, so a sender in the slow start enters
+	 * the congestion avoidance.
+	 */
+	void reduceCongWindow() {
+		SSThresh = (int) (congWindow * (1.0 - alpha / 2.0));
+		// Set to an integer multiple of MSS
+		SSThresh -= (SSThresh % mss);
+		SSThresh = Math.max(SSThresh, 2*mss);
+		congWindow = SSThresh;
+		lastByteSentAtReduction = lastByteSent;
+
+		if (
+			(reporting.level & Simulator.REPORTING_SENDERS) != 0
+		) {
+			reporting.out.println(
+				" ..... ECN-Echo received: alpha=" + alpha + ", CongWin reduced to " + congWindow + " ....."
+			);
+		}
+	}
+
+	/**
+	 * Creates the data segments as {@link Sender#createDataSegment(long)},
+	 * but marked as ECN-capable, so that the routers may mark them
+	 * instead of dropping them.
+	 * @param seqNum_ the sequence number of the segment's first byte
+	 * @return Returns the new data segment.
+	 */
+	@Override
+	Segment createDataSegment(long seqNum_) {
+		Segment segment_ = super.createDataSegment(seqNum_);
+		segment_.ecnCapable = true;
+		return segment_;
+	}
+}
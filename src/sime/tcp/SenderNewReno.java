@@ -37,4 +37,17 @@ public class SenderNewReno extends SenderReno {
 	public SenderNewReno(Endpoint localTCPendpoint_) {
 		super(localTCPendpoint_);
 	}
+
+	/**
+	 * Constructor for the derived classes with their own kinds of states,
+	 * see {@link SenderReno#SenderReno(Endpoint, boolean)}.
+	 * 
+	 * @param localTCPendpoint_ The local TCP endpoint
+	 * object that contains this module. 
+	 * @param wireStates_ <code>true</code> to wire the NewReno states,
+	 * <code>false</code> if the derived class wires its states itself
+	 */
+	protected SenderNewReno(Endpoint localTCPendpoint_, boolean wireStates_) {
+		super(localTCPendpoint_, wireStates_);
+	}
 }
\ No newline at end of file
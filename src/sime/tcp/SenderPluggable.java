@@ -0,0 +1,89 @@
+/*
+ * Created on Oct 16, 2026
+ */
+package sime.tcp;
+
+import sime.Endpoint;
+
+/**
+ * The TCP sender controlled by a {@link PluggableCongestionControl} algorithm.
+ * The sender keeps the send buffer and the timers of {@link Sender},
+ * the slow start, and the loss recovery of {@link SenderNewReno}, but
+ * asks its algorithm how the congestion window grows in the congestion
+ * avoidance, how much it is reduced on a congestion event, and how fast
+ * the segments are paced.
+ *
+ * @see SenderStatePluggableCongestionAvoidance
+ * @author agent
+ */
+public class SenderPluggable extends SenderNewReno {
+
+	/** The congestion control algorithm of this sender. */
+	protected PluggableCongestionControl algorithm;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param localTCPendpoint_ The local TCP endpoint
+	 * object that contains this module.
+	 * @param algorithm_ The congestion control algorithm of this sender,
+	 * not shared with any other sender.
+	 */
+	public SenderPluggable(Endpoint localTCPendpoint_, PluggableCongestionControl algorithm_) {
+		super(localTCPendpoint_, false);
+		this.algorithm = algorithm_;
+		algorithm_.init(this);
+
+		// construct the objects for different states of the sender,
+		// like NewReno, but with the algorithm's congestion avoidance:
+		SenderStateSlowStart slowStartState = new SenderStateSlowStart(
+		    this, null, null /* after 3x DupACKs state */
+		);
+		wireStates(
+			slowStartState, new SenderStatePluggableCongestionAvoidance(this, slowStartState)
+		);
+
+		if (algorithm_.isPaced()) {
+			setPacing(true);
+		}
+	}
+
+	/**
+	 * Returns the congestion control algorithm of this sender.
+	 */
+	public PluggableCongestionControl getAlgorithm() {
+		return algorithm;
+	}
+
+	/**
+	 * Helper method to calculate the new slow start threshold on
+	 * a congestion event, as decided by the algorithm (see
+	 * {@link PluggableCongestionControl#onCongestionEvent(boolean)}),
+	 * rather than the flight size times {@link #getLossBeta()}.
+	 * The RTO timeout and the <i>Fast Retransmit</i> are
+	 * then handled as by {@link SenderReno}.
+	 *
+	 * @param timeout_ <code>true</code> on an RTO timeout, <code>false</code> on the dupACKs
+	 * @return the new slow start threshold, in bytes
+	 */
+	@Override
+	protected int calcSSThreshAfterLoss(boolean timeout_) {
+		return algorithm.onCongestionEvent(timeout_);
+	}
+
+	/**
+	 * Sets the pacing rate decided by the algorithm or, if the algorithm
+	 * leaves it to the sender, the default pacing rate (see {@link Sender#setPacing(boolean)}).
+	 */
+	@Override
+	void updatePacingRate() {
+		double pacingRate_ = algorithm.getPacingRate(
+			localEndpoint.getSimulator().getCurrentTime()
+		);
+		if (pacingRate_ > 0.0) {
+			pacingRate = pacingRate_;
+		} else {
+			super.updatePacingRate();
+		}
+	}
+}
@@ -27,7 +27,25 @@ public class SenderReno extends Sender {
 	 * object that contains this module. 
 	 */
 	public SenderReno(Endpoint localTCPendpoint_) {
+		this(localTCPendpoint_, true);
+	}
+
+	/**
+	 * Constructor for the derived classes with their own kinds of states.
+	 * Such a class passes <code>false</code>, so that the Reno states are
+	 * not constructed only to be replaced, and then calls one of the
+	 * <code>wireStates()</code> methods from its own constructor.
+	 * 
+	 * @param localTCPendpoint_ The local TCP endpoint
+	 * object that contains this module. 
+	 * @param wireStates_ <code>true</code> to wire the Reno states,
+	 * <code>false</code> if the derived class wires its states itself
+	 */
+	protected SenderReno(Endpoint localTCPendpoint_, boolean wireStates_) {
 		super(localTCPendpoint_);
+		if (!wireStates_) {
+			return;
+		}
 
 		// construct the objects for different states of the sender:
 		SenderStateSlowStart slowStartState = new SenderStateSlowStart(
@@ -37,17 +55,83 @@ public class SenderReno extends Sender {
 			new SenderStateCongestionAvoidance(
 				this, slowStartState, null /* after 3x DupACKs state */
 			);
-		SenderState fastRecoveryState = new SenderStateFastRecovery(
-			this, slowStartState, congestionAvoidanceState
+		// Reno goes to fast recovery after 3x DupACKs:
+		wireStates(slowStartState, congestionAvoidanceState);
+	}
+
+	/**
+	 * Helper method, called from the constructors, to wire the given
+	 * slow start and congestion avoidance states with a new
+	 * fast recovery state, to which the sender goes after 3x DupACKs.
+	 * The sender starts in the slow start state.<BR>
+	 * A derived class calls this method with its own kinds of states,
+	 * e.g., {@link SenderCubic} with the CUBIC congestion avoidance.
+	 *
+	 * @param slowStartState_ the slow start state
+	 * @param congestionAvoidanceState_ the congestion avoidance state
+	 * @see #wireStates(SenderStateSlowStart, SenderStateCongestionAvoidance, SenderState)
+	 */
+	protected void wireStates(
+		SenderStateSlowStart slowStartState_,
+		SenderStateCongestionAvoidance congestionAvoidanceState_
+	) {
+		wireStates(
+			slowStartState_, congestionAvoidanceState_,
+			new SenderStateFastRecovery(
+				this, slowStartState_, congestionAvoidanceState_
+			)
 		);
-		slowStartState.setCongestionAvoidanceState(congestionAvoidanceState);
+	}
 
-		// Reno goes to fast recovery after 3x DupACKs:
-		slowStartState.setAfter3xDupACKstate(fastRecoveryState);
-		congestionAvoidanceState.setAfter3xDupACKstate(fastRecoveryState);
+	/**
+	 * Helper method, called from the constructors, to wire the given
+	 * slow start and congestion avoidance states with the given
+	 * loss recovery state, to which the sender goes after 3x DupACKs,
+	 * e.g., the SACK-based recovery of {@link SenderSACK}.
+	 * The sender starts in the slow start state.
+	 *
+	 * @param slowStartState_ the slow start state
+	 * @param congestionAvoidanceState_ the congestion avoidance state
+	 * @param recoveryState_ the loss recovery state, which leaves to
+	 * the given slow start or congestion avoidance state
+	 */
+	protected void wireStates(
+		SenderStateSlowStart slowStartState_,
+		SenderStateCongestionAvoidance congestionAvoidanceState_,
+		SenderState recoveryState_
+	) {
+		slowStartState_.setCongestionAvoidanceState(congestionAvoidanceState_);
+		slowStartState_.setAfter3xDupACKstate(recoveryState_);
+		congestionAvoidanceState_.setAfter3xDupACKstate(recoveryState_);
 
 		// Sender always starts in the "slow start" state
-		currentState = slowStartState;
+		currentState = slowStartState_;
+	}
+
+	/**
+	 * Returns the multiplicative decrease factor of the slow start threshold
+	 * on a congestion event: the threshold is set to the flight size
+	 * times this factor (see {@link #calcSSThreshAfterLoss(boolean)}).
+	 * Reno halves the flight size; a derived class, such as {@link SenderCubic},
+	 * overrides this method to reduce its window less.
+	 *
+	 * @return the decrease factor, <code>0.5</code> for Reno
+	 */
+	protected double getLossBeta() {
+		return 0.5;
+	}
+
+	/**
+	 * Helper method to calculate the new slow start threshold on
+	 * a congestion event: the flight size times {@link #getLossBeta()}.
+	 * The callers round it and keep it at least two segments.
+	 *
+	 * @param timeout_ <code>true</code> on an RTO timeout, <code>false</code> on the dupACKs
+	 * @return the reduced flight size, in bytes
+	 */
+	protected int calcSSThreshAfterLoss(boolean timeout_) {
+		int flightSize_ = (int) (lastByteSent - lastByteAcked);
+		return (int) (flightSize_ * getLossBeta());
 	}
 
 	/**
@@ -57,12 +141,11 @@ public class SenderReno extends Sender {
 	 * slightly different in how it calculates <code>SSThresh</code>.
 	 */
 	@Override
-	void onExpiredRTOtimer() {
+	protected void onExpiredRTOtimer() {
 		// Reduce the slow start threshold using
 		// the flight size (this is different from TCP Tahoe!).
-		int flightSize_ = lastByteSent - lastByteAcked;
-		SSThresh = flightSize_ / 2;
-		SSThresh = Math.max(SSThresh, 2*MSS); 			
+		SSThresh = calcSSThreshAfterLoss(true);
+		SSThresh = Math.max(SSThresh, 2*mss); 			
 
 		// Perform the exponential backoff for the RTO timeout interval 
 		rtoEstimator.timerBackoff();
@@ -86,7 +169,7 @@ public class SenderReno extends Sender {
 	 * @see SenderStateFastRecovery#handleDupACK(Segment)
 	 */
 	@Override
-	void onThreeDuplicateACKs() {
+	protected void onThreeDuplicateACKs() {
 		// Mark the sequence number of the last currently
 		// unacknowledged byte, so that we know when all
 		// currently outstanding data will be acknowledged.
@@ -97,15 +180,15 @@ public class SenderReno extends Sender {
 			lastByteSentBefore3xDupAcksRecvd = lastByteSent;
 
 		// reduce the slow start threshold
-		int flightSize_ = lastByteSent - lastByteAcked;
-		SSThresh = flightSize_ / 2;
+		int reducedFlightSize_ = calcSSThreshAfterLoss(false);
+		SSThresh = reducedFlightSize_;
 		// Set to an integer multiple of MSS
-		SSThresh -= (SSThresh % MSS);
-		SSThresh = Math.max(SSThresh, 2*MSS);
+		SSThresh -= (SSThresh % mss);
+		SSThresh = Math.max(SSThresh, 2*mss);
 
 		// congestion window = 1/2 FlightSize + 3xMSS:
 		congWindow =
-			Math.max(flightSize_/2, 2*MSS) + 3*MSS;
+			Math.max(reducedFlightSize_, 2*mss) + 3*mss;
 		// should we multiply with {@link Sender#dupACKthreshold} instead of "3"??
 
 		// Retransmit the oldest unacknowledged (presumably lost) segment.
@@ -114,8 +197,6 @@ public class SenderReno extends Sender {
 		// The timestamp of retransmitted segments should be set to "-1"
 	    // to avoid performing RTT estimation based on retransmitted segments:
 		oldestSegment_.timestamp = -1;
-	    localEndpoint.getNetworkLayerProtocol().send(
-	    	localEndpoint, oldestSegment_
-	    );
+	    transmit(oldestSegment_);
 	}
 }
\ No newline at end of file
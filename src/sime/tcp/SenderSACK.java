@@ -0,0 +1,258 @@
+/*
+ * Created on Oct 16, 2026
+ */
+package sime.tcp;
+
+import java.nio.ByteBuffer;
+
+import sime.Endpoint;
+
+/**
+ * TCP sender with selective acknowledgments (<b>SACK</b>), as described in
+ * <a href="http://tools.ietf.org/html/rfc2018" target="page">RFC 2018</a>,
+ * and the conservative SACK-based loss recovery of
+ * <a href="http://tools.ietf.org/html/rfc6675" target="page">RFC 6675</a>.<BR>
+ * Unlike Reno and NewReno, which learn about only one lost segment
+ * per round-trip time from the cumulative ACKs, this sender learns from the
+ * SACK blocks which segments the receiver holds out-of-order and keeps them
+ * on its {@link Scoreboard}. During the loss recovery, it can then retransmit
+ * <i>all</i> the holes in the received data within one RTT, which greatly
+ * shortens the recovery from a burst of losses at the {@link sime.Router}.</p>
+ *
+ * <p>Instead of inflating the congestion window with every dupACK,
+ * the sender estimates how many bytes are still in the network (the "pipe",
+ * see {@link #getPipe()}) and sends whenever the congestion window exceeds
+ * the pipe by at least one MSS: first the lost segments, and then new data.</p>
+ *
+ * <p>This is a simplified version of RFC 6675. For example, the sender
+ * retransmits only the segments that are deemed lost (rule 1 of <code>NextSeg()</code>),
+ * but not the other unacknowledged segments when it has no new data to send (rule 3).
+ *
+ * @see SenderStateSACKRecovery
+ * @see Receiver#generateSACKblocks(Segment)
+ *
+ * @author agent
+ */
+public class SenderSACK extends SenderReno {
+
+	/** The scoreboard of the selectively acknowledged data. */
+	protected Scoreboard scoreboard = new Scoreboard();
+
+	/** Pointer to the last byte retransmitted during the current loss
+	 * recovery (known as <code>HighRxt</code> in RFC 6675). The lost
+	 * segments are retransmitted in the ascending order, so the segments
+	 * below this pointer need not be retransmitted again. */
+	protected long lastByteRetransmitted = -1;
+
+	/** Pointer to the last byte sent {@link #lastByteSent} at the time when
+	 * the RTO timer last expired. Until all the data outstanding at that
+	 * moment are acknowledged, all of them that are not SACKed are considered
+	 * lost, and no new fast recovery is started (RFC 6675, Section 5.1). */
+	protected long lastByteSentBeforeRTO = -1;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param localTCPendpoint_ The local TCP endpoint
+	 * object that contains this module.
+	 */
+	public SenderSACK(Endpoint localTCPendpoint_) {
+		this(localTCPendpoint_, true);
+	}
+
+	/**
+	 * Constructor for the derived classes with their own kinds of states,
+	 * see {@link SenderReno#SenderReno(Endpoint, boolean)}.
+	 *
+	 * @param localTCPendpoint_ The local TCP endpoint
+	 * object that contains this module.
+	 * @param wireStates_ <code>true</code> to wire the states with the SACK-based
+	 * loss recovery, <code>false</code> if the derived class sets its states itself
+	 */
+	protected SenderSACK(Endpoint localTCPendpoint_, boolean wireStates_) {
+		super(localTCPendpoint_, false);
+		if (!wireStates_) {
+			return;
+		}
+
+		// construct the objects for different states of the sender,
+		// like Reno, but with the SACK-based loss recovery:
+		SenderStateSlowStart slowStartState = new SenderStateSlowStart(
+		    this, null, null /* after 3x DupACKs state */
+		);
+		SenderStateCongestionAvoidance congestionAvoidanceState =
+			new SenderStateCongestionAvoidance(
+				this, slowStartState, null /* after 3x DupACKs state */
+			);
+		wireStates(
+			slowStartState, congestionAvoidanceState,
+			new SenderStateSACKRecovery(this, slowStartState, congestionAvoidanceState)
+		);
+	}
+
+	/**
+	 * Returns <code>true</code>, because this sender processes the SACK blocks.
+	 */
+	@Override
+	public boolean isSACKpermitted() {
+		return true;
+	}
+
+	/**
+	 * Updates the {@link #scoreboard} with the received ACK,
+	 * before the ACK is processed as usual.
+	 *
+	 * @param ack_ An acknowledgment received from the receiver.
+	 * @see Sender#handle(Segment)
+	 */
+	@Override
+	public void handle(Segment ack_) {
+		scoreboard.update(ack_.ackSequenceNumber, ack_.sackBlocks);
+		if (lastByteAcked < lastByteSentBeforeRTO) {
+			// Still recovering after an RTO timeout, so the duplicate ACKs
+			// must not start a fast recovery:
+			dupACKcount = 0;
+		}
+		super.handle(ack_);
+	}
+
+	/**
+	 * Retransmits the lost segments, if any, and then sends new data,
+	 * as in {@link Sender#send(ByteBuffer)}. The lost segments are sent first,
+	 * because they hold back the delivery of all the data behind them.
+	 *
+	 * @param newData_ The new message to send (its remaining bytes), or <code>null</code>
+	 */
+	@Override
+	public void send(ByteBuffer newData_) {
+		retransmitLostSegments();
+		super.send(newData_);
+	}
+
+	/**
+	 * Resets the sender's parameters when the RTO timer timed out,
+	 * like {@link SenderReno#onExpiredRTOtimer()}, which also ends
+	 * the loss recovery.</p>
+	 *
+	 * <p>Afterwards, all the outstanding data that are not SACKed are
+	 * considered lost, and they are retransmitted in the slow start, ahead
+	 * of the new data (see {@link #retransmitLostSegments()}).<BR>
+	 * Note that RFC 2018 (Section 8) recommends to also clear the
+	 * scoreboard, in case the receiver discarded the data that it SACKed
+	 * ("reneging"). Our {@link Receiver} never discards the buffered
+	 * data, so the scoreboard is kept, and the SACKed segments are not
+	 * retransmitted.
+	 */
+	@Override
+	protected void onExpiredRTOtimer() {
+		super.onExpiredRTOtimer();
+		lastByteSentBeforeRTO = lastByteSent;
+		// The cumulative ACKs may now jump over many SACKed segments, so the slow
+		// start should count them as worth only a single MSS, like after 3x dupACKs:
+		lastByteSentBefore3xDupAcksRecvd = lastByteSent;
+		// The oldest segment is retransmitted right after this method returns:
+		lastByteRetransmitted = lastByteAcked + mss;
+	}
+
+	/**
+	 * This method starts the SACK-based loss recovery when
+	 * {@link Sender#dupACKthreshold} dupACKs are received.
+	 * It performs the <i>Fast Retransmit</i> of the oldest outstanding
+	 * segment, like {@link SenderReno#onThreeDuplicateACKs()}, and then
+	 * retransmits any other lost segments, as the congestion window allows.</p>
+	 *
+	 * <p>The congestion window is set to the new slow start threshold
+	 * (see {@link #calcSSThreshAfterLoss(boolean)}), without the "inflation" by three MSS,
+	 * because the SACKed segments are not counted in the {@link #getPipe() pipe}.
+	 */
+	@Override
+	protected void onThreeDuplicateACKs() {
+		// Mark the end of the loss recovery (known as "RecoveryPoint").
+		if (lastByteSentBefore3xDupAcksRecvd < 0)	// if not already set:
+			lastByteSentBefore3xDupAcksRecvd = lastByteSent;
+
+		// reduce the slow start threshold
+		SSThresh = calcSSThreshAfterLoss(false);
+		// Set to an integer multiple of MSS
+		SSThresh -= (SSThresh % mss);
+		SSThresh = Math.max(SSThresh, 2*mss);
+		congWindow = SSThresh;
+
+		// Retransmit the oldest unacknowledged (presumably lost) segment.
+		// This is called "Fast Retransmit"
+	    Segment oldestSegment_ = getOldestUnacknowledgedSegment();
+		// The timestamp of retransmitted segments should be set to "-1"
+	    // to avoid performing RTT estimation based on retransmitted segments:
+		oldestSegment_.timestamp = -1;
+	    transmit(oldestSegment_);
+	    lastByteRetransmitted = lastByteAcked + mss;
+
+	    // Retransmit the other holes, if the window allows:
+	    retransmitLostSegments();
+	}
+
+	/**
+	 * Retransmits the lost segments, in the ascending order of their
+	 * sequence numbers, as long as the congestion window exceeds the
+	 * {@link #getPipe() pipe} by at least one MSS. A segment is
+	 * lost if it is not SACKed but enough data above it are
+	 * (see {@link Scoreboard#getLostBoundary(int, int)}).
+	 * Each lost segment is retransmitted only once per loss recovery.
+	 * Nothing is retransmitted outside the loss recovery.
+	 */
+	void retransmitLostSegments() {
+		long lostBoundary_ = getLostBoundary();
+		while (congWindow - getPipe() >= mss) {
+			long sequenceNumber_ = scoreboard.nextUnsacked(
+				Math.max(lastByteRetransmitted, lastByteAcked) + 1
+			);
+			if (sequenceNumber_ >= lostBoundary_) {
+				break;	// no more lost segments
+			}
+			Segment segment_ = createDataSegment(sequenceNumber_);
+			segment_.timestamp = -1;	// no RTT estimation for retransmitted segments
+			transmit(segment_);
+			lastByteRetransmitted = sequenceNumber_ + mss - 1;
+		}
+	}
+
+	/**
+	 * Estimates how many bytes are currently in the network.
+	 * During the loss recovery, this is the flight size, less the SACKed bytes,
+	 * and less the lost bytes that were not retransmitted yet, because neither
+	 * of them occupies the network any longer. Outside the loss recovery,
+	 * this is simply the flight size.
+	 * @return the number of bytes currently in the network
+	 */
+	@Override
+	int getPipe() {
+		long lostBoundary_ = getLostBoundary();
+		if (lostBoundary_ < 0) {
+			return super.getPipe();		// not in the loss recovery
+		}
+		long pipe_ = (lastByteSent - lastByteAcked) - scoreboard.getSackedBytes();
+		long notRetransmitted_ = Math.max(lastByteRetransmitted, lastByteAcked) + 1;
+		if (lostBoundary_ > notRetransmitted_) {
+			pipe_ -= (lostBoundary_ - notRetransmitted_) -
+				scoreboard.getSackedBytes(notRetransmitted_, lostBoundary_);
+		}
+		return (int) pipe_;
+	}
+
+	/**
+	 * Helper method to return the sequence number below which all
+	 * the bytes that are not SACKed are considered lost.
+	 * During a fast recovery, this is decided by the scoreboard; after an RTO
+	 * timeout, all the data that were outstanding at the timeout are lost.
+	 * @return the sequence number of the boundary, or <code>-1</code>
+	 * if the sender is not in the loss recovery
+	 */
+	private long getLostBoundary() {
+		if (lastByteAcked < lastByteSentBeforeRTO) {
+			return lastByteSentBeforeRTO + 1;
+		} else if (lastByteSentBefore3xDupAcksRecvd >= 0) {
+			return scoreboard.getLostBoundary(mss, dupACKthreshold);
+		}
+		return -1L;
+	}
+}
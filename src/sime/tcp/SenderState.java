@@ -54,7 +54,7 @@ public abstract class SenderState {
 	 * @return the new value of the congestion window
 	 */
     protected abstract int calcCongWinAfterNewAck(
-    	int ackSequenceNumber_, int lastByteAcked_
+    	long ackSequenceNumber_, long lastByteAcked_
     );
 
 	/**
@@ -68,7 +68,7 @@ public abstract class SenderState {
 
 	/**
 	 * Processes a single new (i.e., <i>not duplicate</i>) acknowledgment.
-	 * This method calls {@link #calcCongWinAfterNewAck(int, int)} to
+	 * This method calls {@link #calcCongWinAfterNewAck(long, long)} to
 	 * perform the state-dependent calculation of the new congestion
 	 * window size, as well as to reset the RTO timer.
 	 * 
@@ -81,9 +81,12 @@ public abstract class SenderState {
     	if (ack_ == null) return this;
 
     	// Update the Last-Byte-Acked param, but memorize the previous value
-    	int lastByteAckedPrevious = sender.lastByteAcked;
+    	long lastByteAckedPrevious = sender.lastByteAcked;
     	sender.lastByteAcked = ack_.ackSequenceNumber - 1;
 
+    	// The acknowledged data need no longer be buffered for retransmission:
+    	sender.bytestream.release(ack_.ackSequenceNumber);
+
     	// Update the running estimate of the RTO timer interval::
 		// Note: A new ACK may cumulatively acknowledge several segments at once.
     	// Because our implementation of cumulative ACKs allows many
@@ -92,7 +95,7 @@ public abstract class SenderState {
     	// the RTT estimation convergence rate would be slowed down.
     	// To make up, we call updateRTT() as many times as the number
     	// of cumulatively ACK-ed segments:
-    	int howManySegmentsAcked = (sender.lastByteAcked - lastByteAckedPrevious) / Sender.MSS;
+    	int howManySegmentsAcked = (int) ((sender.lastByteAcked - lastByteAckedPrevious) / sender.mss);
     	howManySegmentsAcked = (howManySegmentsAcked > 0) ? howManySegmentsAcked : 1;
     	for (int i = 0; i < howManySegmentsAcked; i++) {
     		sender.rtoEstimator.updateRTT(
@@ -107,8 +110,10 @@ public abstract class SenderState {
     	sender.congWindow =
     		calcCongWinAfterNewAck(ack_.ackSequenceNumber, lastByteAckedPrevious);
 
-		// Just in case, also reset the counter of duplicate ACKs.
+		// Just in case, also reset the counter of duplicate ACKs,
+    	// and the window of the Limited Transmit.
     	sender.dupACKcount = 0;
+    	sender.limitedTransmitWindow = 0;
 
     	// return the next state that the sender will transition to
     	return lookupNextStateAfterNewAck();
@@ -122,7 +127,11 @@ public abstract class SenderState {
      * 
      * <p>Tahoe ignores additional dupACKs over and above the first three.
 	 * Reno doesn't&mdash;it counts them within its <em>fast recovery</em>
-	 * procedure. See {@link SenderStateFastRecovery#handleDupACK(Segment)}.
+	 * procedure. See {@link SenderStateFastRecovery#handleDupACK(Segment)}.</p>
+	 * 
+	 * <p>On the first two dupACKs, the sender is allowed to send one new
+	 * segment each, beyond its congestion window ("Limited Transmit",
+	 * see {@link Sender#setLimitedTransmit(boolean)}).
      */
     public SenderState handleDupACK(Segment dupAck_) {
 		// Update the sender's count of duplicate ACKs.
@@ -132,10 +141,12 @@ public abstract class SenderState {
 		// Note: Tahoe ignores additional dupACKs over and above the first three.
 		// Reno doesn't ignore -- see TCPSenderStateFastRecovery#handleDupACK()
 		if (sender.dupACKcount > 2) {
+			// The Limited Transmit is over:
+			sender.limitedTransmitWindow = 0;
 			if (
-				(Simulator.currentReportingLevel  & Simulator.REPORTING_SENDERS) != 0
+				(sender.reporting.level & Simulator.REPORTING_SENDERS) != 0
 			) {
-				System.out.println(
+				sender.reporting.out.println(
 					" ..... Three (or more) duplicate ACKs received! ....."
 				);
 			}
@@ -147,15 +158,22 @@ public abstract class SenderState {
 		    // Transition into the state that comes after 3 x duplicate ACKs
 		    // depending  on the type of TCP sender (Tahoe, Reno, etc.)
     		if (
-    			(Simulator.currentReportingLevel & Simulator.REPORTING_SENDERS) != 0
+    			(sender.reporting.level & Simulator.REPORTING_SENDERS) != 0
         		&& after3xDupACKstate instanceof SenderStateFastRecovery
 			) {
-				System.out.println("############## Sender entering fast recovery.");
+				sender.reporting.out.println("############## Sender entering fast recovery.");
 			}
 	    	return after3xDupACKstate;
 
 		} else {
-			// do nothing because we still don't know whether the segment is lost
+			// We still don't know whether the segment is lost, but one segment
+			// has left the network. The "Limited Transmit" (RFC 3042) lets the sender
+			// send one new segment for each of the first two dupACKs, if the receive
+			// window allows, so that more dupACKs may arrive to trigger the fast retransmit.
+			// The new segments are sent by the sender after this dupACK is processed.
+			if (sender.limitedTransmit) {
+				sender.limitedTransmitWindow = sender.dupACKcount * sender.mss;
+			}
 			return this;	// remain in the slow start state
 		}
     }
@@ -175,9 +193,7 @@ public abstract class SenderState {
 
 		// Retransmit the oldest unacknowledged (presumably lost) segment.
 		// Recall that all TCP senders send only one segment when the RTO timer expires.
-    	sender.localEndpoint.getNetworkLayerProtocol().send(
-    		sender.localEndpoint, oldestUnackedSeg_
-    	);
+    	sender.transmit(oldestUnackedSeg_);
 
     	// Transition to the slow start state (if this state is not already slow start).
     	return slowStartState;
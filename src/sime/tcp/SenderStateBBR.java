@@ -0,0 +1,118 @@
+/*
+ * Created on Oct 16, 2026
+ */
+package sime.tcp;
+
+import sime.Simulator;
+
+/**
+ * The only state of a BBR sender. Unlike the other senders, BBR does not switch
+ * between the slow start and the congestion avoidance on the losses:
+ * its congestion window and pacing rate are set by the model of the path
+ * (see {@link SenderBBR#handle(Segment)}), and this state only performs the loss
+ * recovery: the fast retransmit after {@link Sender#dupACKthreshold} dupACKs,
+ * and the retransmission of the other lost segments until the "full ACK",
+ * as in {@link SenderStateSACKRecovery}.
+ *
+ * @see SenderBBR
+ * @author agent
+ *
+ */
+public class SenderStateBBR extends SenderState {
+
+	/** The BBR sender, which holds the model of the path. */
+	protected SenderBBR bbrSender;
+
+    /**
+     * Constructor for the state of a BBR sender. The state is its own
+     * slow start state, to which the sender returns after an RTO timeout.
+     *
+     * @param sender
+     */
+    public SenderStateBBR(SenderBBR sender) {
+    	this.sender = sender;
+    	this.bbrSender = sender;
+    	this.slowStartState = this;
+    	this.congestionAvoidanceState = this;
+    	this.after3xDupACKstate = this;
+    }
+
+	/**
+	 * Helper method to return the congestion window after a "new ACK",
+	 * which is already set by the model. During the loss recovery,
+	 * a "partial ACK" retransmits the next holes, and the "full ACK"
+	 * ends the recovery, which restores the congestion window
+	 * from before the recovery.</p>
+	 *
+	 * <p>The RTO timer is re-started for every new ACK.
+	 *
+	 * @param ackSequenceNumber_ acknowledged data sequence number
+	 * @param lastByteAcked_ last byte previously acknowledged (not yet updated with this new ACK!)
+	 * @return the new value of the congestion window
+	 */
+	@Override
+	protected int calcCongWinAfterNewAck(
+		long ackSequenceNumber_, long lastByteAcked_
+	) {
+    	// Re-start the RTO timer for any other outstanding segments.
+		if (sender.lastByteAcked < sender.lastByteSent) {
+			sender.startRTOtimer();
+		} else { // everything is ACK-ed, cancel the RTO timer
+			sender.cancelRTOtimer();
+		}
+
+		if (sender.lastByteSentBefore3xDupAcksRecvd >= 0) {
+			if (ackSequenceNumber_ <= sender.lastByteSentBefore3xDupAcksRecvd) {
+				// "partial ACK" received: retransmit the next holes, if any
+				bbrSender.retransmitLostSegments();
+			} else {	// "full ACK" received
+				sender.lastByteSentBefore3xDupAcksRecvd = -1;
+				if (
+					(sender.reporting.level & Simulator.REPORTING_SENDERS) != 0
+				) {
+					sender.reporting.out.println("############## End of BBR loss recovery.");
+				}
+				bbrSender.onRecoveryEnd();
+			}
+		}
+		return sender.congWindow;
+	}
+
+	/**
+	 * Helper method to return the next state after a "new ACK",
+	 * which is always this same state.
+	 *
+	 * @return this state
+	 */
+	@Override
+	protected SenderState lookupNextStateAfterNewAck() {
+		return this;
+	}
+
+    /**
+     * Counts a duplicate ACK and starts the loss recovery
+     * after {@link Sender#dupACKthreshold} dupACKs, unless it is in progress.
+     * The congestion window is not inflated; during the loss recovery,
+     * the SACK blocks of the dupACKs shrink the pipe instead.
+     *
+     * @param dupAck_ The duplicate acknowledgment to process.
+     * @return Returns this same state.
+     */
+	@Override
+    public SenderState handleDupACK(Segment dupAck_) {
+		sender.dupACKcount++;
+		if (sender.lastByteSentBefore3xDupAcksRecvd >= 0) {
+			bbrSender.retransmitLostSegments();
+		} else if (sender.dupACKcount >= Sender.dupACKthreshold) {
+			if (
+				(sender.reporting.level & Simulator.REPORTING_SENDERS) != 0
+			) {
+				sender.reporting.out.println(
+					" ..... Three (or more) duplicate ACKs received! ....."
+				);
+			}
+			sender.onThreeDuplicateACKs();
+		}
+		return this;
+    }
+}
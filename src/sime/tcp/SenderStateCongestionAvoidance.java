@@ -85,7 +85,7 @@ public class SenderStateCongestionAvoidance extends SenderState {
 	 */
 	@Override
 	protected int calcCongWinAfterNewAck(
-		int ackSequenceNumber_, int lastByteAcked_
+		long ackSequenceNumber_, long lastByteAcked_
 	) {
     	// Re-start the RTO timer for any outstanding segments.
 		if (sender.lastByteAcked < sender.lastByteSent) {
@@ -97,9 +97,9 @@ public class SenderStateCongestionAvoidance extends SenderState {
 		int congWindowNew_ = sender.congWindow;
 		// Check if acknowledging more than the current CongWin size:
 		if ((ackSequenceNumber_ - lastByteAcked_) >= congWindowNew_) {
-			congWindowNew_ += Sender.MSS;
+			congWindowNew_ += sender.mss;
 		} else {
-			congWindowNew_ += ((Sender.MSS * Sender.MSS) / congWindowNew_);
+			congWindowNew_ += (int) (((long) sender.mss * sender.mss) / congWindowNew_);
 		}
 		return congWindowNew_;
 	}
@@ -116,9 +116,9 @@ public class SenderStateCongestionAvoidance extends SenderState {
 		// If YES, change the sender's mode to "slow start"
     	if (sender.congWindow < sender.SSThresh) {
     		if (	// this can never happen, but just in case ...
-        			(Simulator.currentReportingLevel & Simulator.REPORTING_SENDERS) != 0
+        			(sender.reporting.level & Simulator.REPORTING_SENDERS) != 0
     			) {
-    				System.out.println("############## Sender entering slow start.");
+    				sender.reporting.out.println("############## Sender entering slow start.");
     			}
     		sender.resetParametersToSlowStart();
     		return slowStartState;	// transition to the slow start state
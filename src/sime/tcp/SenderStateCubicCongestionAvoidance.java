@@ -0,0 +1,63 @@
+/*
+ * Created on Oct 16, 2026
+ */
+package sime.tcp;
+
+/**
+ * This class defines how a TCP CUBIC sender behaves in
+ * the congestion avoidance state: the congestion window follows
+ * the cubic window function of
+ * <a href="http://tools.ietf.org/html/rfc9438" target="page">RFC 9438</a>,
+ * computed by {@link SenderCubic#calcCubicCongWin(long)}, instead
+ * of growing by one MSS per RTT.
+ * The transitions to the other states are the same as for
+ * the other TCP senders.
+ *
+ * @see SenderCubic
+ * @author agent
+ *
+ */
+public class SenderStateCubicCongestionAvoidance extends SenderStateCongestionAvoidance {
+
+	/** The CUBIC sender, which holds the parameters of the cubic function. */
+	protected SenderCubic cubicSender;
+
+    /**
+     * Constructor for the congestion avoidance state of a TCP CUBIC sender.
+     * The state to enter after three duplicate-ACKs is set later, using
+     * {@link #setAfter3xDupACKstate(SenderState)}.
+     *
+     * @param sender
+     * @param slowStartState Slow start state
+     */
+    public SenderStateCubicCongestionAvoidance(
+    	SenderCubic sender, SenderState slowStartState
+    ) {
+    	super(sender, slowStartState, null /* after 3x DupACKs state */);
+    	this.cubicSender = sender;
+    }
+
+	/**
+	 * Helper method to calculate the new value of the congestion
+	 * window after a "new ACK" is received that acknowledges
+	 * data never acknowledged before, using the cubic window function.<br />
+	 * This method also resets the RTO timer for any outstanding segments.
+	 *
+	 * @param ackSequenceNumber_ acknowledged data sequence number
+	 * @param lastByteAcked_ last byte previously acknowledged (not yet updated with this new ACK!)
+	 * @return the new value of the congestion window
+	 */
+	@Override
+	protected int calcCongWinAfterNewAck(
+		long ackSequenceNumber_, long lastByteAcked_
+	) {
+    	// Re-start the RTO timer for any outstanding segments.
+		if (sender.lastByteAcked < sender.lastByteSent) {
+			sender.startRTOtimer();
+		} else { // everything is ACK-ed, cancel the RTO timer
+			sender.cancelRTOtimer();
+		}
+
+		return cubicSender.calcCubicCongWin(ackSequenceNumber_ - lastByteAcked_ - 1);
+	}
+}
@@ -28,7 +28,7 @@ public class SenderStateFastRecovery extends SenderState {
 	 * Parameter that indicates whether this is the first
 	 * partial ACK of the data that were outstanding when
 	 * a data loss was detected.<br />
-	 * Used in TCP NewReno, in method {@link #calcCongWinAfterNewAck(int, int)}
+	 * Used in TCP NewReno, in method {@link #calcCongWinAfterNewAck(long, long)}
 	 * if the "Impatient variant" of the NewReno sender is implemented.
 	 * (see <a href="http://tools.ietf.org/html/rfc3782" target="page">RFC 3782</a>).
 	 */
@@ -100,7 +100,7 @@ public class SenderStateFastRecovery extends SenderState {
 	 */
 	@Override
 	protected int calcCongWinAfterNewAck(
-		int ackSequenceNumber_, int lastByteAcked_
+		long ackSequenceNumber_, long lastByteAcked_
 	) {
     	// Regular Reno doesn't distinguish "partial" vs. "full"
     	// acknowledgments (see RFC 2582 -- http://tools.ietf.org/html/rfc2582)
@@ -111,7 +111,7 @@ public class SenderStateFastRecovery extends SenderState {
 		// and check if fast recovery is completed:
     	if (sender.lastByteSentBefore3xDupAcksRecvd == -1) {
     		// PANIC: This is the initial slow start -- how could we be here?!?!?
-    		System.out.println(
+    		sender.reporting.out.println(
     			"PANIC in " + this.getClass().getName() + "#" + this.getClass().getEnclosingMethod().getName()
     		);
     		return sender.congWindow;
@@ -120,18 +120,16 @@ public class SenderStateFastRecovery extends SenderState {
     	) {		// "partial ACK" received
     		// ONLY in case of a NewReno sender, because of a "partial ACK":
     		// 1. First, retransmit the first unacknowledged segment
-    		sender.localEndpoint.getNetworkLayerProtocol().send(
-    			sender.localEndpoint, sender.getOldestUnacknowledgedSegment()
-    		);
+    		sender.transmit(sender.getOldestUnacknowledgedSegment());
     		// 2. Second, calculate the new congestion window size
-    		int newlyAcked = ackSequenceNumber_ - lastByteAcked_;
+    		int newlyAcked = (int) (ackSequenceNumber_ - lastByteAcked_);
     		// 2.a) Deflate the congestion window by the amount of new data acknowledged
     		int congWindowTemp = sender.congWindow - newlyAcked;
-    		if (newlyAcked >= Sender.MSS) {
+    		if (newlyAcked >= sender.mss) {
     			// 2.b) If the partial ACK acknowledges at least one MSS of new data
     			// then add back MSS bytes to the congestion window
     			// to reflect the segment that has left the network
-    			congWindowTemp += Sender.MSS;
+    			congWindowTemp += sender.mss;
     		}
         	// 3. Third, re-start the RTO timer for outstanding segments.
         	// Currently we implement Slow-but-Steady variant of NewReno (RFC 3782).
@@ -189,9 +187,9 @@ public class SenderStateFastRecovery extends SenderState {
 	    	// All outstanding data at 3x dupACKs have been ACK-ed,
 	    	// so transition to the congestion avoidance state.
 			if (	// For debugging purposes only...
-	    		(Simulator.currentReportingLevel & Simulator.REPORTING_SENDERS) != 0
+	    		(sender.reporting.level & Simulator.REPORTING_SENDERS) != 0
 			) {
-				System.out.println("############## End of Fast Recovery; sender entering Congestion Avoidance.");
+				sender.reporting.out.println("############## End of Fast Recovery; sender entering Congestion Avoidance.");
 			}
 	    	return congestionAvoidanceState;
     	}
@@ -216,7 +214,7 @@ public class SenderStateFastRecovery extends SenderState {
 		// Increase the congestion window by one full MSS.
 		// This inflates the congestion window for the
 	    //  additional segment that has left the network.
-		sender.congWindow += Sender.MSS;
+		sender.congWindow += sender.mss;
 
 		return this;	// remain in the fast recovery state
     }
@@ -0,0 +1,208 @@
+/*
+ * Created on Oct 16, 2026
+ */
+package sime.tcp;
+
+import sime.Simulator;
+
+/**
+ * The fast recovery state with the <b>Proportional Rate Reduction</b> (PRR),
+ * as specified in <a href="http://tools.ietf.org/html/rfc6937" target="page">RFC 6937</a>.
+ * It replaces {@link SenderStateFastRecovery} of a Reno-like sender,
+ * see {@link Sender#setProportionalRateReduction(boolean)}.</p>
+ *
+ * <p>The plain fast recovery sets the congestion window to
+ * <code>FlightSize/2 + 3&times;MSS</code> and inflates it by one MSS per dupACK,
+ * so the sender stays silent until about half of the window has been
+ * acknowledged, and then sends the rest of the recovery in one go; after
+ * the window is "deflated" on the full ACK, the sender may send another burst.
+ * With PRR, on each ACK during the recovery the sender sends just so much
+ * that the data sent in the recovery remain in proportion to the data
+ * delivered to the receiver:
+ * <pre>
+ * if (pipe &gt; SSThresh)
+ *     sndcnt = CEIL(prr_delivered &times; SSThresh / RecoverFS) - prr_out
+ * else
+ *     sndcnt = MIN(SSThresh - pipe, MAX(prr_delivered - prr_out, DeliveredData) + MSS)
+ * </pre>
+ * where <code>RecoverFS</code> is the flight size when the recovery began.
+ * Thus, the transmissions are spread evenly through the recovery, and
+ * the number of bytes in the network approaches <code>SSThresh</code>,
+ * at which the window is when the recovery ends. The second line is the
+ * "slow start reduction bound" of RFC 6937, which lets the pipe regrow
+ * towards <code>SSThresh</code> if more segments were lost.</p>
+ *
+ * <p>Our Reno-like senders do not know which segments were received
+ * out of order, so the delivered data (<code>DeliveredData</code>) are
+ * estimated as RFC 6937 suggests for the connections without SACK: one MSS for
+ * each dupACK, and on a new ACK the bytes acknowledged less those already counted
+ * for the dupACKs. The bytes counted for the dupACKs are not in the network anymore,
+ * so they are subtracted from the flight size to obtain the pipe.
+ * As in {@link SenderStateFastRecovery}, a NewReno sender retransmits the oldest
+ * unacknowledged segment on each "partial ACK", and the retransmission
+ * is counted in <code>prr_out</code>.
+ *
+ * @see SenderStateFastRecovery
+ * @author agent
+ */
+public class SenderStatePRR extends SenderStateFastRecovery {
+
+	/** The value of {@link Sender#lastByteSentBefore3xDupAcksRecvd} of
+	 * the current recovery, or <code>-1</code> before the first recovery;
+	 * when it differs, a new recovery began and the counters are reset. */
+	protected long recoveryPoint = -1L;
+
+	/** The flight size when the current recovery began (<code>RecoverFS</code>), in bytes. */
+	protected long recoverFS = 0L;
+
+	/** The bytes delivered to the receiver since the recovery began (<code>prr_delivered</code>). */
+	protected long prrDelivered = 0L;
+
+	/** The bytes retransmitted since the recovery began, including
+	 * the fast retransmit; the new data sent are counted separately
+	 * from {@link Sender#lastByteSent} (see {@link #getPrrOut()}). */
+	protected long prrRetransmitted = 0L;
+
+	/** The bytes counted as delivered for the dupACKs, but not yet
+	 * acknowledged cumulatively. */
+	protected long dupACKcredit = 0L;
+
+	/**
+	 * Constructor for the fast recovery state with PRR.
+	 *
+	 * @param sender
+	 * @param slowStartState Slow start state
+	 * @param congestionAvoidanceState Congestion avoidance state
+	 */
+	public SenderStatePRR(
+		Sender sender, SenderState slowStartState,
+		SenderState congestionAvoidanceState
+	) {
+		super(sender, slowStartState, congestionAvoidanceState);
+	}
+
+	/**
+	 * Helper method to reset the counters, if a new recovery began
+	 * since they were last used. The recovery began on the third dupACK,
+	 * which delivered one segment, and the fast retransmit was sent then.
+	 *
+	 * @param lastByteAcked_ last byte acknowledged before the current ACK
+	 */
+	protected void checkRecoveryStart(long lastByteAcked_) {
+		if (recoveryPoint == sender.lastByteSentBefore3xDupAcksRecvd) {
+			return;	// the same recovery goes on
+		}
+		recoveryPoint = sender.lastByteSentBefore3xDupAcksRecvd;
+		recoverFS = recoveryPoint - lastByteAcked_;
+		prrDelivered = sender.mss;
+		prrRetransmitted = sender.mss;
+		dupACKcredit = sender.mss;
+	}
+
+	/**
+	 * Returns the bytes sent since the recovery began (<code>prr_out</code>):
+	 * the retransmissions, and the new data sent beyond the data that were
+	 * outstanding when the recovery began.
+	 * @return the bytes sent in the current recovery
+	 */
+	protected long getPrrOut() {
+		return prrRetransmitted + Math.max(sender.lastByteSent - recoveryPoint, 0L);
+	}
+
+	/**
+	 * Helper method to calculate the congestion window so that on this ACK,
+	 * the sender sends exactly the number of bytes allowed by PRR
+	 * (<code>sndcnt</code>): the congestion window is set to the bytes
+	 * currently in the network plus <code>sndcnt</code>.
+	 *
+	 * @param deliveredData_ the bytes delivered by this ACK (<code>DeliveredData</code>)
+	 * @return the new value of the congestion window
+	 */
+	protected int calcPRRCongWindow(long deliveredData_) {
+		prrDelivered += deliveredData_;
+		long prrOut_ = getPrrOut();
+		long pipe_ = sender.getPipe() - dupACKcredit;
+		long sndcnt_;
+		if (pipe_ > sender.SSThresh) {
+			// Proportional Rate Reduction:
+			sndcnt_ = (prrDelivered * sender.SSThresh + recoverFS - 1) / recoverFS - prrOut_;
+		} else {
+			// Slow Start Reduction Bound:
+			long limit_ = Math.max(prrDelivered - prrOut_, deliveredData_) + sender.mss;
+			sndcnt_ = Math.min(sender.SSThresh - pipe_, limit_);
+		}
+		sndcnt_ = Math.max(sndcnt_, 0L);
+
+		if (
+			(sender.reporting.level & Simulator.REPORTING_SENDERS) != 0
+		) {
+			sender.reporting.out.println(
+				" ..... PRR: prr_delivered=" + prrDelivered + ", prr_out=" + prrOut_ +
+				", pipe=" + pipe_ + ", sndcnt=" + sndcnt_ + " ....."
+			);
+		}
+		return (int) (sender.getPipe() + sndcnt_);
+	}
+
+	/**
+	 * Helper method to calculate the new value of the congestion
+	 * window after a "new ACK", as {@link SenderStateFastRecovery#calcCongWinAfterNewAck(long, long)},
+	 * except that on a "partial ACK" of a NewReno sender the window
+	 * is set by PRR, rather than deflated by the bytes acknowledged.
+	 * The "full ACK" sets the congestion window to the slow start threshold.
+	 *
+	 * @param ackSequenceNumber_ acknowledged data sequence number
+	 * @param lastByteAcked_ last byte previously acknowledged (not yet updated with this new ACK!)
+	 * @return the new value of the congestion window
+	 */
+	@Override
+	protected int calcCongWinAfterNewAck(
+		long ackSequenceNumber_, long lastByteAcked_
+	) {
+		if (
+			sender.lastByteSentBefore3xDupAcksRecvd == -1 ||
+			!(sender instanceof SenderNewReno) ||
+			(ackSequenceNumber_ >= sender.lastByteSentBefore3xDupAcksRecvd)
+		) {
+			return super.calcCongWinAfterNewAck(ackSequenceNumber_, lastByteAcked_);
+		}
+		// "partial ACK" received
+		checkRecoveryStart(lastByteAcked_);
+
+		// The bytes acknowledged, less those already counted for the dupACKs,
+		// but at least the retransmitted segment has been delivered:
+		long newlyAcked_ = ackSequenceNumber_ - (lastByteAcked_ + 1);
+		long deliveredData_ = Math.max(newlyAcked_ - dupACKcredit, (long) sender.mss);
+		dupACKcredit = Math.max(dupACKcredit - (newlyAcked_ - sender.mss), 0L);
+
+		// Retransmit the first unacknowledged segment, as NewReno:
+		sender.transmit(sender.getOldestUnacknowledgedSegment());
+		prrRetransmitted += sender.mss;
+
+		// Re-start the RTO timer for outstanding segments.
+		if (sender.lastByteAcked < sender.lastByteSent) {
+			sender.startRTOtimer();
+		} else { // everything is ACK-ed, cancel the RTO timer
+			sender.cancelRTOtimer();
+		}
+		return calcPRRCongWindow(deliveredData_);
+	}
+
+    /**
+     * This method handles a duplicate acknowledgment during
+     * the fast recovery with PRR. The dupACK reports one more segment
+     * delivered to the receiver, and the congestion window is set
+     * so that the sender sends what PRR allows, instead of inflating
+     * the window by one <tt>MSS</tt>.
+     *
+     * @param dupAck_ The duplicate acknowledgment to process.
+     * @return Returns this same state.
+     */
+	@Override
+    public SenderState handleDupACK(Segment dupAck_) {
+		checkRecoveryStart(sender.lastByteAcked);
+		dupACKcredit += sender.mss;
+		sender.congWindow = calcPRRCongWindow(sender.mss);
+		return this;	// remain in the fast recovery state
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Created on Oct 16, 2026
+ */
+package sime.tcp;
+
+/**
+ * This class defines how a {@link SenderPluggable} behaves in
+ * the congestion avoidance state: the congestion window is calculated
+ * by the sender's algorithm, {@link PluggableCongestionControl#onNewAck(long, long)}.
+ * The transitions to the other states are the same as for
+ * the other TCP senders.
+ *
+ * @see SenderPluggable
+ * @author agent
+ *
+ */
+public class SenderStatePluggableCongestionAvoidance extends SenderStateCongestionAvoidance {
+
+	/** The sender, which holds the congestion control algorithm. */
+	protected SenderPluggable pluggableSender;
+
+    /**
+     * Constructor for the congestion avoidance state of a pluggable TCP sender.
+     * The state to enter after three duplicate-ACKs is set later, using
+     * {@link #setAfter3xDupACKstate(SenderState)}.
+     *
+     * @param sender
+     * @param slowStartState Slow start state
+     */
+    public SenderStatePluggableCongestionAvoidance(
+    	SenderPluggable sender, SenderState slowStartState
+    ) {
+    	super(sender, slowStartState, null /* after 3x DupACKs state */);
+    	this.pluggableSender = sender;
+    }
+
+	/**
+	 * Helper method to calculate the new value of the congestion
+	 * window after a "new ACK" is received that acknowledges
+	 * data never acknowledged before, using the sender's algorithm.<br />
+	 * This method also resets the RTO timer for any outstanding segments.
+	 *
+	 * @param ackSequenceNumber_ acknowledged data sequence number
+	 * @param lastByteAcked_ last byte previously acknowledged (not yet updated with this new ACK!)
+	 * @return the new value of the congestion window
+	 */
+	@Override
+	protected int calcCongWinAfterNewAck(
+		long ackSequenceNumber_, long lastByteAcked_
+	) {
+    	// Re-start the RTO timer for any outstanding segments.
+		if (sender.lastByteAcked < sender.lastByteSent) {
+			sender.startRTOtimer();
+		} else { // everything is ACK-ed, cancel the RTO timer
+			sender.cancelRTOtimer();
+		}
+
+		int congWindow_ = pluggableSender.getAlgorithm().onNewAck(
+			ackSequenceNumber_ - lastByteAcked_ - 1,
+			sender.localEndpoint.getSimulator().getCurrentTime()
+		);
+		congWindow_ = Math.max(congWindow_, 2*sender.mss);
+		// If the algorithm shrinks the window, the slow start threshold
+		// goes down with it, so the sender stays in the congestion avoidance:
+		if (congWindow_ < sender.SSThresh) {
+			sender.SSThresh = congWindow_;
+		}
+		return congWindow_;
+	}
+}
@@ -0,0 +1,117 @@
+/*
+ * Created on Oct 16, 2026
+ */
+package sime.tcp;
+
+import sime.Simulator;
+
+/**
+ * TCP SACK sender's state Fast Recovery, in which the sender performs
+ * the SACK-based loss recovery of
+ * <a href="http://tools.ietf.org/html/rfc6675" target="page">RFC 6675</a>.
+ * Like NewReno, the sender remains in this state until a new ACK acknowledges
+ * <i>all</i> the data that were outstanding when the loss was detected.
+ * Unlike NewReno, with every ACK (a dupACK or a "partial ACK") it
+ * retransmits as many lost segments as the congestion window allows,
+ * rather than one segment per RTT.
+ *
+ * @see SenderSACK
+ * @author agent
+ *
+ */
+public class SenderStateSACKRecovery extends SenderStateFastRecovery {
+
+	/** The SACK sender, whose scoreboard drives the retransmissions. */
+	protected SenderSACK sackSender;
+
+	/**
+     * Constructor for the SACK-based fast recovery state.
+     *
+     * @param sender
+     * @param slowStartState Slow start state
+     * @param congestionAvoidanceState Congestion avoidance state
+     */
+    public SenderStateSACKRecovery(
+    	SenderSACK sender, SenderState slowStartState,
+    	SenderState congestionAvoidanceState
+    ) {
+    	super(sender, slowStartState, congestionAvoidanceState);
+    	this.sackSender = sender;
+    }
+
+	/**
+	 * Helper method to calculate the new value of the congestion
+	 * window after a "new ACK" is received.<BR>
+	 * For a "partial ACK", the congestion window is not changed,
+	 * since the ACKed bytes have left the pipe, and the lost segments
+	 * are retransmitted as the window allows.<BR>
+	 * For a "full ACK", the loss recovery is over and the congestion window
+	 * is set to the slow start threshold, like in NewReno.</p>
+	 *
+	 * <p>The RTO timer is re-started for every new ACK.
+	 *
+	 * @param ackSequenceNumber_ acknowledged data sequence number
+	 * @param lastByteAcked_ last byte previously acknowledged (not yet updated with this new ACK!)
+	 * @return the new value of the congestion window
+	 */
+	@Override
+	protected int calcCongWinAfterNewAck(
+		long ackSequenceNumber_, long lastByteAcked_
+	) {
+    	// Re-start the RTO timer for any other outstanding segments.
+		if (sender.lastByteAcked < sender.lastByteSent) {
+			sender.startRTOtimer();
+		} else { // everything is ACK-ed, cancel the RTO timer
+			sender.cancelRTOtimer();
+		}
+
+		if (ackSequenceNumber_ <= sender.lastByteSentBefore3xDupAcksRecvd) {
+			// "partial ACK" received: retransmit the next holes, if any
+			sackSender.retransmitLostSegments();
+			return sender.congWindow;
+		} else {	// "full ACK" received
+	    	// All data that were outstanding at 3x dupACKs have been ACK-ed,
+	    	// so reset the indicator parameter.
+			sender.lastByteSentBefore3xDupAcksRecvd = -1;
+			// Set the congestion window size to slow start threshold.
+			return sender.SSThresh;
+		}
+	}
+
+	/**
+	 * Helper method to return the next state after a "new ACK".
+	 * The sender remains in this state until the "full ACK",
+	 * and then enters the congestion avoidance state.
+	 *
+	 * @return the next state to transition to.
+	 */
+	@Override
+	protected SenderState lookupNextStateAfterNewAck() {
+		if (sender.lastByteAcked < sender.lastByteSentBefore3xDupAcksRecvd) {
+			return this;	// remain in the fast recovery state
+		} else {
+			if (	// For debugging purposes only...
+	    		(sender.reporting.level & Simulator.REPORTING_SENDERS) != 0
+			) {
+				sender.reporting.out.println("############## End of SACK Recovery; sender entering Congestion Avoidance.");
+			}
+	    	return congestionAvoidanceState;
+		}
+	}
+
+    /**
+     * This method handles a duplicate acknowledgment
+     * during the SACK-based recovery. The congestion window is not
+     * inflated; instead, the SACK blocks of the dupACK (already entered
+     * on the scoreboard) shrink the pipe, so that the lost segments
+     * may be retransmitted.
+     *
+     * @param dupAck_ The duplicate acknowledgment to process.
+     * @return Returns this same state.
+     */
+	@Override
+    public SenderState handleDupACK(Segment dupAck_) {
+		sackSender.retransmitLostSegments();
+		return this;	// remain in the fast recovery state
+    }
+}
@@ -63,7 +63,7 @@ public class SenderStateSlowStart extends SenderState {
 	 * Therefore, cumulative ACKs for segments sent before the loss was
 	 * detected count the same as individual ACKs towards increasing CongWin.
 	 * (The limit during Reno-style fast recovery is one segment,
-	 * {@link SenderStateFastRecovery#calcCongWinAfterNewAck(int, int)}).</p>
+	 * {@link SenderStateFastRecovery#calcCongWinAfterNewAck(long, long)}).</p>
 	 * 
 	 * @param ackSequenceNumber_ acknowledged data sequence number
 	 * @param lastByteAcked_ last byte previously acknowledged
@@ -71,7 +71,7 @@ public class SenderStateSlowStart extends SenderState {
 	 */
 	@Override
 	protected int calcCongWinAfterNewAck(
-		int ackSequenceNumber_, int lastByteAcked_
+		long ackSequenceNumber_, long lastByteAcked_
 	) {
 		if (sender.lastByteSentBefore3xDupAcksRecvd == -1) {
     		// This is the initial slow start:
@@ -83,13 +83,13 @@ public class SenderStateSlowStart extends SenderState {
 			}
 
 			// 2. Second, grow the CongWin by the full amount of the (possibly cumulative) ACK
-			return sender.congWindow + (ackSequenceNumber_ - lastByteAcked_ - 1);
+			return sender.congWindow + (int) (ackSequenceNumber_ - lastByteAcked_ - 1);
     	} else {
     		// This is a slow start recovering after a segment loss
     		// and before the sender has acknowledged all the segments
     		// that were outstanding at the time 3x dupACKs were received,
     		// the sender counts cumulative ACKs as worth only a single MSS.
-    		return sender.congWindow + Sender.MSS;
+    		return sender.congWindow + sender.mss;
     	}
 	}
 
@@ -107,9 +107,9 @@ public class SenderStateSlowStart extends SenderState {
     		return this;	// remain in the slow start state
     	} else {
     		if (
-    			(Simulator.currentReportingLevel & Simulator.REPORTING_SENDERS) != 0
+    			(sender.reporting.level & Simulator.REPORTING_SENDERS) != 0
 			) {
-				System.out.println("############## Sender entering congestion avoidance.");
+				sender.reporting.out.println("############## Sender entering congestion avoidance.");
 			}
     		// transition to the congestion avoidance state
     		return congestionAvoidanceState;
@@ -0,0 +1,66 @@
+/*
+ * Created on Oct 16, 2026
+ */
+package sime.tcp;
+
+/**
+ * This class defines how a TCP Vegas sender behaves in
+ * the congestion avoidance state: once per RTT, the congestion window
+ * grows or shrinks by one MSS, depending on how many segments are queued
+ * in the routers, as computed by {@link SenderVegas#calcVegasCongWin()},
+ * instead of growing by one MSS per RTT regardless of the queue.
+ * The transitions to the other states are the same as for
+ * the other TCP senders.
+ *
+ * @see SenderVegas
+ * @author agent
+ *
+ */
+public class SenderStateVegasCongestionAvoidance extends SenderStateCongestionAvoidance {
+
+	/** The Vegas sender, which holds the RTT estimates. */
+	protected SenderVegas vegasSender;
+
+    /**
+     * Constructor for the congestion avoidance state of a TCP Vegas sender.
+     * The state to enter after three duplicate-ACKs is set later, using
+     * {@link #setAfter3xDupACKstate(SenderState)}.
+     *
+     * @param sender
+     * @param slowStartState Slow start state
+     */
+    public SenderStateVegasCongestionAvoidance(
+    	SenderVegas sender, SenderState slowStartState
+    ) {
+    	super(sender, slowStartState, null /* after 3x DupACKs state */);
+    	this.vegasSender = sender;
+    }
+
+	/**
+	 * Helper method to calculate the new value of the congestion
+	 * window after a "new ACK" is received that acknowledges
+	 * data never acknowledged before. The window changes only
+	 * at the end of an RTT round.<br />
+	 * This method also resets the RTO timer for any outstanding segments.
+	 *
+	 * @param ackSequenceNumber_ acknowledged data sequence number
+	 * @param lastByteAcked_ last byte previously acknowledged (not yet updated with this new ACK!)
+	 * @return the new value of the congestion window
+	 */
+	@Override
+	protected int calcCongWinAfterNewAck(
+		long ackSequenceNumber_, long lastByteAcked_
+	) {
+    	// Re-start the RTO timer for any outstanding segments.
+		if (sender.lastByteAcked < sender.lastByteSent) {
+			sender.startRTOtimer();
+		} else { // everything is ACK-ed, cancel the RTO timer
+			sender.cancelRTOtimer();
+		}
+
+		if (vegasSender.sampleRTT(ackSequenceNumber_)) {
+			return vegasSender.calcVegasCongWin();
+		}
+		return sender.congWindow;
+	}
+}
@@ -0,0 +1,58 @@
+/*
+ * Created on Oct 16, 2026
+ */
+package sime.tcp;
+
+/**
+ * This class defines how a TCP Vegas sender behaves in the slow start state:
+ * the congestion window grows like in {@link SenderStateSlowStart}, but
+ * the slow start ends as soon as the router queue starts to build up
+ * (see {@link SenderVegas#exitSlowStart(int)}), rather than at the slow
+ * start threshold or on a segment loss.
+ *
+ * @see SenderVegas
+ * @author agent
+ *
+ */
+public class SenderStateVegasSlowStart extends SenderStateSlowStart {
+
+	/** The Vegas sender, which holds the RTT estimates. */
+	protected SenderVegas vegasSender;
+
+	/**
+     * Constructor for the slow start state of a TCP Vegas sender.
+     * The other states are set later, using
+     * {@link #setCongestionAvoidanceState(SenderState)} and
+     * {@link #setAfter3xDupACKstate(SenderState)}.
+     *
+     * @param sender
+     */
+    public SenderStateVegasSlowStart(SenderVegas sender) {
+    	super(sender, null, null /* after 3x DupACKs state */);
+    	this.vegasSender = sender;
+    }
+
+	/**
+	 * Helper method to calculate the new value of the congestion
+	 * window after a "new ACK", as in the slow start of the other senders,
+	 * unless the ACK ends an RTT round in which more than
+	 * {@link SenderVegas#GAMMA} segments were queued.
+	 *
+	 * @param ackSequenceNumber_ acknowledged data sequence number
+	 * @param lastByteAcked_ last byte previously acknowledged
+	 * @return the new value of the congestion window
+	 */
+	@Override
+	protected int calcCongWinAfterNewAck(
+		long ackSequenceNumber_, long lastByteAcked_
+	) {
+		int congWindow_ = super.calcCongWinAfterNewAck(ackSequenceNumber_, lastByteAcked_);
+		if (
+			vegasSender.sampleRTT(ackSequenceNumber_) &&
+			vegasSender.getQueuedSegments() > SenderVegas.GAMMA
+		) {
+			return vegasSender.exitSlowStart(congWindow_);
+		}
+		return congWindow_;
+	}
+}
@@ -58,11 +58,11 @@ public class SenderTahoe extends Sender {
 	 * RTO timer timed out.
 	 */
 	@Override
-	void onExpiredRTOtimer() {
+	protected void onExpiredRTOtimer() {
 		// Reduce the slow start threshold
 		// using the old congestion window size.
 		SSThresh = congWindow / 2;
-		SSThresh = Math.max(SSThresh, 2*MSS); 			
+		SSThresh = Math.max(SSThresh, 2*mss); 			
 
 		// Perform the exponential backoff for the RTO timeout interval 
 		rtoEstimator.timerBackoff();
@@ -89,18 +89,18 @@ public class SenderTahoe extends Sender {
 	 * for the outstanding segments.
 	 */
 	@Override
-	void onThreeDuplicateACKs() {
+	protected void onThreeDuplicateACKs() {
 		// Tahoe ignores additional dupACKs over and above the first three.
 		if (dupACKcount != dupACKthreshold) return;
 
 		// reduce the slow start threshold
 		SSThresh = congWindow / 2;
 		// Set to an integer multiple of MSS
-		SSThresh -= (SSThresh % MSS);
-		SSThresh = Math.max(SSThresh, 2*MSS);
+		SSThresh -= (SSThresh % mss);
+		SSThresh = Math.max(SSThresh, 2*mss);
 
 		// congestion window will be set to 1xMSS:
-		congWindow = MSS;
+		congWindow = mss;
 						
 		// Retransmit the oldest unacknowledged (presumably lost) segment.
 		// This is called "Fast Retransmit"
@@ -109,9 +109,7 @@ public class SenderTahoe extends Sender {
 		Segment oldestSegment_ = getOldestUnacknowledgedSegment();
 		// the timestamp of retransmitted segments should be set to "-1"
 		oldestSegment_.timestamp = -1;
-	    localEndpoint.getNetworkLayerProtocol().send(
-	    	localEndpoint, oldestSegment_
-	    );
+	    transmit(oldestSegment_);
 
 		//NOTE: We do NOT reset the counter of duplicate ACKs
 	    // because here we don't know how many more dupACKs may still arrive.
@@ -0,0 +1,197 @@
+/*
+ * Created on Oct 16, 2026
+ */
+package sime.tcp;
+
+import sime.Endpoint;
+import sime.Simulator;
+
+/**
+ * The <b>Vegas</b> version of the TCP sender, as described by L. S. Brakmo and
+ * L. L. Peterson in <a href="http://dx.doi.org/10.1109/49.464716" target="page">TCP Vegas:
+ * End to End Congestion Avoidance on a Global Internet</a> (IEEE JSAC, 1995).<BR>
+ * Unlike the other senders, Vegas does not wait for a segment loss to learn that
+ * the router queue is full. It compares the <i>expected</i> throughput, given
+ * the smallest RTT measured so far (the <i>base RTT</i>, when the queues are empty),
+ * with the <i>actual</i> throughput, given the current RTT:
+ * <pre>
+ * Expected = CongWin / BaseRTT
+ * Actual = CongWin / RTT
+ * Diff = (Expected - Actual) &times; BaseRTT
+ * </pre>
+ * <code>Diff</code> is the number of the sender's segments queued in the routers.
+ * Once per RTT, in the congestion avoidance, the congestion window grows
+ * by one MSS if <code>Diff</code> is below {@link #ALPHA}, shrinks by one MSS
+ * if it is above {@link #BETA}, and is left as is otherwise. Thus, the sender
+ * keeps a few segments in the bottleneck queue, so that the bottleneck link is
+ * never idle, but the queue does not overflow.</p>
+ *
+ * <p>The slow start ends as soon as <code>Diff</code> exceeds {@link #GAMMA},
+ * and the window is then reduced to what the path carries without a queue.
+ * (The original Vegas also doubles the window only every other RTT in the slow start,
+ * which is not implemented here.) The RTT samples are those of {@link RTOEstimator},
+ * see {@link RTOEstimator#getLatestRTT()}; the current RTT is the smallest sample
+ * in the last RTT, so that a delayed ACK does not look like a queue.
+ * The segment losses, which Vegas should rarely see, are handled
+ * like by {@link SenderNewReno}.
+ *
+ * @see SenderStateVegasSlowStart
+ * @see SenderStateVegasCongestionAvoidance
+ * @author agent
+ */
+public class SenderVegas extends SenderNewReno {
+	/** The number of queued segments below which the window grows: {@value}. */
+	static final double ALPHA = 1.0;
+
+	/** The number of queued segments above which the window shrinks: {@value}. */
+	static final double BETA = 3.0;
+
+	/** The number of queued segments above which the slow start ends: {@value}. */
+	static final double GAMMA = 1.0;
+
+	/** The sequence number of the last byte sent when the current RTT round began;
+	 * when it is acknowledged, the round ends. */
+	protected long roundEnd = -1L;
+
+	/** The smallest RTT sample in the current round,
+	 * or <code>-1</code> if none yet. */
+	protected long roundMinRTT = -1L;
+
+	/** The RTT of the last complete round (the smallest sample
+	 * in that round), or <code>-1</code> if unknown. */
+	protected long currentRTT = -1L;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param localTCPendpoint_ The local TCP endpoint
+	 * object that contains this module.
+	 */
+	public SenderVegas(Endpoint localTCPendpoint_) {
+		super(localTCPendpoint_, false);
+
+		// construct the objects for different states of the sender,
+		// like NewReno, but with the Vegas slow start and congestion avoidance:
+		SenderStateSlowStart slowStartState = new SenderStateVegasSlowStart(this);
+		wireStates(
+			slowStartState, new SenderStateVegasCongestionAvoidance(this, slowStartState)
+		);
+	}
+
+	/**
+	 * Takes the RTT sample of a new ACK, which was just given to
+	 * the {@link RTOEstimator}, and checks whether the ACK ends
+	 * the current RTT round. If so, the smallest sample in the round
+	 * becomes the current RTT, and a new round begins.
+	 *
+	 * @param ackSequenceNumber_ acknowledged data sequence number
+	 * @return <code>true</code> if a round ended and both the base RTT and
+	 * the current RTT are known, so the window may be adjusted
+	 */
+	boolean sampleRTT(long ackSequenceNumber_) {
+		long rtt_ = rtoEstimator.getLatestRTT();
+		if (rtt_ > 0L && (roundMinRTT < 0L || rtt_ < roundMinRTT)) {
+			roundMinRTT = rtt_;
+		}
+		if (ackSequenceNumber_ <= roundEnd) {
+			return false;	// the round goes on
+		}
+		roundEnd = lastByteSent;
+		currentRTT = roundMinRTT;
+		roundMinRTT = -1L;
+		return (currentRTT > 0L && rtoEstimator.getMinRTT() > 0L);
+	}
+
+	/**
+	 * Returns the estimated number of the sender's segments queued in the routers,
+	 * i.e., the difference <code>Diff</code> between the expected and
+	 * the actual throughput, times the base RTT.
+	 * @return the number of queued segments, or zero if the current RTT is unknown
+	 */
+	double getQueuedSegments() {
+		if (currentRTT <= 0L) {
+			return 0.0;
+		}
+		long baseRTT_ = rtoEstimator.getMinRTT();
+		return ((double) congWindow / mss) * (currentRTT - baseRTT_) / currentRTT;
+	}
+
+	/**
+	 * Calculates the congestion window at the end of an RTT round
+	 * in the congestion avoidance, from the number of queued segments.
+	 * When the window shrinks, the slow start threshold goes down with it,
+	 * so the sender stays in the congestion avoidance.
+	 *
+	 * @return the new congestion window size, in bytes
+	 */
+	int calcVegasCongWin() {
+		double diff_ = getQueuedSegments();
+		if (diff_ < ALPHA) {
+			return congWindow + mss;
+		} else if (diff_ > BETA) {
+			int congWindow_ = Math.max(congWindow - mss, 2*mss);
+			SSThresh = Math.min(SSThresh, congWindow_);
+			return congWindow_;
+		} else {
+			return congWindow;
+		}
+	}
+
+	/**
+	 * Ends the slow start, because the queue started to build up:
+	 * the congestion window is reduced to the window that the path carries
+	 * at the base RTT (plus one segment), and the slow start threshold
+	 * is set to the new window, so the sender enters the congestion avoidance.
+	 *
+	 * @param congWindow_ the congestion window after this ACK in the slow start
+	 * @return the new congestion window size, in bytes
+	 */
+	int exitSlowStart(int congWindow_) {
+		long targetWindow_ = (long) congWindow * rtoEstimator.getMinRTT() / currentRTT;
+		// Set to an integer multiple of MSS
+		targetWindow_ -= (targetWindow_ % mss);
+		congWindow_ = (int) Math.min(congWindow_, targetWindow_ + mss);
+		congWindow_ = Math.max(congWindow_, 2*mss);
+		SSThresh = congWindow_;
+
+		if (
+			(reporting.level & Simulator.REPORTING_SENDERS) != 0
+		) {
+			reporting.out.println(
+				" ..... Vegas queue building up: Diff=" + getQueuedSegments() +
+				" segments, CongWin reduced to " + congWindow_ + " ....."
+			);
+		}
+		return congWindow_;
+	}
+
+	/**
+	 * Resets the congestion parameters for the slow start,
+	 * which also begins a new RTT round.
+	 */
+	@Override
+	public void resetParametersToSlowStart() {
+		super.resetParametersToSlowStart();
+		roundEnd = lastByteSent;
+		roundMinRTT = -1L;
+	}
+
+	/**
+	 * Reports the values of the congestion parameters,
+	 * as {@link Sender#reportCongestionParameters()}, and also
+	 * the RTT estimates, if the sender's activities are reported.
+	 */
+	@Override
+	public void reportCongestionParameters() {
+		super.reportCongestionParameters();
+		if (
+			(reporting.level & Simulator.REPORTING_SENDERS) != 0
+		) {
+			reporting.out.println(
+				"\t\tVegas: BaseRTT=" + Simulator.timeToTicks(rtoEstimator.getMinRTT()) +
+				"\tRTT=" + ((currentRTT < 0) ? -1.0 : Simulator.timeToTicks(currentRTT)) +
+				"\tDiff=" + getQueuedSegments()
+			);
+		}
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * Created on Oct 16, 2026
+ */
+package sime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Test;
+
+import sime.tcp.Sender;
+import sime.tcp.SenderTimers;
+
+/**
+ * Checks that re-arming the timers of the simulated components in place,
+ * with {@link Simulator#rearmTimeoutAt(TimerSimulated, long)}, allocates
+ * no objects: the RTO and pacing timers of a {@link Sender}, and
+ * the packet-arrival timer of a {@link Link}. The bytes allocated by
+ * the current thread are read from {@link com.sun.management.ThreadMXBean}.
+ * An allocation in the re-arm path would show in every round of
+ * the measurement, so the test checks the round with the fewest bytes.
+ *
+ * @author agent
+ */
+public class TimerAllocationTest {
+	/** The number of times each timer is re-armed while measured. */
+	private static final int REARMS = 100000;
+
+	/** The number of times each timer is re-armed before the measurement,
+	 * so that the code is compiled and the timer queue has grown. */
+	private static final int WARMUP_REARMS = 200000;
+
+	/** The number of measured rounds of {@link #REARMS} re-arms. The just-in-time
+	 * compiler may still replace the compiled code during a round, which
+	 * allocates a few bytes in this thread, so the smallest round counts. */
+	private static final int ROUNDS = 5;
+
+	/** The firing times of the timers, ahead of the current time,
+	 * used in turn so that the timers move around in the timer queue. */
+	private final long[] offsets = new long[1024];
+
+	private Simulator simulator = null;
+	private Sender sender = null;
+	private TimerSimulated pacingTimer = null;
+	private TimerSimulated arrivalTimer = null;
+
+	@Test
+	public void rearmingTimersAllocatesNothing() throws Exception {
+		java.lang.management.ThreadMXBean threadBean_ = ManagementFactory.getThreadMXBean();
+		assumeTrue(threadBean_ instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean allocationBean_ =
+			(com.sun.management.ThreadMXBean) threadBean_;
+		assumeTrue(allocationBean_.isThreadAllocatedMemorySupported());
+		allocationBean_.setThreadAllocatedMemoryEnabled(true);
+		long threadId_ = Thread.currentThread().getId();
+
+		simulator = new Simulator("NewReno", 0, 65536, Reporting.silent());
+		Endpoint endpoint_ = new Endpoint(
+			simulator, "sender", null, "NewReno" + Endpoint.PACED_SUFFIX, 65536
+		);
+		Endpoint peer_ = new Endpoint(simulator, "receiver", endpoint_, "NewReno", 65536);
+		Link link_ = new Link(simulator, "link", endpoint_, peer_, 0L, 0L);
+		sender = endpoint_.getSender();
+		pacingTimer = SenderTimers.getPacingTimer(sender);
+		arrivalTimer = link_.channelN1toN2.arrivalTimer;
+		for (int i_ = 0; i_ < offsets.length; i_++) {
+			offsets[i_] = (i_ + 1) * Simulator.TIMER_RESOLUTION;
+		}
+
+		rearmTimers(WARMUP_REARMS);
+		assertTrue(SenderTimers.getRTOtimer(sender).isRunning());
+		assertTrue(pacingTimer.isRunning());
+		assertTrue(arrivalTimer.isRunning());
+
+		long minAllocated_ = Long.MAX_VALUE;
+		for (int round_ = 0; round_ < ROUNDS; round_++) {
+			long allocatedBefore_ = allocationBean_.getThreadAllocatedBytes(threadId_);
+			rearmTimers(REARMS);
+			long allocatedAfter_ = allocationBean_.getThreadAllocatedBytes(threadId_);
+			minAllocated_ = Math.min(minAllocated_, allocatedAfter_ - allocatedBefore_);
+		}
+		assertEquals(
+			"Bytes allocated by " + REARMS + " re-arms of each timer",
+			0L, minAllocated_
+		);
+	}
+
+	/**
+	 * Helper method to re-arm each timer the given number of times.
+	 * @param count_ the number of re-arms
+	 */
+	private void rearmTimers(int count_) {
+		long now_ = simulator.getCurrentTime();
+		for (int i_ = 0; i_ < count_; i_++) {
+			long time_ = now_ + offsets[i_ & (offsets.length - 1)];
+			SenderTimers.startRTOtimer(sender);
+			simulator.rearmTimeoutAt(pacingTimer, time_);
+			simulator.rearmTimeoutAt(arrivalTimer, time_);
+		}
+	}
+}
@@ -0,0 +1,176 @@
+/*
+ * Created on Oct 16, 2026
+ */
+package sime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests of the {@link TimingWheel}: the timers are cascaded from
+ * the coarse levels and the overflow list, and fired in the order of
+ * their time and, for equal times, in the order in which they were set,
+ * also when some of them are cancelled.
+ *
+ * @author agent
+ */
+public class TimingWheelTest {
+	/** The number of lowest-level slots spanned by a slot of level 1, 2 and 3. */
+	private static final long LEVEL1 = TimingWheel.SLOTS;
+	private static final long LEVEL2 = LEVEL1 * TimingWheel.SLOTS;
+	private static final long LEVEL3 = LEVEL2 * TimingWheel.SLOTS;
+
+	/** The number of lowest-level slots spanned by the whole wheel. */
+	private static final long WHEEL = LEVEL3 * TimingWheel.SLOTS;
+
+	/** The sequence number of the next timer set. */
+	private long order = 0L;
+
+	/**
+	 * Helper method to create a timer and set its order, as the simulator does.
+	 */
+	private TimerSimulated timer(long time_) {
+		TimerSimulated timer_ = new TimerSimulated(null, 0, time_);
+		timer_.setOrder(order++);
+		return timer_;
+	}
+
+	@Test
+	public void cascadesFromCoarseLevels() {
+		// A slot lasts 1 time unit:
+		TimingWheel wheel_ = new TimingWheel(1L, 0L);
+		TimerSimulated level3_ = timer(3 * LEVEL3 + 5);
+		TimerSimulated level2_ = timer(2 * LEVEL2 + 7);
+		TimerSimulated level1_ = timer(LEVEL1 + 3);
+		TimerSimulated level0_ = timer(10L);
+		wheel_.add(level3_);
+		wheel_.add(level2_);
+		wheel_.add(level1_);
+		wheel_.add(level0_);
+		assertEquals(3, level3_.wheelLevel);
+		assertEquals(2, level2_.wheelLevel);
+		assertEquals(1, level1_.wheelLevel);
+		assertEquals(0, level0_.wheelLevel);
+
+		assertSame(level0_, wheel_.poll());
+		assertSame(level1_, wheel_.poll());
+		assertSame(level2_, wheel_.poll());
+		assertSame(level3_, wheel_.poll());
+		assertFalse(level3_.isRunning());
+		assertTrue(wheel_.isEmpty());
+		assertNull(wheel_.poll());
+	}
+
+	@Test
+	public void reinsertsOverflowOnTopLevelWrap() {
+		TimingWheel wheel_ = new TimingWheel(1L, 0L);
+		TimerSimulated secondWrap_ = timer(2 * WHEEL + 1);
+		TimerSimulated firstWrap_ = timer(WHEEL + LEVEL2 + 1);
+		TimerSimulated inWheel_ = timer(WHEEL - 1);
+		wheel_.add(secondWrap_);
+		wheel_.add(firstWrap_);
+		wheel_.add(inWheel_);
+		assertEquals(TimingWheel.IN_OVERFLOW, secondWrap_.wheelLevel);
+		assertEquals(TimingWheel.IN_OVERFLOW, firstWrap_.wheelLevel);
+		assertEquals(3, inWheel_.wheelLevel);
+
+		assertSame(inWheel_, wheel_.poll());
+		// After the first wrap, the timer of the second wrap is still too far:
+		assertSame(firstWrap_, wheel_.poll());
+		assertSame(secondWrap_, wheel_.poll());
+		assertTrue(wheel_.isEmpty());
+	}
+
+	@Test
+	public void cancelsTimerThatIsDue() {
+		TimingWheel wheel_ = new TimingWheel(10L, 0L);
+		TimerSimulated first_ = timer(100L);
+		TimerSimulated second_ = timer(101L);
+		TimerSimulated third_ = timer(102L);
+		TimerSimulated fourth_ = timer(103L);
+		wheel_.add(fourth_);
+		wheel_.add(second_);
+		wheel_.add(first_);
+		wheel_.add(third_);
+
+		// All four are in the same slot and become due together:
+		assertSame(first_, wheel_.peek());
+		assertEquals(TimingWheel.IN_READY, second_.wheelLevel);
+		assertEquals(TimingWheel.IN_READY, third_.wheelLevel);
+
+		assertTrue(wheel_.remove(third_));
+		assertFalse(third_.isRunning());
+		assertFalse(wheel_.remove(third_));
+
+		assertSame(first_, wheel_.poll());
+		assertSame(second_, wheel_.poll());
+		assertSame(fourth_, wheel_.poll());
+		assertTrue(wheel_.isEmpty());
+		assertNull(wheel_.peek());
+	}
+
+	@Test
+	public void firesEqualTimesFirstInFirstOut() {
+		TimingWheel wheel_ = new TimingWheel(1L, 0L);
+		ArrayList<TimerSimulated> timers_ = new ArrayList<TimerSimulated>();
+		// Equal times on the lowest level, and on a coarse level to be cascaded:
+		for (long time_ : new long[] {5L, LEVEL2 + 9}) {
+			for (int i_ = 0; i_ < 20; i_++) {
+				TimerSimulated timer_ = timer(time_);
+				timers_.add(timer_);
+				wheel_.add(timer_);
+			}
+		}
+		for (TimerSimulated timer_ : timers_) {
+			assertSame(timer_, wheel_.poll());
+		}
+		assertTrue(wheel_.isEmpty());
+	}
+
+	@Test
+	public void firesInOrderOfTimeWithCancellations() {
+		TimingWheel wheel_ = new TimingWheel(1L, 0L);
+		Random random_ = new Random(1L);
+		ArrayList<TimerSimulated> expected_ = new ArrayList<TimerSimulated>();
+		for (int i_ = 0; i_ < 2000; i_++) {
+			// Many equal times, at all levels:
+			long time_ = (long) Math.pow(2.0, 34.0 * random_.nextDouble()) / 16 * 16;
+			TimerSimulated timer_ = timer(time_);
+			wheel_.add(timer_);
+			expected_.add(timer_);
+		}
+		Collections.sort(expected_);
+
+		// Cancel every third timer, and some more once they are due:
+		ArrayList<TimerSimulated> fired_ = new ArrayList<TimerSimulated>();
+		for (int i_ = 0; i_ < expected_.size(); i_ += 3) {
+			assertTrue(wheel_.remove(expected_.get(i_)));
+		}
+		while (!wheel_.isEmpty()) {
+			TimerSimulated timer_ = wheel_.peek();
+			if (random_.nextInt(10) == 0) {
+				assertTrue(wheel_.remove(timer_));
+			} else {
+				assertSame(timer_, wheel_.poll());
+				fired_.add(timer_);
+			}
+		}
+		int next_ = 0;
+		for (TimerSimulated timer_ : fired_) {
+			while (expected_.get(next_) != timer_) {
+				assertFalse(fired_.contains(expected_.get(next_)));
+				next_++;
+			}
+			next_++;
+		}
+	}
+}
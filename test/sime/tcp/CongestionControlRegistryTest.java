@@ -0,0 +1,98 @@
+/*
+ * Created on Oct 16, 2026
+ */
+package sime.tcp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import sime.Endpoint;
+import sime.Reporting;
+import sime.Simulator;
+
+/**
+ * Tests of the {@link CongestionControlRegistry}: the algorithm
+ * {@link TestCongestionControl}, provided on the test class path, is
+ * discovered by {@link java.util.ServiceLoader}, and its senders
+ * make the window decisions of the algorithm in a simulation.
+ *
+ * @author agent
+ */
+public class CongestionControlRegistryTest {
+	/** A router buffer that overflows, so that the senders see congestion events. */
+	private static final int BUFFER_SIZE = 6*Sender.DEFAULT_MSS + 100;
+
+	@Before
+	public void setUp() {
+		TestCongestionControl.reset();
+	}
+
+	@Test
+	public void discoversProvider() {
+		CongestionControl algorithm_ = CongestionControlRegistry.lookup(TestCongestionControl.NAME);
+		assertNotNull(algorithm_);
+		assertSame(TestCongestionControl.class, algorithm_.getClass());
+		assertNull(CongestionControlRegistry.lookup("testaimd"));
+
+		// The built-in versions come first, and NewReno is pluggable too:
+		ArrayList<String> names_ = new ArrayList<String>(CongestionControlRegistry.getNames());
+		assertEquals(
+			Arrays.asList("Tahoe", "Reno", "NewReno", "SACK", "CUBIC", "BBR", "DCTCP", "Vegas"),
+			names_.subList(0, 8)
+		);
+		assertTrue(names_.contains(TestCongestionControl.NAME));
+		assertTrue(CongestionControlRegistry.lookup("NewReno") instanceof NewRenoCongestionControl);
+	}
+
+	@Test
+	public void createsSenderWithOwnAlgorithm() throws Exception {
+		Simulator simulator_ = new Simulator("NewReno", 0, 65536, Reporting.silent());
+		Endpoint endpoint_ = new Endpoint(
+			simulator_, "sender", null, TestCongestionControl.NAME + Endpoint.PRR_SUFFIX, 65536
+		);
+		SenderPluggable sender_ = (SenderPluggable) endpoint_.getSender();
+		PluggableCongestionControl algorithm_ = sender_.getAlgorithm();
+		assertSame(TestCongestionControl.class, algorithm_.getClass());
+		assertNotSame(CongestionControlRegistry.lookup(TestCongestionControl.NAME), algorithm_);
+		assertSame(sender_, algorithm_.sender);
+		assertEquals(1, TestCongestionControl.senders);
+		assertTrue(sender_.pacing);
+
+		// The slow start threshold is decided by the algorithm:
+		sender_.lastByteSent = 20L * sender_.mss - 1;
+		assertEquals(15 * sender_.mss, sender_.calcSSThreshAfterLoss(false));
+		assertEquals(1, TestCongestionControl.congestionEvents);
+		assertEquals(0, TestCongestionControl.newAcks);
+	}
+
+	@Test
+	public void runsSimulation() {
+		Simulator simulator_ = new Simulator(
+			TestCongestionControl.NAME, BUFFER_SIZE, 65536, Reporting.silent()
+		);
+		simulator_.runVirtual(Simulator.TOTAL_DATA_LENGTH, 200);
+		assertTrue(TestCongestionControl.senders > 0);
+		assertTrue(TestCongestionControl.newAcks > 0);
+		assertTrue(TestCongestionControl.congestionEvents > 0);
+		assertTrue(simulator_.getPacketsDropped() > 0);
+		assertTrue(simulator_.getTotalBytesTransmitted() > 0);
+
+		// The same network with the NewReno decisions runs differently:
+		Simulator newReno_ = new Simulator("NewReno", BUFFER_SIZE, 65536, Reporting.silent());
+		newReno_.runVirtual(Simulator.TOTAL_DATA_LENGTH, 200);
+		assertTrue(
+			simulator_.getPacketsDropped() != newReno_.getPacketsDropped() ||
+			simulator_.getAverageQueueOccupancy() != newReno_.getAverageQueueOccupancy()
+		);
+	}
+}
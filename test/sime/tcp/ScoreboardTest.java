@@ -0,0 +1,206 @@
+/*
+ * Created on Oct 16, 2026
+ */
+package sime.tcp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import sime.Endpoint;
+import sime.Reporting;
+import sime.Simulator;
+
+/**
+ * Tests of the {@link Scoreboard}: the SACK blocks are merged into
+ * disjoint intervals, a cumulative acknowledgment cuts them, and
+ * the bytes are lost by the <code>IsLost()</code> rule of RFC 6675;
+ * and of the pipe of a {@link SenderSACK} that retransmits several holes.
+ *
+ * @author agent
+ */
+public class ScoreboardTest {
+	/** The maximum segment size of the tests of the lost bytes, in bytes. */
+	private static final int MSS = 100;
+
+	/** The threshold number of duplicate acknowledgments. */
+	private static final int DUP_THRESHOLD = 3;
+
+	/**
+	 * Helper method to check that the scoreboard holds exactly
+	 * the given intervals, as pairs of left and right edges.
+	 */
+	private static void assertIntervals(Scoreboard scoreboard_, long... edges_) {
+		assertEquals(edges_.length / 2, scoreboard_.intervals.size());
+		long sacked_ = 0L;
+		for (int i_ = 0; i_ < edges_.length; i_ += 2) {
+			assertEquals(Long.valueOf(edges_[i_ + 1]), scoreboard_.intervals.get(edges_[i_]));
+			sacked_ += edges_[i_ + 1] - edges_[i_];
+		}
+		assertEquals(sacked_, scoreboard_.getSackedBytes());
+	}
+
+	@Test
+	public void mergesAdjacentAndOverlappingBlocks() {
+		Scoreboard scoreboard_ = new Scoreboard();
+		scoreboard_.update(0L, new long[] {100L, 200L, 300L, 400L});
+		assertIntervals(scoreboard_, 100L, 200L, 300L, 400L);
+
+		// Adjacent on both sides, so the three become one:
+		scoreboard_.update(0L, new long[] {200L, 300L});
+		assertIntervals(scoreboard_, 100L, 400L);
+
+		// Overlapping the right edge, and inside the interval:
+		scoreboard_.update(0L, new long[] {350L, 500L, 150L, 160L});
+		assertIntervals(scoreboard_, 100L, 500L);
+
+		// A block covering several intervals and the holes between them:
+		scoreboard_.update(0L, new long[] {600L, 700L, 800L, 900L, 1000L, 1100L});
+		assertIntervals(scoreboard_, 100L, 500L, 600L, 700L, 800L, 900L, 1000L, 1100L);
+		scoreboard_.update(0L, new long[] {550L, 950L});
+		assertIntervals(scoreboard_, 100L, 500L, 550L, 950L, 1000L, 1100L);
+		scoreboard_.update(0L, new long[] {50L, 1000L});
+		assertIntervals(scoreboard_, 50L, 1100L);
+
+		assertTrue(scoreboard_.isSacked(50L));
+		assertTrue(scoreboard_.isSacked(1099L));
+		assertFalse(scoreboard_.isSacked(1100L));
+		assertEquals(1100L, scoreboard_.getHighestSacked());
+		assertEquals(1100L, scoreboard_.nextUnsacked(70L));
+		assertEquals(20L, scoreboard_.nextUnsacked(20L));
+	}
+
+	@Test
+	public void cumulativeAckCutsIntervals() {
+		Scoreboard scoreboard_ = new Scoreboard();
+		scoreboard_.update(0L, new long[] {100L, 200L, 300L, 400L, 500L, 600L});
+
+		// Splits the first interval, keeping the part above the ACK:
+		scoreboard_.update(150L, null);
+		assertIntervals(scoreboard_, 150L, 200L, 300L, 400L, 500L, 600L);
+
+		// Releases one interval, and splits the next one:
+		scoreboard_.update(350L, null);
+		assertIntervals(scoreboard_, 350L, 400L, 500L, 600L);
+
+		// Up to the right edge of an interval, and a SACK block below the ACK:
+		scoreboard_.update(400L, new long[] {300L, 450L});
+		assertIntervals(scoreboard_, 400L, 450L, 500L, 600L);
+		scoreboard_.update(450L, new long[] {100L, 200L});
+		assertIntervals(scoreboard_, 500L, 600L);
+
+		scoreboard_.update(700L, null);
+		assertTrue(scoreboard_.isEmpty());
+		assertEquals(0L, scoreboard_.getSackedBytes());
+		assertEquals(-1L, scoreboard_.getHighestSacked());
+	}
+
+	@Test
+	public void countsSackedBytesInRange() {
+		Scoreboard scoreboard_ = new Scoreboard();
+		scoreboard_.update(0L, new long[] {100L, 200L, 300L, 400L});
+		assertEquals(0L, scoreboard_.getSackedBytes(0L, 100L));
+		assertEquals(50L, scoreboard_.getSackedBytes(0L, 150L));
+		assertEquals(100L, scoreboard_.getSackedBytes(100L, 300L));
+		assertEquals(60L, scoreboard_.getSackedBytes(170L, 330L));
+		assertEquals(200L, scoreboard_.getSackedBytes(0L, 1000L));
+		assertEquals(0L, scoreboard_.getSackedBytes(400L, 1000L));
+		assertEquals(0L, scoreboard_.getSackedBytes(120L, 120L));
+	}
+
+	@Test
+	public void losesBytesBelowDupThresholdIntervals() {
+		Scoreboard scoreboard_ = new Scoreboard();
+		// Short intervals, far below the byte rule:
+		scoreboard_.update(0L, new long[] {3000L, 3010L, 2000L, 2010L});
+		assertEquals(-1L, scoreboard_.getLostBoundary(MSS, DUP_THRESHOLD));
+
+		// The third interval from the top makes the bytes below it lost:
+		scoreboard_.update(0L, new long[] {1000L, 1010L});
+		assertEquals(1000L, scoreboard_.getLostBoundary(MSS, DUP_THRESHOLD));
+		// A lower interval does not move the boundary down:
+		scoreboard_.update(0L, new long[] {500L, 510L});
+		assertEquals(1000L, scoreboard_.getLostBoundary(MSS, DUP_THRESHOLD));
+
+		// A cumulative ACK that splits the third interval moves it up,
+		// and one above it leaves only two intervals:
+		scoreboard_.update(1005L, null);
+		assertEquals(1005L, scoreboard_.getLostBoundary(MSS, DUP_THRESHOLD));
+		scoreboard_.update(1500L, null);
+		assertEquals(-1L, scoreboard_.getLostBoundary(MSS, DUP_THRESHOLD));
+	}
+
+	@Test
+	public void losesBytesBelowDupThresholdSegments() {
+		int limit_ = (DUP_THRESHOLD - 1) * MSS;
+
+		// One interval, exactly at and then just above the limit:
+		Scoreboard scoreboard_ = new Scoreboard();
+		scoreboard_.update(0L, new long[] {500L, 500L + limit_});
+		assertEquals(-1L, scoreboard_.getLostBoundary(MSS, DUP_THRESHOLD));
+		scoreboard_.update(0L, new long[] {500L + limit_, 501L + limit_});
+		assertEquals(500L, scoreboard_.getLostBoundary(MSS, DUP_THRESHOLD));
+
+		// Two intervals, which exceed the limit only together:
+		scoreboard_ = new Scoreboard();
+		scoreboard_.update(0L, new long[] {500L, 600L, 700L, 700L + limit_ - MSS});
+		assertEquals(-1L, scoreboard_.getLostBoundary(MSS, DUP_THRESHOLD));
+		scoreboard_.update(0L, new long[] {600L + limit_, 601L + limit_});
+		assertEquals(500L, scoreboard_.getLostBoundary(MSS, DUP_THRESHOLD));
+	}
+
+	@Test
+	public void pipeExcludesSackedAndLostSegments() throws Exception {
+		Simulator simulator_ = new Simulator("SACK", 0, 65536, Reporting.silent());
+		Endpoint endpoint_ = new Endpoint(simulator_, "sender", null, "SACK", 65536);
+		final ArrayList<Long> retransmitted_ = new ArrayList<Long>();
+		SenderSACK sender_ = new SenderSACK(endpoint_) {
+			@Override
+			void transmit(Segment segment_) {
+				assertEquals(-1L, segment_.timestamp);
+				retransmitted_.add(Long.valueOf(segment_.dataSequenceNumber));
+			}
+		};
+		int mss_ = sender_.mss;
+
+		// Segments #0 .. #9 are outstanding; #0, #2 and #4 are missing at the receiver:
+		sender_.bytestream.appendVirtual(10L * mss_);
+		sender_.lastByteSent = 10L * mss_ - 1;
+		sender_.scoreboard.update(0L, new long[] {
+			1L * mss_, 2L * mss_, 3L * mss_, 4L * mss_, 5L * mss_, 10L * mss_
+		});
+		assertEquals(10 * mss_, sender_.getPipe());	// not in the loss recovery
+
+		// The five SACKed segments above #4 make all three holes lost:
+		sender_.lastByteSentBefore3xDupAcksRecvd = sender_.lastByteSent;
+		assertEquals(5L * mss_, sender_.scoreboard.getLostBoundary(mss_, Sender.dupACKthreshold));
+		assertEquals(0, sender_.getPipe());
+
+		// The window allows two retransmissions, each of which adds to the pipe:
+		sender_.congWindow = 2 * mss_;
+		sender_.retransmitLostSegments();
+		assertEquals(2, retransmitted_.size());
+		assertEquals(Long.valueOf(0L), retransmitted_.get(0));
+		assertEquals(Long.valueOf(2L * mss_), retransmitted_.get(1));
+		assertEquals(3L * mss_ - 1, sender_.lastByteRetransmitted);
+		assertEquals(2 * mss_, sender_.getPipe());
+
+		// A larger window retransmits the last hole, but nothing above the boundary:
+		sender_.congWindow = 10 * mss_;
+		sender_.retransmitLostSegments();
+		assertEquals(3, retransmitted_.size());
+		assertEquals(Long.valueOf(4L * mss_), retransmitted_.get(2));
+		assertEquals(3 * mss_, sender_.getPipe());
+
+		// A cumulative ACK of #0 and #1 leaves the retransmitted #2 and #4 in the pipe:
+		sender_.lastByteAcked = 2L * mss_ - 1;
+		sender_.scoreboard.update(2L * mss_, null);
+		assertEquals(2 * mss_, sender_.getPipe());
+		sender_.retransmitLostSegments();
+		assertEquals(3, retransmitted_.size());
+	}
+}
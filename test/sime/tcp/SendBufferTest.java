@@ -0,0 +1,221 @@
+/*
+ * Created on Oct 16, 2026
+ */
+package sime.tcp;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+/**
+ * Tests of the {@link SendBuffer}: the ring of blocks is grown and
+ * "unwrapped" also when it does not start at its first slot, the blocks
+ * of the released data are dropped, the views of the data spanning
+ * two blocks are copies, and the virtual and real data are not mixed.
+ * The byte with the sequence number <code>n</code> holds <code>(byte) n</code>.
+ *
+ * @author agent
+ */
+public class SendBufferTest {
+	/** A small block size, so that the tests cross many blocks. */
+	private static final int BLOCK_SIZE = 4;
+
+	/** The sequence number of the first byte appended. */
+	private static final long FIRST_SEQUENCE_NUMBER = 1000L;
+
+	/**
+	 * Helper method to append the given number of bytes to the buffer.
+	 */
+	private static void append(SendBuffer sendBuffer_, int length_) {
+		byte[] data_ = new byte[length_];
+		long sequenceNumber_ = sendBuffer_.getEndSequenceNumber();
+		for (int i_ = 0; i_ < length_; i_++) {
+			data_[i_] = (byte) (sequenceNumber_ + i_);
+		}
+		sendBuffer_.append(data_, 0, length_);
+	}
+
+	/**
+	 * Helper method to check that the buffer holds the expected bytes.
+	 */
+	private static void assertContents(SendBuffer sendBuffer_) {
+		int length_ = (int) sendBuffer_.size();
+		long sequenceNumber_ = sendBuffer_.getFirstSequenceNumber();
+		byte[] expected_ = new byte[length_];
+		for (int i_ = 0; i_ < length_; i_++) {
+			expected_[i_] = (byte) (sequenceNumber_ + i_);
+		}
+		byte[] actual_ = new byte[length_];
+		sendBuffer_.read(sequenceNumber_, actual_, 0, length_);
+		assertArrayEquals(expected_, actual_);
+	}
+
+	@Test
+	public void repacksWrappedRingWhenGrown() {
+		SendBuffer sendBuffer_ = new SendBuffer(BLOCK_SIZE, FIRST_SEQUENCE_NUMBER);
+		int ring_ = sendBuffer_.blocks.length;
+		append(sendBuffer_, ring_ * BLOCK_SIZE);
+		sendBuffer_.release(FIRST_SEQUENCE_NUMBER + 2 * BLOCK_SIZE + 1);
+		assertEquals(2, sendBuffer_.headBlock);
+		assertEquals(ring_ - 2, sendBuffer_.blockCount);
+		assertEquals(1, sendBuffer_.headOffset);
+
+		// Fill the two free slots at the beginning of the ring, so that it wraps:
+		append(sendBuffer_, 2 * BLOCK_SIZE);
+		assertEquals(ring_, sendBuffer_.blocks.length);
+		assertEquals(ring_, sendBuffer_.blockCount);
+		assertContents(sendBuffer_);
+
+		// The ring is full, so it is doubled and unwrapped:
+		byte[] head_ = sendBuffer_.blocks[sendBuffer_.headBlock];
+		append(sendBuffer_, 1);
+		assertEquals(2 * ring_, sendBuffer_.blocks.length);
+		assertEquals(ring_ + 1, sendBuffer_.blockCount);
+		assertEquals(0, sendBuffer_.headBlock);
+		assertTrue(head_ == sendBuffer_.blocks[0]);
+		assertEquals(1, sendBuffer_.headOffset);
+		assertContents(sendBuffer_);
+	}
+
+	@Test
+	public void dropsReleasedBlocks() {
+		SendBuffer sendBuffer_ = new SendBuffer(BLOCK_SIZE, FIRST_SEQUENCE_NUMBER);
+		append(sendBuffer_, 3 * BLOCK_SIZE + 2);
+		assertEquals(4, sendBuffer_.blockCount);
+
+		// Within the head block, nothing is dropped:
+		sendBuffer_.release(FIRST_SEQUENCE_NUMBER + BLOCK_SIZE - 1);
+		assertEquals(0, sendBuffer_.headBlock);
+		assertEquals(4, sendBuffer_.blockCount);
+		assertEquals(BLOCK_SIZE - 1, sendBuffer_.headOffset);
+
+		// An old acknowledgment releases nothing:
+		sendBuffer_.release(FIRST_SEQUENCE_NUMBER);
+		assertEquals(3 * BLOCK_SIZE + 2 - (BLOCK_SIZE - 1), sendBuffer_.size());
+
+		// Three blocks at once, up to a block boundary:
+		sendBuffer_.release(FIRST_SEQUENCE_NUMBER + 3 * BLOCK_SIZE);
+		assertEquals(1, sendBuffer_.blockCount);
+		assertEquals(3, sendBuffer_.headBlock);
+		assertEquals(0, sendBuffer_.headOffset);
+		assertNull(sendBuffer_.blocks[0]);
+		assertNull(sendBuffer_.blocks[1]);
+		assertNull(sendBuffer_.blocks[2]);
+		assertEquals(2, sendBuffer_.size());
+		assertContents(sendBuffer_);
+
+		// Everything, beyond the end of the buffer; the partly filled last block is kept:
+		sendBuffer_.release(FIRST_SEQUENCE_NUMBER + 10 * BLOCK_SIZE);
+		assertEquals(0L, sendBuffer_.size());
+		assertEquals(FIRST_SEQUENCE_NUMBER + 3 * BLOCK_SIZE + 2, sendBuffer_.getEndSequenceNumber());
+		assertEquals(1, sendBuffer_.blockCount);
+		assertEquals(2, sendBuffer_.headOffset);
+
+		// Fill up the last block and release it, so that no block is left:
+		append(sendBuffer_, BLOCK_SIZE - 2);
+		sendBuffer_.release(sendBuffer_.getEndSequenceNumber());
+		assertEquals(0, sendBuffer_.blockCount);
+		assertEquals(0, sendBuffer_.headOffset);
+		append(sendBuffer_, BLOCK_SIZE + 1);
+		assertEquals(2, sendBuffer_.blockCount);
+		assertContents(sendBuffer_);
+	}
+
+	@Test
+	public void copiesSliceAcrossBlocks() {
+		SendBuffer sendBuffer_ = new SendBuffer(BLOCK_SIZE, FIRST_SEQUENCE_NUMBER);
+		append(sendBuffer_, 4 * BLOCK_SIZE);
+		sendBuffer_.release(FIRST_SEQUENCE_NUMBER + 1);
+
+		// Within one block, a view of the block:
+		ByteBuffer view_ = sendBuffer_.slice(FIRST_SEQUENCE_NUMBER + 1, BLOCK_SIZE - 1);
+		assertSlice(FIRST_SEQUENCE_NUMBER + 1, BLOCK_SIZE - 1, view_);
+
+		// Across a block boundary, and across three blocks:
+		long from_ = FIRST_SEQUENCE_NUMBER + BLOCK_SIZE - 1;
+		assertSlice(from_, 2, sendBuffer_.slice(from_, 2));
+		assertSlice(from_, 2 * BLOCK_SIZE + 2, sendBuffer_.slice(from_, 2 * BLOCK_SIZE + 2));
+
+		// The views remain valid after their data are released:
+		ByteBuffer copy_ = sendBuffer_.slice(from_, BLOCK_SIZE);
+		sendBuffer_.release(FIRST_SEQUENCE_NUMBER + 3 * BLOCK_SIZE);
+		assertSlice(FIRST_SEQUENCE_NUMBER + 1, BLOCK_SIZE - 1, view_);
+		assertSlice(from_, BLOCK_SIZE, copy_);
+
+		try {
+			sendBuffer_.slice(from_, BLOCK_SIZE);
+			fail("Released bytes were sliced");
+		} catch (IndexOutOfBoundsException ex) {
+			// expected
+		}
+		try {
+			sendBuffer_.slice(FIRST_SEQUENCE_NUMBER + 3 * BLOCK_SIZE, BLOCK_SIZE + 1);
+			fail("Bytes past the end of the buffer were sliced");
+		} catch (IndexOutOfBoundsException ex) {
+			// expected
+		}
+	}
+
+	/**
+	 * Helper method to check that a slice is read-only and holds
+	 * the expected bytes from its position zero up to its limit.
+	 */
+	private static void assertSlice(long sequenceNumber_, int length_, ByteBuffer slice_) {
+		assertTrue(slice_.isReadOnly());
+		assertEquals(0, slice_.position());
+		assertEquals(length_, slice_.limit());
+		for (int i_ = 0; i_ < length_; i_++) {
+			assertEquals((byte) (sequenceNumber_ + i_), slice_.get(i_));
+		}
+	}
+
+	@Test
+	public void doesNotMixVirtualAndRealData() {
+		SendBuffer real_ = new SendBuffer(BLOCK_SIZE, FIRST_SEQUENCE_NUMBER);
+		append(real_, 1);
+		try {
+			real_.appendVirtual(10L);
+			fail("Virtual data were appended to real data");
+		} catch (IllegalStateException ex) {
+			// expected
+		}
+		// Nothing was appended, and the buffer is still usable:
+		assertEquals(1L, real_.size());
+		assertFalse(real_.isVirtual());
+		assertNotNull(real_.slice(FIRST_SEQUENCE_NUMBER, 1));
+
+		SendBuffer virtual_ = new SendBuffer(BLOCK_SIZE, FIRST_SEQUENCE_NUMBER);
+		virtual_.appendVirtual(10L * BLOCK_SIZE);
+		assertTrue(virtual_.isVirtual());
+		try {
+			append(virtual_, 1);
+			fail("Real data were appended to virtual data");
+		} catch (IllegalStateException ex) {
+			// expected
+		}
+		try {
+			virtual_.read(FIRST_SEQUENCE_NUMBER, new byte[1], 0, 1);
+			fail("Virtual data were read");
+		} catch (IllegalStateException ex) {
+			// expected
+		}
+		assertNull(virtual_.slice(FIRST_SEQUENCE_NUMBER + BLOCK_SIZE - 1, 2));
+		virtual_.release(FIRST_SEQUENCE_NUMBER + 3 * BLOCK_SIZE);
+		assertEquals(7L * BLOCK_SIZE, virtual_.size());
+		assertEquals(0, virtual_.blockCount);
+
+		// A released empty buffer switches to the virtual data mode:
+		real_.release(FIRST_SEQUENCE_NUMBER + 1);
+		real_.appendVirtual(10L);
+		assertTrue(real_.isVirtual());
+		assertEquals(FIRST_SEQUENCE_NUMBER + 11, real_.getEndSequenceNumber());
+	}
+}
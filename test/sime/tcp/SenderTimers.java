@@ -0,0 +1,43 @@
+/*
+ * Created on Oct 16, 2026
+ */
+package sime.tcp;
+
+import sime.TimerSimulated;
+
+/**
+ * Gives the tests in other packages access to the timers of
+ * a {@link Sender}, which are package-private.
+ *
+ * @author agent
+ */
+public class SenderTimers {
+
+	/** The class has only static methods. */
+	private SenderTimers() {
+	}
+
+	/**
+	 * Re-arms the RTO timer of the given sender, see {@link Sender#startRTOtimer()}.
+	 * @param sender_ the sender
+	 */
+	public static void startRTOtimer(Sender sender_) {
+		sender_.startRTOtimer();
+	}
+
+	/**
+	 * Returns the RTO timer of the given sender.
+	 * @param sender_ the sender
+	 */
+	public static TimerSimulated getRTOtimer(Sender sender_) {
+		return sender_.rtoTimer;
+	}
+
+	/**
+	 * Returns the pacing timer of the given sender.
+	 * @param sender_ the sender
+	 */
+	public static TimerSimulated getPacingTimer(Sender sender_) {
+		return sender_.pacingTimer;
+	}
+}
@@ -0,0 +1,64 @@
+/*
+ * Created on Oct 16, 2026
+ */
+package sime.tcp;
+
+/**
+ * A congestion control algorithm provided only on the test class path,
+ * in <code>test/META-INF/services/sime.tcp.CongestionControl</code>, to be
+ * discovered by the {@link CongestionControlRegistry}. It is a paced AIMD:
+ * the window grows by two MSS per RTT, and is reduced to three quarters
+ * of the flight size on a congestion event. The calls of the algorithms
+ * are counted over all the senders, see {@link #reset()}.
+ *
+ * @author agent
+ */
+public class TestCongestionControl extends PluggableCongestionControl {
+	/** The name under which the algorithm is registered. */
+	public static final String NAME = "TestAIMD";
+
+	/** The number of algorithms attached to a sender. */
+	static int senders = 0;
+
+	/** The number of calls of {@link #onNewAck(long, long)}. */
+	static int newAcks = 0;
+
+	/** The number of calls of {@link #onCongestionEvent(boolean)}. */
+	static int congestionEvents = 0;
+
+	/** Resets the counts of the calls. */
+	static void reset() {
+		senders = 0;
+		newAcks = 0;
+		congestionEvents = 0;
+	}
+
+	public String getName() {
+		return NAME;
+	}
+
+	@Override
+	protected void init(Sender sender_) {
+		super.init(sender_);
+		senders++;
+	}
+
+	@Override
+	protected int onNewAck(long ackedBytes_, long now_) {
+		newAcks++;
+		int congWindow_ = sender.getCongWindow();
+		int mss_ = sender.getMSS();
+		return congWindow_ + (int) ((2L * mss_ * mss_) / congWindow_);
+	}
+
+	@Override
+	protected int onCongestionEvent(boolean timeout_) {
+		congestionEvents++;
+		return sender.getFlightSize() * 3 / 4;
+	}
+
+	@Override
+	protected boolean isPaced() {
+		return true;
+	}
+}